@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr.internal;
+
+import jdk.jfr.Event;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.texlipse.jfr.BuildStepEvent;
+import org.eclipse.texlipse.jfr.CompletionEvent;
+import org.eclipse.texlipse.jfr.EventRecorder;
+import org.eclipse.texlipse.jfr.ExternalProcessEvent;
+import org.eclipse.texlipse.jfr.FoldingEvent;
+import org.eclipse.texlipse.jfr.OutlineUpdateEvent;
+import org.eclipse.texlipse.jfr.ParseEvent;
+import org.eclipse.texlipse.jfr.SpellingEvent;
+import org.eclipse.texlipse.jfr.TimedEvent;
+
+/**
+ * Records the events of the plugin as flight recorder events. Loaded by
+ * name from <code>Events</code>, as the plugin can't refer to it.
+ */
+public class FlightRecorder implements EventRecorder {
+
+    public Object begin(TimedEvent event) {
+        Event recorded;
+        if (event instanceof ParseEvent) {
+            recorded = new JfrParseEvent();
+        } else if (event instanceof OutlineUpdateEvent) {
+            recorded = new JfrOutlineUpdateEvent();
+        } else if (event instanceof FoldingEvent) {
+            recorded = new JfrFoldingEvent();
+        } else if (event instanceof CompletionEvent) {
+            recorded = new JfrCompletionEvent();
+        } else if (event instanceof SpellingEvent) {
+            recorded = new JfrSpellingEvent();
+        } else if (event instanceof BuildStepEvent) {
+            recorded = new JfrBuildStepEvent();
+        } else if (event instanceof ExternalProcessEvent) {
+            recorded = new JfrExternalProcessEvent();
+        } else {
+            return null;
+        }
+        recorded.begin();
+        return recorded;
+    }
+
+    public boolean shouldCommit(Object recorded) {
+        return ((Event) recorded).shouldCommit();
+    }
+
+    public void commit(TimedEvent event, Object recorded) {
+        if (event instanceof ParseEvent) {
+            ParseEvent from = (ParseEvent) event;
+            JfrParseEvent to = (JfrParseEvent) recorded;
+            to.file = from.file;
+            to.length = from.length;
+            to.outlineNodes = from.outlineNodes;
+            to.references = from.references;
+            to.citations = from.citations;
+            to.errors = from.errors;
+        } else if (event instanceof OutlineUpdateEvent) {
+            OutlineUpdateEvent from = (OutlineUpdateEvent) event;
+            JfrOutlineUpdateEvent to = (JfrOutlineUpdateEvent) recorded;
+            to.file = from.file;
+            to.outlineNodes = from.outlineNodes;
+            to.projectOutlineNodes = from.projectOutlineNodes;
+        } else if (event instanceof FoldingEvent) {
+            FoldingEvent from = (FoldingEvent) event;
+            JfrFoldingEvent to = (JfrFoldingEvent) recorded;
+            to.outlineNodes = from.outlineNodes;
+            to.initial = from.initial;
+        } else if (event instanceof CompletionEvent) {
+            CompletionEvent from = (CompletionEvent) event;
+            JfrCompletionEvent to = (JfrCompletionEvent) recorded;
+            to.kind = from.kind;
+            to.queryLength = from.queryLength;
+            to.results = from.results;
+        } else if (event instanceof SpellingEvent) {
+            SpellingEvent from = (SpellingEvent) event;
+            JfrSpellingEvent to = (JfrSpellingEvent) recorded;
+            to.file = from.file;
+            to.engine = from.engine;
+            to.length = from.length;
+            to.lines = from.lines;
+            to.misspellings = from.misspellings;
+        } else if (event instanceof BuildStepEvent) {
+            BuildStepEvent from = (BuildStepEvent) event;
+            JfrBuildStepEvent to = (JfrBuildStepEvent) recorded;
+            to.program = from.program;
+            to.file = from.file;
+            to.errors = from.errors;
+        } else if (event instanceof ExternalProcessEvent) {
+            ExternalProcessEvent from = (ExternalProcessEvent) event;
+            JfrExternalProcessEvent to = (JfrExternalProcessEvent) recorded;
+            to.command = from.command;
+            to.directory = from.directory;
+            to.outputLength = from.outputLength;
+            to.exitCode = from.exitCode;
+        }
+        ((Event) recorded).commit();
+    }
+
+    public void start(IPreferenceStore store) {
+        PerformanceRecorder.start(store);
+    }
+
+    public void stop() {
+        PerformanceRecorder.stop();
+    }
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder form of <code>BuildStepEvent</code>.
+ */
+@Name("org.eclipse.texlipse.BuildStep")
+@Label("Build Step")
+@Category({ "TeXlipse", "Builder" })
+@StackTrace(false)
+public class JfrBuildStepEvent extends jdk.jfr.Event {
+
+    @Label("Program")
+    public String program;
+
+    @Label("File")
+    public String file;
+
+    @Label("Errors")
+    @Description("Whether the program reported errors")
+    public boolean errors;
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder form of <code>ExternalProcessEvent</code>.
+ */
+@Name("org.eclipse.texlipse.ExternalProcess")
+@Label("External Process")
+@Category({ "TeXlipse", "Builder" })
+@StackTrace(false)
+public class JfrExternalProcessEvent extends jdk.jfr.Event {
+
+    @Label("Command")
+    public String command;
+
+    @Label("Directory")
+    public String directory;
+
+    @Label("Output Length")
+    @Description("The number of characters the program wrote")
+    public int outputLength;
+
+    @Label("Exit Code")
+    @Description("The exit code, or -1 if the program was not waited for")
+    public int exitCode;
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder form of <code>FoldingEvent</code>.
+ */
+@Name("org.eclipse.texlipse.Folding")
+@Label("Code Folding Update")
+@Category({ "TeXlipse", "Editor" })
+@StackTrace(false)
+public class JfrFoldingEvent extends jdk.jfr.Event {
+
+    @Label("Outline Nodes")
+    public int outlineNodes;
+
+    @Label("Initial")
+    @Description("Whether the folds were created from scratch")
+    public boolean initial;
+}
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder form of <code>OutlineUpdateEvent</code>.
+ */
+@Name("org.eclipse.texlipse.OutlineUpdate")
+@Label("Outline Update")
+@Category({ "TeXlipse", "Editor" })
+@StackTrace(false)
+public class JfrOutlineUpdateEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Outline Nodes")
+    public int outlineNodes;
+
+    @Label("Project Outline Nodes")
+    @Description("The number of nodes of the full outline of the project, 0 if it is not shown")
+    public int projectOutlineNodes;
+}
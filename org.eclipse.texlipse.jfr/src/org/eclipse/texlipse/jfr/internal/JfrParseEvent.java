@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder form of <code>ParseEvent</code>.
+ */
+@Name("org.eclipse.texlipse.Parse")
+@Label("Parse")
+@Category({ "TeXlipse", "Editor" })
+@StackTrace(false)
+public class JfrParseEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Document Length")
+    @Description("The number of characters in the document")
+    public int length;
+
+    @Label("Outline Nodes")
+    public int outlineNodes;
+
+    @Label("References")
+    @Description("The number of \\ref commands")
+    public int references;
+
+    @Label("Citations")
+    @Description("The number of \\cite commands")
+    public int citations;
+
+    @Label("Errors")
+    public int errors;
+}
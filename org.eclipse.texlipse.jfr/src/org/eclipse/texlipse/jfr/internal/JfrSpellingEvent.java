@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr.internal;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The flight recorder form of <code>SpellingEvent</code>.
+ */
+@Name("org.eclipse.texlipse.Spelling")
+@Label("Spell Check")
+@Category({ "TeXlipse", "Editor" })
+@StackTrace(false)
+public class JfrSpellingEvent extends jdk.jfr.Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Engine")
+    public String engine;
+
+    @Label("Document Length")
+    public int length;
+
+    @Label("Lines")
+    public int lines;
+
+    @Label("Misspellings")
+    public int misspellings;
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.util.Date;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.jface.preference.IPreferenceStore;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.properties.TexlipseProperties;
+
+/**
+ * Keeps a flight recording running while the performance recording
+ * preference is on, and dumps it to a file when the preference is turned
+ * off or the plugin is stopped. The file can be attached to a bug report
+ * and opened in JDK Mission Control.
+ */
+public class PerformanceRecorder implements IPropertyChangeListener {
+
+    // how much of the history the recording keeps
+    private static final Duration MAX_AGE = Duration.ofMinutes(30);
+
+    private static PerformanceRecorder instance;
+
+    private IPreferenceStore store;
+    private Recording recording;
+
+    private PerformanceRecorder(IPreferenceStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Starts listening to the preferences, and starts a recording if the
+     * preference is on.
+     * @param store the preference store of the plugin
+     */
+    public static synchronized void start(IPreferenceStore store) {
+        if (instance == null) {
+            instance = new PerformanceRecorder(store);
+            store.addPropertyChangeListener(instance);
+            if (store.getBoolean(TexlipseProperties.PERFORMANCE_RECORDING)) {
+                instance.startRecording();
+            }
+        }
+    }
+
+    /**
+     * Stops listening to the preferences, and dumps the running recording.
+     */
+    public static synchronized void stop() {
+        if (instance != null) {
+            instance.store.removePropertyChangeListener(instance);
+            instance.stopRecording();
+            instance = null;
+        }
+    }
+
+    public void propertyChange(PropertyChangeEvent event) {
+        if (TexlipseProperties.PERFORMANCE_RECORDING.equals(event.getProperty())) {
+            synchronized (PerformanceRecorder.class) {
+                if (store.getBoolean(TexlipseProperties.PERFORMANCE_RECORDING)) {
+                    startRecording();
+                } else {
+                    stopRecording();
+                }
+            }
+        }
+    }
+
+    private void startRecording() {
+        if (recording != null) {
+            return;
+        }
+        try {
+            recording = new Recording(Configuration.getConfiguration("default"));
+        } catch (IOException e) {
+            recording = new Recording();
+        } catch (ParseException e) {
+            recording = new Recording();
+        }
+        recording.setName("TeXlipse");
+        // the events are enabled by default, but a custom configuration could turn them off
+        recording.enable(JfrParseEvent.class);
+        recording.enable(JfrOutlineUpdateEvent.class);
+        recording.enable(JfrFoldingEvent.class);
+        recording.enable(JfrCompletionEvent.class);
+        recording.enable(JfrSpellingEvent.class);
+        recording.enable(JfrBuildStepEvent.class);
+        recording.enable(JfrExternalProcessEvent.class);
+        recording.setToDisk(true);
+        recording.setMaxAge(MAX_AGE);
+        try {
+            recording.start();
+        } catch (IllegalStateException e) {
+            TexlipsePlugin.log("Can't start a flight recording", e);
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private void stopRecording() {
+        if (recording == null) {
+            return;
+        }
+        File file = new File(getDirectory(), "texlipse-"
+                + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".jfr");
+        try {
+            recording.dump(file.toPath());
+            TexlipsePlugin.log("Performance recording written to " + file.getAbsolutePath(), null,
+                    IStatus.INFO);
+        } catch (IOException e) {
+            TexlipsePlugin.log("Can't write the performance recording to " + file.getAbsolutePath(), e);
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private File getDirectory() {
+        String dir = store.getString(TexlipseProperties.PERFORMANCE_RECORDING_DIR);
+        if (dir != null && dir.length() > 0 && new File(dir).isDirectory()) {
+            return new File(dir);
+        }
+        return TexlipsePlugin.getDefault().getStateLocation().toFile();
+    }
+}
@@ -14,14 +14,20 @@
 package org.eclipse.texlipse;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.text.templates.ContextTypeRegistry;
 import org.eclipse.jface.text.templates.persistence.TemplateStore;
@@ -30,9 +36,16 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.texlipse.bibeditor.BibCodeScanner;
 import org.eclipse.texlipse.bibeditor.BibColorProvider;
 import org.eclipse.texlipse.bibeditor.BibEntryScanner;
+import org.eclipse.texlipse.editor.hover.FormulaPreviews;
+import org.eclipse.texlipse.jfr.Events;
+import org.eclipse.texlipse.model.BibFileCache;
+import org.eclipse.texlipse.model.OccurrenceIndexUpdater;
+import org.eclipse.texlipse.model.TexCommandContainer;
 import org.eclipse.texlipse.properties.StringListFieldEditor;
+import org.eclipse.texlipse.properties.TexlipseProperties;
 import org.eclipse.texlipse.templates.BibTexContextType;
 import org.eclipse.texlipse.templates.TexContextType;
+import org.eclipse.texlipse.ui.SharedImageRegistry;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.IWorkbench;
@@ -85,6 +98,12 @@ public class TexlipsePlugin extends AbstractUIPlugin {
     // used by the current project solving mechanism
     protected static IWorkbenchWindow currentWindow;
     
+    // the descriptors of the icons by name, null if the icon doesn't exist
+    private static final Map<String, ImageDescriptor> imageDescriptors = new HashMap<String, ImageDescriptor>();
+    
+    // the images of the icons and the math symbols
+    private SharedImageRegistry sharedImages;
+    
     /**
      * Constructs a new TeXlipse plugin.
      */
@@ -108,12 +127,42 @@ public class TexlipsePlugin extends AbstractUIPlugin {
      */
     public void start(BundleContext context) throws Exception {
         super.start(context);
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(
+                BibFileCache.getInstance(), IResourceChangeEvent.POST_CHANGE);
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(
+                OccurrenceIndexUpdater.getInstance(), IResourceChangeEvent.POST_CHANGE);
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(
+                TexlipseProperties.getProjectListener(), IResourceChangeEvent.POST_CHANGE);
+        getPreferenceStore().addPropertyChangeListener(FormulaPreviews.getPreferenceListener());
+        Events.getRecorder().start(getPreferenceStore());
+        
+        sharedImages = new SharedImageRegistry();
+        // decode the math symbols before the first completion shows them
+        Job preload = new Job("Loading math symbols") {
+            protected IStatus run(IProgressMonitor monitor) {
+                sharedImages.preload(TexCommandContainer.getImageDescriptors(), monitor);
+                return Status.OK_STATUS;
+            }
+        };
+        preload.setSystem(true);
+        preload.setPriority(Job.DECORATE);
+        preload.schedule();
     }
     
     /**
      * This method is called when the plug-in is stopped
      */
     public void stop(BundleContext context) throws Exception {
+        Events.getRecorder().stop();
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(
+                BibFileCache.getInstance());
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(
+                OccurrenceIndexUpdater.getInstance());
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(
+                TexlipseProperties.getProjectListener());
+        getPreferenceStore().removePropertyChangeListener(FormulaPreviews.getPreferenceListener());
+        BibFileCache.getInstance().clear();
+        sharedImages.dispose();
         super.stop(context);
     }
     
@@ -178,11 +227,6 @@ public class TexlipsePlugin extends AbstractUIPlugin {
         if (key == null) {
             return null;
         }
-        Image g = getImageRegistry().get(key);
-        if (g != null) {
-            return g;
-        }
-
         ImageDescriptor d = getImageDescriptor(key);
         if (d == null ) {
             return null;
@@ -193,19 +237,32 @@ public class TexlipsePlugin extends AbstractUIPlugin {
             return null;
         }
 
-        g = d.createImage();
-        getImageRegistry().put(key, g);
-        return g;
+        return sharedImages.get(d);
+    }
+    
+    /**
+     * Returns the images shared by the commands, the outline and the hovers.
+     * @return the image registry of the plugin
+     */
+    public static SharedImageRegistry getSharedImages() {
+        return getDefault().sharedImages;
     }
     
     /**
      * Get the workbench image with the given path relative to
-     * ICON_PATH.
+     * ICON_PATH. The same name always gives the same descriptor.
      * @param relativePath
-     * @return ImageDescriptor
+     * @return ImageDescriptor, or null if the icon doesn't exist
      */
     public static ImageDescriptor getImageDescriptor(String relativePath){
-        return imageDescriptorFromPlugin(PLUGIN_ID, ICONS_PATH + relativePath + ".gif");
+        synchronized (imageDescriptors) {
+            if (imageDescriptors.containsKey(relativePath)) {
+                return imageDescriptors.get(relativePath);
+            }
+            ImageDescriptor d = imageDescriptorFromPlugin(PLUGIN_ID, ICONS_PATH + relativePath + ".gif");
+            imageDescriptors.put(relativePath, d);
+            return d;
+        }
     }
     
     /**
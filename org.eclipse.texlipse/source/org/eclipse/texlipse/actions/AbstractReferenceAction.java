@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.actions;
+
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jface.action.IAction;
+import org.eclipse.jface.action.SubStatusLineManager;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.ITextSelection;
+import org.eclipse.jface.viewers.ISelection;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.editor.TexEditor;
+import org.eclipse.texlipse.model.ProjectOccurrenceIndex;
+import org.eclipse.texlipse.model.ProjectOccurrenceIndex.Occurrence;
+import org.eclipse.texlipse.texparser.DocumentCharSequence;
+import org.eclipse.texlipse.texparser.LatexParserUtils;
+import org.eclipse.ui.IEditorActionDelegate;
+import org.eclipse.ui.IEditorPart;
+
+/**
+ * Base class of the actions working on the project-wide occurrences of
+ * the label or BibTeX key under the cursor. The cursor can be on a
+ * <code>\label</code>, any <code>\...ref</code> or <code>\...cite...</code>
+ * command or its argument.
+ */
+public abstract class AbstractReferenceAction implements IEditorActionDelegate {
+
+    private IEditorPart targetEditor;
+
+    /* (non-Javadoc)
+     * @see org.eclipse.ui.IEditorActionDelegate#setActiveEditor(org.eclipse.jface.action.IAction, org.eclipse.ui.IEditorPart)
+     */
+    public void setActiveEditor(IAction action, IEditorPart targetEditor) {
+        this.targetEditor = targetEditor;
+    }
+
+    /**
+     * Prints an error message on the status line and make a beep.
+     * @param message   The error message
+     */
+    protected void createStatusLineErrorMessage(String message) {
+        if (targetEditor instanceof TexEditor) {
+            TexEditor editor = (TexEditor) targetEditor;
+
+            SubStatusLineManager slm =
+                (SubStatusLineManager) targetEditor.getEditorSite().getActionBars().getStatusLineManager();
+            slm.setErrorMessage(message);
+            slm.setVisible(true);
+
+            editor.getViewer().getTextWidget().getDisplay().beep();
+        }
+    }
+
+    /*
+     *  (non-Javadoc)
+     * @see org.eclipse.ui.IActionDelegate#run(org.eclipse.jface.action.IAction)
+     */
+    public void run(IAction action) {
+        if (!(targetEditor instanceof TexEditor)) {
+            throw new RuntimeException("Expecting text editor. Found: "+ targetEditor.getClass().getName());
+        }
+        TexEditor editor = (TexEditor) targetEditor;
+        IProject project = editor.getProject();
+        if (project == null)
+            return;
+
+        ProjectOccurrenceIndex index = ProjectOccurrenceIndex.getIndex(project);
+        if (index == null) {
+            createStatusLineErrorMessage(TexlipsePlugin.getResourceString("referencesNotIndexed"));
+            return;
+        }
+
+        ITextSelection selection = (ITextSelection) editor.getSelectionProvider().getSelection();
+        IDocument doc = editor.getDocumentProvider().getDocument(editor.getEditorInput());
+        CharSequence docString = new DocumentCharSequence(doc);
+
+        //Get command under cursor
+        IRegion comRegion = LatexParserUtils.getCommand(docString, selection.getOffset());
+        if (comRegion == null) {
+            createStatusLineErrorMessage(TexlipsePlugin.getResourceString("gotoDeclarationNoCommandFound"));
+            return;
+        }
+        String command = docString.subSequence(comRegion.getOffset(), comRegion.getOffset() + comRegion.getLength()).toString();
+        boolean cite = command.indexOf("cite") >= 0;
+        if (!cite && !command.endsWith("ref") && !command.equals("\\label")) {
+            createStatusLineErrorMessage(TexlipsePlugin.getResourceString("referencesNoKeyFound"));
+            return;
+        }
+
+        IRegion region = LatexParserUtils.getCommandArgument(docString, comRegion.getOffset());
+        if (region == null) {
+            createStatusLineErrorMessage(TexlipsePlugin.getResourceString("gotoDeclarationNoArgumentFound"));
+            return;
+        }
+        String key = docString.subSequence(region.getOffset(), region.getOffset() + region.getLength()).toString();
+
+        if (cite && key.indexOf(',') >= 0) {
+            //There could be more than one key (e.g. cite1,cite2), take the one under the cursor
+            int cIndex = Math.max(0, Math.min(key.length() - 1, selection.getOffset() - region.getOffset()));
+            if (key.charAt(cIndex) == ',' && cIndex > 0) cIndex--;
+            int start = key.lastIndexOf(',', cIndex) + 1;
+            int end = key.indexOf(',', cIndex);
+            if (end < 0)
+                end = key.length();
+            key = key.substring(start, end);
+        }
+        key = key.trim();
+        if (key.length() == 0) {
+            createStatusLineErrorMessage(TexlipsePlugin.getResourceString("referencesNoKeyFound"));
+            return;
+        }
+
+        List<Occurrence> occurrences = cite ? index.getCiteOccurrences(key) : index.getLabelOccurrences(key);
+        run(editor, project, key, cite, occurrences);
+    }
+
+    /**
+     * Runs the action on the occurrences of the key under the cursor.
+     *
+     * @param editor The editor the action was invoked in
+     * @param project The project of the editor
+     * @param key The label or BibTeX key
+     * @param cite True if the key is a BibTeX key, false for a label
+     * @param occurrences The occurrences of the key in the project
+     */
+    protected abstract void run(TexEditor editor, IProject project, String key,
+            boolean cite, List<Occurrence> occurrences);
+
+    /*
+     *  (non-Javadoc)
+     * @see org.eclipse.ui.IActionDelegate#selectionChanged(org.eclipse.jface.action.IAction, org.eclipse.jface.viewers.ISelection)
+     */
+    public void selectionChanged(IAction action, ISelection selection) {
+        action.setEnabled(targetEditor instanceof TexEditor);
+    }
+}
@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.actions;
+
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.editor.TexEditor;
+import org.eclipse.texlipse.model.ProjectOccurrenceIndex.Occurrence;
+import org.eclipse.texlipse.referencesview.views.TexReferencesView;
+import org.eclipse.ui.PartInitException;
+
+/**
+ * This action lists all definitions of and references to the label, or all
+ * citations of the BibTeX key, under the cursor in the references view.
+ * The occurrences come from the project occurrence index, so no files
+ * are read.
+ */
+public class FindReferencesAction extends AbstractReferenceAction {
+
+    protected void run(TexEditor editor, IProject project, String key,
+            boolean cite, List<Occurrence> occurrences) {
+        try {
+            TexReferencesView view = (TexReferencesView) editor.getEditorSite().getPage()
+                    .showView(TexReferencesView.ID);
+            view.setOccurrences(project, key, occurrences);
+        } catch (PartInitException e) {
+            TexlipsePlugin.log("Find references", e);
+        }
+    }
+}
@@ -37,6 +37,7 @@ import org.eclipse.texlipse.editor.TexEditor;
 import org.eclipse.texlipse.model.AbstractEntry;
 import org.eclipse.texlipse.model.TexCommandEntry;
 import org.eclipse.texlipse.properties.TexlipseProperties;
+import org.eclipse.texlipse.texparser.DocumentCharSequence;
 import org.eclipse.texlipse.texparser.LatexParserUtils;
 import org.eclipse.ui.IEditorActionDelegate;
 import org.eclipse.ui.IEditorPart;
@@ -106,7 +107,7 @@ public class OpenDeclarationAction implements IEditorActionDelegate {
 
         ITextSelection selection = (ITextSelection) editor.getSelectionProvider().getSelection();
         IDocument doc = editor.getDocumentProvider().getDocument(editor.getEditorInput());
-        String docString = doc.get();
+        CharSequence docString = new DocumentCharSequence(doc);
         
         //Get command under cursor
         IRegion comRegion = LatexParserUtils.getCommand(docString, selection.getOffset());
@@ -114,7 +115,7 @@ public class OpenDeclarationAction implements IEditorActionDelegate {
             createStatusLineErrorMessage(TexlipsePlugin.getResourceString("gotoDeclarationNoCommandFound"));
             return;
         }        
-        String command = docString.substring(comRegion.getOffset(), comRegion.getOffset() + comRegion.getLength());
+        String command = docString.subSequence(comRegion.getOffset(), comRegion.getOffset() + comRegion.getLength()).toString();
         
         AbstractEntry refEntry = null;
         if (selection.getOffset() < comRegion.getOffset() + comRegion.getLength()) {
@@ -136,7 +137,7 @@ public class OpenDeclarationAction implements IEditorActionDelegate {
                 createStatusLineErrorMessage(TexlipsePlugin.getResourceString("gotoDeclarationNoArgumentFound"));
                 return;
             }
-            String ref = docString.substring(region.getOffset(), region.getOffset() + region.getLength());
+            String ref = docString.subSequence(region.getOffset(), region.getOffset() + region.getLength()).toString();
         
             if (command.indexOf("ref") >= 0) {
                 //Find the matching label
@@ -124,7 +124,7 @@ public class PartialBuildAction implements IWorkbenchWindowActionDelegate, IEdit
                 return;
             }
             //System.out.println("partial-build-running-from");
-            action.setChecked(TexlipseProperties.getProjectProperty(project, TexlipseProperties.PARTIAL_BUILD_PROPERTY) != null);
+            action.setChecked(TexlipseProperties.getProjectConfiguration(project).partialBuild);
             run(action);
         }
     }
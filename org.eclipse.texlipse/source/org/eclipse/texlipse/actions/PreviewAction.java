@@ -55,8 +55,7 @@ public class PreviewAction implements IWorkbenchWindowActionDelegate, IEditorAct
             
             // Get the output format
             IProject project = TexlipsePlugin.getCurrentProject();
-            String outputFormat = TexlipseProperties.getProjectProperty(project,
-                TexlipseProperties.OUTPUT_FORMAT);
+            String outputFormat = TexlipseProperties.getProjectConfiguration(project).outputFormat;
             
             // Get the preferred viewer for the current output format
             ViewerAttributeRegistry var = new ViewerAttributeRegistry();
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.actions;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.dialogs.IInputValidator;
+import org.eclipse.jface.dialogs.InputDialog;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.editor.TexEditor;
+import org.eclipse.texlipse.model.ProjectOccurrenceIndex.Occurrence;
+import org.eclipse.texlipse.model.ReferenceEntry;
+import org.eclipse.texlipse.properties.TexlipseProperties;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.part.FileEditorInput;
+import org.eclipse.ui.texteditor.ITextEditor;
+
+/**
+ * This action renames the label or BibTeX key under the cursor in every
+ * file of the project. The places to change come from the project
+ * occurrence index. Files open in an editor are changed in the editor,
+ * the others are rewritten on disk. A renamed BibTeX key is also renamed
+ * in the entry of the project's .bib file that defines it.
+ *
+ * Before an occurrence is replaced, the old key is checked to be still at
+ * its offset; occurrences that have moved since the file was indexed are
+ * skipped and reported.
+ */
+public class RenameReferenceAction extends AbstractReferenceAction {
+
+    protected void run(final TexEditor editor, IProject project, final String key,
+            boolean cite, List<Occurrence> occurrences) {
+
+        InputQueryDialog dialog = new InputQueryDialog(editor.getEditorSite().getShell(),
+                TexlipsePlugin.getResourceString("renameReferenceDialogTitle"),
+                TexlipsePlugin.getResourceString("renameReferenceDialogMessage").replaceAll("%s", key),
+                key,
+                new IInputValidator() {
+            public String isValid(String newText) {
+                if (newText == null || newText.length() == 0 || newText.equals(key)) {
+                    return "";
+                }
+                for (int i = 0; i < newText.length(); i++) {
+                    char c = newText.charAt(i);
+                    if (Character.isWhitespace(c) || "{}\\,%#".indexOf(c) >= 0) {
+                        return TexlipsePlugin.getResourceString("renameReferenceInvalidKey");
+                    }
+                }
+                return null;
+            }
+        });
+        if (dialog.open() != InputDialog.OK) {
+            return;
+        }
+        final String newKey = dialog.getInput();
+        if (newKey == null || newKey.length() == 0 || newKey.equals(key)) {
+            return;
+        }
+
+        // the offsets to change, by file
+        final Map<IFile, List<Integer>> edits = new LinkedHashMap<IFile, List<Integer>>();
+        for (Occurrence o : occurrences) {
+            addEdit(edits, project.getFile(o.getFileName()), o.getOffset());
+        }
+        if (cite) {
+            ReferenceEntry entry = editor.getDocumentModel().getRefMana().getBib(key);
+            if (entry != null && entry.fileName != null) {
+                IFile bibFile = project.getFile(entry.fileName);
+                // don't touch .bib files outside the project
+                if (bibFile.exists() && !bibFile.isLinked()) {
+                    addEdit(edits, bibFile, -1);
+                }
+            }
+        }
+
+        final IWorkbenchPage page = editor.getEditorSite().getPage();
+        final int[] skipped = new int[1];
+        try {
+            // one resource change notification for all the files
+            ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+                public void run(IProgressMonitor monitor) throws CoreException {
+                    for (Map.Entry<IFile, List<Integer>> e : edits.entrySet()) {
+                        skipped[0] += rename(page, e.getKey(), e.getValue(), key, newKey, monitor);
+                    }
+                }
+            }, null);
+        } catch (CoreException ce) {
+            TexlipsePlugin.log("Rename reference", ce);
+        }
+        if (skipped[0] > 0) {
+            createStatusLineErrorMessage(MessageFormat.format(
+                    TexlipsePlugin.getResourceString("renameReferenceSkipped"),
+                    new Object[] {String.valueOf(skipped[0])}));
+        }
+    }
+
+    private static void addEdit(Map<IFile, List<Integer>> edits, IFile file, int offset) {
+        List<Integer> offsets = edits.get(file);
+        if (offsets == null) {
+            offsets = new ArrayList<Integer>();
+            edits.put(file, offsets);
+        }
+        offsets.add(Integer.valueOf(offset));
+    }
+
+    /**
+     * Replaces the key at the given offsets of a file. An offset of -1
+     * stands for the key of a BibTeX entry, which is searched for.
+     *
+     * @return The number of offsets where the key was not found
+     */
+    private static int rename(IWorkbenchPage page, IFile file, List<Integer> offsets,
+            String key, String newKey, IProgressMonitor monitor) throws CoreException {
+        if (!file.exists()) {
+            return offsets.size();
+        }
+        IEditorPart part = page.findEditor(new FileEditorInput(file));
+        if (part instanceof ITextEditor) {
+            ITextEditor textEditor = (ITextEditor) part;
+            IDocument document = textEditor.getDocumentProvider().getDocument(textEditor.getEditorInput());
+            if (document != null) {
+                return rename(document, offsets, key, newKey);
+            }
+        }
+        try {
+            IDocument document = new Document(TexlipseProperties.getFileContents(file));
+            int skipped = rename(document, offsets, key, newKey);
+            if (skipped < offsets.size()) {
+                file.setContents(new ByteArrayInputStream(document.get().getBytes(file.getCharset())),
+                        IResource.KEEP_HISTORY, monitor);
+            }
+            return skipped;
+        } catch (IOException ioe) {
+            TexlipsePlugin.log("Rename reference in " + file.getFullPath(), ioe);
+            return offsets.size();
+        }
+    }
+
+    /**
+     * Replaces the key at the given offsets of a document, last offset
+     * first so the earlier ones stay valid.
+     *
+     * @return The number of offsets where the key was not found
+     */
+    private static int rename(IDocument document, List<Integer> offsets, String key, String newKey) {
+        List<Integer> sorted = new ArrayList<Integer>(offsets.size());
+        for (Integer offset : offsets) {
+            sorted.add(offset.intValue() < 0 ? Integer.valueOf(findBibEntry(document.get(), key)) : offset);
+        }
+        Collections.sort(sorted, Collections.reverseOrder());
+        int skipped = 0;
+        for (Integer offset : sorted) {
+            try {
+                int o = offset.intValue();
+                if (o >= 0 && o + key.length() <= document.getLength()
+                        && key.equals(document.get(o, key.length()))) {
+                    document.replace(o, key.length(), newKey);
+                } else {
+                    skipped++;
+                }
+            } catch (BadLocationException ble) {
+                skipped++;
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * @return The offset of the key in <code>@type{key,</code>, or -1
+     */
+    private static int findBibEntry(String text, String key) {
+        Matcher m = Pattern.compile("@\\w+\\s*[{(]\\s*(" + Pattern.quote(key) + ")\\s*,").matcher(text);
+        return m.find() ? m.start(1) : -1;
+    }
+}
@@ -21,6 +21,7 @@ import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextSelection;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.texparser.DocumentCharSequence;
 import org.eclipse.ui.texteditor.ITextEditor;
 
 
@@ -140,7 +141,7 @@ public class TexSelections {
     	if (textSelection.getLength() == 0) {
     		try {
     			int offset = textSelection.getOffset();
-    			String doc = document.get();
+    			CharSequence doc = new DocumentCharSequence(document);
 
     			Pattern p = Pattern.compile("(?m)"
     					+ Pattern.quote(endLineDelim) + "\\p{Blank}*"
@@ -13,25 +13,13 @@
 
 package org.eclipse.texlipse.auxparser;
 
-import java.io.IOException;
-import java.io.PushbackReader;
-import java.io.StringReader;
 import java.util.LinkedList;
 import java.util.List;
 
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
-import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.texlipse.builder.core.AuxFileReader;
 import org.eclipse.texlipse.model.ReferenceEntry;
-import org.eclipse.texlipse.properties.TexlipseProperties;
-import org.eclipse.texlipse.texparser.LatexLexer;
-import org.eclipse.texlipse.texparser.node.EOF;
-import org.eclipse.texlipse.texparser.node.TArgument;
-import org.eclipse.texlipse.texparser.node.TCcite;
-import org.eclipse.texlipse.texparser.node.TCsymbol;
-import org.eclipse.texlipse.texparser.node.TCword;
-import org.eclipse.texlipse.texparser.node.TWord;
-import org.eclipse.texlipse.texparser.node.Token;
 
 /**
  * Extracts information from the .aux file which is created by a latex run. 
@@ -47,6 +35,9 @@ import org.eclipse.texlipse.texparser.node.Token;
  *
  * further use cases are possible ...
  * 
+ * The files are read with the <code>AuxFileReader</code> of the command
+ * line builder.
+ * 
  * @author Frank Lehrieder
  *
  */
@@ -62,11 +53,28 @@ public class AuxFileParser {
      */
     private String rootAuxfile;
 
+    /**
+     * The contents of the .aux-files, read when first needed
+     */
+    private AuxFileReader reader;
+
     public AuxFileParser(IProject project, String auxFile) {
         this.project = project;
         this.rootAuxfile = auxFile;
     }
 
+    /**
+     * Creates a parser for .aux-files that have been read already.
+     * 
+     * @param project the project
+     * @param auxFile the project relative name of the .aux-file
+     * @param reader the contents of the .aux-files
+     */
+    public AuxFileParser(IProject project, String auxFile, AuxFileReader reader) {
+        this(project, auxFile);
+        this.reader = reader;
+    }
+
     public IProject getProject() {
         return project;
     }
@@ -76,7 +84,8 @@ public class AuxFileParser {
     }
 
     public List<String> getCitations() {
-        return doParse(rootAuxfile, "\\citation");
+        AuxFileReader r = getReader();
+        return r != null ? r.getCitations() : new LinkedList<String>();
     }
 
     /**
@@ -84,80 +93,27 @@ public class AuxFileParser {
      * <code>ReferenceEntry</code>
      */
     public List<ReferenceEntry> getLabels() {
-        List<String> labels = doParse(rootAuxfile, "\\newlabel");
         List<ReferenceEntry> result = new LinkedList<ReferenceEntry>();
-        for (String key : labels) {
-            result.add(new ReferenceEntry(key, "No info available"));
+        AuxFileReader r = getReader();
+        if (r != null) {
+            for (String key : r.getLabels()) {
+                result.add(new ReferenceEntry(key, "No info available"));
+            }
         }
         return result;
     }
 
     /**
-     * Parses <code>input</code> and collects all tokens which follow the given
-     * <code>command</code>. Used to extract e.g., labels, citations, bibcites
-     *
-     * @param filename name of the file to be parsed
-     * @param command
-     * @return list of Strings following the given command
+     * @return the contents of the .aux-files, or null if the project isn't local
      */
-    private List<String> doParse(String filename, String command) {
-        IResource auxFile = project.getFile(filename);
-        String input = null;
-
-        try {
-            input = TexlipseProperties.getFileContents(auxFile);
-        } catch (IOException e) {
-            TexlipsePlugin.log("Could not parse .aux-file " + auxFile, e);
-            return new LinkedList<String>();
-        }
-
-        LatexLexer lexer = new LatexLexer(new PushbackReader(new StringReader(input), 4096));
-        Token prevCommand = null;
-        Token prevSymbol = null;
-        Token prevText = null;
-        List<String> results = new LinkedList<String>();
-
-        try {
-            for (Token t = lexer.next(); !(t instanceof EOF); t = lexer.next()) {
-                // extract the strings following <code>command</code>
-                if (prevCommand == null) {
-                    if ((t instanceof TCword || t instanceof TCcite)
-                            && t.getText().equalsIgnoreCase(command)) {
-                        prevCommand = t;
-                    }
-                } else {
-                    if (t instanceof TWord || t instanceof TArgument) {
-                        if (command.equalsIgnoreCase(prevCommand.getText())) {
-                            results.add(t.getText());
-                            prevCommand = null;
-                        } 
-                    }
-                }
-
-                // look for additional .aux-files and parse them
-                if (prevText != null) {
-                    if (prevText.getText().equalsIgnoreCase("input") &&
-                            t instanceof TWord) {
-                        prevText = null;   
-                        String newAuxFileName = t.getText();
-                        results.addAll(doParse(newAuxFileName, command));
-                    }
-                }
-                if (prevSymbol == null) {
-                    if (t instanceof TCsymbol) {
-                        prevSymbol = t;
-                    }
-                } else {
-                    if (prevSymbol.getText().equals("\\@")) {
-                        prevText = t;
-                    }
-                    prevSymbol = null;
-                }
+    private AuxFileReader getReader() {
+        if (reader == null) {
+            IPath location = project.getFile(rootAuxfile).getLocation();
+            if (location == null) {
+                return null;
             }
-        } catch (Exception e) {
-            // do nothing
+            reader = new AuxFileReader(location.toFile().toPath());
         }
-        return results;
+        return reader;
     }
-
-}
\ No newline at end of file
+}
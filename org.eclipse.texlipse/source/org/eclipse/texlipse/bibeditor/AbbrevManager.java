@@ -13,7 +13,10 @@
 
 package org.eclipse.texlipse.bibeditor;
 
-import org.eclipse.texlipse.model.PartialRetriever;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.texlipse.model.PrefixIndex;
 import org.eclipse.texlipse.model.ReferenceEntry;
 
 /**
@@ -22,15 +25,18 @@ import org.eclipse.texlipse.model.ReferenceEntry;
  * 
  * @author Oskar Ojala
  */
-public class AbbrevManager extends PartialRetriever {
+public class AbbrevManager {
     
     private ReferenceEntry[] abbrevs;
+    private PrefixIndex<ReferenceEntry> prefixIndex;
     
     /**
      * @param abbrevs The abbrevs to set.
      */
     public void setAbbrevs(ReferenceEntry[] abbrevs) {
         this.abbrevs = abbrevs;
+        this.prefixIndex = abbrevs == null ? null
+                : new PrefixIndex<ReferenceEntry>(Arrays.asList(abbrevs), false);
     }
     
     /**
@@ -47,12 +53,10 @@ public class AbbrevManager extends PartialRetriever {
         if (start.equals(""))
             return abbrevs;
         
-        int[] bounds = this.getCompletionsBin(start, abbrevs);
-        if (bounds[0] == -1)
+        List<ReferenceEntry> compls = prefixIndex.getCompletions(start);
+        if (compls == null)
             return null;
         
-        ReferenceEntry[] compls = new ReferenceEntry[bounds[1] - bounds[0]];
-        System.arraycopy(abbrevs, bounds[0], compls, 0, bounds[1] - bounds[0]);
-        return compls;
+        return compls.toArray(new ReferenceEntry[compls.size()]);
     }
 }
@@ -26,6 +26,7 @@ import org.eclipse.jface.text.contentassist.IContextInformation;
 import org.eclipse.jface.text.contentassist.IContextInformationValidator;
 import org.eclipse.texlipse.model.ReferenceEntry;
 import org.eclipse.texlipse.templates.BibTexTemplateCompletion;
+import org.eclipse.texlipse.texparser.DocumentCharSequence;
 import org.eclipse.texlipse.templates.ProposalsComparator;
 
 
@@ -60,7 +61,7 @@ public class BibCompletionProcessor implements IContentAssistProcessor {
         if (abbrManager == null)
             this.abbrManager = this.model.getAbbrManager();
         
-        String completeDoc = viewer.getDocument().get();
+        CharSequence completeDoc = new DocumentCharSequence(viewer.getDocument());
         
         //get available and matching template completions
         String latest = resolveLatestWord(completeDoc, offset);
@@ -108,7 +109,7 @@ public class BibCompletionProcessor implements IContentAssistProcessor {
         if (completeStart == -1) {
             abbrevs = computeAbbrevCompletions(offset, 0, "");
         } else {
-            abbrevs = computeAbbrevCompletions(offset, offset - completeStart, completeDoc.substring(completeStart, offset));
+            abbrevs = computeAbbrevCompletions(offset, offset - completeStart, completeDoc.subSequence(completeStart, offset).toString());
         }
         
         //make combined list of repeats, abbrev and template completion proposals
@@ -257,7 +258,7 @@ public class BibCompletionProcessor implements IContentAssistProcessor {
      * @return the offset index,from where the latest word begins
      *   (if 0, then there is no latest word)  
      */
-    public String resolveLatestWord(String doc, int offset) {
+    public String resolveLatestWord(CharSequence doc, int offset) {
         int index = 1;
         while (offset - index >= 0) {
             if (Character.isWhitespace(doc.charAt(offset - index)))
@@ -266,7 +267,7 @@ public class BibCompletionProcessor implements IContentAssistProcessor {
         }
         index--;
         if (index > 0)
-            return doc.substring(offset - index, offset);
+            return doc.subSequence(offset - index, offset).toString();
         return "";
     }
     
@@ -13,9 +13,6 @@
 
 package org.eclipse.texlipse.bibeditor;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.eclipse.jface.text.DefaultPositionUpdater;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IPositionUpdater;
@@ -33,7 +30,8 @@ import org.eclipse.texlipse.model.ReferenceEntry;
 public class BibContentProvider implements ITreeContentProvider {
     
     private IPositionUpdater fPositionUpdater = new DefaultPositionUpdater(BibOutlinePage.SEGMENTS);
-    private Map contentIndex = new HashMap();
+    // the container of the last parse, which keeps its sorted views
+    private BibOutlineContainer natural;
     private BibOutlineContainer content;
     private String sortBy = BibOutlineContainer.SORTNATURAL;
     private IDocument document;
@@ -55,8 +53,7 @@ public class BibContentProvider implements ITreeContentProvider {
             BibOutlineContainer inp = (BibOutlineContainer) newInput;
             content = inp;
             if (inp.getSorting().equals(BibOutlineContainer.SORTNATURAL)) {
-                contentIndex.clear();
-                contentIndex.put(BibOutlineContainer.SORTNATURAL, inp);
+                natural = inp;
                 
                 if (!BibOutlineContainer.SORTNATURAL.equals(sortBy)) {
                     content = changeSort(sortBy);
@@ -72,28 +69,17 @@ public class BibContentProvider implements ITreeContentProvider {
      * @see org.eclipse.jface.viewers.IContentProvider#dispose()
      */
     public void dispose() {
-        if (contentIndex != null) {
-            contentIndex.clear();
-            contentIndex = null;
-        }
+        natural = null;
         if (content != null) {
             content = null;
         }
     }
     
-    private Object[] getContainerChildren(BibOutlineContainer boc) {
-        if (boc.getChildEntries() != null) {
-            return boc.getChildEntries().toArray();
-        } else {
-            return boc.getChildContainers().toArray();
-        }        
-    }
-    
     /* (non-Javadoc)
      * @see org.eclipse.jface.viewers.IStructuredContentProvider#getElements(java.lang.Object)
      */
     public Object[] getElements(Object element) {
-        return getContainerChildren(content); // (BibOutlineContainer) element
+        return content.getChildren(); // (BibOutlineContainer) element
     }
     
     /* (non-Javadoc)
@@ -116,7 +102,7 @@ public class BibContentProvider implements ITreeContentProvider {
      */
     public Object[] getChildren(Object element) {
         if (element instanceof BibOutlineContainer) {
-            return getContainerChildren((BibOutlineContainer) element);
+            return ((BibOutlineContainer) element).getChildren();
         }
         return new Object[0];
     }
@@ -127,25 +113,10 @@ public class BibContentProvider implements ITreeContentProvider {
      */
     public BibOutlineContainer changeSort(String sBy) {
         BibOutlineContainer newContainer = content;
-        if (contentIndex.containsKey(sBy)) {
-            newContainer = (BibOutlineContainer) contentIndex.get(sBy);
-        } else {
-            if (BibOutlineContainer.SORTYEAR.equals(sBy)) {
-                newContainer = ((BibOutlineContainer)
-                        contentIndex.get(BibOutlineContainer.SORTNATURAL)).buildYearSort();
-            } else if (BibOutlineContainer.SORTAUTHOR.equals(sBy)) {
-                newContainer = ((BibOutlineContainer)
-                        contentIndex.get(BibOutlineContainer.SORTNATURAL)).buildAuthorSort();
-            } else if (BibOutlineContainer.SORTINDEX.equals(sBy)) {
-                newContainer = ((BibOutlineContainer)
-                        contentIndex.get(BibOutlineContainer.SORTNATURAL)).buildIndexSort();
-            } else if (BibOutlineContainer.SORTJOURNAL.equals(sBy)) {
-                newContainer = ((BibOutlineContainer)
-                        contentIndex.get(BibOutlineContainer.SORTNATURAL)).buildJournalSort();
-            }
-            contentIndex.put(sBy, newContainer);
+        if (natural != null) {
+            newContainer = natural.getView(sBy);
         }
-    	this.sortBy = sBy;
+        this.sortBy = sBy;
         return newContainer;
     }
     
@@ -27,6 +27,7 @@ import org.eclipse.jface.text.IDocument;
 import org.eclipse.texlipse.TexlipsePlugin;
 import org.eclipse.texlipse.bibparser.BibOutlineContainer;
 import org.eclipse.texlipse.bibparser.BibParser;
+import org.eclipse.texlipse.bibparser.BibSortIndex;
 import org.eclipse.texlipse.editor.TexDocumentParseException;
 import org.eclipse.texlipse.model.MarkerHandler;
 import org.eclipse.texlipse.model.ParseErrorMessage;
@@ -45,6 +46,7 @@ public class BibDocumentModel {
     
     private BibEditor editor;
     private List entryList;    
+    private BibSortIndex sortIndex;
     private List abbrevs;
     private AbbrevManager abbrManager;
     
@@ -88,8 +90,8 @@ public class BibDocumentModel {
             MarkerHandler marker = MarkerHandler.getInstance();
             marker.clearErrorMarkers(editor);
             if (parseErrors.size() > 0) {
+                // erroneous entries are skipped, the rest is still usable
                 marker.createErrorMarkers(editor, parseErrors);                
-                throw new TexDocumentParseException("Fatal errors in file");
             }
             if (parseWarnings.size() > 0) {
                 marker.createErrorMarkers(editor, parseWarnings);                
@@ -146,7 +148,10 @@ public class BibDocumentModel {
      * Updates the outline view when outline.doSave is called.
      */
     private void updateOutline() {
-        BibOutlineContainer boc = new BibOutlineContainer(entryList, true);
+        // the sort orders are updated here once per parse, so that
+        // changing the sorting of the outline is cheap
+        sortIndex = BibSortIndex.build(entryList, sortIndex);
+        BibOutlineContainer boc = new BibOutlineContainer(entryList, sortIndex);
         this.editor.getOutlinePage().update(boc);
     }
     
@@ -0,0 +1,429 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.bibparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.texlipse.model.BibFieldStore;
+import org.eclipse.texlipse.model.ParseErrorMessage;
+import org.eclipse.texlipse.model.ReferenceEntry;
+
+/**
+ * Builds the BibTeX entries, abbreviations, warnings and tasks from the
+ * events of a <code>BibStreamParser</code>.
+ *
+ * Produces the same entries and warnings as applying
+ * <code>EntryRetriever</code> and <code>AbbrevRetriever</code> on the
+ * SableCC syntax tree, but keeps only the data of the current entry. The
+ * field values are packed into a <code>BibFieldStore</code> from which the
+ * descriptive texts of the entries are rendered on demand.
+ */
+public final class BibEntryCollector implements BibParseListener {
+
+    /**
+     * Text and location of an entry type, standing in for the SableCC token
+     */
+    private static final class TypeMark {
+        final String text;
+        final int line;
+        final int pos;
+        TypeMark(String text, int line, int pos) {
+            this.text = text;
+            this.line = line;
+            this.pos = pos;
+        }
+    }
+
+    private static final class EntryText {
+        final TypeMark type;
+        final Set<String> definedFields;
+        EntryText(TypeMark t, Set<String> df) {
+            type = t;
+            definedFields = df;
+        }
+    }
+
+    private static final Map<String, String> predefAbbrevs = new HashMap<String, String>();
+
+    /**
+     * A list of required fields for the different BibTeX entries
+     */
+    private static final Map<String, List<String>> requiredFieldsPerType = new HashMap<String, List<String>>();
+
+    static {
+        predefAbbrevs.put("jan", "January");
+        predefAbbrevs.put("feb", "February");
+        predefAbbrevs.put("mar", "March");
+        predefAbbrevs.put("apr", "April");
+        predefAbbrevs.put("may", "May");
+        predefAbbrevs.put("jun", "June");
+        predefAbbrevs.put("jul", "July");
+        predefAbbrevs.put("aug", "August");
+        predefAbbrevs.put("sep", "September");
+        predefAbbrevs.put("oct", "October");
+        predefAbbrevs.put("nov", "November");
+        predefAbbrevs.put("dec", "December");
+
+        requiredFieldsPerType.put("article", Arrays.asList("author", "title", "journal", "year"));
+        requiredFieldsPerType.put("book", Arrays.asList("title", "publisher", "year"));
+        requiredFieldsPerType.put("booklet", Arrays.asList("title"));
+        requiredFieldsPerType.put("conference", Arrays.asList("author", "title", "booktitle", "year"));
+        requiredFieldsPerType.put("inbook", Arrays.asList("title", "publisher", "year"));
+        requiredFieldsPerType.put("incollection", Arrays.asList("author", "title", "booktitle", "publisher", "year"));
+        requiredFieldsPerType.put("inproceedings", Arrays.asList("author", "title", "booktitle", "year"));
+        requiredFieldsPerType.put("manual", Arrays.asList("title"));
+        requiredFieldsPerType.put("mastersthesis", Arrays.asList("author", "title", "school", "year"));
+        requiredFieldsPerType.put("phdthesis", Arrays.asList("author", "title", "school", "year"));
+        requiredFieldsPerType.put("techreport", Arrays.asList("author", "title", "institution", "year"));
+        requiredFieldsPerType.put("proceedings", Arrays.asList("title", "year"));
+        requiredFieldsPerType.put("unpublished", Arrays.asList("author", "title", "note"));
+    }
+
+    private List<ReferenceEntry> entries = new ArrayList<ReferenceEntry>();
+    private List<ReferenceEntry> abbrevList = new ArrayList<ReferenceEntry>();
+    private List<ParseErrorMessage> warnings = new ArrayList<ParseErrorMessage>();
+    private List<ParseErrorMessage> tasks = new ArrayList<ParseErrorMessage>();
+    private List<ParseErrorMessage> errors = new ArrayList<ParseErrorMessage>();
+
+    private BibFieldStore store = new BibFieldStore();
+    private Map<String, String> abbrevs = new HashMap<String, String>(predefAbbrevs);
+    private Map<String, List<EntryText>> crossrefs = new HashMap<String, List<EntryText>>();
+
+    /**
+     * All defined keys -- can be used for testing whether a key is unique
+     */
+    private Map<String, Integer> allDefinedKeys = new HashMap<String, Integer>();
+
+    private ReferenceEntry currEntry;
+    private boolean inEntry;
+    private Integer shadowedKeyLine;
+    private int currEntryIndex;
+    private TypeMark currEntryType;
+    private String currField;
+    private String crossref;
+    private Set<String> currDefinedFields = new HashSet<String>();
+
+    private String currAbbrev;
+    private int currAbbrevLine;
+    private int currAbbrevPos;
+    private StringBuilder currAbbrevValue = new StringBuilder();
+
+    /**
+     * @return The entries as a list of <code>ReferenceEntry</code>s
+     */
+    public List<ReferenceEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return The abbreviations as a list of <code>ReferenceEntry</code>s
+     */
+    public List<ReferenceEntry> getAbbrevs() {
+        return abbrevList;
+    }
+
+    /**
+     * @return The store holding the fields of the entries
+     */
+    public BibFieldStore getFieldStore() {
+        return store;
+    }
+
+    /**
+     * @return A list of warnings in the file
+     */
+    public List<ParseErrorMessage> getWarnings() {
+        return warnings;
+    }
+
+    /**
+     * @return A list of task markers in the file
+     */
+    public List<ParseErrorMessage> getTasks() {
+        return tasks;
+    }
+
+    /**
+     * @return A list of the syntax errors in the file
+     */
+    public List<ParseErrorMessage> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Finish the parse by setting all remaining warnings
+     */
+    public void finishParse() {
+        store.trim();
+        // Set warnings for unfulfilled cross references
+        for (Map.Entry<String, List<EntryText>> mapping : crossrefs.entrySet()) {
+            for (EntryText et : mapping.getValue()) {
+                setMissingWarnings(et.type, et.definedFields);
+                warnings.add(new ParseErrorMessage(et.type.line,
+                        et.type.pos - 1, et.type.text.length(),
+                        "Cross reference " + mapping.getKey() + " does not exist",
+                        IMarker.SEVERITY_WARNING));
+            }
+        }
+    }
+
+    public void task(String text, int line, int pos) {
+        int start = text.indexOf("TODO");
+        String taskText = text.substring(start + 4).trim();
+        tasks.add(new ParseErrorMessage(line, pos, taskText.length(),
+                taskText, IMarker.SEVERITY_INFO));
+    }
+
+    public void beginString(String name, int line, int pos) {
+        currAbbrev = name;
+        currAbbrevLine = line;
+        currAbbrevPos = pos;
+        currAbbrevValue.setLength(0);
+    }
+
+    public void endString() {
+        String value = currAbbrevValue.toString();
+        abbrevList.add(new ReferenceEntry(currAbbrev, value));
+        if (abbrevs.put(currAbbrev, value) != null) {
+            warnings.add(new ParseErrorMessage(currAbbrevLine,
+                    currAbbrevPos - 1, currAbbrev.length(),
+                    "String key " + currAbbrev + " is not unique",
+                    IMarker.SEVERITY_WARNING));
+        }
+        currAbbrev = null;
+    }
+
+    public void beginEntry(String type, int typeLine, int typePos,
+            String key, int keyLine, int keyPos) {
+        currEntry = new ReferenceEntry(key);
+        currEntry.startLine = keyLine;
+        currEntryIndex = store.beginEntry(type);
+
+        Integer x = allDefinedKeys.put(currEntry.key, currEntry.startLine);
+        inEntry = true;
+        shadowedKeyLine = x;
+        if (x != null) {
+            warnings.add(new ParseErrorMessage(currEntry.startLine,
+                    keyPos - 1, currEntry.key.length(),
+                    "BibTex key " + currEntry.key + " is not unique: also defined in line " + x,
+                    IMarker.SEVERITY_WARNING));
+        }
+
+        currEntryType = new TypeMark(type.toLowerCase(), typeLine, typePos);
+    }
+
+    public void beginField(String name, int line, int pos) {
+        currField = name.toLowerCase();
+        store.beginField(currField);
+
+        if (!currDefinedFields.add(currField)) {
+            warnings.add(new ParseErrorMessage(line,
+                    pos - 1, currField.length(),
+                    "Field " + currField + " appears more than once in entry " + currEntry.key,
+                    IMarker.SEVERITY_WARNING));
+        }
+    }
+
+    public void endField() {
+    }
+
+    public void value(int kind, String text, int line, int pos) {
+        if (currAbbrev != null) {
+            abbrevValue(kind, text, line, pos);
+            return;
+        }
+        switch (kind) {
+        case VALUE_EMPTY:
+            warnings.add(new ParseErrorMessage(currEntry.startLine,
+                    1, currEntryType.text.length(),
+                    currField + " is empty in " + currEntry.key,
+                    IMarker.SEVERITY_WARNING));
+            break;
+        case VALUE_ABBREV:
+            String expansion = abbrevs.get(text);
+            if (expansion != null) {
+                fieldValue(expansion, line, pos);
+            } else {
+                undefinedAbbrev(text, line, pos);
+            }
+            break;
+        default:
+            fieldValue(text, line, pos);
+        }
+    }
+
+    public void endEntry(int line) {
+        if (currEntry.author == null) {
+            currEntry.author = "-";
+        }
+        if (currEntry.year == null) {
+            currEntry.year = "-";
+        }
+        if (currEntry.journal == null) {
+            currEntry.journal = "-";
+        }
+        currEntry.setFieldStore(store, currEntryIndex);
+        store.endEntry();
+        currEntry.endLine = line;
+        entries.add(currEntry);
+        inEntry = false;
+
+        if (crossref != null) {
+            List<EntryText> crefs = crossrefs.get(crossref);
+            if (crefs == null) {
+                crefs = new ArrayList<EntryText>();
+                crossrefs.put(crossref, crefs);
+            }
+            crefs.add(new EntryText(currEntryType,
+                    new HashSet<String>(currDefinedFields)));
+            crossref = null;
+        } else {
+            setMissingWarnings(currEntryType, currDefinedFields);
+        }
+        List<EntryText> crefs = crossrefs.remove(currEntry.key);
+        if (crefs != null) {
+            for (EntryText et : crefs) {
+                et.definedFields.addAll(currDefinedFields);
+                setMissingWarnings(et.type, et.definedFields);
+            }
+        }
+        currDefinedFields.clear();
+    }
+
+    public void error(int line, int pos, int length, String msg) {
+        errors.add(new ParseErrorMessage(line, pos - 1, length, msg,
+                IMarker.SEVERITY_ERROR));
+        // discard the partial entry
+        if (inEntry) {
+            // its key is not defined, unless it was defined before
+            if (shadowedKeyLine != null) {
+                allDefinedKeys.put(currEntry.key, shadowedKeyLine);
+            } else {
+                allDefinedKeys.remove(currEntry.key);
+            }
+            inEntry = false;
+        }
+        store.abortEntry();
+        currAbbrev = null;
+        crossref = null;
+        currDefinedFields.clear();
+    }
+
+    private void abbrevValue(int kind, String text, int line, int pos) {
+        if (kind == VALUE_ABBREV) {
+            String expansion = abbrevs.get(text);
+            if (expansion != null) {
+                currAbbrevValue.append(expansion);
+            } else {
+                undefinedAbbrev(text, line, pos);
+            }
+        } else {
+            currAbbrevValue.append(text);
+        }
+    }
+
+    private void undefinedAbbrev(String name, int line, int pos) {
+        warnings.add(new ParseErrorMessage(line,
+                pos - 1, name.length(),
+                "The abbreviation " + name + " is undefined",
+                IMarker.SEVERITY_WARNING));
+    }
+
+    private void fieldValue(String text, int line, int pos) {
+        String fieldValue = collapseWhitespace(text);
+        store.appendValue(fieldValue);
+
+        if ("author".equals(currField) || "editor".equals(currField)) {
+            currEntry.author = store.intern(fieldValue);
+        } else if ("journal".equals(currField)) {
+            currEntry.journal = store.intern(fieldValue);
+        } else if ("year".equals(currField)) {
+            currEntry.year = store.intern(fieldValue);
+        } else if ("crossref".equals(currField)) {
+            crossref = fieldValue;
+        }
+
+        // Test for empty fields
+        if (fieldValue.length() == 0) {
+            warnings.add(new ParseErrorMessage(line,
+                    pos, 0,
+                    currField + " is empty in " + currEntry.key,
+                    IMarker.SEVERITY_WARNING));
+        }
+    }
+
+    /**
+     * Replaces each run of whitespace with a single space, like
+     * <code>replaceAll("\\s+", " ")</code> but without a regex.
+     *
+     * @param text The text to collapse
+     * @return The collapsed text (<code>text</code> if there was nothing to do)
+     */
+    private static String collapseWhitespace(String text) {
+        int len = text.length();
+        int i = 0;
+        for (; i < len; i++) {
+            char c = text.charAt(i);
+            if (isWhitespace(c) && (c != ' ' || (i + 1 < len && isWhitespace(text.charAt(i + 1))))) {
+                break;
+            }
+        }
+        if (i == len) {
+            return text;
+        }
+        StringBuilder sb = new StringBuilder(len);
+        sb.append(text, 0, i);
+        boolean inSpace = false;
+        for (; i < len; i++) {
+            char c = text.charAt(i);
+            if (isWhitespace(c)) {
+                if (!inSpace) {
+                    sb.append(' ');
+                    inSpace = true;
+                }
+            } else {
+                sb.append(c);
+                inSpace = false;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private void setMissingWarnings(TypeMark t, Set<String> fields) {
+        List<String> reqFieldList = requiredFieldsPerType.get(t.text);
+        if (reqFieldList != null && !fields.containsAll(reqFieldList)) {
+            for (String reqField : reqFieldList) {
+                if (!fields.contains(reqField)) {
+                    // FIXME key
+                    warnings.add(new ParseErrorMessage(t.line,
+                            t.pos - 1, t.text.length(),
+                            t.text + " " + currEntry.key +
+                            " is missing required field " + reqField,
+                            IMarker.SEVERITY_WARNING));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.bibparser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the events of a <code>BibStreamParser</code> so that they can
+ * be replayed later, in input order, into another listener. Used for
+ * parsing chunks of a file concurrently.
+ */
+final class BibEventRecorder implements BibParseListener {
+
+    private static final byte TASK = 0;
+    private static final byte BEGIN_STRING = 1;
+    private static final byte END_STRING = 2;
+    private static final byte BEGIN_ENTRY = 3;
+    private static final byte BEGIN_FIELD = 4;
+    private static final byte END_FIELD = 5;
+    private static final byte VALUE = 6;
+    private static final byte END_ENTRY = 7;
+    private static final byte ERROR = 8;
+
+    private byte[] ops = new byte[1024];
+    private int opCount;
+    private int[] ints = new int[4096];
+    private int intCount;
+    private List<String> strings = new ArrayList<String>();
+
+    private boolean truncated;
+
+    /**
+     * @param truncated Whether the recorded input ended inside an item
+     */
+    void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * @return Whether the recorded input ended inside an item
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Sends the recorded events to the given listener.
+     *
+     * @param listener The listener to replay the events to
+     */
+    void replay(BibParseListener listener) {
+        int ip = 0;
+        int sp = 0;
+        for (int i = 0; i < opCount; i++) {
+            switch (ops[i]) {
+            case TASK:
+                listener.task(strings.get(sp++), ints[ip], ints[ip + 1]);
+                ip += 2;
+                break;
+            case BEGIN_STRING:
+                listener.beginString(strings.get(sp++), ints[ip], ints[ip + 1]);
+                ip += 2;
+                break;
+            case END_STRING:
+                listener.endString();
+                break;
+            case BEGIN_ENTRY:
+                listener.beginEntry(strings.get(sp), ints[ip], ints[ip + 1],
+                        strings.get(sp + 1), ints[ip + 2], ints[ip + 3]);
+                sp += 2;
+                ip += 4;
+                break;
+            case BEGIN_FIELD:
+                listener.beginField(strings.get(sp++), ints[ip], ints[ip + 1]);
+                ip += 2;
+                break;
+            case END_FIELD:
+                listener.endField();
+                break;
+            case VALUE:
+                listener.value(ints[ip], strings.get(sp++), ints[ip + 1], ints[ip + 2]);
+                ip += 3;
+                break;
+            case END_ENTRY:
+                listener.endEntry(ints[ip++]);
+                break;
+            case ERROR:
+                listener.error(ints[ip], ints[ip + 1], ints[ip + 2], strings.get(sp++));
+                ip += 3;
+                break;
+            }
+        }
+    }
+
+    public void task(String text, int line, int pos) {
+        op(TASK);
+        strings.add(text);
+        ints(line, pos);
+    }
+
+    public void beginString(String name, int line, int pos) {
+        op(BEGIN_STRING);
+        strings.add(name);
+        ints(line, pos);
+    }
+
+    public void endString() {
+        op(END_STRING);
+    }
+
+    public void beginEntry(String type, int typeLine, int typePos,
+            String key, int keyLine, int keyPos) {
+        op(BEGIN_ENTRY);
+        strings.add(type);
+        strings.add(key);
+        ints(typeLine, typePos);
+        ints(keyLine, keyPos);
+    }
+
+    public void beginField(String name, int line, int pos) {
+        op(BEGIN_FIELD);
+        strings.add(name);
+        ints(line, pos);
+    }
+
+    public void endField() {
+        op(END_FIELD);
+    }
+
+    public void value(int kind, String text, int line, int pos) {
+        op(VALUE);
+        strings.add(text);
+        ints(kind, line);
+        ints(pos);
+    }
+
+    public void endEntry(int line) {
+        op(END_ENTRY);
+        ints(line);
+    }
+
+    public void error(int line, int pos, int length, String msg) {
+        op(ERROR);
+        strings.add(msg);
+        ints(line, pos);
+        ints(length);
+    }
+
+    private void op(byte op) {
+        if (opCount == ops.length) {
+            ops = Arrays.copyOf(ops, ops.length * 2);
+        }
+        ops[opCount++] = op;
+    }
+
+    private void ints(int a) {
+        if (intCount == ints.length) {
+            ints = Arrays.copyOf(ints, ints.length * 2);
+        }
+        ints[intCount++] = a;
+    }
+
+    private void ints(int a, int b) {
+        ints(a);
+        ints(b);
+    }
+}
@@ -55,7 +55,7 @@ public class BibFileReferenceSearch implements Runnable {
         if (index == null)
             return;
         
-        directory = TexlipseProperties.getProjectProperty(project, TexlipseProperties.BIBREF_DIR_PROPERTY);
+        directory = TexlipseProperties.getProjectConfiguration(project).bibrefDir;
         Hashtable<String,File> fileNames = new Hashtable<String,File>();
         
         File[] files = new File(directory).listFiles();
@@ -14,17 +14,25 @@
 package org.eclipse.texlipse.bibparser;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 import org.eclipse.texlipse.model.ReferenceEntry;
 
 /**
  * A container for BibTeX outlines. Can be sorted in different ways.
+ * 
+ * The sorted containers don't copy the entries. They share a
+ * <code>BibSortIndex</code>, which holds the sort orders as permutations,
+ * and each container covers a range of rows of one order. The outline
+ * elements of a range are only created when the range is shown.
+ * 
+ * A top level container keeps the sorted views built from it, and each
+ * container keeps the array of its children, so switching back to a view
+ * allocates nothing. A new top level container is made for each parse,
+ * which drops the views of the old one.
  *  
  * @author Oskar Ojala
  */
@@ -37,6 +45,13 @@ public class BibOutlineContainer {
     private List childEntries; // ReferenceEntry
     private boolean topLevel;
     
+    private BibSortIndex sortIndex;
+    private int firstRow;
+    private int lastRow;
+    
+    private Map views; // String -> BibOutlineContainer
+    private Object[] children;
+    
     // TODO enums
     public static final String SORTNATURAL = "natural";
     public static final String SORTYEAR = "year";
@@ -58,6 +73,17 @@ public class BibOutlineContainer {
         this.sorting = SORTNATURAL;
     }
 
+    /**
+     * Creates a new top level container with precomputed sort orders
+     * 
+     * @param entries The initial entries
+     * @param sortIndex The sort index of the entries
+     */
+    public BibOutlineContainer(List entries, BibSortIndex sortIndex) {
+        this(entries, true);
+        this.sortIndex = sortIndex;
+    }
+
     /**
      * Creates a new container
      * 
@@ -73,96 +99,73 @@ public class BibOutlineContainer {
     }
 
     /**
-     * Makes a copy of this container so that first level children are copied
-     * as new objects but lower levels are not
+     * Creates a new container showing a range of rows of a sort order
      * 
-     * @param sorting The type of sorting that the new container will have
-     * @return A copy of this container
+     * @param sortIndex The sort index
+     * @param sorting The sort order
+     * @param first The first row
+     * @param last The row after the last row
+     * @param sName Name of the first entry
+     * @param eName Name of the last entry
      */
-    private BibOutlineContainer childCopy(String sorting) {
-        BibOutlineContainer newboc = new BibOutlineContainer(new ArrayList(), topLevel);
-        newboc.sorting = sorting;
-        
-        for (Iterator iter = childEntries.iterator(); iter.hasNext();) {
-            ReferenceEntry re = (ReferenceEntry) iter.next();
-            newboc.childEntries.add(re.copy());
-        }
-        return newboc;
+    private BibOutlineContainer(BibSortIndex sortIndex, String sorting, int first, int last,
+            String sName, String eName) {
+        this.sortIndex = sortIndex;
+        this.sorting = sorting;
+        this.firstRow = first;
+        this.lastRow = last;
+        this.startName = sName;
+        this.endName = eName;
+        this.topLevel = false;
     }
 
-    
     /**
-     * Builds a container sorted by authors
+     * Builds a new top level container showing the given sort order
      * 
-     * @return New container sorted by authors
+     * @param sorting The sort order
+     * @return A new partitioned container
      */
-    public BibOutlineContainer buildAuthorSort() {
-        // Make a shallow copy
-        BibOutlineContainer newboc = childCopy(SORTAUTHOR);
-        newboc.authorSort();
-        
-        // Replace the keys with the names of the authors
-        for (Iterator iter = newboc.childEntries.iterator(); iter.hasNext();) {
-            ReferenceEntry re = (ReferenceEntry) iter.next();
-            re.key = re.author + "; " + re.key;
+    private BibOutlineContainer buildSort(String sorting) {
+        if (sortIndex == null) {
+            sortIndex = BibSortIndex.build(childEntries, null);
         }
-        // Build a tree structure
+        BibOutlineContainer newboc = new BibOutlineContainer(sortIndex, sorting,
+                0, sortIndex.size(sorting), null, null);
+        newboc.topLevel = topLevel;
         newboc.partition();
         return newboc;
     }
-
-    //private static final Pattern rmBraces = Pattern.compile("(^|[^\\\\])(:?\\{|\\})");
     
     /**
-     * Does an author sort on this container
+     * Returns the top level container showing the given sort order. The
+     * container is built on the first call and kept for later calls.
+     * 
+     * @param sorting The sort order
+     * @return This container for its own order, otherwise the view
+     * sorted by the given order
      */
-    private void authorSort() {
-        // duplicate entries with several authors
-        ArrayList copyChildren = new ArrayList();
-        for (Iterator iter = childEntries.iterator(); iter.hasNext();) {
-            ReferenceEntry re = (ReferenceEntry) iter.next();
-            re.author = re.author.replaceAll("\\\\(.)", "$1");
-
-            String[] authors = re.author.split(" and ");
-            
-            // TODO fails e.g. on "Foo {Bar (Tutor)}", need to check braces
-            // formats the author so that the last name is first
-            for (int i = 0; i < authors.length; i++) {
-                if (authors[i].indexOf(',') == -1
-                        && !(authors[i].startsWith("{") && authors[i].endsWith("}"))) {
-                    int pos = authors[i].lastIndexOf(' ');
-                    if (pos != -1) {
-                        authors[i] = authors[i].substring(pos+1) + ", " + authors[i].substring(0, pos); 
-                    }
-                }
-                // Remove braces
-                authors[i] = authors[i].replaceAll("(^|[^\\\\])(:?\\{|\\})", "$1");
-            }
-
-            // We make some simple copies of this entry and because they will
-            // only be in the outline, we won't copy every value
-            re.author = authors[0];
-            for (int i = 1; i < authors.length; i++) {
-                ReferenceEntry copyRe = new ReferenceEntry(re.key);
-                copyRe.position = re.position;
-                copyRe.refFile = re.refFile;
-                copyRe.author = authors[i];
-                copyChildren.add(copyRe);
-            }
+    public BibOutlineContainer getView(String sorting) {
+        if (sorting.equals(this.sorting)) {
+            return this;
         }
-        // merge the lists
-        childEntries.addAll(copyChildren);
-        // sort
-//        Collections.sort(this.childEntries, new Comparator<ReferenceEntry>() {
-//            public int compare(ReferenceEntry A, ReferenceEntry B) {
-//                return A.author.compareTo(B.author);
-//            }
-//        });
-        Collections.sort(this.childEntries, new Comparator() {
-            public int compare(Object A, Object B) {
-                return ((ReferenceEntry) A).author.compareTo(((ReferenceEntry) B).author);
-            }
-        });
+        if (views == null) {
+            views = new HashMap(4);
+        }
+        BibOutlineContainer view = (BibOutlineContainer) views.get(sorting);
+        if (view == null) {
+            view = buildSort(sorting);
+            views.put(sorting, view);
+        }
+        return view;
+    }
+    
+    /**
+     * Builds a container sorted by authors
+     * 
+     * @return New container sorted by authors
+     */
+    public BibOutlineContainer buildAuthorSort() {
+        return buildSort(SORTAUTHOR);
     }
 
     /**
@@ -171,25 +174,7 @@ public class BibOutlineContainer {
      * @return New container sorted by year
      */
     public BibOutlineContainer buildYearSort() {
-        BibOutlineContainer newboc = childCopy(SORTYEAR);
-//        Collections.sort(newboc.childEntries, new Comparator<ReferenceEntry>() {
-//            public int compare(ReferenceEntry A, ReferenceEntry B) {
-//                return A.year.compareTo(B.year);
-//            }
-//        });
-        Collections.sort(newboc.childEntries, new Comparator() {
-            public int compare(Object A, Object B) {
-                return ((ReferenceEntry) A).year.compareTo(((ReferenceEntry) B).year);
-            }
-        });
-
-        for (Iterator iter = newboc.childEntries.iterator(); iter.hasNext();) {
-            ReferenceEntry re = (ReferenceEntry) iter.next();
-            re.key = re.year + "; " + re.key;
-        }
-
-        newboc.partition();
-        return newboc;
+        return buildSort(SORTYEAR);
     }
 
     /**
@@ -198,23 +183,7 @@ public class BibOutlineContainer {
      * @return New container sorted by journal
      */
     public BibOutlineContainer buildJournalSort() {
-        BibOutlineContainer newboc = childCopy(SORTJOURNAL);
-//        Collections.sort(newboc.childEntries, new Comparator<ReferenceEntry>() {
-//            public int compare(ReferenceEntry A, ReferenceEntry B) {
-//                return A.journal.compareTo(B.journal);
-//            }
-//        });
-        Collections.sort(newboc.childEntries, new Comparator() {
-            public int compare(Object A, Object B) {
-                return ((ReferenceEntry) A).journal.compareTo(((ReferenceEntry) B).journal);
-            }
-        });
-        for (Iterator iter = newboc.childEntries.iterator(); iter.hasNext();) {
-            ReferenceEntry re = (ReferenceEntry) iter.next();
-            re.key = re.journal + "; " + re.key;
-        }
-        newboc.partition();
-        return newboc;
+        return buildSort(SORTJOURNAL);
     }
 
     /**
@@ -223,19 +192,33 @@ public class BibOutlineContainer {
      * @return New container sorted by index
      */
     public BibOutlineContainer buildIndexSort() {
-        BibOutlineContainer newboc = childCopy(SORTINDEX);
-//        Collections.sort(newboc.childEntries, new Comparator<ReferenceEntry>() {
-//            public int compare(ReferenceEntry A, ReferenceEntry B) {
-//                return A.key.compareTo(B.key);
-//            }
-//        });
-        Collections.sort(newboc.childEntries, new Comparator() {
-            public int compare(Object A, Object B) {
-                return ((ReferenceEntry) A).key.compareTo(((ReferenceEntry) B).key);
+        return buildSort(SORTINDEX);
+    }
+
+    /**
+     * @return The label of the given row: the sort key and the entry key
+     */
+    private String label(int row) {
+        String key = sortIndex.getEntry(sorting, row).key;
+        String sortKey = sortIndex.getSortKey(sorting, row);
+        return sortKey == null ? key : sortKey + "; " + key;
+    }
+
+    /**
+     * Creates the outline elements of the rows of this container. Rows with
+     * a sort key are shown as copies of the entry with the label as key. 
+     */
+    private List rowElements() {
+        List elements = new ArrayList(lastRow - firstRow);
+        for (int i = firstRow; i < lastRow; i++) {
+            ReferenceEntry re = sortIndex.getEntry(sorting, i);
+            if (sortIndex.getSortKey(sorting, i) != null) {
+                re = (ReferenceEntry) re.copy();
+                re.key = label(i);
             }
-        });
-        newboc.partition();
-        return newboc;
+            elements.add(re);
+        }
+        return elements;
     }
 
 
@@ -269,49 +252,37 @@ public class BibOutlineContainer {
      * Partitions this container
      */
     public void partition() {
-        if (childEntries.size() < MAX_PARTITIONSIZE) {
+        if (childEntries != null && childContainers == null) {
+            // partition the entries in their natural order
+            if (sortIndex == null) {
+                sortIndex = BibSortIndex.build(childEntries, null);
+            }
+            firstRow = 0;
+            lastRow = childEntries.size();
+            childEntries = null;
+        }
+        if (lastRow - firstRow < MAX_PARTITIONSIZE) {
             return;
         }
-        //childContainers = new ArrayList();
 
         // TODO polish
         
         // calculate hierarchy levels and partitions
-        int totalPartitions = (int) Math.ceil((double) childEntries.size() / (double) MAX_PARTITIONSIZE);
+        int totalPartitions = (int) Math.ceil((double) (lastRow - firstRow) / (double) MAX_PARTITIONSIZE);
 
         ArrayList bottomContainers = new ArrayList();
-        ReferenceEntry[] childArray = new ReferenceEntry[childEntries.size()];
-        childEntries.toArray(childArray);
-        
-        // total levels
-//        int levels = 1;
-//        for (int entries = MAX_PARTITIONSIZE; entries < totalPartitions; entries *= MAX_PARTITIONSIZE) {
-//            levels++;
-//        }
-        
         
-        String prevName = ((ReferenceEntry) childEntries.get(0)).key;
-        String nextName = "...";
+        String prevName = label(firstRow);
+        String nextName = prevName;
         for (int i = 0; i < totalPartitions; i++) {
-            //int partitionEnd = Math.min(childEntries.size(), MAX_PARTITIONSIZE);
-            int partitionSize = Math.min(childEntries.size() - MAX_PARTITIONSIZE * i,
-                    MAX_PARTITIONSIZE);
+            int start = firstRow + MAX_PARTITIONSIZE * i;
+            int end = Math.min(lastRow, start + MAX_PARTITIONSIZE);
 
-            ReferenceEntry[] newChildren = new ReferenceEntry[partitionSize];
-            System.arraycopy(childArray, MAX_PARTITIONSIZE * i, newChildren, 0, partitionSize);
-            
-//            String pre1 = differentiatingPrefix(((ReferenceEntry) children.get(0)).key, prevName);
-//            prevName = ((ReferenceEntry) children.get(children.size()-1)).key;
-//            nextName = childEntries.size() > 0 ? ((ReferenceEntry) childEntries.get(0)).key : "...";
-//            String pre2 = differentiatingPrefix(prevName, nextName);
-
-            String pre1 = differentiatingPrefix(newChildren[0].key, prevName);
-            prevName = newChildren[newChildren.length-1].key;
-            nextName = childEntries.size() > 0 ? childArray[0].key : "...";
+            String pre1 = differentiatingPrefix(label(start), prevName);
+            prevName = label(end - 1);
             String pre2 = differentiatingPrefix(prevName, nextName);
 
-            //BibOutlineContainer boc = new BibOutlineContainer(children, pre1 + "..." + pre2);
-            BibOutlineContainer boc = new BibOutlineContainer(Arrays.asList(newChildren), pre1, pre2);
+            BibOutlineContainer boc = new BibOutlineContainer(sortIndex, sorting, start, end, pre1, pre2);
             bottomContainers.add(boc);
         }
         
@@ -321,11 +292,6 @@ public class BibOutlineContainer {
             while (bottomContainers.size() > 0) {
                 int partitionEnd = Math.min(bottomContainers.size(), MAX_PARTITIONSIZE);
                 
-                // probably doesn't work...
-                //List children = childEntries.subList(0, partitionEnd);
-                //childEntries.removeRange(0, partitionEnd);
-                
-                // if it doesn't work...
                 ArrayList children = new ArrayList();
                 ListIterator liter = bottomContainers.listIterator();
                 for (int j = 0; j < partitionEnd; j++) {
@@ -363,9 +329,26 @@ public class BibOutlineContainer {
      * @return Returns the childEntries.
      */
     public List getChildEntries() {
+        if (childEntries == null && childContainers == null && sortIndex != null) {
+            childEntries = rowElements();
+        }
         return childEntries;
     }
 
+    /**
+     * @return The child entries or containers, the same array on each call
+     */
+    public Object[] getChildren() {
+        if (children == null) {
+            List list = getChildEntries();
+            if (list == null) {
+                list = childContainers;
+            }
+            children = list != null ? list.toArray() : new Object[0];
+        }
+        return children;
+    }
+
     /**
      * @return Returns the sorting.
      */
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.bibparser;
+
+/**
+ * Receives the structural events emitted by <code>BibStreamParser</code>.
+ *
+ * Lines and positions are 1-based, i.e. they have the same meaning
+ * as the line and position of a SableCC token.
+ */
+public interface BibParseListener {
+
+    /**
+     * Value kind of a braced or quoted string
+     */
+    public static final int VALUE_LITERAL = 0;
+    /**
+     * Value kind of a bare number
+     */
+    public static final int VALUE_NUMBER = 1;
+    /**
+     * Value kind of an abbreviation reference (defined with @string)
+     */
+    public static final int VALUE_ABBREV = 2;
+    /**
+     * Value kind of an empty quoted string (<code>""</code>)
+     */
+    public static final int VALUE_EMPTY = 3;
+
+    /**
+     * Called for a <code>% TODO</code> -comment outside of the entries.
+     *
+     * @param text The text of the comment line
+     * @param line The line of the comment
+     * @param pos The position of the comment on the line
+     */
+    public void task(String text, int line, int pos);
+
+    /**
+     * Called when an @string -definition starts. Followed by one or
+     * more calls to <code>value()</code> and a call to <code>endString()</code>.
+     *
+     * @param name The name of the abbreviation
+     * @param line The line of the name
+     * @param pos The position of the name
+     */
+    public void beginString(String name, int line, int pos);
+
+    /**
+     * Called when an @string -definition ends.
+     */
+    public void endString();
+
+    /**
+     * Called when a BibTeX entry starts.
+     *
+     * @param type The entry type without the leading @
+     * @param typeLine The line of the entry type
+     * @param typePos The position of the @ -character
+     * @param key The key of the entry
+     * @param keyLine The line of the key
+     * @param keyPos The position of the key
+     */
+    public void beginEntry(String type, int typeLine, int typePos,
+            String key, int keyLine, int keyPos);
+
+    /**
+     * Called when a field of the current entry starts. Followed by
+     * one or more calls to <code>value()</code> and a call to
+     * <code>endField()</code>.
+     *
+     * @param name The field name as written in the file
+     * @param line The line of the field name
+     * @param pos The position of the field name
+     */
+    public void beginField(String name, int line, int pos);
+
+    /**
+     * Called when a field ends.
+     */
+    public void endField();
+
+    /**
+     * Called for every part of a (possibly concatenated) value.
+     *
+     * @param kind One of the <code>VALUE_*</code> constants
+     * @param text The text of the value
+     * @param line The line of the value
+     * @param pos The position of the value
+     */
+    public void value(int kind, String text, int line, int pos);
+
+    /**
+     * Called when a BibTeX entry ends.
+     *
+     * @param line The line of the closing brace or parenthesis
+     */
+    public void endEntry(int line);
+
+    /**
+     * Called when the current entry or @string -definition could not be
+     * parsed. The parser continues from the next line starting with @.
+     *
+     * @param line The line of the error
+     * @param pos The position of the error
+     * @param length The length of the erroneous input
+     * @param msg The error message
+     */
+    public void error(int line, int pos, int length, String msg);
+}
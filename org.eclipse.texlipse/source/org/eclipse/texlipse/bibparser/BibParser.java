@@ -13,20 +13,22 @@
 
 package org.eclipse.texlipse.bibparser;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.PushbackReader;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
 
-import org.eclipse.core.resources.IMarker;
-import org.eclipse.texlipse.bibparser.lexer.LexerException;
-import org.eclipse.texlipse.bibparser.node.Start;
-import org.eclipse.texlipse.bibparser.parser.Parser;
-import org.eclipse.texlipse.bibparser.parser.ParserException;
 import org.eclipse.texlipse.model.ParseErrorMessage;
+import org.eclipse.texlipse.model.ReferenceEntry;
 
 
 /**
@@ -34,6 +36,13 @@ import org.eclipse.texlipse.model.ParseErrorMessage;
  * the getEntries() -method, after which getAbbrevs() and getErrors() should
  * be called (otherwise the data returned by these two is essentially meaningless.)
  * 
+ * The file is parsed in one pass with <code>BibStreamParser</code>, so no
+ * syntax tree is retained. Entries containing syntax errors are skipped
+ * and reported in getErrors(), the rest of the file is still parsed.
+ * Large files are parsed in chunks on the fork-join pool, and
+ * <code>parseAll()</code> parses several files concurrently. The checksum
+ * of a file is computed from the bytes read for parsing.
+ * 
  * @author Oskar Ojala
  */
 public class BibParser {
@@ -42,9 +51,12 @@ public class BibParser {
     private Reader reader;
     
     private List<ParseErrorMessage> errors;
-    private List warnings;
-    private List tasks;
-    private Start ast;
+    private List<ParseErrorMessage> warnings;
+    private List<ParseErrorMessage> tasks;
+    private List<ReferenceEntry> abbrevs;
+    private List<ReferenceEntry> entries;
+    private IOException readError;
+    private CRC32 checksum;
     
     /**
      * Constructs a new BibTeX parser.
@@ -54,7 +66,7 @@ public class BibParser {
     public BibParser(String filename) {
         this.filename = filename;
         this.errors = new ArrayList<ParseErrorMessage>();
-        this.warnings = new ArrayList();
+        this.warnings = new ArrayList<ParseErrorMessage>();
     }
     
     /**
@@ -64,75 +76,138 @@ public class BibParser {
      */
     public BibParser(Reader r) {
         this.reader = r;
-        this.errors = new ArrayList();
-        this.warnings = new ArrayList();
+        this.errors = new ArrayList<ParseErrorMessage>();
+        this.warnings = new ArrayList<ParseErrorMessage>();
+    }
+    
+    /**
+     * Parses the given files concurrently. Afterwards, the results of each
+     * parser can be retrieved without parsing again.
+     * 
+     * @param parsers The parsers to run
+     */
+    public static void parseAll(List<BibParser> parsers) {
+        List<ForkJoinTask<?>> jobs = new ArrayList<ForkJoinTask<?>>(parsers.size());
+        for (final BibParser parser : parsers) {
+            jobs.add(ForkJoinTask.adapt(new Runnable() {
+                public void run() {
+                    parser.parse();
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(jobs);
     }
     
     /**
      * Parses the document, constructs a list of the entries and returns
-     * them.
+     * them. The document is only parsed on the first call.
      * 
      * @return BibTeX entries (<code>ReferenceEntry</code>)
      */
-//    public List<ReferenceEntry> getEntries() throws IOException, FileNotFoundException {
-    public List getEntries() throws IOException, FileNotFoundException {
+    public List<ReferenceEntry> getEntries() throws IOException, FileNotFoundException {
+        if (entries == null && readError == null) {
+            parse();
+        }
+        if (readError != null) {
+            throw readError;
+        }
+        return entries;
+    }
+    
+    /**
+     * Parses the document, storing the results or the read error.
+     */
+    private synchronized void parse() {
+        if (entries != null || readError != null) {
+            return;
+        }
+        BibEntryCollector collector = new BibEntryCollector();
         try {
-            BibLexer l;
             if (filename != null) {
-                l = new BibLexer(new PushbackReader (new FileReader(filename), 1024));
+                File file = new File(filename);
+                if (file.length() > ChunkedBibParser.THRESHOLD) {
+                    char[] text = readFully(file, open(file));
+                    ChunkedBibParser.parse(text, text.length, collector);
+                } else {
+                    Reader r = open(file);
+                    try {
+                        new BibStreamParser(r, collector).parse();
+                    } finally {
+                        r.close();
+                    }
+                }
             } else {
-                l = new BibLexer(new PushbackReader(reader, 1024));
+                new BibStreamParser(reader, collector).parse();
             }
-            
-            Parser p = new Parser(l);
-            this.ast = p.parse();
-            
-            EntryRetriever er = new EntryRetriever();
-            ast.apply(er);
-            er.finishParse();
-            warnings = er.getWarnings();
-            tasks = er.getTasks();
-            
-            // FIXME
-            // Search for files of the referenced material to be able to display
-            //new Thread(new BibFileReferenceSearch(sortIndex, project)).start();
-            
-            return er.getEntries();
-            
-            // TODO modularize SableCC error parsing
-        } catch (LexerException le) {
-            String msg = le.getMessage();
-            int first = msg.indexOf('[');
-            int last = msg.indexOf(']');
-            String numseq = msg.substring(first + 1, last);
-            String[] numbers = numseq.split(",");
-            this.errors.add(new ParseErrorMessage(Integer.parseInt(numbers[0]),
-                    Integer.parseInt(numbers[1]) - 1,
-                    2,
-                    msg.substring(last+2),
-                    IMarker.SEVERITY_ERROR));
-        } catch (ParserException pe) {
-            String msg = pe.getMessage();
-            int last = msg.indexOf(']');
-            this.errors.add(new ParseErrorMessage(pe.getToken().getLine(),
-                    pe.getToken().getPos(),
-                    pe.getToken().getText().length(),
-                    msg.substring(last+2),
-                    IMarker.SEVERITY_ERROR));
+        } catch (IOException e) {
+            readError = e;
+            return;
         }
-        return null;
+        collector.finishParse();
+        errors = collector.getErrors();
+        warnings = collector.getWarnings();
+        tasks = collector.getTasks();
+        abbrevs = collector.getAbbrevs();
+        
+        // FIXME
+        // Search for files of the referenced material to be able to display
+        //new Thread(new BibFileReferenceSearch(sortIndex, project)).start();
+        
+        entries = collector.getEntries();
     }
     
     /**
-     * @return Returns the abbreviations (<code>ReferenceEntry</code>)
+     * Opens the file for reading in the default encoding, summing the
+     * bytes read into the checksum.
+     * 
+     * @param file The file to read
+     * @return A reader to the file
      */
-    public List getAbbrevs() {
-        if (ast != null) {
-            AbbrevRetriever ar = new AbbrevRetriever();
-            ast.apply(ar);
-            return ar.getAbbrevs();
+    private Reader open(File file) throws IOException {
+        checksum = new CRC32();
+        return new InputStreamReader(new CheckedInputStream(new FileInputStream(file), checksum),
+                Charset.defaultCharset());
+    }
+    
+    /**
+     * Reads the whole file into a character array and closes the reader.
+     * 
+     * @param file The file to read
+     * @param r A reader to the file
+     * @return The contents of the file, the array is exactly filled
+     */
+    private static char[] readFully(File file, Reader r) throws IOException {
+        char[] text = new char[(int) file.length()];
+        int length = 0;
+        try {
+            int n;
+            while ((n = r.read(text, length, text.length - length)) > 0) {
+                length += n;
+                if (length == text.length) {
+                    text = Arrays.copyOf(text, text.length * 2);
+                }
+            }
+        } finally {
+            r.close();
         }
-        return null;
+        return length == text.length ? text : Arrays.copyOf(text, length);
+    }
+    
+    /**
+     * Returns the CRC-32 checksum of the file contents read by the parser.
+     * Only valid after a successful parse of a file given by name.
+     * 
+     * @return The checksum, or -1 if no file was read
+     */
+    public long getChecksum() {
+        return checksum == null || readError != null ? -1 : checksum.getValue();
+    }
+    
+    /**
+     * @return Returns the abbreviations (<code>ReferenceEntry</code>)
+     */
+    public List<ReferenceEntry> getAbbrevs() {
+        return abbrevs;
     }
     
     /**
@@ -145,14 +220,14 @@ public class BibParser {
     /**
      * @return Returns the warnings.
      */
-    public List getWarnings() {
+    public List<ParseErrorMessage> getWarnings() {
         return warnings;
     }
     
     /**
      * @return Returns the tasks
      */
-    public List getTasks() {
+    public List<ParseErrorMessage> getTasks() {
         return tasks;
     }
 }
@@ -0,0 +1,454 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.bibparser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.texlipse.model.ReferenceEntry;
+
+/**
+ * The sort orders of the BibTeX outline, computed once per parse.
+ *
+ * The authors of each entry are normalized (last name first, without
+ * braces and escapes) once, and every sort order is kept as a permutation
+ * of entry indices, or for the author order of author rows, since an entry
+ * with several authors appears once per author.
+ *
+ * When the file is parsed again, the index is updated from the previous
+ * one: the unchanged entries at the start and the end of the file keep
+ * their place in the orders and only the changed entries in between are
+ * sorted and merged in.
+ */
+public final class BibSortIndex {
+
+    /**
+     * A total order of entry or row indices
+     */
+    private interface Order {
+        int compare(int a, int b);
+    }
+
+    private final ReferenceEntry[] entries;
+
+    // one row per author, stored entry by entry
+    private final String[] rowAuthors;
+    private final int[] rowEntries;
+    private final int[] firstRows; // first row of each entry and the row count
+
+    private final int[] authorOrder; // rows
+    private final int[] yearOrder; // entries
+    private final int[] journalOrder;
+    private final int[] keyOrder;
+
+    private BibSortIndex(ReferenceEntry[] entries, String[] rowAuthors,
+            int[] rowEntries, int[] firstRows, BibSortIndex previous,
+            int unchangedStart, int unchangedEnd) {
+        this.entries = entries;
+        this.rowAuthors = rowAuthors;
+        this.rowEntries = rowEntries;
+        this.firstRows = firstRows;
+
+        int n = entries.length;
+        int m = previous != null ? previous.entries.length : 0;
+        int p = unchangedStart;
+        int s = unchangedEnd;
+
+        // entry indices of the previous index map to this one
+        int[] entryMap = new int[m];
+        for (int i = 0; i < m; i++) {
+            entryMap[i] = i < p ? i : (i >= m - s ? i + n - m : -1);
+        }
+        int[] added = new int[n - p - s];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = p + i;
+        }
+
+        yearOrder = update(previous != null ? previous.yearOrder : null, entryMap, added,
+                new Order() {
+            public int compare(int a, int b) {
+                int c = entries[a].year.compareTo(entries[b].year);
+                return c != 0 ? c : a - b;
+            }
+        });
+        journalOrder = update(previous != null ? previous.journalOrder : null, entryMap, added,
+                new Order() {
+            public int compare(int a, int b) {
+                int c = entries[a].journal.compareTo(entries[b].journal);
+                return c != 0 ? c : a - b;
+            }
+        });
+        keyOrder = update(previous != null ? previous.keyOrder : null, entryMap, added,
+                new Order() {
+            public int compare(int a, int b) {
+                int c = entries[a].key.compareTo(entries[b].key);
+                return c != 0 ? c : a - b;
+            }
+        });
+
+        // rows of the previous index map to this one likewise
+        int mr = previous != null ? previous.rowAuthors.length : 0;
+        int[] rowMap = new int[mr];
+        if (previous != null) {
+            int shift = firstRows[n - s] - previous.firstRows[m - s];
+            for (int r = 0; r < mr; r++) {
+                int e = previous.rowEntries[r];
+                rowMap[r] = e < p ? r : (e >= m - s ? r + shift : -1);
+            }
+        }
+        int[] addedRows = new int[firstRows[n - s] - firstRows[p]];
+        for (int i = 0; i < addedRows.length; i++) {
+            addedRows[i] = firstRows[p] + i;
+        }
+        // the first authors come before the others, as in the
+        // original outline
+        authorOrder = update(previous != null ? previous.authorOrder : null, rowMap, addedRows,
+                new Order() {
+            public int compare(int a, int b) {
+                int c = rowAuthors[a].compareTo(rowAuthors[b]);
+                if (c != 0) {
+                    return c;
+                }
+                int ra = a == firstRows[rowEntries[a]] ? 0 : 1;
+                int rb = b == firstRows[rowEntries[b]] ? 0 : 1;
+                return ra != rb ? ra - rb : a - b;
+            }
+        });
+    }
+
+    /**
+     * Builds the sort index of the given entries.
+     *
+     * @param list The entries in file order
+     * @param previous The index of the previous parse of the same file,
+     * or null
+     * @return The sort index
+     */
+    public static BibSortIndex build(List<ReferenceEntry> list, BibSortIndex previous) {
+        ReferenceEntry[] entries = list.toArray(new ReferenceEntry[list.size()]);
+        int n = entries.length;
+
+        // find the unchanged entries at the start and at the end
+        int p = 0;
+        int s = 0;
+        int m = 0;
+        if (previous != null) {
+            ReferenceEntry[] old = previous.entries;
+            m = old.length;
+            while (p < n && p < m && sameSortKeys(entries[p], old[p])) {
+                p++;
+            }
+            while (s < n - p && s < m - p && sameSortKeys(entries[n - 1 - s], old[m - 1 - s])) {
+                s++;
+            }
+        }
+
+        // split the authors of the changed entries
+        Map<String, String> pool = new HashMap<String, String>();
+        String[][] changed = new String[n - p - s][];
+        int[] firstRows = new int[n + 1];
+        int rows = 0;
+        for (int i = 0; i < n; i++) {
+            firstRows[i] = rows;
+            if (i < p) {
+                rows += previous.firstRows[i + 1] - previous.firstRows[i];
+            } else if (i >= n - s) {
+                int j = i - n + m;
+                rows += previous.firstRows[j + 1] - previous.firstRows[j];
+            } else {
+                changed[i - p] = splitAuthors(entries[i].author, pool);
+                rows += changed[i - p].length;
+            }
+        }
+        firstRows[n] = rows;
+
+        String[] rowAuthors = new String[rows];
+        int[] rowEntries = new int[rows];
+        if (p > 0) {
+            System.arraycopy(previous.rowAuthors, 0, rowAuthors, 0, firstRows[p]);
+            System.arraycopy(previous.rowEntries, 0, rowEntries, 0, firstRows[p]);
+        }
+        for (int i = p; i < n - s; i++) {
+            String[] authors = changed[i - p];
+            System.arraycopy(authors, 0, rowAuthors, firstRows[i], authors.length);
+            for (int r = firstRows[i]; r < firstRows[i + 1]; r++) {
+                rowEntries[r] = i;
+            }
+        }
+        if (s > 0) {
+            int from = previous.firstRows[m - s];
+            int to = firstRows[n - s];
+            System.arraycopy(previous.rowAuthors, from, rowAuthors, to, rows - to);
+            for (int r = to; r < rows; r++) {
+                rowEntries[r] = previous.rowEntries[r - to + from] + n - m;
+            }
+        }
+        return new BibSortIndex(entries, rowAuthors, rowEntries, firstRows,
+                previous, p, s);
+    }
+
+    /**
+     * @param sorting The sort order, one of the <code>SORT</code> constants
+     * of <code>BibOutlineContainer</code>
+     * @return The number of rows in the given order
+     */
+    public int size(String sorting) {
+        if (BibOutlineContainer.SORTAUTHOR.equals(sorting)) {
+            return authorOrder.length;
+        }
+        return entries.length;
+    }
+
+    /**
+     * @param sorting The sort order
+     * @param row The row
+     * @return The entry of the given row in the given order
+     */
+    public ReferenceEntry getEntry(String sorting, int row) {
+        if (BibOutlineContainer.SORTAUTHOR.equals(sorting)) {
+            return entries[rowEntries[authorOrder[row]]];
+        } else if (BibOutlineContainer.SORTYEAR.equals(sorting)) {
+            return entries[yearOrder[row]];
+        } else if (BibOutlineContainer.SORTJOURNAL.equals(sorting)) {
+            return entries[journalOrder[row]];
+        } else if (BibOutlineContainer.SORTINDEX.equals(sorting)) {
+            return entries[keyOrder[row]];
+        }
+        return entries[row];
+    }
+
+    /**
+     * @param sorting The sort order
+     * @param row The row
+     * @return The value the row is sorted by, or null if the rows are
+     * sorted by key or not sorted
+     */
+    public String getSortKey(String sorting, int row) {
+        if (BibOutlineContainer.SORTAUTHOR.equals(sorting)) {
+            return rowAuthors[authorOrder[row]];
+        } else if (BibOutlineContainer.SORTYEAR.equals(sorting)) {
+            return entries[yearOrder[row]].year;
+        } else if (BibOutlineContainer.SORTJOURNAL.equals(sorting)) {
+            return entries[journalOrder[row]].journal;
+        }
+        return null;
+    }
+
+    /**
+     * Maps the previous order into the current indices and merges the
+     * sorted added indices into it.
+     */
+    private static int[] update(int[] previous, int[] map, int[] added, Order order) {
+        int kept = 0;
+        int[] result = new int[(previous != null ? previous.length : 0) + added.length];
+        if (previous != null) {
+            for (int i = 0; i < previous.length; i++) {
+                int x = map[previous[i]];
+                if (x >= 0) {
+                    result[kept++] = x;
+                }
+            }
+        }
+        sort(added, order);
+        if (added.length == 0) {
+            return kept == result.length ? result : trim(result, kept);
+        }
+
+        // merge from the end, the kept indices are at the start of result
+        int i = kept - 1;
+        int j = added.length - 1;
+        int k = kept + added.length - 1;
+        while (j >= 0) {
+            if (i >= 0 && order.compare(result[i], added[j]) > 0) {
+                result[k--] = result[i--];
+            } else {
+                result[k--] = added[j--];
+            }
+        }
+        return kept + added.length == result.length ? result : trim(result, kept + added.length);
+    }
+
+    private static int[] trim(int[] a, int length) {
+        int[] b = new int[length];
+        System.arraycopy(a, 0, b, 0, length);
+        return b;
+    }
+
+    /**
+     * Sorts the indices in the given order (bottom-up merge sort).
+     */
+    private static void sort(int[] a, Order order) {
+        int n = a.length;
+        int[] tmp = null;
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n - width; lo += 2 * width) {
+                int mid = lo + width;
+                int hi = Math.min(lo + 2 * width, n);
+                if (order.compare(a[mid - 1], a[mid]) <= 0) {
+                    continue;
+                }
+                if (tmp == null) {
+                    tmp = new int[n];
+                }
+                System.arraycopy(a, lo, tmp, lo, hi - lo);
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (j >= hi || (i < mid && order.compare(tmp[i], tmp[j]) <= 0)) {
+                        a[k] = tmp[i++];
+                    } else {
+                        a[k] = tmp[j++];
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean sameSortKeys(ReferenceEntry a, ReferenceEntry b) {
+        return a.key.equals(b.key) && equal(a.author, b.author)
+                && equal(a.year, b.year) && equal(a.journal, b.journal);
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    /**
+     * Splits an author field into the authors, formatted so that the last
+     * name is first. Does the same as the regular expressions used before,
+     * without them: escapes are removed, the field is split at " and ",
+     * names without a comma get the last word first and unescaped braces
+     * are removed.
+     *
+     * @param author The author field
+     * @param pool Pool of the formatted authors, for sharing them
+     * @return The formatted authors
+     */
+    static String[] splitAuthors(String author, Map<String, String> pool) {
+        author = removeEscapes(author);
+
+        // split(" and "), dropping trailing empty parts
+        int count = 1;
+        for (int i = author.indexOf(" and "); i != -1; i = author.indexOf(" and ", i + 5)) {
+            count++;
+        }
+        String[] authors = new String[count];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = i < count - 1 ? author.indexOf(" and ", start) : author.length();
+            authors[i] = author.substring(start, end);
+            start = end + 5;
+        }
+        if (count > 1) {
+            while (count > 1 && authors[count - 1].length() == 0) {
+                count--;
+            }
+            if (count < authors.length) {
+                String[] a = new String[count];
+                System.arraycopy(authors, 0, a, 0, count);
+                authors = a;
+            }
+        }
+
+        // TODO fails e.g. on "Foo {Bar (Tutor)}", need to check braces
+        for (int i = 0; i < authors.length; i++) {
+            String a = authors[i];
+            if (a.indexOf(',') == -1 && !(a.startsWith("{") && a.endsWith("}"))) {
+                int pos = a.lastIndexOf(' ');
+                if (pos != -1) {
+                    a = a.substring(pos + 1) + ", " + a.substring(0, pos);
+                }
+            }
+            a = removeBraces(a);
+            String shared = pool.get(a);
+            if (shared == null) {
+                pool.put(a, a);
+                shared = a;
+            }
+            authors[i] = shared;
+        }
+        return authors;
+    }
+
+    /**
+     * Same as <code>replaceAll("\\\\(.)", "$1")</code>
+     */
+    private static String removeEscapes(String s) {
+        int i = s.indexOf('\\');
+        if (i == -1) {
+            return s;
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        sb.append(s, 0, i);
+        int len = s.length();
+        while (i < len) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < len && !isLineTerminator(s.charAt(i + 1))) {
+                sb.append(s.charAt(i + 1));
+                i += 2;
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Same as <code>replaceAll("(^|[^\\\\])(:?\\{|\\})", "$1")</code>, that is
+     * removes braces (and a colon before an opening brace) unless they are
+     * escaped or directly follow a removed brace.
+     */
+    private static String removeBraces(String s) {
+        if (s.indexOf('{') == -1 && s.indexOf('}') == -1) {
+            return s;
+        }
+        int len = s.length();
+        StringBuilder sb = new StringBuilder(len);
+        int i = 0;
+        while (i < len) {
+            int m;
+            if (i == 0 && (m = braceLength(s, 0)) > 0) {
+                i = m;
+            } else if (s.charAt(i) != '\\' && (m = braceLength(s, i + 1)) > 0) {
+                sb.append(s.charAt(i));
+                i += 1 + m;
+            } else {
+                sb.append(s.charAt(i));
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return The length of the match of <code>:?\{|\}</code> at the given
+     * position, or 0
+     */
+    private static int braceLength(String s, int i) {
+        if (i >= s.length()) {
+            return 0;
+        }
+        char c = s.charAt(i);
+        if (c == ':' && i + 1 < s.length() && s.charAt(i + 1) == '{') {
+            return 2;
+        }
+        return c == '{' || c == '}' ? 1 : 0;
+    }
+}
@@ -0,0 +1,585 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.bibparser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Event-driven BibTeX parser. Reads the input in one pass and reports the
+ * entries, abbreviations and tasks to a <code>BibParseListener</code>
+ * without building a syntax tree.
+ *
+ * The accepted language is the one of the SableCC grammar
+ * (<code>bibtex6.grammar</code>) with the lexing rules of
+ * <code>BibLexer</code>. In addition, an error in an entry only discards
+ * that entry: parsing resumes from the next line starting with @. If a
+ * string is not terminated before the end of the file, parsing resumes
+ * from the first line starting with @ inside that string.
+ */
+public class BibStreamParser {
+
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private final BibParseListener listener;
+
+    private char[] buf = new char[8192];
+    private int bufPos;
+    private int bufLen;
+
+    // position of the next character
+    private int line;
+    private int pos;
+    private boolean prevCR;
+    private boolean lineStart = true;
+
+    // whether an item was cut off by the end of the input
+    private boolean truncated;
+
+    // saved state for resuming after an unterminated string
+    private int markPos = -1;
+    private int markLine;
+    private int markCol;
+    private boolean markCR;
+
+    private final StringBuilder text = new StringBuilder();
+
+    /**
+     * Signals a syntax error in the current entry.
+     */
+    private static final class SyntaxError extends Exception {
+        private static final long serialVersionUID = 1L;
+        final int line;
+        final int pos;
+        final int length;
+        final boolean resumed;
+        SyntaxError(int line, int pos, int length, String msg) {
+            this(line, pos, length, msg, false);
+        }
+        SyntaxError(int line, int pos, int length, String msg, boolean resumed) {
+            super(msg);
+            this.line = line;
+            this.pos = pos;
+            this.length = length;
+            this.resumed = resumed;
+        }
+    }
+
+    /**
+     * Constructs a new parser.
+     *
+     * @param in The reader to read the BibTeX data from
+     * @param listener The listener receiving the parse events
+     */
+    public BibStreamParser(Reader in, BibParseListener listener) {
+        this(in, listener, 1);
+    }
+
+    /**
+     * Constructs a new parser for input that does not start on the first
+     * line of the file.
+     *
+     * @param in The reader to read the BibTeX data from
+     * @param listener The listener receiving the parse events
+     * @param firstLine The line number of the first line of the input
+     */
+    public BibStreamParser(Reader in, BibParseListener listener, int firstLine) {
+        this.in = in;
+        this.listener = listener;
+        this.line = firstLine;
+        this.pos = 1;
+    }
+
+    /**
+     * Parses the whole input.
+     *
+     * @throws IOException If reading the input fails
+     */
+    public void parse() throws IOException {
+        int c;
+        while ((c = peek()) != EOF) {
+            if (c == '@') {
+                parseAt();
+            } else if (c == '%' && lineStart) {
+                parseComment();
+            } else {
+                read();
+            }
+        }
+    }
+
+    /**
+     * @return true, if the input ended inside an entry, @string or
+     * @comment (or the file contains an unterminated string)
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Reports <code>% TODO</code> -comments, skips other comments.
+     */
+    private void parseComment() throws IOException {
+        int cLine = line;
+        int cPos = pos;
+        text.setLength(0);
+        int c;
+        while ((c = peek()) != EOF && c != '\n' && c != '\r') {
+            text.append((char) c);
+            read();
+        }
+        // the last line of the file need not end in a newline
+        int i = 1;
+        while (i < text.length() && (text.charAt(i) == ' ' || text.charAt(i) == '\t')) {
+            i++;
+        }
+        if (text.indexOf("TODO", i) == i) {
+            listener.task(text.toString(), cLine, cPos);
+        }
+    }
+
+    /**
+     * Parses an item starting with @, recovering from errors.
+     */
+    private void parseAt() throws IOException {
+        int atLine = line;
+        int atPos = pos;
+        read();
+        text.setLength(0);
+        int c;
+        while ((c = peek()) != EOF && isLetter(c)) {
+            text.append((char) c);
+            read();
+        }
+        String type = text.toString();
+        try {
+            if (type.length() == 0) {
+                throw new SyntaxError(atLine, atPos, 1,
+                        "Expected an entry type after @");
+            }
+            String lcType = type.toLowerCase();
+            if ("string".equals(lcType)) {
+                parseString();
+            } else if ("comment".equals(lcType) || "preamble".equals(lcType)) {
+                skipBlock();
+            } else {
+                parseEntry(type, atLine, atPos);
+            }
+        } catch (SyntaxError e) {
+            listener.error(e.line, e.pos, e.length, e.getMessage());
+            if (!e.resumed) {
+                markPos = -1;
+                recover();
+            }
+        }
+    }
+
+    /**
+     * Skips input until the next line starting with @ (leading whitespace
+     * is allowed.)
+     */
+    private void recover() throws IOException {
+        int c;
+        while ((c = peek()) != EOF) {
+            if (c == '@' && lineStart) {
+                return;
+            }
+            read();
+        }
+    }
+
+    /**
+     * Skips the body of an @comment or @preamble.
+     */
+    private void skipBlock() throws IOException, SyntaxError {
+        skipWhitespace();
+        int open = peek();
+        int close;
+        if (open == '{') {
+            close = '}';
+        } else if (open == '(') {
+            close = ')';
+        } else {
+            return;
+        }
+        int bLine = line;
+        int bPos = pos;
+        read();
+        int depth = 1;
+        while (depth > 0) {
+            int c = read();
+            if (c == EOF) {
+                truncated = true;
+                throw new SyntaxError(bLine, bPos, 2, "Unexpected end of file");
+            } else if (c == open) {
+                depth++;
+            } else if (c == close) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Parses an @string -definition.
+     */
+    private void parseString() throws IOException, SyntaxError {
+        skipWhitespace();
+        int close = readOpening();
+        skipWhitespace();
+        int nLine = line;
+        int nPos = pos;
+        String name = readIdentifier();
+        if (name.length() == 0) {
+            throw unexpected("Expected an abbreviation name");
+        }
+        skipWhitespace();
+        expect('=');
+        skipWhitespace();
+        listener.beginString(name, nLine, nPos);
+        parseValue();
+        skipWhitespace();
+        while (peek() == '#') {
+            read();
+            skipWhitespace();
+            parseValue();
+            skipWhitespace();
+        }
+        expect(close);
+        listener.endString();
+    }
+
+    /**
+     * Parses a BibTeX entry.
+     *
+     * @param type The entry type
+     * @param atLine The line of the @ -character
+     * @param atPos The position of the @ -character
+     */
+    private void parseEntry(String type, int atLine, int atPos) throws IOException, SyntaxError {
+        skipWhitespace();
+        int close = readOpening();
+        skipWhitespace();
+        int kLine = line;
+        int kPos = pos;
+        String key = readIdentifier();
+        if (key.length() == 0) {
+            throw unexpected("Expected an entry key");
+        }
+        listener.beginEntry(type, atLine, atPos, key, kLine, kPos);
+        while (true) {
+            skipWhitespace();
+            int c = peek();
+            if (c == close) {
+                int eLine = line;
+                read();
+                listener.endEntry(eLine);
+                return;
+            } else if (c != ',') {
+                throw unexpected("Expected , or " + (char) close);
+            }
+            read();
+            skipWhitespace();
+            if (peek() == close) {
+                continue;
+            }
+            int fLine = line;
+            int fPos = pos;
+            String field = readIdentifier();
+            if (field.length() == 0) {
+                throw unexpected("Expected a field name");
+            }
+            skipWhitespace();
+            expect('=');
+            skipWhitespace();
+            listener.beginField(field, fLine, fPos);
+            parseValue();
+            skipWhitespace();
+            while (peek() == '#') {
+                read();
+                skipWhitespace();
+                parseValue();
+                skipWhitespace();
+            }
+            listener.endField();
+        }
+    }
+
+    /**
+     * Parses one part of a value: a braced string, a quoted string,
+     * a number or an abbreviation.
+     */
+    private void parseValue() throws IOException, SyntaxError {
+        int vLine = line;
+        int vPos = pos;
+        int c = peek();
+        if (c == '{') {
+            read();
+            listener.value(BibParseListener.VALUE_LITERAL,
+                    readBraceString(vLine, vPos), vLine, vPos);
+        } else if (c == '"') {
+            read();
+            vLine = line;
+            vPos = pos;
+            String s = readQuotedString(vLine, vPos);
+            if (s.length() == 0) {
+                listener.value(BibParseListener.VALUE_EMPTY, s, vLine, vPos);
+            } else {
+                listener.value(BibParseListener.VALUE_LITERAL, s, vLine, vPos);
+            }
+        } else {
+            String id = readIdentifier();
+            if (id.length() == 0) {
+                throw unexpected("Expected a value");
+            }
+            listener.value(isNumber(id) ? BibParseListener.VALUE_NUMBER
+                    : BibParseListener.VALUE_ABBREV, id, vLine, vPos);
+        }
+    }
+
+    /**
+     * Reads a braced string after the opening brace. Whitespace is
+     * collapsed to single spaces, like <code>BibLexer</code> does.
+     */
+    private String readBraceString(int sLine, int sPos) throws IOException, SyntaxError {
+        text.setLength(0);
+        int depth = 1;
+        while (true) {
+            markAtEntryStart();
+            int c = read();
+            if (c == EOF) {
+                throw unterminated(sLine, sPos);
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (--depth == 0) {
+                    markPos = -1;
+                    return text.toString();
+                }
+            } else if (isWhitespace(c)) {
+                while (isWhitespace(peek())) {
+                    read();
+                }
+                text.append(' ');
+                continue;
+            }
+            text.append((char) c);
+        }
+    }
+
+    /**
+     * Reads a quoted string after the opening quote, consuming the
+     * closing quote.
+     */
+    private String readQuotedString(int sLine, int sPos) throws IOException, SyntaxError {
+        text.setLength(0);
+        while (true) {
+            markAtEntryStart();
+            int c = read();
+            if (c == EOF) {
+                throw unterminated(sLine, sPos);
+            } else if (c == '"') {
+                markPos = -1;
+                return text.toString();
+            } else if (c == '\\' && peek() == '"') {
+                text.append('\\');
+                c = read();
+            }
+            text.append((char) c);
+        }
+    }
+
+    /**
+     * @return The identifier at the current position, or an empty string
+     */
+    private String readIdentifier() throws IOException {
+        text.setLength(0);
+        int c;
+        while ((c = peek()) != EOF && isIdentifierChar(c)) {
+            text.append((char) c);
+            read();
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads an opening brace or parenthesis.
+     *
+     * @return The matching closing character
+     */
+    private int readOpening() throws IOException, SyntaxError {
+        int c = peek();
+        if (c == '{') {
+            read();
+            return '}';
+        } else if (c == '(') {
+            read();
+            return ')';
+        }
+        throw unexpected("Expected { or (");
+    }
+
+    private void expect(int expected) throws IOException, SyntaxError {
+        if (peek() != expected) {
+            throw unexpected("Expected " + (char) expected);
+        }
+        read();
+    }
+
+    /**
+     * Remembers the first line starting with @ inside a string, so that
+     * parsing can resume from there if the string is not terminated.
+     */
+    private void markAtEntryStart() throws IOException {
+        if (markPos < 0 && lineStart && peek() == '@') {
+            markPos = bufPos;
+            markLine = line;
+            markCol = pos;
+            markCR = prevCR;
+        }
+    }
+
+    /**
+     * Creates the error for a string that is not terminated before the
+     * end of the file and rewinds the input to the mark, if there is one.
+     */
+    private SyntaxError unterminated(int sLine, int sPos) {
+        truncated = true;
+        if (markPos < 0) {
+            return new SyntaxError(sLine, sPos, 2, "Unexpected end of file");
+        }
+        bufPos = markPos;
+        line = markLine;
+        pos = markCol;
+        prevCR = markCR;
+        lineStart = true;
+        markPos = -1;
+        return new SyntaxError(sLine, sPos, 2, "Unterminated string", true);
+    }
+
+    private SyntaxError unexpected(String msg) throws IOException {
+        int c = peek();
+        if (c == EOF) {
+            truncated = true;
+            return new SyntaxError(line, pos, 0, msg + ", found end of file");
+        }
+        return new SyntaxError(line, pos, 1, msg + ", found " + (char) c);
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (isWhitespace(peek())) {
+            read();
+        }
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isIdentifierChar(int c) {
+        switch (c) {
+        case ' ': case '\t': case '\n': case '\r': case '\f':
+        case '"': case '{': case '}': case '(': case ')':
+        case ',': case '=': case '#':
+            return false;
+        default:
+            return true;
+        }
+    }
+
+    private static boolean isNumber(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The next character without consuming it, or EOF
+     */
+    private int peek() throws IOException {
+        if (bufPos == bufLen && !fill()) {
+            return EOF;
+        }
+        return buf[bufPos];
+    }
+
+    /**
+     * Reads more input into the buffer. The buffer only grows while
+     * there is a mark inside an unterminated string.
+     *
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        if (markPos < 0) {
+            bufPos = 0;
+            bufLen = 0;
+        } else {
+            int kept = bufLen - markPos;
+            char[] target = kept == buf.length ? new char[buf.length * 2] : buf;
+            System.arraycopy(buf, markPos, target, 0, kept);
+            buf = target;
+            bufPos -= markPos;
+            bufLen = kept;
+            markPos = 0;
+        }
+        int n = in.read(buf, bufLen, buf.length - bufLen);
+        if (n <= 0) {
+            return false;
+        }
+        bufLen += n;
+        return true;
+    }
+
+    /**
+     * Consumes the next character and updates the line and position
+     * counters. A CR LF -pair counts as one line terminator.
+     *
+     * @return The consumed character, or EOF
+     */
+    private int read() throws IOException {
+        int c = peek();
+        if (c == EOF) {
+            return EOF;
+        }
+        bufPos++;
+        if (c == '\n') {
+            if (!prevCR) {
+                line++;
+                pos = 1;
+            }
+            prevCR = false;
+            lineStart = true;
+        } else if (c == '\r') {
+            line++;
+            pos = 1;
+            prevCR = true;
+            lineStart = true;
+        } else {
+            pos++;
+            prevCR = false;
+            if (c != ' ' && c != '\t') {
+                lineStart = false;
+            }
+        }
+        return c;
+    }
+}
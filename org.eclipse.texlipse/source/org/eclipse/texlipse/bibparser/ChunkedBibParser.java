@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.bibparser;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a large BibTeX file in chunks on the fork-join pool.
+ *
+ * The file is split at lines starting with @. Each chunk is parsed into a
+ * <code>BibEventRecorder</code> and the recorded events are replayed in
+ * file order into the real listener, which thus sees exactly the events
+ * of a sequential parse: duplicate keys, cross references and @string
+ * -abbreviations used in later chunks are resolved by the listener during
+ * the replay.
+ *
+ * A split point can be inside an entry (e.g. a line starting with @ in an
+ * abstract). The preceding chunk then ends inside an item, and it is parsed
+ * again together with the following chunk.
+ */
+final class ChunkedBibParser {
+
+    /**
+     * Files with fewer characters than this are parsed sequentially
+     */
+    static final int THRESHOLD = 2 * 1024 * 1024;
+
+    /**
+     * The minimum size of a chunk in characters
+     */
+    private static final int MIN_CHUNK = 256 * 1024;
+
+    private final char[] text;
+    private final int length;
+
+    /**
+     * Parses one chunk into a recorder.
+     */
+    private final class ChunkTask extends RecursiveTask<BibEventRecorder> {
+        private static final long serialVersionUID = 1L;
+        private final int start;
+        private final int end;
+        private final int line;
+
+        ChunkTask(int start, int end, int line) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+        }
+
+        protected BibEventRecorder compute() {
+            try {
+                return parseRange(start, end, line);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private ChunkedBibParser(char[] text, int length) {
+        this.text = text;
+        this.length = length;
+    }
+
+    /**
+     * Parses the given text, sending the events to the listener in
+     * the order of the text.
+     *
+     * @param text The BibTeX data
+     * @param length The number of characters used in <code>text</code>
+     * @param listener The listener receiving the parse events
+     */
+    static void parse(char[] text, int length, BibParseListener listener) throws IOException {
+        new ChunkedBibParser(text, length).parse(listener);
+    }
+
+    private void parse(BibParseListener listener) throws IOException {
+        int chunkSize = Math.max(MIN_CHUNK,
+                length / (4 * ForkJoinPool.getCommonPoolParallelism()));
+        List<int[]> splits = split(chunkSize);
+        int n = splits.size() - 1;
+
+        List<ChunkTask> tasks = new ArrayList<ChunkTask>(n);
+        for (int i = 0; i < n; i++) {
+            tasks.add(new ChunkTask(splits.get(i)[0], splits.get(i + 1)[0], splits.get(i)[1]));
+        }
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // merge
+        int i = 0;
+        while (i < n) {
+            BibEventRecorder rec = tasks.get(i).join();
+            int next = i + 1;
+            while (rec.isTruncated() && next < n) {
+                // the split point was not between two items, retry with
+                // twice as many chunks
+                next = Math.min(n, 2 * next - i);
+                rec = parseRange(splits.get(i)[0], splits.get(next)[0], splits.get(i)[1]);
+            }
+            rec.replay(listener);
+            i = next;
+        }
+    }
+
+    private BibEventRecorder parseRange(int start, int end, int line) throws IOException {
+        BibEventRecorder rec = new BibEventRecorder();
+        BibStreamParser p = new BibStreamParser(
+                new CharArrayReader(text, start, end - start), rec, line);
+        p.parse();
+        rec.setTruncated(p.isTruncated());
+        return rec;
+    }
+
+    /**
+     * Finds the split points: the starts of lines whose first non-blank
+     * character is @, roughly <code>chunkSize</code> apart.
+     *
+     * @return Offset and line number pairs, starting with the beginning
+     * and ending with the end of the text
+     */
+    private List<int[]> split(int chunkSize) {
+        List<int[]> splits = new ArrayList<int[]>();
+        splits.add(new int[] {0, 1});
+        int line = 1;
+        int target = chunkSize;
+        for (int i = 0; i < length; i++) {
+            char c = text[i];
+            if (c == '\r' || (c == '\n' && (i == 0 || text[i - 1] != '\r'))) {
+                line++;
+            }
+            if (i >= target && (c == '\n' || c == '\r')) {
+                int lineStart = i + 1;
+                if (c == '\r' && lineStart < length && text[lineStart] == '\n') {
+                    continue;
+                }
+                int j = lineStart;
+                while (j < length && (text[j] == ' ' || text[j] == '\t')) {
+                    j++;
+                }
+                if (j < length && text[j] == '@') {
+                    splits.add(new int[] {lineStart, line});
+                    target = lineStart + chunkSize;
+                }
+            }
+        }
+        splits.add(new int[] {length, line});
+        return splits;
+    }
+}
@@ -25,6 +25,8 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.texlipse.PathUtils;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.jfr.BuildStepEvent;
+import org.eclipse.texlipse.jfr.Events;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 import org.eclipse.ui.texteditor.MarkerUtilities;
 
@@ -214,6 +216,10 @@ public abstract class AbstractProgramRunner implements ProgramRunner {
         }
         extrun.setup(command, sourceDir, console);
         
+        BuildStepEvent event = Events.AVAILABLE ? new BuildStepEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
         String output = null;
         try {
             
@@ -231,7 +237,14 @@ public abstract class AbstractProgramRunner implements ProgramRunner {
             extrun.stop();
         }
 
-        if (parseErrors(resource, output)) {
+        boolean errors = parseErrors(resource, output);
+        if (event != null && event.shouldCommit()) {
+            event.program = getProgramName();
+            event.file = resource.getName();
+            event.errors = errors;
+            event.commit();
+        }
+        if (errors) {
             throw new BuilderCoreException(TexlipsePlugin.stat("Errors during build. See the problems dialog."));
         }
     }
@@ -14,13 +14,13 @@
 package org.eclipse.texlipse.builder;
 
 import java.io.File;
-import java.util.StringTokenizer;
+import java.nio.file.Path;
 
 import org.eclipse.core.resources.IContainer;
-import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.builder.core.BibtexLogParser;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 
 
@@ -112,7 +112,7 @@ public class BibtexRunner extends AbstractProgramRunner {
                 TexlipseProperties.SESSION_BIBLATEXMODE_PROPERTY);
 
         // TODO useless? shouldn't be such a project property
-        String aDir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.BIBFILE_PROPERTY);
+        String aDir = TexlipseProperties.getProjectConfiguration(project).bibFiles;
         if (aDir == null) {
             aDir = "";
         }
@@ -168,105 +168,11 @@ public class BibtexRunner extends AbstractProgramRunner {
         if (sourceDir == null) {
             sourceDir = project;
         }
-        //Initialize bibResource with origResource so that all errors are at least
-        //displayed even if no valid bib file was found
-        IResource bibResource = origResource;
+        Path sourcePath = MarkerProblemSink.toPath(sourceDir);
+        String srcFile = TexlipseProperties.getProjectConfiguration(project).mainFile;
+        Path mainFile = sourcePath != null && srcFile != null ? sourcePath.resolve(srcFile) : null;
         
-        boolean errorsFound = false;
-        StringTokenizer st = new StringTokenizer(output, "\r\n");
-        while (st.hasMoreTokens()) {
-
-            String line = st.nextToken();
-            if (line.indexOf("I was expecting a ") == 0) {
-
-                parseErrorLine(sourceDir, line);
-                errorsFound = true;
-                
-            } else if (line.startsWith("You're missing a field name")) {
-                
-                parseErrorLine(sourceDir, line);
-                errorsFound = true;
-                
-            } else if (line.startsWith("Warning--")) {
-                
-                String message = line.substring(9);
-                Integer lineNumber = null;
-                
-                String nextLine = st.nextToken();
-                // see if additional info is available about the warning
-                if (nextLine.startsWith("--line ")) {
-                    
-                    int index = nextLine.indexOf(" of file ");
-                    try {
-                        lineNumber = new Integer(nextLine.substring(7, index));
-                    } catch (NumberFormatException e) {
-                    }
-                    
-                    String fileName = nextLine.substring(index + 9);
-                    IResource resource = sourceDir.findMember(fileName);
-                    createMarker(resource, lineNumber, message, IMarker.SEVERITY_WARNING);
-                    
-                } else if (nextLine.startsWith("Warning--")) {
-                    
-                    // if followed by another warning, this is the endlist with no info
-                    createMarker(bibResource, lineNumber, message, IMarker.SEVERITY_WARNING);
-                    createMarker(bibResource, lineNumber, nextLine.substring(9), IMarker.SEVERITY_WARNING);
-                    
-                } else {
-                    // list of warnings ended
-                    createMarker(bibResource, lineNumber, message, IMarker.SEVERITY_WARNING);
-                }
-                
-            } else if (line.startsWith("Database file ")) {
-                
-                String bibName = line.substring(line.indexOf(':')+2);
-                bibResource = sourceDir.findMember(bibName);
-                if (bibResource == null) {
-                	//Could happen if bibName is not part of project (kpathsea)
-                	bibResource = origResource;
-                }
-
-            } else if (line.startsWith("I couldn't open database file ")) {
-                
-                String bibName = line.substring(line.indexOf("file")+5);
-                // TODO Add marker to main file, but we should really find the offending
-                // \bibliography command in the main file and add it to the right line.
-                String srcFile = TexlipseProperties.getProjectProperty(project,
-                        TexlipseProperties.MAINFILE_PROPERTY);
-                IResource mainFileResource = sourceDir.findMember(srcFile);
-                createMarker(mainFileResource, new Integer(0), "Could not open bibtex database file " + bibName);
-                
-                return true; // errors found, and no use in parsing the rest of the file
-            }
-        }
-        
-        return errorsFound;
-    }
-
-    /**
-     * Parse a Bibtex error message from the given line.
-     * Create also an error marker to the right place.
-     * 
-     * @param sourceDir directory containing project's source files 
-     * @param line the error message line
-     */
-    private void parseErrorLine(IContainer sourceDir, String line) {
-        
-        int index = line.indexOf("---line ");
-        int index2 = line.indexOf(" of file ", index);
-        String lineNumberString = line.substring(index+8, index2);
-        
-        Integer lineNumber = null;
-        try {
-            int num = Integer.parseInt(lineNumberString);
-            lineNumber = new Integer(num);
-        } catch (NumberFormatException e) {
-        }
-        
-        String fileName = line.substring(index2+9);
-        IResource resource = sourceDir.findMember(fileName);
-        
-        String error = line.substring(0, index);
-        createMarker(resource, lineNumber, error);
+        return new BibtexLogParser(sourcePath, mainFile, new MarkerProblemSink(origResource))
+                .parse(output);
     }
 }
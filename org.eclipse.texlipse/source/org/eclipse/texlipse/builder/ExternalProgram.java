@@ -23,6 +23,8 @@ import java.util.Properties;
 
 import org.eclipse.texlipse.PathUtils;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.jfr.Events;
+import org.eclipse.texlipse.jfr.ExternalProcessEvent;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 
 
@@ -145,6 +147,7 @@ public class ExternalProgram {
         
         String output = null;
         String errorOutput = null;
+        ExternalProcessEvent event = null;
         if ((command != null) && (dir != null)) {
             
         	StringBuffer commandSB = new StringBuffer();
@@ -168,6 +171,10 @@ public class ExternalProgram {
             }
             
             String[] env = PathUtils.mergeEnvFromPrefs(envProp, TexlipseProperties.BUILD_ENV_SETTINGS);
+            if (Events.AVAILABLE) {
+                event = new ExternalProcessEvent();
+                event.begin();
+            }
             process = rt.exec(command, env, dir);
             
         } else {
@@ -226,16 +233,23 @@ public class ExternalProgram {
         errorOutput = thErrorOutput.toString();
         
         
+        int code = -1;
         if (wait) {
-            // the process status code is not useful here
-            //int code = 
+            // the process status code is not useful here, except for the event
             try {
-                process.waitFor();
+                code = process.waitFor();
             } catch (InterruptedException e) {
                 //Should not happen
                 TexlipsePlugin.log("Process interrupted", e);                
             }
         }
+        if (event != null && event.shouldCommit()) {
+            event.command = command[0];
+            event.directory = dir.getAbsolutePath();
+            event.outputLength = output.length() + errorOutput.length();
+            event.exitCode = code;
+            event.commit();
+        }
         
         process = null;
         
@@ -14,6 +14,8 @@
 package org.eclipse.texlipse.builder;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -49,6 +51,51 @@ public class Kpath {
         path = new File(matcher.group(2));
 	}
 
+	/**
+	 * Expands the brace expressions of a path element as kpathsea does,
+	 * e.g. <code>tex/{latex,generic,}//</code> to <code>tex/latex//</code>,
+	 * <code>tex/generic//</code> and <code>tex///</code>.
+	 * 
+	 * @param element A path element, possibly with brace expressions
+	 * @return The expanded path elements
+	 */
+	public static List<String> expandBraces(String element) {
+		List<String> result = new ArrayList<String>();
+		int open = element.indexOf('{');
+		if (open < 0) {
+			result.add(element);
+			return result;
+		}
+		// find the matching brace and the top level commas
+		List<Integer> commas = new ArrayList<Integer>();
+		int depth = 0;
+		int close = -1;
+		for (int i = open; i < element.length() && close < 0; i++) {
+			char c = element.charAt(i);
+			if (c == '{') {
+				depth++;
+			} else if (c == '}' && --depth == 0) {
+				close = i;
+			} else if (c == ',' && depth == 1) {
+				commas.add(Integer.valueOf(i));
+			}
+		}
+		if (close < 0) {
+			result.add(element);
+			return result;
+		}
+		String head = element.substring(0, open);
+		String tail = element.substring(close + 1);
+		int start = open + 1;
+		commas.add(Integer.valueOf(close));
+		for (Integer comma : commas) {
+			String alternative = element.substring(start, comma.intValue());
+			result.addAll(expandBraces(head + alternative + tail));
+			start = comma.intValue() + 1;
+		}
+		return result;
+	}
+
 	@Override
 	public String toString() {
 		return path.toString();
@@ -0,0 +1,483 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.texlipse.TexlipsePlugin;
+
+/**
+ * Resolves files like kpathsea does, without starting kpsewhich for each
+ * file.
+ *
+ * The search paths of the file formats (<code>kpsewhich -show-path</code>)
+ * and the list of ls-R databases (<code>kpsewhich -var-value TEXMFDBS</code>)
+ * are asked once per session. The databases are read into a hash index
+ * from file names to the directories containing them. A file is then
+ * looked up by going through the elements of the search path: elements
+ * starting with <code>!!</code> are only looked up in the databases,
+ * others also on disk, with <code>//</code> meaning the subdirectories
+ * too.
+ *
+ * Every few seconds the databases are checked for changes (e.g. by
+ * <code>mktexlsr</code>) and read again if they have changed. Files that
+ * weren't found and the directory trees listed from disk are remembered
+ * until then.
+ *
+ * A lookup the resolver can't answer cheaply, such as searching a large
+ * directory tree that isn't in a database, is left to kpsewhich, as are
+ * all lookups if there are no databases.
+ */
+public final class KpathseaResolver {
+
+    // how often the databases are checked for changes
+    private static final long CHECK_INTERVAL = 5000;
+    // the most directories walked for an element not in a database
+    private static final int MAX_WALKED_DIRS = 2000;
+
+    private static KpathseaResolver theInstance;
+
+    private final KpsewhichRunner kpsewhich;
+    private final String programPath;
+
+    private File[] databases;
+    private long[] databaseTimes;
+    private long lastCheck;
+    // file name -> directory (String) or directories (String[])
+    private Map<String, Object> index;
+    // the walked directory trees: root -> file name -> directories
+    private Map<String, Map<String, Object>> walked;
+    // the search path elements by progname and format
+    private final Map<String, String[]> searchPaths = new HashMap<String, String[]>();
+    // the lookups that found nothing
+    private Set<String> missing;
+
+    private KpathseaResolver(KpsewhichRunner kpsewhich) {
+        this.kpsewhich = kpsewhich;
+        this.programPath = kpsewhich.getProgramPath();
+    }
+
+    /**
+     * Returns the resolver for the configured kpsewhich program.
+     *
+     * @return The resolver or null if kpsewhich isn't configured or
+     * there are no ls-R databases
+     */
+    public static synchronized KpathseaResolver getInstance() {
+        KpsewhichRunner runner = new KpsewhichRunner();
+        if (!runner.isValid()) {
+            return null;
+        }
+        if (theInstance == null || !runner.getProgramPath().equals(theInstance.programPath)) {
+            theInstance = new KpathseaResolver(runner);
+        }
+        return theInstance.load() ? theInstance : null;
+    }
+
+    /**
+     * Reads the databases if they haven't been read or have changed.
+     *
+     * @return True if there are databases
+     */
+    private synchronized boolean load() {
+        if (databases == null) {
+            try {
+                databases = findDatabases();
+            } catch (CoreException ce) {
+                TexlipsePlugin.log("Can't run Kpathsea", ce);
+                databases = new File[0];
+            }
+            read();
+        } else if (databases.length > 0
+                && System.currentTimeMillis() - lastCheck > CHECK_INTERVAL) {
+            lastCheck = System.currentTimeMillis();
+            walked.clear();
+            missing.clear();
+            for (int i = 0; i < databases.length; i++) {
+                if (databases[i].lastModified() != databaseTimes[i]) {
+                    read();
+                    break;
+                }
+            }
+        }
+        return databases.length > 0;
+    }
+
+    private File[] findDatabases() throws CoreException {
+        String value = kpsewhich.query(new String[] {"-var-value", "TEXMFDBS"}, null).trim();
+        List<File> files = new ArrayList<File>();
+        for (String element : value.split(File.pathSeparator)) {
+            for (String dir : Kpath.expandBraces(element)) {
+                dir = stripElement(dir);
+                if (dir.length() == 0) {
+                    continue;
+                }
+                File lsR = new File(dir, "ls-R");
+                if (!lsR.isFile()) {
+                    lsR = new File(dir, "ls-r");
+                }
+                if (lsR.isFile() && !files.contains(lsR)) {
+                    files.add(lsR);
+                }
+            }
+        }
+        return files.toArray(new File[files.size()]);
+    }
+
+    /**
+     * Reads all the databases into the index.
+     */
+    private void read() {
+        lastCheck = System.currentTimeMillis();
+        databaseTimes = new long[databases.length];
+        index = new HashMap<String, Object>();
+        walked = new HashMap<String, Map<String, Object>>();
+        missing = new HashSet<String>();
+        for (int i = 0; i < databases.length; i++) {
+            databaseTimes[i] = databases[i].lastModified();
+            try {
+                readDatabase(databases[i], index);
+            } catch (IOException ioe) {
+                TexlipsePlugin.log("Reading " + databases[i], ioe);
+            }
+        }
+    }
+
+    private static void readDatabase(File database, Map<String, Object> index) throws IOException {
+        String root = database.getParentFile().getPath();
+        BufferedReader in = new BufferedReader(new InputStreamReader(
+                new FileInputStream(database), Charset.forName("UTF-8")));
+        try {
+            String dir = root;
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.length() == 0 || line.charAt(0) == '%') {
+                    continue;
+                }
+                if (line.endsWith(":")) {
+                    // a directory, relative to the database or absolute
+                    String path = line.substring(0, line.length() - 1);
+                    if (path.startsWith("./")) {
+                        path = path.substring(2);
+                        dir = path.length() == 0 ? root : root + File.separator
+                                + path.replace('/', File.separatorChar);
+                    } else if (path.equals(".")) {
+                        dir = root;
+                    } else {
+                        dir = path.replace('/', File.separatorChar);
+                    }
+                    while (dir.length() > 1 && dir.endsWith(File.separator)) {
+                        dir = dir.substring(0, dir.length() - 1);
+                    }
+                } else if (!line.equals(".") && !line.equals("..")) {
+                    add(index, line, dir);
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void add(Map<String, Object> index, String name, String dir) {
+        Object dirs = index.get(name);
+        if (dirs == null) {
+            index.put(name, dir);
+        } else if (dirs instanceof String) {
+            index.put(name, new String[] {(String) dirs, dir});
+        } else {
+            String[] old = (String[]) dirs;
+            String[] longer = new String[old.length + 1];
+            System.arraycopy(old, 0, longer, 0, old.length);
+            longer[old.length] = dir;
+            index.put(name, longer);
+        }
+    }
+
+    /**
+     * Finds a file like <code>kpsewhich -progname=progname filename</code>.
+     *
+     * @param directory The directory to resolve relative paths against
+     * @param filename The name of the file, possibly without a suffix
+     * @param progname The name of the program looking for the file
+     * @return The path of the file, an empty string if the file doesn't
+     * exist, or null if the resolver can't tell
+     */
+    public synchronized String findFile(File directory, String filename, String progname) {
+        if (!load()) {
+            return null;
+        }
+        String format = getFormat(filename);
+        String key = progname + '\0' + directory + '\0' + filename;
+        if (missing.contains(key)) {
+            return "";
+        }
+        String[] path;
+        try {
+            path = getSearchPath(progname, format);
+        } catch (CoreException ce) {
+            return null;
+        }
+
+        List<String> names = new ArrayList<String>(2);
+        String baseName = filename.substring(filename.lastIndexOf('/') + 1);
+        if (baseName.indexOf('.') < 0) {
+            // kpathsea tries the name with the default suffix first
+            names.add(filename + "." + format);
+        }
+        names.add(filename);
+
+        for (String name : names) {
+            String found;
+            if (new File(name).isAbsolute() || name.startsWith("./") || name.startsWith("../")) {
+                File f = new File(name).isAbsolute() ? new File(name) : new File(directory, name);
+                found = f.isFile() ? f.getPath() : "";
+            } else {
+                found = search(directory, path, name);
+            }
+            if (found == null) {
+                return null;
+            }
+            if (found.length() > 0) {
+                return found;
+            }
+        }
+        missing.add(key);
+        return "";
+    }
+
+    /**
+     * Searches a relative file name in the elements of a search path.
+     *
+     * @return The path of the file, an empty string if it wasn't found,
+     * or null if the search was given up
+     */
+    private String search(File directory, String[] path, String name) {
+        int slash = name.lastIndexOf('/');
+        String subdir = slash >= 0 ? File.separator + name.substring(0, slash).replace('/', File.separatorChar) : null;
+        String baseName = name.substring(slash + 1);
+        for (String element : path) {
+            boolean databaseOnly = element.startsWith("!!");
+            boolean children = element.endsWith("//");
+            String dir = stripElement(element);
+            if (dir.length() == 0) {
+                continue;
+            }
+            File base = new File(dir);
+            if (dir.equals(".")) {
+                base = directory;
+            } else if (!base.isAbsolute()) {
+                base = new File(directory, dir);
+            }
+            String root = base.getPath();
+
+            String found = find(index.get(baseName), root, children, subdir, baseName);
+            if (found != null || databaseOnly) {
+                if (found != null) {
+                    return found;
+                }
+                continue;
+            }
+            File f = new File(root + (subdir != null ? subdir : ""), baseName);
+            if (f.isFile()) {
+                return f.getPath();
+            }
+            if (children) {
+                Map<String, Object> tree = walk(root);
+                if (tree == null) {
+                    return null;
+                }
+                found = find(tree.get(baseName), root, true, subdir, baseName);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return "";
+    }
+
+    /**
+     * @return The first of the directories in or (with children) below
+     * the root and ending with the subdirectory, joined with the name
+     */
+    private static String find(Object dirs, String root, boolean children,
+            String subdir, String name) {
+        if (dirs == null) {
+            return null;
+        }
+        String[] list = dirs instanceof String ? new String[] {(String) dirs} : (String[]) dirs;
+        for (String dir : list) {
+            boolean inRoot = dir.equals(root) || (children && dir.startsWith(root)
+                    && dir.length() > root.length()
+                    && (dir.charAt(root.length()) == File.separatorChar || root.endsWith(File.separator)));
+            if (inRoot && (subdir == null || dir.endsWith(subdir))) {
+                return dir + File.separator + name;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lists the files of a directory tree that is not in a database.
+     *
+     * @return The files by name, or null if the tree is too large
+     */
+    private Map<String, Object> walk(String root) {
+        if (walked.containsKey(root)) {
+            return walked.get(root);
+        }
+        Map<String, Object> tree = new HashMap<String, Object>();
+        List<File> dirs = new ArrayList<File>();
+        dirs.add(new File(root));
+        for (int i = 0; i < dirs.size(); i++) {
+            if (i == MAX_WALKED_DIRS) {
+                tree = null;
+                break;
+            }
+            File[] files = dirs.get(i).listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    dirs.add(f);
+                } else {
+                    add(tree, f.getName(), dirs.get(i).getPath());
+                }
+            }
+        }
+        walked.put(root, tree);
+        return tree;
+    }
+
+    /**
+     * Lists the files with the given suffix in the search path of a format
+     * that are in the databases. Of files with equal names the first one
+     * in the search path is listed.
+     *
+     * @param progname The name of the program looking for the files
+     * @param format The format, e.g. <code>tex</code>
+     * @param suffix The suffix of the files, e.g. <code>.sty</code>
+     * @return The paths of the files by their names
+     * @throws CoreException If the search path can't be asked from kpsewhich
+     */
+    public synchronized Map<String, String> listFiles(String progname, String format, String suffix)
+            throws CoreException {
+        Map<String, String> result = new LinkedHashMap<String, String>();
+        if (!load()) {
+            return result;
+        }
+        String[] path = getSearchPath(progname, format);
+        for (Map.Entry<String, Object> e : index.entrySet()) {
+            String name = e.getKey();
+            if (!name.endsWith(suffix)) {
+                continue;
+            }
+            for (String element : path) {
+                String dir = stripElement(element);
+                if (dir.length() > 0 && new File(dir).isAbsolute()) {
+                    String found = find(e.getValue(), new File(dir).getPath(),
+                            element.endsWith("//"), null, name);
+                    if (found != null) {
+                        result.put(name, found);
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a key that changes when the databases change, for caching
+     * results derived from them.
+     *
+     * @return The paths and modification times of the databases
+     */
+    public synchronized String getDatabaseKey() {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < databases.length; i++) {
+            key.append(databases[i].getPath()).append(';').append(databaseTimes[i]).append(';');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns the search path of a format, brace expanded.
+     *
+     * @param progname The name of the program looking for files, or null
+     * @param format The format or a suffix of it
+     * @return The elements of the search path
+     * @throws CoreException If kpsewhich can't be run
+     */
+    synchronized String[] getSearchPath(String progname, String format) throws CoreException {
+        String key = progname + '\0' + format;
+        String[] path = searchPaths.get(key);
+        if (path == null) {
+            String[] args = progname != null
+                    ? new String[] {"-progname=" + progname, "-show-path", format}
+                    : new String[] {"-show-path", format};
+            String output = kpsewhich.query(args, null);
+            if (output.startsWith("warning: kpsewhich: Ignoring unknown file type")) {
+                path = new String[0];
+            } else {
+                List<String> elements = new ArrayList<String>();
+                for (String element : output.trim().split(File.pathSeparator + "|\r\n|\r|\n")) {
+                    if (element.length() > 0) {
+                        elements.addAll(Kpath.expandBraces(element));
+                    }
+                }
+                path = elements.toArray(new String[elements.size()]);
+            }
+            searchPaths.put(key, path);
+        }
+        return path;
+    }
+
+    /**
+     * @return The directory of a search path element without the
+     * <code>!!</code> and the trailing slashes
+     */
+    private static String stripElement(String element) {
+        String dir = element.startsWith("!!") ? element.substring(2) : element;
+        while (dir.length() > 1 && (dir.endsWith("/") || dir.endsWith(File.separator))) {
+            dir = dir.substring(0, dir.length() - 1);
+        }
+        return dir;
+    }
+
+    /**
+     * @return The kpathsea format of a file name, by its suffix
+     */
+    private static String getFormat(String filename) {
+        if (filename.endsWith(".bib")) {
+            return "bib";
+        } else if (filename.endsWith(".bst")) {
+            return "bst";
+        }
+        return "tex";
+    }
+}
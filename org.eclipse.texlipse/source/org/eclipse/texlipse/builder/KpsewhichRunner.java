@@ -14,6 +14,8 @@
 package org.eclipse.texlipse.builder;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.core.resources.IResource;
 import org.eclipse.core.runtime.CoreException;
@@ -148,13 +150,24 @@ public class KpsewhichRunner implements ProgramRunner {
      * @throws CoreException Thrown if running the external command generates an exception
      */
 	protected String run(String[] command, IResource resource) throws CoreException {
+	    return run(command, resource.getLocation().toFile().getParentFile());
+	}
+
+    /**
+     * 
+     * @param command The command string to execute
+     * @param directory The directory to run the command in
+     * @return Output from the command
+     * @throws CoreException Thrown if running the external command generates an exception
+     */
+	protected String run(String[] command, File directory) throws CoreException {
 	    // check if we are using console
         String console = null;
         if (TexlipsePlugin.getDefault().getPreferenceStore().getBoolean(TexlipseProperties.BUILDER_CONSOLE_OUTPUT)) {
             console = getProgramName();
         }
         
-		extrun.setup(command, resource.getLocation().toFile().getParentFile(), console);
+		extrun.setup(command, directory, console);
 		
         String output = null;
         try {
@@ -180,6 +193,14 @@ public class KpsewhichRunner implements ProgramRunner {
 	 * @return the path to the file or an empty string if no path was found
 	 */
 	public String getFile(IResource resource, String filename, String progname) throws CoreException {
+	    KpathseaResolver resolver = KpathseaResolver.getInstance();
+	    if (resolver != null) {
+	        String path = resolver.findFile(resource.getLocation().toFile().getParentFile(),
+	                filename, progname);
+	        if (path != null) {
+	            return path;
+	        }
+	    }
 	    
         String[] command = {getProgramPath(),"-progname="+progname, filename};
         
@@ -197,21 +218,59 @@ public class KpsewhichRunner implements ProgramRunner {
 	 * @throws CoreException Thrown if running kpsewhich throws an exception
 	 */
 	public Kpath[] getSearchPaths(IResource resource, String ext) throws CoreException {
+		return getSearchPaths(resource.getLocation().toFile().getParentFile(), ext);
+	}
+
+	/**
+	 * Gets the paths Kpathsea will search for a particular type of file
+	 * @param directory Directory to run kpsewhich in
+	 * @param ext The extension to search for
+	 * @return An array of Kpath objects, representing the search paths.
+	 * @throws CoreException Thrown if running kpsewhich throws an exception
+	 */
+	public Kpath[] getSearchPaths(File directory, String ext) throws CoreException {
+		KpathseaResolver resolver = KpathseaResolver.getInstance();
+		if (resolver != null) {
+			String[] path = resolver.getSearchPath(null, ext);
+			if (path.length == 0) {
+				return null;
+			}
+			Kpath[] kpaths = new Kpath[path.length];
+			for (int i = 0; i < path.length; i++) {
+				kpaths[i] = new Kpath(path[i]);
+			}
+			return kpaths;
+		}
 		String[] command = {getProgramPath(), "-show-path", ext};
-		String output = run(command, resource);
+		String output = run(command, directory);
 	    
 		if (output.startsWith("warning: kpsewhich: Ignoring unknown file type")) {
 			return null;
 		} else {
 			String[] outList = output.split(java.io.File.pathSeparator+"|\r\n|\r|\n");
-			Kpath[] kpaths = new Kpath[outList.length];
+			List<Kpath> kpaths = new ArrayList<Kpath>(outList.length);
 			for(int i=0; i<outList.length;i++) {
-				String unpack = outList[i];
-				kpaths[i] = new Kpath(unpack);
+				for (String unpack : Kpath.expandBraces(outList[i])) {
+					kpaths.add(new Kpath(unpack));
+				}
 			}
-			return kpaths;
+			return kpaths.toArray(new Kpath[kpaths.size()]);
 		}
 	}
 
+	/**
+	 * Runs kpsewhich with the given arguments
+	 * @param args The arguments
+	 * @param directory Directory to run kpsewhich in, or null for the home directory
+	 * @return Output from kpsewhich
+	 * @throws CoreException Thrown if running kpsewhich throws an exception
+	 */
+	String query(String[] args, File directory) throws CoreException {
+		String[] command = new String[args.length + 1];
+		command[0] = getProgramPath();
+		System.arraycopy(args, 0, command, 1, args.length);
+		return run(command, directory != null ? directory
+				: new File(System.getProperty("user.home")));
+	}
 }
 	  	 
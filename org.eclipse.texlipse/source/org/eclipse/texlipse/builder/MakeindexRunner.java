@@ -13,9 +13,8 @@
 
 package org.eclipse.texlipse.builder;
 
-import java.util.StringTokenizer;
-
 import org.eclipse.core.resources.IResource;
+import org.eclipse.texlipse.builder.core.MakeindexLogParser;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 
 
@@ -54,8 +53,8 @@ public class MakeindexRunner extends AbstractProgramRunner {
     public String getArguments(IResource resource) {
         
         String args = super.getArguments(resource);
-        String style = TexlipseProperties.getProjectProperty(resource.getProject(),
-                TexlipseProperties.MAKEINDEX_STYLEFILE_PROPERTY);
+        String style = TexlipseProperties.getProjectConfiguration(resource.getProject())
+                .makeindexStyleFile;
         
         if (style != null && style.length() > 0) {
             args = args.replaceAll("%style", style);
@@ -83,18 +82,6 @@ public class MakeindexRunner extends AbstractProgramRunner {
      * @return true, if error messages were found in the output, false otherwise
      */
     protected boolean parseErrors(IResource resource, String output) {
-        
-        boolean errorsFound = false;
-        StringTokenizer st = new StringTokenizer(output, "\r\n");
-        
-        while (st.hasMoreTokens()) {
-            String line = st.nextToken();
-            if (line.endsWith("not found.")) {
-                errorsFound = true;
-                createMarker(resource, null, line);
-            }
-        }
-        
-        return errorsFound;
+        return new MakeindexLogParser(new MarkerProblemSink(resource)).parse(output);
     }
 }
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder;
+
+import java.nio.file.Path;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.texlipse.builder.core.ProblemSink;
+
+/**
+ * Creates problem markers for the problems the log parsers find. A
+ * problem in a file outside of the workspace goes to the built file.
+ */
+class MarkerProblemSink implements ProblemSink {
+
+    // the built file
+    private final IResource resource;
+
+    /**
+     * @param resource the built file
+     */
+    MarkerProblemSink(IResource resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * @param resource a resource
+     * @return the location of the resource in the file system, or null if it is not local
+     */
+    static Path toPath(IResource resource) {
+        IPath location = resource.getLocation();
+        return location != null ? location.toFile().toPath() : null;
+    }
+
+    public void problem(Path file, int line, String message, int severity, boolean layout) {
+        IResource target = null;
+        if (file != null) {
+            target = ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(
+                    org.eclipse.core.runtime.Path.fromOSString(file.toString()));
+            if (target != null && !target.exists()) {
+                target = null;
+            }
+            if (target == null) {
+                AbstractProgramRunner.createMarker(resource, null,
+                        message + " (Occurance: " + file + ")", markerSeverity(severity));
+                return;
+            }
+        } else {
+            target = resource;
+        }
+
+        Integer lineNumber = line >= 0 ? Integer.valueOf(line) : null;
+        if (layout) {
+            AbstractProgramRunner.createLayoutMarker(target, lineNumber, message);
+        } else {
+            AbstractProgramRunner.createMarker(target, lineNumber, message, markerSeverity(severity));
+        }
+    }
+
+    private static int markerSeverity(int severity) {
+        return severity == SEVERITY_ERROR ? IMarker.SEVERITY_ERROR : IMarker.SEVERITY_WARNING;
+    }
+}
@@ -359,9 +359,8 @@ public class OutputFileManager {
      */
     private Set<IPath> moveOutputFiles(IProgressMonitor monitor)
             throws CoreException {
-        final boolean markAsDerived = "true".equals(
-                TexlipseProperties.getProjectProperty(project,
-                TexlipseProperties.MARK_OUTPUT_DERIVED_PROPERTY));
+        final boolean markAsDerived =
+                TexlipseProperties.getProjectConfiguration(project).markOutputDerived;
         final String[] derivedExts = TexlipsePlugin.getPreferenceArray(
                 TexlipseProperties.DERIVED_FILES);
 
@@ -451,9 +450,8 @@ public class OutputFileManager {
             return;
         }
 
-        final boolean markAsDerived = "true".equals(
-                TexlipseProperties.getProjectProperty(project,
-                        TexlipseProperties.MARK_TEMP_DERIVED_PROPERTY));
+        final boolean markAsDerived =
+                TexlipseProperties.getProjectConfiguration(project).markTempDerived;
         final String[] tempExts = TexlipsePlugin.getPreferenceArray(
                 TexlipseProperties.TEMP_FILE_EXTS);
 
@@ -587,8 +585,7 @@ public class OutputFileManager {
         sourceDir = TexlipseProperties.getProjectSourceDir(project);
         outputDir = TexlipseProperties.getProjectOutputDir(project);
         tempDir = TexlipseProperties.getProjectTempDir(project);
-        format = TexlipseProperties.getProjectProperty(project,
-                TexlipseProperties.OUTPUT_FORMAT);
+        format = TexlipseProperties.getProjectConfiguration(project).outputFormat;
         sourceFile = TexlipseProperties.getProjectSourceFile(project);
     }
 
@@ -14,8 +14,8 @@
 package org.eclipse.texlipse.builder;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.LinkedList;
-import java.util.List;
 
 import javax.swing.text.StyledEditorKit.BoldAction;
 
@@ -30,8 +30,11 @@ import org.eclipse.jface.dialogs.MessageDialogWithToggle;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.texlipse.TexlipsePlugin;
 import org.eclipse.texlipse.auxparser.AuxFileParser;
+import org.eclipse.texlipse.builder.core.AuxFileReader;
+import org.eclipse.texlipse.builder.core.BuildSequence;
 import org.eclipse.texlipse.model.ReferenceContainer;
 import org.eclipse.texlipse.model.ReferenceEntry;
+import org.eclipse.texlipse.properties.ProjectConfiguration;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 import org.eclipse.texlipse.viewer.ViewerManager;
 
@@ -176,10 +179,10 @@ public class TexBuilder extends AbstractBuilder implements AdaptableBuilder {
      */
     private String getAuxFileName(IProject project) {
         // evaluate the .aux file
-        String auxFileName = TexlipseProperties.getProjectProperty(project, TexlipseProperties.MAINFILE_PROPERTY);
+        ProjectConfiguration config = TexlipseProperties.getProjectConfiguration(project);
+        String auxFileName = config.mainFile;
         //Check for partial build
-        Object s = TexlipseProperties.getProjectProperty(project, TexlipseProperties.PARTIAL_BUILD_PROPERTY);
-        if (s != null) {
+        if (config.partialBuild) {
             IFile tmpFile = (IFile)TexlipseProperties.getSessionProperty(project, TexlipseProperties.PARTIAL_BUILD_FILE);
             if (tmpFile != null) {
                 auxFileName = tmpFile.getProjectRelativePath().toPortableString();
@@ -201,8 +204,7 @@ public class TexBuilder extends AbstractBuilder implements AdaptableBuilder {
 						TexlipseProperties.LABELCONTAINER_PROPERTY);
 		if (labelC != null) {
 			// Add temp path to aux-File
-			String tempPath = TexlipseProperties.getProjectProperty(afp.getProject(),
-					TexlipseProperties.TEMP_DIR_PROPERTY);
+			String tempPath = TexlipseProperties.getProjectConfiguration(afp.getProject()).tempDir;
 			String correctedAuxFileName = tempPath + File.separator
 					+ afp.getRootAuxFile();
 
@@ -232,10 +234,10 @@ public class TexBuilder extends AbstractBuilder implements AdaptableBuilder {
     
     /**
      * Run latex and optionally bibtex to produce a dvi file.
+     * The order of the runs is that of the command line builder.
      * @throws CoreException if the build fails at any point
      */
-    public void buildResource(IResource resource) throws CoreException {
-        //boolean error = false;
+    public void buildResource(final IResource resource) throws CoreException {
 		stopped = false;
         // Make sure we close the output document first 
     	// (using DDE on Win32)
@@ -245,145 +247,87 @@ public class TexBuilder extends AbstractBuilder implements AdaptableBuilder {
     		monitor.worked(5);    		
     	}
     	
-    	IProject project = resource.getProject();
-    	boolean parseAuxFiles = TexlipsePlugin.getDefault().getPreferenceStore().getBoolean(TexlipseProperties.BUILDER_PARSE_AUX_FILES);
-    	String auxFileName = getAuxFileName(project);
-		IResource auxFile = project.getFile(auxFileName);
-    	List<String> oldCitations = null;
-    
-		if (!biblatexMode && parseAuxFiles && auxFile.exists()) {
-			// read all citations from the aux-files and save them for later
-			AuxFileParser afp = new AuxFileParser(project, auxFileName);
-			oldCitations = afp.getCitations();
-		}		
+    	final IProject project = resource.getProject();
+    	final boolean parseAuxFiles = TexlipsePlugin.getDefault().getPreferenceStore().getBoolean(TexlipseProperties.BUILDER_PARSE_AUX_FILES);
+    	final String auxFileName = getAuxFileName(project);
     	
-    	monitor.subTask("Building document");
-        try {
-            latex.run(resource);
-        } catch (BuilderCoreException ex) {
-            //Don't stop here, we will ask the user later
-            //TODO: Error managment
-            //error = true;
-        }
-        monitor.worked(10);
-        if (stopped)
-            return;
-        
-        String runBib = (String) TexlipseProperties.getSessionProperty(project, TexlipseProperties.SESSION_BIBTEX_RERUN);
-        Boolean bibChange = (Boolean) TexlipseProperties.getSessionProperty(project, TexlipseProperties.BIBFILES_CHANGED);
-        IResource runIdx = findIndex(project, resource);
-        IResource runNomencl = findNomencl(project, resource);
-        
-        // if bibtex is not used, maybe the references need to be updated in the main document
-        String rerun = (String) TexlipseProperties.getSessionProperty(resource.getProject(), TexlipseProperties.SESSION_LATEX_RERUN);
-        
-		if (parseAuxFiles && auxFile.exists()) {
-			AuxFileParser afp = new AuxFileParser(project, auxFileName);
+    	BuildSequence<CoreException> sequence = new BuildSequence<CoreException>() {
 
-			if (!biblatexMode) {
-    			// check whether a new bibtex run is required
-    			List<String> newCitations = afp.getCitations();
-    			if (!newCitations.equals(oldCitations))
-    				bibChange = new Boolean(true);
-			}
-
-			// add the labels defined in the .aux-file to the label container
-			extractLabels(afp);
-		}
-        
-        // if bibtex is used, the bibliography might be changed
-        String[] bibs = (String[]) TexlipseProperties.getSessionProperty(project, TexlipseProperties.BIBFILE_PROPERTY);
-        
-        if (bibs != null && bibs.length > 0 && (runBib != null || bibChange != null)) {
-            
-/*            if (error) {
-                if (askUserForContinue(project) == false) {
-                    throw new BuilderCoreException(TexlipsePlugin.stat("Errors during build. See the problems dialog."));
+            protected void runLatex() throws CoreException {
+                try {
+                    latex.run(resource);
+                } catch (BuilderCoreException ex) {
+                    //Don't stop here, the errors are in the problems view
                 }
-            }*/
-            
-            bibtex.run(resource);
-            if (stopped)
-                return;
-            monitor.worked(10);
-            
-            TexlipseProperties.setSessionProperty(project, TexlipseProperties.SESSION_BIBTEX_RERUN, null);
-            TexlipseProperties.setSessionProperty(project, TexlipseProperties.BIBFILES_CHANGED, null);
-            
-            if (runIdx != null) {
-                makeIndex.run(resource);
-                if (stopped)
-                    return;
                 monitor.worked(10);
             }
-            
-            if (runNomencl != null)
-            {
-                // Running makeindex to build nomenclature index
-                // when %input.nlo file is detected
-                makeIndexNomencl.run(resource);
-                if (stopped)
-                    return;
+
+            protected void runBibtex() throws CoreException {
+                bibtex.run(resource);
                 monitor.worked(10);
+                TexlipseProperties.setSessionProperty(project, TexlipseProperties.SESSION_BIBTEX_RERUN, null);
+                TexlipseProperties.setSessionProperty(project, TexlipseProperties.BIBFILES_CHANGED, null);
             }
-              
-            try {
-                latex.run(resource);
-            } catch (BuilderCoreException ex) {
-                //if (!error)
-                //    throw ex;
-            }
-            if (stopped)
-                return;
-            monitor.worked(10);
-            clearMarkers(project);
-            try {
-                latex.run(resource);
-            } catch (BuilderCoreException ex) {
-                //if (!error)
-                //    throw ex;
-            }
-            if (stopped)
-                return;
-            monitor.worked(10);
-            
-        } else if (rerun != null || runIdx != null || runNomencl != null) {
 
-/*            if (error) {
-                if (askUserForContinue(project) == false) {
-                    throw new BuilderCoreException(TexlipsePlugin.stat("Errors during build. See the problems dialog."));
-                }
-            }*/
-            
-            if (runIdx != null) {
+            protected void runMakeindex() throws CoreException {
                 makeIndex.run(resource);
-                if (stopped)
-                    return;
                 monitor.worked(10);
             }
-            
-            if (runNomencl != null)
-            {
-                // Running makeindex to build nomenclature index
-                // when %input.nlo file is detected
+
+            protected void runNomencl() throws CoreException {
                 makeIndexNomencl.run(resource);
-                if (stopped)
-                    return;
                 monitor.worked(10);
             }
-            
-            try {
-                latex.run(resource);
-            } catch (BuilderCoreException ex) {
-                //if (!error)
-                    //throw ex;
+
+            protected boolean isStopped() {
+                return stopped;
             }
-            if (stopped)
-                return;
-            monitor.worked(10);
-            
-            TexlipseProperties.setSessionProperty(resource.getProject(), TexlipseProperties.SESSION_LATEX_RERUN, null);
-        }
+
+            protected Path getAuxFile() {
+                return parseAuxFiles ? MarkerProblemSink.toPath(project.getFile(auxFileName)) : null;
+            }
+
+            protected boolean isBiblatexMode() {
+                return biblatexMode;
+            }
+
+            protected boolean hasBibliography() {
+                String[] bibs = (String[]) TexlipseProperties.getSessionProperty(project, TexlipseProperties.BIBFILE_PROPERTY);
+                return bibs != null && bibs.length > 0;
+            }
+
+            protected boolean isBibtexRerunNeeded() {
+                return TexlipseProperties.getSessionProperty(project, TexlipseProperties.SESSION_BIBTEX_RERUN) != null
+                    || TexlipseProperties.getSessionProperty(project, TexlipseProperties.BIBFILES_CHANGED) != null;
+            }
+
+            protected boolean isLatexRerunNeeded() {
+                return TexlipseProperties.getSessionProperty(project, TexlipseProperties.SESSION_LATEX_RERUN) != null;
+            }
+
+            protected boolean isIndexOutdated() {
+                return findIndex(project, resource) != null;
+            }
+
+            protected boolean isNomenclOutdated() {
+                return findNomencl(project, resource) != null;
+            }
+
+            protected void auxFileRead(AuxFileReader aux) {
+                // add the labels defined in the .aux-file to the label container
+                extractLabels(new AuxFileParser(project, auxFileName, aux));
+            }
+
+            protected void beforeLastRun() {
+                clearMarkers(project);
+            }
+        };
+
+    	monitor.subTask("Building document");
+    	sequence.build();
+    	if (!stopped) {
+    	    TexlipseProperties.setSessionProperty(project, TexlipseProperties.SESSION_LATEX_RERUN, null);
+    	}
     }
 
     public void updateBuilder(IProject project) {
@@ -29,6 +29,7 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.texlipse.TexlipsePlugin;
 import org.eclipse.texlipse.model.TexDocumentModel;
+import org.eclipse.texlipse.properties.ProjectConfiguration;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 import org.eclipse.texlipse.texparser.LatexParserUtils;
 import org.eclipse.texlipse.viewer.ViewerManager;
@@ -97,9 +98,7 @@ public class TexlipseBuilder extends IncrementalProjectBuilder {
 
         BuilderRegistry.clearConsole();
 
-        Object s = TexlipseProperties.getProjectProperty(project,
-                TexlipseProperties.PARTIAL_BUILD_PROPERTY);
-		if (s != null) {
+		if (TexlipseProperties.getProjectConfiguration(project).partialBuild) {
 			partialBuild(project, fileManager, monitor);
 		} else {
 			buildFile(project, null, fileManager, monitor);
@@ -131,7 +130,7 @@ public class TexlipseBuilder extends IncrementalProjectBuilder {
         TexlipseProperties.setSessionProperty(project, TexlipseProperties.BIBFILES_CHANGED, null);
 
         // check main file
-        String mainFile = TexlipseProperties.getProjectProperty(project, TexlipseProperties.MAINFILE_PROPERTY);
+        String mainFile = TexlipseProperties.getProjectConfiguration(project).mainFile;
         if (mainFile == null || mainFile.length() == 0) {
             // main tex file not set -> nothing builded -> nothing to clean
             return;
@@ -185,7 +184,7 @@ public class TexlipseBuilder extends IncrementalProjectBuilder {
             //Do not build this file or anything else
             return;
         }
-        else if (resourceName.equals(TexlipseProperties.getProjectProperty(project, TexlipseProperties.MAINFILE_PROPERTY))
+        else if (resourceName.equals(TexlipseProperties.getProjectConfiguration(project).mainFile)
                 || (!ext.equals("tex") && !ext.equals("ltx"))) {
 
             // main file can't be built partially
@@ -392,14 +391,15 @@ public class TexlipseBuilder extends IncrementalProjectBuilder {
     private IResource checkFileSettings(final IProject project,
             IProgressMonitor monitor) throws CoreException {
 
-        String mainFile = TexlipseProperties.getProjectProperty(project, TexlipseProperties.MAINFILE_PROPERTY);
+        ProjectConfiguration config = TexlipseProperties.getProjectConfiguration(project);
+        String mainFile = config.mainFile;
         if (mainFile == null || mainFile.length() == 0) {
             // maybe not a good idea to report as error, at least when in java-project
             //throw new CoreException(TexlipsePlugin.stat("Main .tex -file name not set."));
             BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("builderErrorMainFileNotSet").replaceAll("%s", project.getName()));
         }
 
-        String outputFile = TexlipseProperties.getProjectProperty(project, TexlipseProperties.OUTPUTFILE_PROPERTY);
+        String outputFile = config.outputFile;
         if (outputFile == null || outputFile.length() == 0) {
             BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("builderErrorOutputFileNotSet").replaceAll("%s", project.getName()));
             throw new CoreException(TexlipsePlugin.stat("Project output file name not set."));
@@ -427,13 +427,14 @@ public class TexlipseBuilder extends IncrementalProjectBuilder {
      */
     private Builder checkBuilderSettings(IProject project) throws CoreException {
         
-        String format = TexlipseProperties.getProjectProperty(project, TexlipseProperties.OUTPUT_FORMAT);
+        ProjectConfiguration config = TexlipseProperties.getProjectConfiguration(project);
+        String format = config.outputFormat;
         if (format == null || format.length() == 0) {
             BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("builderErrorOutputFormatNotSet").replaceAll("%s", project.getName()));
             throw new CoreException(TexlipsePlugin.stat("Project output file format not set."));
         }
         
-        String str = TexlipseProperties.getProjectProperty(project, TexlipseProperties.BUILDER_NUMBER);
+        String str = config.builderNumber;
         if (str == null) {
             BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("builderErrorOutputBuilderNotSet").replaceAll("%s", project.getName()));
             throw new CoreException(TexlipsePlugin.stat("No builder selected."));
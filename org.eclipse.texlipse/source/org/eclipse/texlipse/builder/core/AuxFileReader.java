@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the citations, the labels and the bibliography databases from the
+ * .aux file of a LaTeX run. The .aux files of \include'd files, which the
+ * root file reads with \@input, are read recursively.
+ *
+ * The citations of two runs are compared to decide whether BibTeX needs
+ * to be run again.
+ */
+public class AuxFileReader {
+
+    private final Path rootAuxFile;
+
+    private final List<String> citations = new ArrayList<String>();
+    private final List<String> labels = new ArrayList<String>();
+    private final List<String> bibData = new ArrayList<String>();
+
+    /**
+     * Reads an .aux file and the files it inputs. A file that can't be
+     * read is skipped.
+     *
+     * @param rootAuxFile the .aux file of the main document
+     */
+    public AuxFileReader(Path rootAuxFile) {
+        this.rootAuxFile = rootAuxFile;
+        read(rootAuxFile, new HashSet<Path>());
+    }
+
+    /**
+     * @return the .aux file of the main document
+     */
+    public Path getRootAuxFile() {
+        return rootAuxFile;
+    }
+
+    /**
+     * @return the arguments of the \citation commands, in the order of the files
+     */
+    public List<String> getCitations() {
+        return citations;
+    }
+
+    /**
+     * @return the keys of the \newlabel commands
+     */
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * @return the arguments of the \bibdata commands, empty if the
+     *         document has no BibTeX bibliography
+     */
+    public List<String> getBibData() {
+        return bibData;
+    }
+
+    private void read(Path file, Set<Path> visited) {
+        if (!visited.add(file.toAbsolutePath().normalize())) {
+            return;
+        }
+        String input;
+        try {
+            // aux files are written in the input encoding, the commands are ASCII
+            input = new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            return;
+        }
+
+        int length = input.length();
+        int i = input.indexOf('\\');
+        while (i >= 0 && i < length) {
+            int start = i + 1;
+            int end = start;
+            while (end < length && (Character.isLetter(input.charAt(end)) || input.charAt(end) == '@')) {
+                end++;
+            }
+            String command = input.substring(start, end);
+            int argEnd = end;
+            List<String> target = null;
+            if (command.equals("citation")) {
+                target = citations;
+            } else if (command.equals("newlabel")) {
+                target = labels;
+            } else if (command.equals("bibdata")) {
+                target = bibData;
+            } else if (command.equals("@input")) {
+                target = new ArrayList<String>(1);
+            }
+            if (target != null) {
+                argEnd = readArgument(input, end, target);
+                if (command.equals("@input") && !target.isEmpty()) {
+                    Path parent = rootAuxFile.toAbsolutePath().getParent();
+                    read(parent.resolve(target.get(0)), visited);
+                }
+            }
+            i = input.indexOf('\\', Math.max(argEnd, start));
+        }
+    }
+
+    /**
+     * Reads a braced argument.
+     *
+     * @param input the file contents
+     * @param i the index after the command name
+     * @param target the list to add the argument to
+     * @return the index after the argument
+     */
+    private static int readArgument(String input, int i, List<String> target) {
+        int length = input.length();
+        while (i < length && input.charAt(i) == ' ') {
+            i++;
+        }
+        if (i >= length || input.charAt(i) != '{') {
+            return i;
+        }
+        int depth = 0;
+        for (int j = i; j < length; j++) {
+            char c = input.charAt(j);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                target.add(input.substring(i + 1, j));
+                return j + 1;
+            } else if (c == '\n' || c == '\r') {
+                // unbalanced, the commands are on one line
+                return j;
+            }
+        }
+        return length;
+    }
+}
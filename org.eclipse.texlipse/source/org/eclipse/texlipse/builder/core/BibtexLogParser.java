@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.nio.file.Path;
+import java.util.StringTokenizer;
+
+/**
+ * Parses the output of the BibTeX program. Problems in a bib file go to
+ * that file if it is found in the source directory, others to the built
+ * document.
+ */
+public class BibtexLogParser {
+
+    private final Path sourceDir;
+    private final Path mainFile;
+    private final ProblemSink sink;
+
+    /**
+     * Creates a parser.
+     *
+     * @param sourceDir the source directory of the project
+     * @param mainFile the main file of the project, which has the \bibliography command
+     * @param sink receives the problems
+     */
+    public BibtexLogParser(Path sourceDir, Path mainFile, ProblemSink sink) {
+        this.sourceDir = sourceDir;
+        this.mainFile = mainFile;
+        this.sink = sink;
+    }
+
+    /**
+     * Parse the output of the BibTeX program.
+     *
+     * @param output the output of the external program
+     * @return true, if error messages were found in the output, false otherwise
+     */
+    public boolean parse(String output) {
+
+        //Initialize bibFile with null so that all errors are at least
+        //displayed in the document even if no valid bib file was found
+        Path bibFile = null;
+
+        boolean errorsFound = false;
+        StringTokenizer st = new StringTokenizer(output, "\r\n");
+        while (st.hasMoreTokens()) {
+
+            String line = st.nextToken();
+            if (line.indexOf("I was expecting a ") == 0) {
+
+                parseErrorLine(line);
+                errorsFound = true;
+
+            } else if (line.startsWith("You're missing a field name")) {
+
+                parseErrorLine(line);
+                errorsFound = true;
+
+            } else if (line.startsWith("Warning--")) {
+
+                String message = line.substring(9);
+
+                String nextLine = st.hasMoreTokens() ? st.nextToken() : "";
+                // see if additional info is available about the warning
+                if (nextLine.startsWith("--line ") && nextLine.indexOf(" of file ") > 0) {
+
+                    int index = nextLine.indexOf(" of file ");
+                    int lineNumber = parseLineNumber(nextLine.substring(7, index));
+                    Path file = LatexLogParser.findFile(nextLine.substring(index + 9), sourceDir);
+                    sink.problem(file, lineNumber, message, ProblemSink.SEVERITY_WARNING, false);
+
+                } else if (nextLine.startsWith("Warning--")) {
+
+                    // if followed by another warning, this is the endlist with no info
+                    sink.problem(bibFile, -1, message, ProblemSink.SEVERITY_WARNING, false);
+                    sink.problem(bibFile, -1, nextLine.substring(9), ProblemSink.SEVERITY_WARNING, false);
+
+                } else {
+                    // list of warnings ended
+                    sink.problem(bibFile, -1, message, ProblemSink.SEVERITY_WARNING, false);
+                }
+
+            } else if (line.startsWith("Database file ")) {
+
+                String bibName = line.substring(line.indexOf(':') + 2);
+                //Null if bibName is not part of project (kpathsea)
+                bibFile = LatexLogParser.findFile(bibName, sourceDir);
+
+            } else if (line.startsWith("I couldn't open database file ")) {
+
+                String bibName = line.substring(line.indexOf("file") + 5);
+                // TODO Add marker to main file, but we should really find the offending
+                // \bibliography command in the main file and add it to the right line.
+                sink.problem(mainFile, 0, "Could not open bibtex database file " + bibName,
+                        ProblemSink.SEVERITY_ERROR, false);
+
+                return true; // errors found, and no use in parsing the rest of the file
+            }
+        }
+
+        return errorsFound;
+    }
+
+    /**
+     * @return the line number, or -1 if the string isn't one
+     */
+    private static int parseLineNumber(String s) {
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parse a Bibtex error message from the given line.
+     *
+     * @param line the error message line
+     */
+    private void parseErrorLine(String line) {
+
+        int index = line.indexOf("---line ");
+        int index2 = index < 0 ? -1 : line.indexOf(" of file ", index);
+        if (index2 < 0) {
+            sink.problem(null, -1, line, ProblemSink.SEVERITY_ERROR, false);
+            return;
+        }
+        int lineNumber = parseLineNumber(line.substring(index + 8, index2));
+        Path file = LatexLogParser.findFile(line.substring(index2 + 9), sourceDir);
+
+        String error = line.substring(0, index);
+        sink.problem(file, lineNumber, error, ProblemSink.SEVERITY_ERROR, false);
+    }
+}
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Builds LaTeX documents from the command line, without the workbench.
+ * The arguments are .tex files or project directories with a .texlipse
+ * settings file. The documents are built in parallel, and the problems
+ * of each document are printed when it is done, in the order of the
+ * arguments.
+ *
+ * <pre>
+ * java -cp texlipse.jar org.eclipse.texlipse.builder.core.BuildCommand
+ *     [--jobs N] [--latex program] [--bibtex program] [--biber program]
+ *     [--makeindex program] (file.tex | project)...
+ * </pre>
+ *
+ * The exit status is 0 if all documents were built without errors,
+ * 1 if there were errors and 2 if the arguments were wrong.
+ */
+public class BuildCommand {
+
+    // the project settings file and its properties, see TexlipseProperties
+    private static final String SETTINGS_FILE = ".texlipse";
+    private static final String MAINFILE_PROPERTY = "mainTexFile";
+    private static final String SOURCE_DIR_PROPERTY = "srcDir";
+    private static final String MAKEINDEX_STYLEFILE_PROPERTY = "makeIndSty";
+
+    /**
+     * The programs a build runs, names on the path or full paths.
+     */
+    public static final class Programs {
+        public final String latex;
+        public final String bibtex;
+        public final String biber;
+        public final String makeindex;
+
+        public Programs(String latex, String bibtex, String biber, String makeindex) {
+            this.latex = latex;
+            this.bibtex = bibtex;
+            this.biber = biber;
+            this.makeindex = makeindex;
+        }
+    }
+
+    /**
+     * A document to build.
+     */
+    private static final class Target {
+        final Path document;
+        final Path sourceDir;
+        final String makeindexStyle;
+
+        Target(Path document, Path sourceDir, String makeindexStyle) {
+            this.document = document;
+            this.sourceDir = sourceDir;
+            this.makeindexStyle = makeindexStyle;
+        }
+    }
+
+    /**
+     * The printed problems of a document. Each LaTeX run reports the
+     * problems again, so they are printed once.
+     */
+    private static final class Report implements ProblemSink {
+        final Target target;
+        final Set<String> lines = new LinkedHashSet<String>();
+        boolean failed;
+
+        Report(Target target) {
+            this.target = target;
+        }
+
+        public synchronized void problem(Path file, int line, String message, int severity, boolean layout) {
+            Path f = file != null ? file : target.document;
+            StringBuilder text = new StringBuilder();
+            text.append(f.startsWith(target.sourceDir) ? target.sourceDir.relativize(f) : f);
+            if (line >= 0) {
+                text.append(':').append(line);
+            }
+            text.append(severity == SEVERITY_ERROR ? ": error: " : ": warning: ");
+            text.append(message);
+            lines.add(text.toString());
+        }
+    }
+
+    private final Programs programs;
+    private final List<DocumentBuild> running = new ArrayList<DocumentBuild>();
+
+    /**
+     * @param programs the programs to run
+     */
+    public BuildCommand(Programs programs) {
+        this.programs = programs;
+    }
+
+    /**
+     * Reads the document to build from a project directory or a file.
+     *
+     * @param arg the command line argument
+     * @return the document
+     * @throws IOException if the settings can't be read or the document doesn't exist
+     */
+    private static Target readTarget(String arg) throws IOException {
+        Path path = Paths.get(arg).toAbsolutePath().normalize();
+        if (Files.isDirectory(path)) {
+            Path settings = path.resolve(SETTINGS_FILE);
+            Properties prop = new Properties();
+            InputStream in = Files.newInputStream(settings);
+            try {
+                prop.load(in);
+            } finally {
+                in.close();
+            }
+            String mainFile = prop.getProperty(MAINFILE_PROPERTY, "");
+            if (mainFile.length() == 0) {
+                throw new IOException("Main file not set in " + settings);
+            }
+            Path sourceDir = path.resolve(prop.getProperty(SOURCE_DIR_PROPERTY, "")).normalize();
+            Path document = sourceDir.resolve(mainFile).normalize();
+            if (!Files.isRegularFile(document)) {
+                throw new IOException("No such file: " + document);
+            }
+            String style = prop.getProperty(MAKEINDEX_STYLEFILE_PROPERTY, "");
+            return new Target(document, sourceDir, style.length() > 0 ? style : null);
+        }
+        if (!Files.isRegularFile(path)) {
+            throw new IOException("No such file: " + path);
+        }
+        return new Target(path, path.getParent(), null);
+    }
+
+    /**
+     * Builds a document.
+     *
+     * @param target the document
+     * @return the problems
+     */
+    private Report build(Target target) {
+        Report report = new Report(target);
+        DocumentBuild build = new DocumentBuild(target.document, target.sourceDir, programs, report);
+        build.setMakeindexStyle(target.makeindexStyle);
+        synchronized (running) {
+            running.add(build);
+        }
+        try {
+            build.build();
+            report.failed = build.hasErrors();
+        } catch (IOException e) {
+            report.problem(null, -1, "Running the build: " + e.getMessage(),
+                    ProblemSink.SEVERITY_ERROR, false);
+            report.failed = true;
+        } finally {
+            synchronized (running) {
+                running.remove(build);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Stops the running builds.
+     */
+    public void stop() {
+        synchronized (running) {
+            for (DocumentBuild build : running) {
+                build.stop();
+            }
+        }
+    }
+
+    /**
+     * Builds the documents.
+     *
+     * @param args the files and project directories
+     * @param jobs the number of documents to build at the same time
+     * @param out receives the problems
+     * @return the exit status
+     */
+    public int build(List<String> args, int jobs, PrintStream out) {
+        ExecutorService executor = Executors.newFixedThreadPool(jobs);
+        try {
+            List<Future<Report>> reports = new ArrayList<Future<Report>>();
+            List<String> errors = new ArrayList<String>();
+            for (String arg : args) {
+                final Target target;
+                try {
+                    target = readTarget(arg);
+                } catch (IOException e) {
+                    errors.add(arg + ": " + e.getMessage());
+                    reports.add(null);
+                    continue;
+                }
+                errors.add(null);
+                reports.add(executor.submit(new Callable<Report>() {
+                    public Report call() {
+                        return build(target);
+                    }
+                }));
+            }
+
+            int status = 0;
+            for (int i = 0; i < reports.size(); i++) {
+                if (reports.get(i) == null) {
+                    out.println(errors.get(i));
+                    status = 1;
+                    continue;
+                }
+                Report report;
+                try {
+                    report = reports.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    stop();
+                    return 1;
+                } catch (ExecutionException e) {
+                    out.println(args.get(i) + ": " + e.getCause());
+                    status = 1;
+                    continue;
+                }
+                for (String line : report.lines) {
+                    out.println(line);
+                }
+                out.println(report.target.document + (report.failed ? ": failed" : ": built"));
+                if (report.failed) {
+                    status = 1;
+                }
+            }
+            return status;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void usage(PrintStream err) {
+        err.println("Usage: BuildCommand [--jobs N] [--latex program] [--bibtex program]");
+        err.println("           [--biber program] [--makeindex program] (file.tex | project)...");
+    }
+
+    /**
+     * The main method.
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String latex = "pdflatex";
+        String bibtex = "bibtex";
+        String biber = "biber";
+        String makeindex = "makeindex";
+        List<String> files = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("-") && i + 1 == args.length) {
+                usage(System.err);
+                System.exit(2);
+            }
+            if (arg.equals("--jobs") || arg.equals("-j")) {
+                try {
+                    jobs = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    jobs = 0;
+                }
+                if (jobs < 1) {
+                    usage(System.err);
+                    System.exit(2);
+                }
+            } else if (arg.equals("--latex")) {
+                latex = args[++i];
+            } else if (arg.equals("--bibtex")) {
+                bibtex = args[++i];
+            } else if (arg.equals("--biber")) {
+                biber = args[++i];
+            } else if (arg.equals("--makeindex")) {
+                makeindex = args[++i];
+            } else if (arg.startsWith("-")) {
+                usage(System.err);
+                System.exit(2);
+            } else {
+                files.add(arg);
+            }
+        }
+        if (files.isEmpty()) {
+            usage(System.err);
+            System.exit(2);
+        }
+
+        final BuildCommand command = new BuildCommand(new Programs(latex, bibtex, biber, makeindex));
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                command.stop();
+            }
+        });
+        System.exit(command.build(files, jobs, System.out));
+    }
+}
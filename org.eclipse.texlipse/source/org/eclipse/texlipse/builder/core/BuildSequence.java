@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The order of the program runs that build a LaTeX document: LaTeX, then
+ * BibTeX and makeindex if their input changed, and LaTeX again as often
+ * as the references need. The subclasses run the programs and tell what
+ * the runs reported.
+ *
+ * @param <X> the exception the runs throw when a program can't be run
+ */
+public abstract class BuildSequence<X extends Exception> {
+
+    /**
+     * Runs LaTeX on the document. Errors in the document don't throw.
+     */
+    protected abstract void runLatex() throws X;
+
+    /**
+     * Runs BibTeX, or Biber for biblatex documents.
+     */
+    protected abstract void runBibtex() throws X;
+
+    /**
+     * Runs makeindex on the index of the document.
+     */
+    protected abstract void runMakeindex() throws X;
+
+    /**
+     * Runs makeindex on the nomenclature of the document.
+     */
+    protected abstract void runNomencl() throws X;
+
+    /**
+     * @return true, if the build was stopped and no more programs should be run
+     */
+    protected abstract boolean isStopped();
+
+    /**
+     * @return the .aux file of the document, or null if the .aux files
+     *         shouldn't be read to find changed citations
+     */
+    protected abstract Path getAuxFile();
+
+    /**
+     * @return true, if the bibliography is made with biblatex,
+     *         which keeps the citations in its own file
+     */
+    protected abstract boolean isBiblatexMode();
+
+    /**
+     * @return true, if the document has a bibliography
+     */
+    protected abstract boolean hasBibliography();
+
+    /**
+     * @return true, if the last LaTeX run or a changed bib file asks for BibTeX
+     */
+    protected abstract boolean isBibtexRerunNeeded();
+
+    /**
+     * @return true, if the last LaTeX run asks for another run
+     */
+    protected abstract boolean isLatexRerunNeeded();
+
+    /**
+     * @return true, if the index file is newer than the output of the last build
+     */
+    protected abstract boolean isIndexOutdated();
+
+    /**
+     * @return true, if the nomenclature file is newer than the output of the last build
+     */
+    protected abstract boolean isNomenclOutdated();
+
+    /**
+     * Called after the first LaTeX run with the new .aux files.
+     *
+     * @param aux the contents of the .aux files
+     */
+    protected void auxFileRead(AuxFileReader aux) {
+    }
+
+    /**
+     * Called before the last LaTeX run after BibTeX, whose problems are
+     * the ones that are still valid.
+     */
+    protected void beforeLastRun() {
+    }
+
+    /**
+     * Runs the programs.
+     */
+    public void build() throws X {
+        Path auxFile = getAuxFile();
+        List<String> oldCitations = null;
+        if (auxFile != null && !isBiblatexMode() && Files.exists(auxFile)) {
+            // read all citations from the aux-files and save them for later
+            oldCitations = new AuxFileReader(auxFile).getCitations();
+        }
+
+        runLatex();
+        if (isStopped())
+            return;
+
+        boolean runBib = isBibtexRerunNeeded();
+        boolean rerun = isLatexRerunNeeded();
+        boolean runIdx = isIndexOutdated();
+        boolean runNomencl = isNomenclOutdated();
+
+        if (auxFile != null && Files.exists(auxFile)) {
+            AuxFileReader aux = new AuxFileReader(auxFile);
+            // check whether a new bibtex run is required
+            if (!isBiblatexMode() && !aux.getCitations().equals(oldCitations)) {
+                runBib = true;
+            }
+            auxFileRead(aux);
+        }
+
+        if (runBib && hasBibliography()) {
+            runBibtex();
+            if (isStopped())
+                return;
+            if (!runIndexes(runIdx, runNomencl))
+                return;
+            runLatex();
+            if (isStopped())
+                return;
+            beforeLastRun();
+            runLatex();
+        } else if (rerun || runIdx || runNomencl) {
+            if (!runIndexes(runIdx, runNomencl))
+                return;
+            runLatex();
+        }
+    }
+
+    /**
+     * Runs makeindex for the outdated indexes.
+     *
+     * @return false, if the build was stopped
+     */
+    private boolean runIndexes(boolean runIdx, boolean runNomencl) throws X {
+        if (runIdx) {
+            runMakeindex();
+            if (isStopped())
+                return false;
+        }
+        if (runNomencl) {
+            // Running makeindex to build nomenclature index
+            // when %input.nlo file is detected
+            runNomencl();
+            if (isStopped())
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a build program without a console. The program gets no input, so
+ * a program asking for a file name stops instead of waiting.
+ */
+public class CommandRunner {
+
+    // the currently running process
+    private volatile Process process;
+
+    /**
+     * Runs a program and waits for it to finish.
+     *
+     * @param command the program and its arguments
+     * @param dir the directory to run the program in
+     * @return the standard output and the error output of the program
+     * @throws IOException if the program can't be run
+     */
+    public String run(List<String> command, Path dir) throws IOException {
+        return run(command, dir, null);
+    }
+
+    /**
+     * Runs a program with additional environment variables and waits for
+     * it to finish.
+     *
+     * @param command the program and its arguments
+     * @param dir the directory to run the program in
+     * @param env the variables to set, or null
+     * @return the standard output and the error output of the program
+     * @throws IOException if the program can't be run
+     */
+    public String run(List<String> command, Path dir, Map<String, String> env) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(dir.toFile());
+        if (env != null) {
+            pb.environment().putAll(env);
+        }
+        pb.redirectErrorStream(true);
+        Process p = pb.start();
+        process = p;
+        try {
+            p.getOutputStream().close();
+            StringBuilder output = new StringBuilder();
+            InputStream in = p.getInputStream();
+            try {
+                Reader reader = new InputStreamReader(in, Charset.defaultCharset());
+                char[] buffer = new char[8192];
+                int len;
+                while ((len = reader.read(buffer)) != -1) {
+                    output.append(buffer, 0, len);
+                }
+            } finally {
+                in.close();
+            }
+            try {
+                p.waitFor();
+            } catch (InterruptedException e) {
+                p.destroy();
+                Thread.currentThread().interrupt();
+            }
+            return output.toString();
+        } finally {
+            process = null;
+        }
+    }
+
+    /**
+     * Kills the program if it is running.
+     */
+    public void stop() {
+        Process p = process;
+        if (p != null) {
+            p.destroy();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/**
+ * Builds one document outside of the workbench. The programs run in the
+ * directory of the document and the output stays there.
+ */
+public class DocumentBuild extends BuildSequence<IOException> {
+
+    private final Path document;
+    private final Path sourceDir;
+    private final Path dir;
+    private final String baseName;
+    private final BuildCommand.Programs programs;
+    private final ProblemSink sink;
+
+    private final CommandRunner runner;
+    private final LatexLogParser latexParser;
+
+    private String makeindexStyle;
+    private long outputTime;
+    private boolean latexErrors;
+    private boolean errors;
+    private volatile boolean stopped;
+
+    /**
+     * Creates a build.
+     *
+     * @param document the main file of the document
+     * @param sourceDir the source directory of the project
+     * @param programs the programs to run
+     * @param sink receives the problems
+     */
+    public DocumentBuild(Path document, Path sourceDir, BuildCommand.Programs programs, ProblemSink sink) {
+        this.document = document;
+        this.sourceDir = sourceDir;
+        this.dir = document.getParent();
+        String name = document.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        this.baseName = dot > 0 ? name.substring(0, dot) : name;
+        this.programs = programs;
+        this.sink = sink;
+        this.runner = new CommandRunner();
+        this.latexParser = new LatexLogParser(sourceDir, dir, sink);
+    }
+
+    /**
+     * @return true, if the last LaTeX run or another program reported errors
+     */
+    public boolean hasErrors() {
+        return latexErrors || errors;
+    }
+
+    /**
+     * @param style the style file of the index, or null for the default style
+     */
+    public void setMakeindexStyle(String style) {
+        this.makeindexStyle = style;
+    }
+
+    /**
+     * Stops the build after the current program, which is killed.
+     */
+    public void stop() {
+        stopped = true;
+        runner.stop();
+    }
+
+    /**
+     * Runs the programs. The index is made if it is newer than the
+     * output of the previous build.
+     */
+    public void build() throws IOException {
+        outputTime = Math.max(modified(dir.resolve(baseName + ".pdf")),
+                modified(dir.resolve(baseName + ".dvi")));
+        super.build();
+    }
+
+    private static long modified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private String run(String... command) throws IOException {
+        return runner.run(Arrays.asList(command), dir);
+    }
+
+    protected void runLatex() throws IOException {
+        List<String> command = new ArrayList<String>();
+        command.add(programs.latex);
+        command.add("-interaction=nonstopmode");
+        command.add(document.getFileName().toString());
+        String output = runner.run(command, dir);
+        latexErrors = latexParser.parse(output);
+    }
+
+    protected void runBibtex() throws IOException {
+        if (isBiblatexMode()) {
+            StringTokenizer st = new StringTokenizer(run(programs.biber, baseName), "\r\n");
+            while (st.hasMoreTokens()) {
+                String line = st.nextToken();
+                if (line.startsWith("FATAL")) {
+                    sink.problem(null, -1, line, ProblemSink.SEVERITY_ERROR, false);
+                    errors = true;
+                }
+            }
+        } else {
+            String output = run(programs.bibtex, baseName);
+            errors |= new BibtexLogParser(sourceDir, document, sink).parse(output);
+        }
+    }
+
+    protected void runMakeindex() throws IOException {
+        String output;
+        if (makeindexStyle != null) {
+            output = run(programs.makeindex, baseName + ".idx", "-s", makeindexStyle);
+        } else {
+            output = run(programs.makeindex, baseName + ".idx");
+        }
+        errors |= new MakeindexLogParser(sink).parse(output);
+    }
+
+    protected void runNomencl() throws IOException {
+        run(programs.makeindex, baseName + ".nlo", "-s", "nomencl.ist", "-o", baseName + ".nls");
+    }
+
+    protected boolean isStopped() {
+        return stopped || Thread.currentThread().isInterrupted();
+    }
+
+    protected Path getAuxFile() {
+        return dir.resolve(baseName + ".aux");
+    }
+
+    protected boolean isBiblatexMode() {
+        return Files.exists(dir.resolve(baseName + ".bcf"));
+    }
+
+    protected boolean hasBibliography() {
+        return isBiblatexMode() || !new AuxFileReader(getAuxFile()).getBibData().isEmpty();
+    }
+
+    protected boolean isBibtexRerunNeeded() {
+        return latexParser.isBibtexRerunNeeded();
+    }
+
+    protected boolean isLatexRerunNeeded() {
+        return latexParser.isLatexRerunNeeded();
+    }
+
+    protected boolean isIndexOutdated() {
+        long time = modified(dir.resolve(baseName + ".idx"));
+        return time >= 0 && time >= outputTime;
+    }
+
+    protected boolean isNomenclOutdated() {
+        long time = modified(dir.resolve(baseName + ".nlo"));
+        return time >= 0 && time >= outputTime;
+    }
+}
@@ -0,0 +1,413 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Stack;
+import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses the output of the LaTeX program. The errors and warnings go to
+ * a <code>ProblemSink</code>, with the files they are in resolved from
+ * the files LaTeX reports opening. The parser also tells whether LaTeX
+ * or BibTeX should be run again.
+ */
+public class LatexLogParser {
+
+    private static final int MAX_LINE_LENGTH = 79;
+
+    private static final Pattern LATEXERROR = Pattern.compile("^! LaTeX Error: (.*)$");
+    private static final Pattern LATEXCERROR = Pattern.compile("^(.+?\\.\\w{3}):(\\d+): (.+)$");
+    private static final Pattern TEXERROR = Pattern.compile("^!\\s+(.*)$");
+    private static final Pattern FULLBOX = Pattern.compile("^(?:Over|Under)full \\\\[hv]box .* at lines? (\\d+)-?-?(\\d+)?");
+    private static final Pattern WARNING = Pattern.compile("^.+[Ww]arning.*: (.*)$");
+    private static final Pattern ATLINE =  Pattern.compile("^l\\.(\\d+)(.*)$");
+    private static final Pattern ATLINE2 =  Pattern.compile(".* line (\\d+).*");
+    private static final Pattern NOBIBFILE = Pattern.compile("^No file .+\\.bbl\\.$");
+    private static final Pattern NOTOCFILE = Pattern.compile("^No file .+\\.toc\\.$");
+
+    private final Path sourceDir;
+    private final Path documentDir;
+    private final ProblemSink sink;
+
+    private final Stack<String> parsingStack;
+    private boolean unbalanced;
+    private boolean latexRerun;
+    private boolean bibtexRerun;
+
+    /**
+     * Creates a parser.
+     *
+     * @param sourceDir the source directory of the project
+     * @param documentDir the directory of the built document
+     * @param sink receives the problems
+     */
+    public LatexLogParser(Path sourceDir, Path documentDir, ProblemSink sink) {
+        this.sourceDir = sourceDir;
+        this.documentDir = documentDir;
+        this.sink = sink;
+        this.parsingStack = new Stack<String>();
+    }
+
+    /**
+     * @return true, if the last output asked for another LaTeX run
+     */
+    public boolean isLatexRerunNeeded() {
+        return latexRerun;
+    }
+
+    /**
+     * @return true, if the last output had undefined citations or no bibliography
+     */
+    public boolean isBibtexRerunNeeded() {
+        return bibtexRerun;
+    }
+
+    /**
+     * @return true, if the files opened and closed in the last output didn't
+     *         match, so some problems may be in the wrong file
+     */
+    public boolean isUnbalanced() {
+        return unbalanced;
+    }
+
+    /**
+     * Finds a file named in the output of a program.
+     *
+     * @param name the file name, absolute or relative to one of the directories
+     * @param dirs the directories to look in
+     * @return the file, or null if it doesn't exist
+     */
+    static Path findFile(String name, Path... dirs) {
+        Path p;
+        try {
+            p = Paths.get(name);
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        if (p.isAbsolute()) {
+            return Files.isRegularFile(p) ? p.normalize() : null;
+        }
+        for (Path dir : dirs) {
+            if (dir != null) {
+                Path file = dir.resolve(p).normalize();
+                if (Files.isRegularFile(file)) {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reports a problem in the file LaTeX was reading.
+     *
+     * @param error the error or warning string
+     * @param causingSourceFile name of the source file
+     * @param linenr where the error occurs
+     * @param severity the severity
+     * @param layout true, if this is a layout warning
+     */
+    private void addProblem(String error, String causingSourceFile,
+            int linenr, int severity, boolean layout) {
+        Path file = null;
+        if (causingSourceFile != null) {
+            file = findFile(causingSourceFile, sourceDir, documentDir);
+        }
+        if (file == null) {
+            sink.problem(null, -1, error + (causingSourceFile != null ? " (Occurance: "
+                    + causingSourceFile + ")" : ""), severity, false);
+        } else {
+            sink.problem(file, linenr, error, severity, layout && linenr >= 0);
+        }
+    }
+
+    /**
+     * @return the next line of the output, or an empty string at the end
+     */
+    private static String nextLine(StringTokenizer st) {
+        return st.hasMoreTokens() ? st.nextToken() : "";
+    }
+
+    /**
+     * Parse the output of the LaTeX program.
+     *
+     * @param output the output of the external program
+     * @return true, if error messages were found in the output, false otherwise
+     */
+    public boolean parse(String output) {
+
+        latexRerun = false;
+        bibtexRerun = false;
+        parsingStack.clear();
+        boolean errorsFound = false;
+        boolean citeNotfound = false;
+        unbalanced = false;
+        StringTokenizer st = new StringTokenizer(output, "\r\n");
+
+        String line;
+        boolean hasProblem = false;
+        String error = null;
+        int severity = ProblemSink.SEVERITY_WARNING;
+        int linenr = -1;
+        String occurance = null;
+
+        while (st.hasMoreTokens()) {
+            line = st.nextToken();
+            //Add more lines if line length is a multiple of 79 and
+            //it does not end with ...
+            while (!line.endsWith("...") && st.hasMoreTokens()
+                    && line.length() % MAX_LINE_LENGTH == 0) {
+                line = line + st.nextToken();
+            }
+            line = line.replaceAll(" {2,}", " ").trim();
+            Matcher m = LATEXCERROR.matcher(line);
+            if (m.matches()) {
+                //C-Style LaTeX error
+                addProblem(m.group(3), m.group(1), Integer.parseInt(m.group(2)), ProblemSink.SEVERITY_ERROR, false);
+                //Maybe parsingStack is empty...
+                if (parsingStack.isEmpty()) {
+                    //Add the file to the stack
+                    parsingStack.push("(" + m.group(1));
+                }
+                continue;
+            }
+            m = TEXERROR.matcher(line);
+            if (m.matches() && line.toLowerCase().indexOf("warning") == -1) {
+                if (hasProblem) {
+                    // We have a not reported problem
+                    addProblem(error, occurance, linenr, severity, false);
+                    linenr = -1;
+                }
+                hasProblem = true;
+                errorsFound = true;
+                severity = ProblemSink.SEVERITY_ERROR;
+                occurance = determineSourceFile();
+                Matcher m2 = LATEXERROR.matcher(line);
+                if (m2.matches()) {
+                    // LaTex error
+                    error = m2.group(1);
+
+                    String part2 = nextLine(st).trim();
+
+                    if (part2.length() > 0 && Character.isLowerCase(part2.charAt(0))) {
+                        error += ' ' + part2;
+                    }
+                    updateParsedFile(part2);
+                    continue;
+                }
+                if (line.startsWith("! Undefined control sequence.")){
+                    // Undefined Control Sequence
+                    error = "Undefined control sequence: ";
+                    continue;
+                }
+                m2 = WARNING.matcher(line);
+                if (m2.matches())
+                    severity = ProblemSink.SEVERITY_WARNING;
+                error = m.group(1);
+                continue;
+            }
+            m = WARNING.matcher(line);
+            if (m.matches()){
+                if (hasProblem){
+                    // We have a not reported problem
+                    addProblem(error, occurance, linenr, severity, false);
+                    linenr = -1;
+                    hasProblem = false;
+                }
+                if (line.indexOf("Label(s) may have changed.") > -1) {
+                    // prepare to re-run latex
+                    latexRerun = true;
+                    continue;
+                }
+                else if (line.indexOf("There were undefined") > -1) {
+                    if (citeNotfound) {
+                        // prepare to run bibtex
+                        bibtexRerun = true;
+                    }
+                    continue;
+                }
+
+                // Ignore undefined references because they are
+                // found by the parser
+                if (line.indexOf("Warning: Reference ") > -1)
+                    continue;
+                if (line.indexOf("Warning: Citation ") > -1) {
+                    citeNotfound = true;
+                    continue;
+                }
+                severity = ProblemSink.SEVERITY_WARNING;
+                occurance = determineSourceFile();
+                hasProblem = true;
+                if (line.startsWith("LaTeX Warning: ") || line.indexOf("pdfTeX warning") != -1) {
+                    error = m.group(1);
+                    //Try to get the line number
+                    Matcher pM = ATLINE2.matcher(line);
+                    if (pM.matches()) {
+                        linenr = Integer.parseInt(pM.group(1));
+                    }
+                    String nextLine = nextLine(st).replaceAll(" {2,}", " ");
+                    pM = ATLINE2.matcher(nextLine);
+                    if (pM.matches()) {
+                        linenr = Integer.parseInt(pM.group(1));
+                    }
+                    updateParsedFile(nextLine);
+                    error += nextLine;
+                    if (linenr != -1) {
+                        addProblem(line, occurance, linenr, severity, false);
+                        hasProblem = false;
+                        linenr = -1;
+                    }
+                    continue;
+                } else {
+                    error = m.group(1);
+                    //Try to get the line number
+                    Matcher pM = ATLINE2.matcher(line);
+                    if (pM.matches()) {
+                        linenr = Integer.parseInt(pM.group(1));
+                    }
+                    continue;
+                }
+            }
+            m = FULLBOX.matcher(line);
+            if (m.matches()) {
+                if (hasProblem) {
+                    // We have a not reported problem
+                    addProblem(error, occurance, linenr, severity, false);
+                    linenr = -1;
+                    hasProblem = false;
+                }
+                severity = ProblemSink.SEVERITY_WARNING;
+                occurance = determineSourceFile();
+                error = line;
+                linenr = Integer.parseInt(m.group(1));
+                addProblem(line, occurance, linenr, severity, true);
+                hasProblem = false;
+                linenr = -1;
+                continue;
+            }
+            m = NOBIBFILE.matcher(line);
+            if (m.matches()){
+                // prepare to run bibtex
+                bibtexRerun = true;
+                continue;
+            }
+            m = NOTOCFILE.matcher(line);
+            if (m.matches()){
+                // prepare to re-run latex
+                latexRerun = true;
+                continue;
+            }
+            m = ATLINE.matcher(line);
+            if (hasProblem && m.matches()) {
+                linenr = Integer.parseInt(m.group(1));
+                String part2 = nextLine(st);
+                int index = line.indexOf(' ');
+                if (index > -1) {
+                    error += " " + line.substring(index).trim() + " (followed by: "
+                            + part2.trim() + ")";
+                    addProblem(error, occurance, linenr, severity, false);
+                    linenr = -1;
+                    hasProblem = false;
+                    continue;
+                }
+            }
+            m = ATLINE2.matcher(line);
+            if (hasProblem && m.matches()) {
+                linenr = Integer.parseInt(m.group(1));
+                addProblem(error, occurance, linenr, severity, false);
+                linenr = -1;
+                hasProblem = false;
+                continue;
+            }
+            updateParsedFile(line);
+        }
+        if (hasProblem) {
+            // We have a not reported problem
+            addProblem(error, occurance, linenr, severity, false);
+        }
+        return errorsFound;
+    }
+
+    /**
+     * Updates the stack that determines which file we are currently
+     * parsing, so that errors can be annotated in the correct file.
+     *
+     * @param logLine A line from latex' output containing which file we are in
+     */
+    private void updateParsedFile(String logLine) {
+        if (logLine.indexOf('(') == -1 && logLine.indexOf(')') == -1)
+            return;
+        for (int i = 0; i < logLine.length(); i++) {
+            if (logLine.charAt(i) == '(') {
+                int j;
+                for (j = i + 1; j < logLine.length()
+                        && isAllowedinName(logLine.charAt(j)); j++)
+                    ;
+                parsingStack.push(logLine.substring(i, j).trim());
+                i = j - 1;
+            } else if (logLine.charAt(i) == ')' && !parsingStack.isEmpty()) {
+                parsingStack.pop();
+            } else if (logLine.charAt(i) == ')') {
+                // There was a parsing error, this is very rare
+                unbalanced = true;
+            }
+        }
+    }
+
+    /**
+     * Check if the character is allowed in a filename
+     * @param c the character
+     * @return true if the character is legal
+     */
+    private static boolean isAllowedinName(char c) {
+        if (c == '(' || c == ')' || c == '[')
+            return false;
+        else
+            return true;
+    }
+
+    private static boolean isValidName(String name) {
+        //File must have a file ending
+        int p = name.lastIndexOf('.');
+        if (p < 0) return false;
+        //File ending must be shorter than 9 characters
+        if (name.length()-p > 10) return false;
+        return true;
+    }
+
+    /**
+     * Determines the source file we are currently parsing.
+     *
+     * @return The filename or null if no file could be determined
+     */
+    private String determineSourceFile() {
+        int i = parsingStack.size()-1;
+        while (i >= 0) {
+            String fileName = parsingStack.get(i).substring(1);
+            //Remove "
+            if (fileName.startsWith("\"") && fileName.endsWith("\"")) {
+                fileName = fileName.substring(1, fileName.length() - 1);
+            }
+            if (isValidName(fileName)) return fileName;
+            i--;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.util.StringTokenizer;
+
+/**
+ * Parses the output of the makeindex program. The errors belong to the
+ * built document.
+ */
+public class MakeindexLogParser {
+
+    private final ProblemSink sink;
+
+    /**
+     * @param sink receives the problems
+     */
+    public MakeindexLogParser(ProblemSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Parse the output of the makeindex program.
+     *
+     * @param output the output of the external program
+     * @return true, if error messages were found in the output, false otherwise
+     */
+    public boolean parse(String output) {
+
+        boolean errorsFound = false;
+        StringTokenizer st = new StringTokenizer(output, "\r\n");
+
+        while (st.hasMoreTokens()) {
+            String line = st.nextToken();
+            if (line.endsWith("not found.")) {
+                errorsFound = true;
+                sink.problem(null, -1, line, ProblemSink.SEVERITY_ERROR, false);
+            }
+        }
+
+        return errorsFound;
+    }
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.builder.core;
+
+import java.nio.file.Path;
+
+/**
+ * Receives the errors and warnings found in the output of the build
+ * programs. The builder of the workbench creates problem markers, the
+ * command line builder prints them.
+ */
+public interface ProblemSink {
+
+    /** The severity of an error, the value of <code>IMarker.SEVERITY_ERROR</code> */
+    public static final int SEVERITY_ERROR = 2;
+
+    /** The severity of a warning, the value of <code>IMarker.SEVERITY_WARNING</code> */
+    public static final int SEVERITY_WARNING = 1;
+
+    /**
+     * Reports a problem.
+     *
+     * @param file the existing file the problem is in, or null if the file
+     *             couldn't be found and the problem belongs to the built document
+     * @param line the line number, or -1 if unknown
+     * @param message the message
+     * @param severity <code>SEVERITY_ERROR</code> or <code>SEVERITY_WARNING</code>
+     * @param layout true, if this is a layout warning like an overfull box
+     */
+    public void problem(Path file, int line, String message, int severity, boolean layout);
+}
@@ -327,7 +327,7 @@ public class BracketInserter implements VerifyKeyListener, ILinkedModeListener {
     private String getQuotes (boolean opening){
         String replacement;
         IProject project = ((FileEditorInput)editor.getEditorInput()).getFile().getProject();
-        String lang = TexlipseProperties.getProjectProperty(project, TexlipseProperties.LANGUAGE_PROPERTY);		
+        String lang = TexlipseProperties.getProjectConfiguration(project).language;		
         String postfix = opening ? "o" : "c";
         replacement = quotes.get(lang + postfix);
         return (replacement != null ? replacement : quotes.get("en" + postfix));
@@ -154,37 +154,6 @@ public class TexAutoIndentStrategy extends DefaultIndentLineAutoEditStrategy {
     }
     
     
-    /**
-     * Decides if a "\begin{...}" needs a "\end{...}"
-     * @param environment	Name of the environment (...)
-     * @param document	The document as String
-     * @param coffset	The starting offset (just at the beginning of
-     * 					the "\begin{...}"
-     * @return	true, if it needs an end, else false
-     */
-    public static boolean needsEnd(String environment, String docString, int coffset) {
-        int counter = 1;
-        int offset = coffset;
-        while (counter > 0) {
-            IRegion end = LatexParserUtils.findEndEnvironment(docString, environment, offset + 5);
-            if (end == null) {
-                return true;
-            }
-            IRegion start = LatexParserUtils.findBeginEnvironment(docString, environment, offset + 7);
-            if (start == null) {
-                counter--;
-                offset = end.getOffset();
-            } else if (end.getOffset() > start.getOffset()) {
-                counter++;
-                offset = start.getOffset();
-            } else {
-                counter--;
-                offset = end.getOffset();
-            }
-        }
-        return false;
-    }
-    
     /**
      * Returns a string with the whitespaces (spaces and tabs) that are at the beginning
      * of line
@@ -261,7 +230,7 @@ public class TexAutoIndentStrategy extends DefaultIndentLineAutoEditStrategy {
                  * looks for the \begin-statement and inserts
                  * an equivalent \end-statement (respects \begin-indentation)
                  */
-                if (needsEnd(envName, document.get(), lineOffset)){
+                if (TexStructureIndex.getIndex(document).needsEnd(lineOffset + beginIndex)){
                     buf.append(lineDelimiter);
                     buf.append(prevIndentation);
                     buf.append("\\end{" + envName + "}");
@@ -308,8 +277,11 @@ public class TexAutoIndentStrategy extends DefaultIndentLineAutoEditStrategy {
             		return;
             	}
         		String envName = text.substring(r.getOffset(), r.getOffset() + r.getLength());            	
-            	String docText = document.get();
-            	IRegion rBegin = LatexParserUtils.findMatchingBeginEnvironment(docText, envName, lineOffset);
+            	IRegion rBegin = TexStructureIndex.getIndex(document).findOpenEnvironment(envName, lineOffset);
+            	if (rBegin == null) {
+            		super.customizeDocumentCommand(document, command);
+            		return;
+            	}
             	int beginLineNr = document.getLineOfOffset(rBegin.getOffset());
             	int beginLineLength = document.getLineLength(beginLineNr);
             	int beginLineStart = document.getLineOffset(beginLineNr);
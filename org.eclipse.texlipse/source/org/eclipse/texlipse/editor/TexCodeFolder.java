@@ -24,6 +24,8 @@ import java.util.Map;
 import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.source.projection.ProjectionAnnotationModel;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.jfr.Events;
+import org.eclipse.texlipse.jfr.FoldingEvent;
 import org.eclipse.texlipse.model.OutlineNode;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 
@@ -71,7 +73,16 @@ public class TexCodeFolder {
         model = (ProjectionAnnotationModel)editor.getAdapter(ProjectionAnnotationModel.class);
 
         if (model != null) {
+            FoldingEvent event = Events.AVAILABLE ? new FoldingEvent() : null;
+            if (event != null) {
+                event.begin();
+                event.initial = firstRun;
+            }
             this.addMarks(outline);
+            if (event != null && event.shouldCommit()) {
+                event.outlineNodes = OutlineNode.countNodes(outline);
+                event.commit();
+            }
         }
     }
     
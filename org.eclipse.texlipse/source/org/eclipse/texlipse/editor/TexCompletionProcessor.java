@@ -14,7 +14,9 @@
 package org.eclipse.texlipse.editor;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -23,7 +25,6 @@ import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
-import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.contentassist.CompletionProposal;
 import org.eclipse.jface.text.contentassist.ContextInformation;
@@ -44,7 +45,6 @@ import org.eclipse.texlipse.model.TexStyleCompletionManager;
 import org.eclipse.texlipse.spelling.SpellChecker;
 import org.eclipse.texlipse.templates.TexContextType;
 import org.eclipse.texlipse.templates.TexTemplateCompletion;
-import org.eclipse.texlipse.texparser.LatexParserUtils;
 import org.eclipse.ui.texteditor.HippieProposalProcessor;
 
 /**
@@ -67,6 +67,9 @@ public class TexCompletionProcessor implements IContentAssistProcessor {
 
 	public static final int assistLineLength = 60;
 
+	// the most entries proposed for a search of the fields
+	private static final int maxFieldMatches = 100;
+
 	private final HippieProposalProcessor hippie = new HippieProposalProcessor();
 
 	/**
@@ -129,8 +132,18 @@ public class TexCompletionProcessor implements IContentAssistProcessor {
 				int seqStartIdx = resolveCompletionStart(lineStart, lineStart
 						.length() - 1);
 				String seqStart = lineStart.substring(seqStartIdx);
+				int argStartIdx = lineStart.lastIndexOf('{');
+				if (argStartIdx >= 0 && argStartIdx < seqStartIdx
+						&& lineStart.indexOf('}', argStartIdx) < 0
+						&& lineStart.indexOf('\\', argStartIdx) < 0) {
+					// a query of several words, e.g. \cite{smith 2019 graph
+					proposals = resolveReferenceCompletions(lineStart, offset,
+							lineStart.substring(argStartIdx));
+				}
 
-				if (seqStart.startsWith("\\")) {
+				if (proposals != null) {
+					// found by the query
+				} else if (seqStart.startsWith("\\")) {
 					String replacement = seqStart.substring(1);
 					proposals = computeCommandCompletions(offset, replacement
 							.length(), replacement);
@@ -304,6 +317,10 @@ public class TexCompletionProcessor implements IContentAssistProcessor {
 
 		String replacement = lineEnd.lastIndexOf(',') != -1 ? lineEnd
 				.substring(lineEnd.lastIndexOf(',') + 1) : lineEnd.substring(1);
+		while (replacement.length() > 0
+				&& Character.isWhitespace(replacement.charAt(0))) {
+			replacement = replacement.substring(1);
+		}
 
 		ICompletionProposal[] proposals = null;
 		if (command.indexOf("cite") > -1) {
@@ -331,18 +348,24 @@ public class TexCompletionProcessor implements IContentAssistProcessor {
 			int replacementLength, String prefix) {
 
 		List<ICompletionProposal> resultAsList = new ArrayList<ICompletionProposal>();
+		//add the entries of the .bib file(s) whose key starts with the prefix
 		List<ReferenceEntry> bibEntries = refManager.getCompletionsBib(prefix);
-		//add the entries of the .bib file(s) to the results
-		if (bibEntries != null) {
-			for (int i = 0; i < bibEntries.size(); i++) {
-				ReferenceEntry bib = bibEntries.get(i);
-				String infoText = bib.info.length() > assistLineLength ? wrapString(
-						bib.info, assistLineLength)
-						: bib.info;
-						resultAsList.add(new CompletionProposal(bib.key, offset
-								- replacementLength, replacementLength, bib.key.length(),
-								null, bib.key, null, infoText));
+		if (prefix.length() > 1) {
+			Set<ReferenceEntry> proposed = new HashSet<ReferenceEntry>();
+			addBibProposals(resultAsList, proposed, bibEntries, offset,
+					replacementLength);
+			//then the best entries with fields matching the words of the prefix
+			addBibProposals(resultAsList, proposed, refManager.searchBib(
+					prefix, maxFieldMatches), offset, replacementLength);
+			//and the entries whose author or title matches more loosely
+			if (prefix.indexOf(' ') < 0) {
+				addBibProposals(resultAsList, proposed, refManager
+						.getFieldMatchesBib(prefix, maxFieldMatches), offset,
+						replacementLength);
 			}
+		} else {
+			addBibProposals(resultAsList, null, bibEntries, offset,
+					replacementLength);
 		}
 		//the extension points
 		IConfigurationElement[] configuration = Platform.getExtensionRegistry()
@@ -372,6 +395,42 @@ public class TexCompletionProcessor implements IContentAssistProcessor {
 		return resultAsList.toArray(result);
 	}
 
+	/**
+	 * Adds proposals for BibTeX entries that haven't been proposed yet.
+	 * 
+	 * @param result
+	 *            The list of proposals
+	 * @param proposed
+	 *            The entries already proposed, or null if there are no
+	 *            other entries to propose
+	 * @param bibEntries
+	 *            The entries to propose, or null
+	 * @param offset
+	 *            Current cursor offset
+	 * @param replacementLength
+	 *            The length of the string to be replaced
+	 */
+	private void addBibProposals(List<ICompletionProposal> result,
+			Set<ReferenceEntry> proposed, List<ReferenceEntry> bibEntries,
+			int offset, int replacementLength) {
+		if (bibEntries == null) {
+			return;
+		}
+		for (int i = 0; i < bibEntries.size(); i++) {
+			ReferenceEntry bib = bibEntries.get(i);
+			if (proposed != null && !proposed.add(bib)) {
+				continue;
+			}
+			String info = bib.getInfo();
+			String infoText = info.length() > assistLineLength ? wrapString(
+					info, assistLineLength)
+					: info;
+			result.add(new CompletionProposal(bib.key, offset
+					- replacementLength, replacementLength, bib.key.length(),
+					null, bib.key, null, infoText));
+		}
+	}
+
 	/**
 	 * Computes and returns reference-proposals (labels).
 	 * 
@@ -397,9 +456,10 @@ public class TexCompletionProcessor implements IContentAssistProcessor {
 			String infoText = null;
 			ReferenceEntry ref = refEntries.get(i);
 
-			if (ref.info != null) {
-				infoText = (ref.info.length() > assistLineLength) ? wrapString(
-						ref.info, assistLineLength) : ref.info;
+			String info = ref.getInfo();
+			if (info != null) {
+				infoText = (info.length() > assistLineLength) ? wrapString(
+						info, assistLineLength) : info;
 			}
 
 			result[i] = new CompletionProposal(ref.key, offset
@@ -414,34 +474,14 @@ public class TexCompletionProcessor implements IContentAssistProcessor {
 	 * environment
 	 * 
 	 * @param doc
-	 *            IDocument.get()
+	 *            The document
 	 * @param offset
 	 *            current offset
 	 * @return null if no open environment was found, else end{+name+}
 	 */
-	static String environmentEnd(String doc, int offset) {
-		int o = offset;
-		while ((o = doc.lastIndexOf("\\begin", o)) >= 0) {
-			IRegion r = LatexParserUtils.getCommand(doc, o + 1);
-			if (r != null) {
-				String command = doc.substring(r.getOffset(), r.getOffset()
-						+ r.getLength());
-				if ("\\begin".equals(command)) {
-					IRegion r2 = LatexParserUtils.getCommandArgument(doc, o);
-					if (r2 != null) {
-						String envName = doc.substring(r2.getOffset(), r2
-								.getOffset()
-								+ r2.getLength());
-						if (TexAutoIndentStrategy.needsEnd(envName, doc, r
-								.getOffset())) {
-							return "end{" + envName + "}";
-						}
-					}
-				}
-			}
-			o--;
-		}
-		return null;
+	static String environmentEnd(IDocument doc, int offset) {
+		String envName = TexStructureIndex.getIndex(doc).findUnclosedEnvironment(offset);
+		return envName == null ? null : "end{" + envName + "}";
 	}
 
 	/**
@@ -464,7 +504,7 @@ public class TexCompletionProcessor implements IContentAssistProcessor {
 
 		CompletionProposal cp = null;
 		if ("\\".equals(prefix) || "end".startsWith(prefix)) {
-			String endString = environmentEnd(fviewer.getDocument().get(),
+			String endString = environmentEnd(fviewer.getDocument(),
 					offset);
 			if (endString != null) {
 				cp = new CompletionProposal(endString, offset
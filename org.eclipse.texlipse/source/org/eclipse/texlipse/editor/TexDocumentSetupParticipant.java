@@ -17,8 +17,7 @@ import org.eclipse.core.filebuffers.IDocumentSetupParticipant;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentExtension3;
 import org.eclipse.jface.text.IDocumentPartitioner;
-import org.eclipse.jface.text.rules.FastPartitioner;
-import org.eclipse.texlipse.editor.partitioner.FastLaTeXPartitionScanner;
+import org.eclipse.texlipse.editor.partitioner.FastLaTeXPartitioner;
 
 /**
  * @author Antti Pirinen
@@ -39,10 +38,7 @@ public class TexDocumentSetupParticipant implements IDocumentSetupParticipant {
 		if (document instanceof IDocumentExtension3) {
 			IDocumentExtension3 extension3= (IDocumentExtension3) document;
 
-			IDocumentPartitioner partitioner = 
-			    new FastPartitioner(
-			            new FastLaTeXPartitionScanner(), 
-			            FastLaTeXPartitionScanner.TEX_PARTITION_TYPES);
+			IDocumentPartitioner partitioner = new FastLaTeXPartitioner();
 
 			extension3.setDocumentPartitioner(TexEditor.TEX_PARTITIONING, partitioner);
 	        
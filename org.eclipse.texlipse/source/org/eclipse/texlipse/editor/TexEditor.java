@@ -36,6 +36,7 @@ import org.eclipse.texlipse.TexlipsePlugin;
 import org.eclipse.texlipse.model.TexDocumentModel;
 import org.eclipse.texlipse.outline.TexOutlinePage;
 import org.eclipse.texlipse.properties.TexlipseProperties;
+import org.eclipse.texlipse.spelling.SpellChecker;
 import org.eclipse.texlipse.treeview.views.TexOutlineTreeView;
 import org.eclipse.ui.IFileEditorInput;
 import org.eclipse.ui.editors.text.TextEditor;
@@ -223,7 +224,8 @@ public class TexEditor extends TextEditor {
     }
 
     /** 
-     * Triggers parsing. If there is a way to determine whether the
+     * Triggers parsing and writes the moved spelling errors to their
+     * markers. If there is a way to determine whether the
      * platform is currently being shut down, triggering of parsing in 
      * such a case could be skipped.
      * 
@@ -232,6 +234,7 @@ public class TexEditor extends TextEditor {
     public void doSave(IProgressMonitor monitor) {
         super.doSave(monitor);
         this.documentModel.updateNow();
+        SpellChecker.documentSaved(getTexDocument());
     }
     
     /**
@@ -92,7 +92,7 @@ public class TexMathCompletionProcessor implements IContentAssistProcessor {
                 
                 CompletionProposal cp = null;
                 if ("\\".equals(command) || "end".startsWith(command)) {
-                    String endString = TexCompletionProcessor.environmentEnd(doc.get(), offset);
+                    String endString = TexCompletionProcessor.environmentEnd(doc, offset);
                     if (endString != null) {
                         cp = new CompletionProposal("\\"+endString, 
                                 offset - replacement.length(), 
@@ -18,6 +18,7 @@ import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.source.ICharacterPairMatcher;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.texparser.DocumentCharSequence;
 import org.eclipse.texlipse.texparser.LatexParserUtils;
 import org.eclipse.jface.text.BadLocationException;
 
@@ -100,8 +101,17 @@ public class TexPairMatcher implements ICharacterPairMatcher {
             if (offset > 0 && document.getChar(offset - 1) == '\\')
                 return null;
             
-            String docString = document.get();
             int peerIndex;
+            if (TexStructureIndex.isPairChar(document.getChar(offset))) {
+                fAnchor = (index % 2) == 1 ? LatexParserUtils.RIGHT : LatexParserUtils.LEFT;
+                peerIndex = TexStructureIndex.getIndex(document).findPeer(offset);
+                if (peerIndex == -1)
+                    return null;
+                return peerIndex < offset ? new Region(peerIndex, offset - peerIndex + 1)
+                        : new Region(offset, peerIndex - offset + 1);
+            }
+            
+            CharSequence docString = new DocumentCharSequence(document);
             if ((index % 2) == 1) {
                 fAnchor = LatexParserUtils.RIGHT;
                 peerIndex = LatexParserUtils.findPeerChar(docString, offset, fAnchor, pairs.charAt(index), 
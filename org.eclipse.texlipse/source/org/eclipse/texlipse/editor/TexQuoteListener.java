@@ -72,7 +72,7 @@ public class TexQuoteListener implements IDocumentListener {
                 String replacement = "\"";
                 // TODO null checks?
                 IProject project = ((FileEditorInput)editor.getEditorInput()).getFile().getProject();
-                String lang = TexlipseProperties.getProjectProperty(project, TexlipseProperties.LANGUAGE_PROPERTY);
+                String lang = TexlipseProperties.getProjectConfiguration(project).language;
                 if (Character.isWhitespace(prev)) {
                     replacement = (String) quotes.get(lang + "o");
                 } else if (Character.isLetterOrDigit(prev)) {
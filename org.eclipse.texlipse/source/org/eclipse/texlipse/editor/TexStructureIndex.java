@@ -0,0 +1,874 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.editor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+
+/**
+ * Index of the brace and environment structure of a LaTeX document, kept up
+ * to date while the document is edited.
+ *
+ * The index records the positions of the (unescaped) braces, brackets and
+ * parentheses, of the <code>\begin{...}</code> and <code>\end{...}</code>
+ * commands, of comments and of verbatim content. A document change only
+ * rescans the changed lines. The positions are kept in gap buffers with the
+ * gap at the last change, so the positions after a change don't have to be
+ * shifted one by one. The environments and the braces are matched lazily
+ * and only again when a change adds or removes an environment command or a
+ * brace, so the queries are binary searches and array lookups.
+ *
+ * The rules are those of <code>LatexParserUtils</code>: a backslash escapes
+ * the following character, and an unescaped % starts a comment that ends
+ * at the end of the line. The content of verbatim environments and of
+ * <code>\verb</code> is skipped, and the argument of <code>\begin</code> and
+ * <code>\end</code> may start on the next line but not after an empty line.
+ */
+public class TexStructureIndex implements IDocumentListener {
+
+    private static final Map<IDocument, TexStructureIndex> indices =
+        new WeakHashMap<IDocument, TexStructureIndex>();
+
+    /**
+     * Environments whose content is not LaTeX
+     */
+    private static final String[] VERBATIM_ENVS = {"verbatim", "verbatim*", "Verbatim", "lstlisting"};
+
+    /**
+     * How far after the changed lines an incremental rescan may read
+     */
+    private static final int SLACK = 256;
+
+    private static final String PAIRS = "{}[]()";
+
+    private static final char BEGIN = 'b';
+    private static final char END = 'e';
+    private static final char VERB = 'v';
+
+    /**
+     * A sequence of ranges sorted by their start offsets, stored in a gap
+     * buffer. The offsets before the gap are absolute, the offsets after it
+     * are stored relative to the end of the document, so a change at the gap
+     * doesn't move them.
+     */
+    private static final class Ranges {
+        int[] start;
+        int[] end;
+        char[] type;
+        // only for environments and verbatims
+        String[] name;
+        // only for verbatims: the content between the begin and end markers
+        int[] inner;
+        int[] innerEnd;
+        int gapStart;
+        int gapEnd;
+        // the length of the document
+        int length;
+
+        Ranges(boolean withNames, boolean withContent, int length) {
+            start = new int[16];
+            end = new int[16];
+            type = new char[16];
+            if (withNames) {
+                name = new String[16];
+            }
+            if (withContent) {
+                inner = new int[16];
+                innerEnd = new int[16];
+            }
+            gapEnd = 16;
+            this.length = length;
+        }
+
+        int size() {
+            return gapStart + start.length - gapEnd;
+        }
+
+        private int index(int i) {
+            return i < gapStart ? i : i + gapEnd - gapStart;
+        }
+
+        private int base(int i) {
+            return i < gapStart ? 0 : length;
+        }
+
+        int start(int i) {
+            return start[index(i)] + base(i);
+        }
+
+        int end(int i) {
+            return end[index(i)] + base(i);
+        }
+
+        int inner(int i) {
+            return inner[index(i)] + base(i);
+        }
+
+        int innerEnd(int i) {
+            return innerEnd[index(i)] + base(i);
+        }
+
+        char type(int i) {
+            return type[index(i)];
+        }
+
+        String name(int i) {
+            return name[index(i)];
+        }
+
+        /**
+         * Appends a range at the gap.
+         */
+        void add(int s, int e, char t, String n, int is, int ie) {
+            if (gapStart == gapEnd) {
+                grow(1);
+            }
+            int k = gapStart++;
+            start[k] = s;
+            end[k] = e;
+            type[k] = t;
+            if (name != null) {
+                name[k] = n;
+            }
+            if (inner != null) {
+                inner[k] = is;
+                innerEnd[k] = ie;
+            }
+        }
+
+        private void grow(int needed) {
+            int capacity = Math.max(start.length * 2, size() + needed);
+            int tail = start.length - gapEnd;
+            int newGapEnd = capacity - tail;
+            start = move(start, capacity, newGapEnd);
+            end = move(end, capacity, newGapEnd);
+            char[] t = Arrays.copyOf(type, capacity);
+            System.arraycopy(type, gapEnd, t, newGapEnd, tail);
+            type = t;
+            if (name != null) {
+                String[] n = Arrays.copyOf(name, capacity);
+                System.arraycopy(name, gapEnd, n, newGapEnd, tail);
+                Arrays.fill(n, gapStart, newGapEnd, null);
+                name = n;
+            }
+            if (inner != null) {
+                inner = move(inner, capacity, newGapEnd);
+                innerEnd = move(innerEnd, capacity, newGapEnd);
+            }
+            gapEnd = newGapEnd;
+        }
+
+        private int[] move(int[] a, int capacity, int newGapEnd) {
+            int[] b = Arrays.copyOf(a, capacity);
+            System.arraycopy(a, gapEnd, b, newGapEnd, a.length - gapEnd);
+            return b;
+        }
+
+        /**
+         * Moves the gap before the range with the given index.
+         */
+        void moveGap(int i) {
+            while (gapStart > i) {
+                gapStart--;
+                gapEnd--;
+                transfer(gapStart, gapEnd, -length);
+            }
+            while (gapStart < i) {
+                transfer(gapEnd, gapStart, length);
+                gapStart++;
+                gapEnd++;
+            }
+        }
+
+        private void transfer(int from, int to, int delta) {
+            start[to] = start[from] + delta;
+            end[to] = end[from] + delta;
+            type[to] = type[from];
+            if (name != null && to != from) {
+                name[to] = name[from];
+                name[from] = null;
+            }
+            if (inner != null) {
+                inner[to] = inner[from] + delta;
+                innerEnd[to] = innerEnd[from] + delta;
+            }
+        }
+
+        /**
+         * Replaces the ranges from <code>a</code> to <code>b</code>
+         * (exclusive) by those in <code>r</code>, which are in the
+         * coordinates of the changed document.
+         */
+        void replace(int a, int b, Ranges r, int newLength) {
+            moveGap(a);
+            if (name != null) {
+                Arrays.fill(name, gapEnd, gapEnd + b - a, null);
+            }
+            gapEnd += b - a;
+            length = newLength;
+            int n = r.size();
+            if (gapEnd - gapStart < n) {
+                grow(n);
+            }
+            for (int i = 0; i < n; i++) {
+                add(r.start(i), r.end(i), r.type(i), name != null ? r.name(i) : null,
+                        inner != null ? r.inner(i) : 0, inner != null ? r.innerEnd(i) : 0);
+            }
+        }
+
+        /**
+         * @return The index of the first range starting at or after offset
+         */
+        int ceiling(int offset) {
+            int lo = 0;
+            int hi = size();
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (start(mid) < offset) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * @return The index of the last range starting before offset, or -1
+         */
+        int lower(int offset) {
+            return ceiling(offset) - 1;
+        }
+
+        /**
+         * @return The index of the range starting at offset, or -1
+         */
+        int at(int offset) {
+            int i = ceiling(offset);
+            return i < size() && start(i) == offset ? i : -1;
+        }
+    }
+
+    /**
+     * The scanned structure of (a part of) the document
+     */
+    private static final class Structure {
+        final Ranges braces;
+        final Ranges envs;
+        final Ranges comments;
+        final Ranges verbatims;
+
+        Structure(int length) {
+            braces = new Ranges(false, false, length);
+            envs = new Ranges(true, false, length);
+            comments = new Ranges(false, false, length);
+            verbatims = new Ranges(true, true, length);
+        }
+    }
+
+    private Structure structure;
+
+    // the matching of the environments, recomputed when they change
+    private boolean dirty = true;
+    private int[] partner = new int[0];
+    // the environments of each name and the position of each there
+    private Map<String, int[]> envLists = new HashMap<String, int[]>();
+    private int[] envPosition = new int[0];
+    // the \begins without a matching \end
+    private int[] openBegins = new int[0];
+
+    // the matching of the braces, recomputed when they change
+    private boolean bracesDirty = true;
+    private int[] bracePartner = new int[0];
+    // the enclosing open brace of the same type while matching
+    private int[] braceOuter = new int[0];
+
+    private TexStructureIndex(IDocument document) {
+        // the document is not referenced, it is the key of the registry
+        rebuild(document);
+    }
+
+    /**
+     * Returns the index of the given document, creating it if necessary.
+     * The index follows the changes of the document from then on.
+     *
+     * @param document The document
+     * @return The structure index of the document
+     */
+    public static synchronized TexStructureIndex getIndex(IDocument document) {
+        TexStructureIndex index = indices.get(document);
+        if (index == null) {
+            index = new TexStructureIndex(document);
+            indices.put(document, index);
+            document.addDocumentListener(index);
+        }
+        return index;
+    }
+
+    /**
+     * @return Whether the given character is one of the pair characters
+     * recorded by the index
+     */
+    public static boolean isPairChar(char c) {
+        return PAIRS.indexOf(c) >= 0;
+    }
+
+    /**
+     * Returns the offset of the peer of the brace, bracket or parenthesis
+     * at the given offset.
+     *
+     * @param offset The offset of the character
+     * @return The offset of the peer character, or -1 if the character is
+     * not a (real) pair character or has no peer
+     */
+    public synchronized int findPeer(int offset) {
+        Ranges braces = structure.braces;
+        int i = braces.at(offset);
+        if (i == -1) {
+            return -1;
+        }
+        matchBraces();
+        return bracePartner[i] == -1 ? -1 : braces.start(bracePartner[i]);
+    }
+
+    /**
+     * Returns the matching <code>\end</code> of a <code>\begin</code>
+     * or the other way round.
+     *
+     * @param offset The offset of the backslash of the command
+     * @return The region of the matching command including its argument,
+     * or null if there is no environment command at the offset or it has no
+     * matching command
+     */
+    public synchronized IRegion findMatchingEnvironment(int offset) {
+        int i = structure.envs.at(offset);
+        if (i == -1) {
+            return null;
+        }
+        match();
+        return partner[i] == -1 ? null : region(partner[i]);
+    }
+
+    /**
+     * Returns the innermost <code>\begin{environment}</code> before the given
+     * offset that is not closed before the offset.
+     *
+     * @param environment The name of the environment
+     * @param offset The offset
+     * @return The region of the <code>\begin</code> including its argument, or
+     * null if there is none
+     */
+    public synchronized IRegion findOpenEnvironment(String environment, int offset) {
+        match();
+        int[] list = envLists.get(environment);
+        if (list == null) {
+            return null;
+        }
+        Ranges envs = structure.envs;
+        // the position of the last one before the offset
+        int lo = 1;
+        int hi = list[0] + 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (envs.start(list[mid]) < offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        // skip over complete environments using the matching
+        int p = lo - 1;
+        while (p > 0) {
+            int t = list[p];
+            if (envs.type(t) == BEGIN) {
+                return region(t);
+            }
+            if (partner[t] == -1) {
+                // all earlier \begins are closed before this \end
+                return null;
+            }
+            p = envPosition[partner[t]] - 1;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the name of the last environment started at or before the
+     * given offset that has no matching <code>\end</code>.
+     *
+     * @param offset The offset
+     * @return The name of the environment or null if there is none
+     */
+    public synchronized String findUnclosedEnvironment(int offset) {
+        match();
+        Ranges envs = structure.envs;
+        int lo = 0;
+        int hi = openBegins.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (envs.start(openBegins[mid]) <= offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo == 0 ? null : envs.name(openBegins[lo - 1]);
+    }
+
+    /**
+     * Decides if the <code>\begin{...}</code> at the given offset needs an
+     * <code>\end{...}</code>.
+     *
+     * @param offset The offset of the backslash of <code>\begin</code>
+     * @return false if there is a matching <code>\end</code>, true otherwise
+     */
+    public synchronized boolean needsEnd(int offset) {
+        int i = structure.envs.at(offset);
+        if (i == -1 || structure.envs.type(i) != BEGIN) {
+            return true;
+        }
+        match();
+        return partner[i] == -1;
+    }
+
+    /**
+     * @param offset The offset
+     * @return Whether the offset is inside a comment (after the %)
+     */
+    public synchronized boolean isInsideComment(int offset) {
+        Ranges comments = structure.comments;
+        int i = comments.lower(offset);
+        return i >= 0 && offset < comments.end(i);
+    }
+
+    /**
+     * @param offset The offset
+     * @return Whether the offset is inside the content of a verbatim
+     * environment or of a <code>\verb</code> command
+     */
+    public synchronized boolean isInsideVerbatim(int offset) {
+        Ranges verbatims = structure.verbatims;
+        int i = verbatims.lower(offset);
+        return i >= 0 && offset >= verbatims.inner(i) && offset < verbatims.innerEnd(i);
+    }
+
+    public void documentAboutToBeChanged(DocumentEvent event) {
+    }
+
+    public synchronized void documentChanged(DocumentEvent event) {
+        try {
+            if (!update(event)) {
+                rebuild(event.getDocument());
+            }
+        } catch (BadLocationException e) {
+            rebuild(event.getDocument());
+        }
+    }
+
+    private IRegion region(int env) {
+        Ranges envs = structure.envs;
+        return new Region(envs.start(env), envs.end(env) - envs.start(env));
+    }
+
+    /**
+     * Rescans the lines touched by the change.
+     *
+     * @return false if the whole document must be rescanned instead
+     */
+    private boolean update(DocumentEvent event) throws BadLocationException {
+        IDocument document = event.getDocument();
+        int offset = event.getOffset();
+        int oldLength = event.getLength();
+        int newLength = event.getText() == null ? 0 : event.getText().length();
+        int delta = newLength - oldLength;
+        int oldChangeEnd = offset + oldLength;
+        int length = document.getLength();
+        Ranges braces = structure.braces;
+        Ranges envs = structure.envs;
+        Ranges comments = structure.comments;
+        Ranges verbatims = structure.verbatims;
+
+        // a change inside verbatim content only moves the end marker, unless
+        // it creates a new one
+        int v = verbatims.lower(offset + 1);
+        if (v >= 0 && verbatims.type(v) == BEGIN
+                && offset >= verbatims.inner(v) && oldChangeEnd <= verbatims.innerEnd(v)) {
+            String marker = "\\end{" + verbatims.name(v) + "}";
+            int from = Math.max(verbatims.inner(v), offset - marker.length());
+            int to = Math.min(verbatims.innerEnd(v) + delta, offset + newLength + marker.length());
+            if (document.get(from, to - from).indexOf(marker) >= 0) {
+                return false;
+            }
+            Structure none = new Structure(length);
+            braces.replace(braces.ceiling(oldChangeEnd), braces.ceiling(oldChangeEnd), none.braces, length);
+            envs.replace(envs.ceiling(oldChangeEnd), envs.ceiling(oldChangeEnd), none.envs, length);
+            comments.replace(comments.ceiling(oldChangeEnd), comments.ceiling(oldChangeEnd), none.comments, length);
+            // the range itself ends after the change, the next ones start there
+            verbatims.moveGap(v + 1);
+            verbatims.length = length;
+            int k = verbatims.index(v);
+            verbatims.end[k] += delta;
+            verbatims.innerEnd[k] += delta;
+            return true;
+        }
+
+        // the scan starts at the start of the previous line (an environment
+        // command can span two lines), extended over a command broken there
+        int line = document.getLineOfOffset(offset);
+        int start = document.getLineOffset(line > 0 ? line - 1 : 0);
+        int t = envs.lower(start);
+        if (t >= 0 && envs.end(t) > start) {
+            start = envs.start(t);
+        }
+        if (hasVerbatimEnvironment(start, oldChangeEnd)) {
+            return false;
+        }
+
+        int windowEnd = Math.min(length, oldChangeEnd + delta + SLACK);
+        Structure part = new Structure(length);
+        int stop = scan(document.get(start, windowEnd - start), start, oldChangeEnd + delta,
+                windowEnd == length, part);
+        if (stop < 0) {
+            return false;
+        }
+        for (int i = 0; i < part.verbatims.size(); i++) {
+            if (part.verbatims.type(i) == BEGIN) {
+                return false;
+            }
+        }
+        // the scan stopped at a line start, the old structure must not
+        // continue over it
+        int oldEnd = stop - delta;
+        t = envs.lower(oldEnd);
+        if ((t >= 0 && envs.end(t) > oldEnd) || hasVerbatimEnvironment(start, oldEnd)) {
+            return false;
+        }
+
+        int a = envs.ceiling(start);
+        int b = envs.ceiling(oldEnd);
+        if (!dirty && !sameRanges(envs, a, b, part.envs)) {
+            dirty = true;
+        }
+        envs.replace(a, b, part.envs, length);
+        a = braces.ceiling(start);
+        b = braces.ceiling(oldEnd);
+        if (!bracesDirty && !sameRanges(braces, a, b, part.braces)) {
+            bracesDirty = true;
+        }
+        braces.replace(a, b, part.braces, length);
+        comments.replace(comments.ceiling(start), comments.ceiling(oldEnd), part.comments, length);
+        verbatims.replace(verbatims.ceiling(start), verbatims.ceiling(oldEnd), part.verbatims, length);
+        return true;
+    }
+
+    /**
+     * @return Whether the environment commands or braces from <code>a</code>
+     * to <code>b</code> are the same as the rescanned ones, so that the
+     * matching stays valid
+     */
+    private static boolean sameRanges(Ranges ranges, int a, int b, Ranges r) {
+        if (b - a != r.size()) {
+            return false;
+        }
+        for (int i = 0; i < r.size(); i++) {
+            if (ranges.type(a + i) != r.type(i)
+                    || (ranges.name != null && !ranges.name(a + i).equals(r.name(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether a verbatim environment overlaps the given range
+     */
+    private boolean hasVerbatimEnvironment(int start, int end) {
+        Ranges verbatims = structure.verbatims;
+        for (int v = verbatims.lower(end); v >= 0 && verbatims.end(v) > start; v--) {
+            if (verbatims.type(v) == BEGIN) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rebuild(IDocument document) {
+        String text = document.get();
+        structure = new Structure(text.length());
+        scan(text, 0, Integer.MAX_VALUE, true, structure);
+        dirty = true;
+        bracesDirty = true;
+    }
+
+    /**
+     * Scans a part of the document, from the start of a line up to the
+     * first line start after <code>stopAt</code>.
+     *
+     * @param text The text to scan
+     * @param base The document offset of the text
+     * @param stopAt The document offset after which the scan may stop
+     * @param atEnd Whether the text reaches the end of the document
+     * @param out The structure to add the found ranges to
+     * @return The document offset where the scan stopped, or -1 if the text
+     * ended before the scan could stop
+     */
+    private static int scan(String text, int base, int stopAt, boolean atEnd, Structure out) {
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            if (i + base > stopAt && isLineStart(text, i)) {
+                return i + base;
+            }
+            char c = text.charAt(i);
+            if (c == '%') {
+                int j = i + 1;
+                while (j < n && text.charAt(j) != '\n' && text.charAt(j) != '\r') {
+                    j++;
+                }
+                if (j == n && !atEnd) {
+                    return -1;
+                }
+                out.comments.add(i + base, j + base, '%', null, 0, 0);
+                i = j;
+            } else if (c == '\\') {
+                if (i + 1 == n) {
+                    if (!atEnd) {
+                        return -1;
+                    }
+                    i++;
+                    continue;
+                }
+                if (!Character.isLetter(text.charAt(i + 1))) {
+                    // escaped character
+                    i += 2;
+                    continue;
+                }
+                int j = i + 1;
+                while (j < n && Character.isLetter(text.charAt(j))) {
+                    j++;
+                }
+                if (j == n && !atEnd) {
+                    return -1;
+                }
+                int len = j - i - 1;
+                if ((len == 5 && text.startsWith("begin", i + 1))
+                        || (len == 3 && text.startsWith("end", i + 1))) {
+                    boolean begin = len == 5;
+                    // the argument may follow on the next line, but not
+                    // after an empty line
+                    int k = j;
+                    int breaks = 0;
+                    while (k < n && Character.isWhitespace(text.charAt(k))) {
+                        char w = text.charAt(k);
+                        if ((w == '\n' || (w == '\r' && (k + 1 == n || text.charAt(k + 1) != '\n')))
+                                && ++breaks == 2) {
+                            break;
+                        }
+                        k++;
+                    }
+                    if (k < n && text.charAt(k) == '{') {
+                        int m = k + 1;
+                        while (m < n && "{}\n\r".indexOf(text.charAt(m)) < 0) {
+                            m++;
+                        }
+                        if (m == n && !atEnd) {
+                            return -1;
+                        }
+                        if (m < n && text.charAt(m) == '}') {
+                            String name = text.substring(k + 1, m);
+                            out.envs.add(i + base, m + 1 + base, begin ? BEGIN : END, name, 0, 0);
+                            if (begin && isVerbatim(name)) {
+                                int e = skipVerbatim(text, base, i, m + 1, name, atEnd, out);
+                                if (e < 0) {
+                                    return -1;
+                                }
+                                i = e;
+                                continue;
+                            }
+                        }
+                    } else if (k == n && !atEnd) {
+                        return -1;
+                    }
+                } else if (len == 4 && text.startsWith("verb", i + 1)) {
+                    // \verb|...| or \verb*|...|, the delimiter is on the same line
+                    int d = j < n && text.charAt(j) == '*' ? j + 1 : j;
+                    if (d < n && !Character.isWhitespace(text.charAt(d))) {
+                        char delim = text.charAt(d);
+                        int e = d + 1;
+                        while (e < n && text.charAt(e) != delim
+                                && text.charAt(e) != '\n' && text.charAt(e) != '\r') {
+                            e++;
+                        }
+                        if (e == n && !atEnd) {
+                            return -1;
+                        }
+                        if (e < n && text.charAt(e) == delim) {
+                            out.verbatims.add(i + base, e + 1 + base, VERB, null, d + 1 + base, e + base);
+                            i = e + 1;
+                            continue;
+                        }
+                    }
+                }
+                i = j;
+            } else {
+                if (isPairChar(c)) {
+                    out.braces.add(i + base, i + 1 + base, c, null, 0, 0);
+                }
+                i++;
+            }
+        }
+        return atEnd ? n + base : -1;
+    }
+
+    /**
+     * Skips the content of a verbatim environment, which ends at the first
+     * literal <code>\end{name}</code>.
+     *
+     * @return The index after the end marker or -1 if the text ended
+     * before it
+     */
+    private static int skipVerbatim(String text, int base, int begin, int contentStart,
+            String name, boolean atEnd, Structure out) {
+        String marker = "\\end{" + name + "}";
+        int e = text.indexOf(marker, contentStart);
+        if (e < 0) {
+            if (!atEnd) {
+                return -1;
+            }
+            out.verbatims.add(begin + base, text.length() + base, BEGIN, name,
+                    contentStart + base, text.length() + base);
+            return text.length();
+        }
+        int markerEnd = e + marker.length();
+        out.verbatims.add(begin + base, markerEnd + base, BEGIN, name, contentStart + base, e + base);
+        out.envs.add(e + base, markerEnd + base, END, name, 0, 0);
+        out.braces.add(e + 4 + base, e + 5 + base, '{', null, 0, 0);
+        out.braces.add(markerEnd - 1 + base, markerEnd + base, '}', null, 0, 0);
+        return markerEnd;
+    }
+
+    private static boolean isVerbatim(String name) {
+        for (String env : VERBATIM_ENVS) {
+            if (env.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLineStart(String text, int i) {
+        if (i == 0) {
+            return true;
+        }
+        char p = text.charAt(i - 1);
+        return p == '\n' || (p == '\r' && text.charAt(i) != '\n');
+    }
+
+    /**
+     * Matches the environments with one stack per name.
+     */
+    private void match() {
+        if (!dirty) {
+            return;
+        }
+        Ranges envs = structure.envs;
+        int n = envs.size();
+        if (partner.length < n) {
+            partner = new int[n + n / 2];
+            envPosition = new int[partner.length];
+        }
+        // element 0 of the lists and stacks is the size
+        Map<String, int[]> lists = new HashMap<String, int[]>();
+        Map<String, int[]> stacks = new HashMap<String, int[]>();
+        int openCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            partner[i] = -1;
+            String name = envs.name(i);
+            int[] list = lists.get(name);
+            if (list == null || list[0] + 1 == list.length) {
+                list = list == null ? new int[8] : Arrays.copyOf(list, list.length * 2);
+                lists.put(name, list);
+            }
+            list[++list[0]] = i;
+            envPosition[i] = list[0];
+
+            int[] stack = stacks.get(name);
+            if (envs.type(i) == BEGIN) {
+                if (stack == null || stack[0] + 1 == stack.length) {
+                    stack = stack == null ? new int[8] : Arrays.copyOf(stack, stack.length * 2);
+                    stacks.put(name, stack);
+                }
+                stack[++stack[0]] = i;
+                openCount++;
+            } else if (stack != null && stack[0] > 0) {
+                int b = stack[stack[0]--];
+                partner[b] = i;
+                partner[i] = b;
+                openCount--;
+            }
+        }
+
+        envLists = lists;
+        openBegins = new int[openCount];
+        int k = 0;
+        for (int i = 0; i < n && k < openCount; i++) {
+            if (partner[i] == -1 && envs.type(i) == BEGIN) {
+                openBegins[k++] = i;
+            }
+        }
+        dirty = false;
+    }
+
+    /**
+     * Matches the braces with one stack per type, so a brace matches the
+     * nearest one of its type that counting the braces would find.
+     */
+    private void matchBraces() {
+        if (!bracesDirty) {
+            return;
+        }
+        Ranges braces = structure.braces;
+        int n = braces.size();
+        if (bracePartner.length < n) {
+            bracePartner = new int[n + n / 2];
+            braceOuter = new int[bracePartner.length];
+        }
+        // the innermost open brace of each type, linked by braceOuter
+        int[] open = {-1, -1, -1};
+        for (int i = 0; i < n; i++) {
+            bracePartner[i] = -1;
+            int kind = PAIRS.indexOf(braces.type(i));
+            if (kind % 2 == 0) {
+                braceOuter[i] = open[kind / 2];
+                open[kind / 2] = i;
+            } else if (open[kind / 2] != -1) {
+                int o = open[kind / 2];
+                bracePartner[o] = i;
+                bracePartner[i] = o;
+                open[kind / 2] = braceOuter[o];
+            }
+        }
+        bracesDirty = false;
+    }
+}
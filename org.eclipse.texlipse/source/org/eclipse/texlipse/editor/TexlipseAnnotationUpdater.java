@@ -13,16 +13,16 @@
 
 package org.eclipse.texlipse.editor;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.Set;
 
-import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
-import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
@@ -31,6 +31,7 @@ import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.source.Annotation;
 import org.eclipse.jface.text.source.IAnnotationModel;
+import org.eclipse.jface.text.source.IAnnotationModelExtension;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
@@ -39,6 +40,7 @@ import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.model.DocumentOccurrenceIndex;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 import org.eclipse.texlipse.texparser.LatexParserUtils;
 import org.eclipse.ui.texteditor.AbstractTextEditor;
@@ -59,7 +61,6 @@ public class TexlipseAnnotationUpdater implements ISelectionChangedListener {
 
     private final List<Annotation> fOldAnnotations= new LinkedList<Annotation>();
     private AbstractTextEditor fEditor;
-    private Job fUpdateJob;
     private final static String ANNOTATION_TYPE = "org.eclipse.texlipse.defAnnotation";
     private boolean fEnabled;
 
@@ -98,11 +99,12 @@ public class TexlipseAnnotationUpdater implements ISelectionChangedListener {
 
     /**
      * Updates the annotations. It first checks if the current selection is
-     * already annotated, if not it clears all annotations and tries to detect
-     * if the current selection is part of a \[a-zA-Z]*ref, \label, \begin{...}
-     * or \end{...} string. If the last is true, it searches with regular expressions
-     * to find the associated part(s) and highlights them (The last uses a non UI-Job
-     * which do not influence the responsiveness of the editor). 
+     * already annotated, if not it tries to detect if the current selection
+     * is part of a \[a-zA-Z]*ref, \label, \begin{...} or \end{...} string.
+     * If the last is true, it finds the associated part(s) and highlights them
+     * (environments are looked up in the structure index, references in the
+     * occurrence index of the document), otherwise it clears the annotations.
+     * Only the annotations that differ from the current ones are changed.
      * 
      * @param viewer
      */
@@ -113,17 +115,11 @@ public class TexlipseAnnotationUpdater implements ISelectionChangedListener {
         
         if (testSelection(selection, model)) return;
         
-        if (fUpdateJob != null) {
-            fUpdateJob.cancel();
-        }
-        removeOldAnnotations(model);
-        
-        if (!fEnabled) { 
-            //Feature is turned off, but we have to delete the old annotations 
-            return;
-        }
+        List<IRegion> regions = Collections.emptyList();
+        String annString = null;
         
-        if (selection instanceof ITextSelection) {
+        //If the feature is turned off, we still have to delete the old annotations
+        if (fEnabled && selection instanceof ITextSelection) {
             try {
                 //TODO Split this and create new classes for the different annotations
                 final ITextSelection textSelection = (ITextSelection) selection;
@@ -132,106 +128,40 @@ public class TexlipseAnnotationUpdater implements ISelectionChangedListener {
                 final int lineOff = document.getLineOffset(lineNr);
                 final String line = document.get(lineOff, document.getLineLength(lineNr));
                 IRegion r = LatexParserUtils.getCommand(line, offset - lineOff);
-                if (r == null) return;
-                
-                final String command = line.substring(r.getOffset(), r.getOffset() + r.getLength()).trim();
-                if ("\\begin".equals(command) || "\\end".equals(command)) {
-                    //TODO Its maybe better/faster to use the AST here
-                    IRegion r2 = LatexParserUtils.getCommandArgument(line, r.getOffset());
-                    if (r2 == null) return;
-
-                    final IRegion startRegion = new Region(lineOff + r.getOffset(), r2.getOffset() + r2.getLength() - r.getOffset() + 1);
-
-                    final String refName = line.substring(r2.getOffset(), r2.getOffset() + r2.getLength());
-                    //Create a job to update the annotations in the background
-                    fUpdateJob = createMatchEnvironmentJob(document, model, offset, command, startRegion, refName);
-                    fUpdateJob.setPriority(Job.DECORATE);
-                    fUpdateJob.setSystem(true);
-                    fUpdateJob.schedule();
-                }
-                else if (command.endsWith("ref") || "\\label".equals(command)) {
-                    //TODO Its maybe better/faster to use the AST here
-                    IRegion r2 = LatexParserUtils.getCommandArgument(line, r.getOffset());
-                    if (r2 == null) return;
-
-                    final String refName = line.substring(r2.getOffset(), r2.getOffset() + r2.getLength());
-                    //Create a job to update the annotations in the background
-                    fUpdateJob = createMatchReferenceJob(document, model, refName);
-                    fUpdateJob.setPriority(Job.DECORATE);
-                    fUpdateJob.setSystem(true);
-                    fUpdateJob.schedule();
-                }
-            } catch (BadLocationException ex) {
-                //Do not inform the user cause this is only a decorator
-            }
-        }
-    }
-
-    /**
-     * Creates and returns a background job which searches and highlights all \label and \*ref. 
-     * @param document
-     * @param model
-     * @param refName   The name of the reference
-     * @return The job
-     */
-    private Job createMatchReferenceJob(final IDocument document, final IAnnotationModel model, final String refName) {
-        return
-            new Job("Update Annotations") {
-                public IStatus run(IProgressMonitor monitor) {
-                    String text = document.get();
-                    String refNameRegExp = refName.replaceAll("\\*", "\\\\*");
-                    final String simpleRefRegExp = "\\\\([a-zA-Z]*ref|label)\\s*\\{" + refNameRegExp + "\\}";
-                    Matcher m = (Pattern.compile(simpleRefRegExp)).matcher(text);
-                    while (m.find()) {
-                        if (monitor.isCanceled()) return Status.CANCEL_STATUS;
-                        IRegion match = LatexParserUtils.getCommand(text, m.start());
-                        //Test if it is a real LaTeX command
-                        if (match != null) {
-                            IRegion fi = new Region(m.start(), m.end()-m.start());
-                            createNewAnnotation(fi, "References", model);
+                if (r != null) {
+                    final String command = line.substring(r.getOffset(), r.getOffset() + r.getLength()).trim();
+                    if ("\\begin".equals(command) || "\\end".equals(command)) {
+                        IRegion r2 = LatexParserUtils.getCommandArgument(line, r.getOffset());
+                        if (r2 != null) {
+                            final IRegion startRegion = new Region(lineOff + r.getOffset(), r2.getOffset() + r2.getLength() - r.getOffset() + 1);
+
+                            //The structure index answers this without scanning the document
+                            IRegion peerRegion = TexStructureIndex.getIndex(document).findMatchingEnvironment(startRegion.getOffset());
+                            if (peerRegion != null) {
+                                regions = new ArrayList<IRegion>(2);
+                                regions.add(peerRegion);
+                                regions.add(startRegion);
+                                annString = "Environment";
+                            }
                         }
                     }
-                    return Status.OK_STATUS;
-                }
-        };
-    }
-
-    /**
-     * Creates and returns a new background job which searches and highlights the matching \end or \begin environment.
-     * @param document
-     * @param model
-     * @param offset        The offset of the selection (cursor)
-     * @param command       \begin or \end
-     * @param startRegion   A region which contains the command and the argument (e.g \begin{environment})
-     * @param envName       The name of the environment
-     * @return  The Job
-     */
-    private Job createMatchEnvironmentJob(final IDocument document, final IAnnotationModel model, final int offset, 
-            final String command, final IRegion startRegion, final String envName) {
-        return new Job("Update Annotations") {
-                public IStatus run(IProgressMonitor monitor) {
-                    String text = document.get();
-                    boolean forward = false;
-                    if ("\\begin".equals(command)) forward = true;
-                    if (forward) {
-                        IRegion endRegion = LatexParserUtils.findMatchingEndEnvironment(text, envName, startRegion.getOffset());
-                        if (endRegion != null) {
-                            createNewAnnotation(endRegion, "Environment", model);
-                            createNewAnnotation(startRegion, "Environment", model);
-                        }
-                    } else {
-                        IRegion endRegion = LatexParserUtils.findMatchingBeginEnvironment(text, envName, startRegion.getOffset());
-                        if (endRegion != null) {
-                            createNewAnnotation(endRegion, "Environment", model);
-                            createNewAnnotation(startRegion, "Environment", model);
+                    else if (command.endsWith("ref") || "\\label".equals(command)) {
+                        IRegion r2 = LatexParserUtils.getCommandArgument(line, r.getOffset());
+                        if (r2 != null) {
+                            final String refName = line.substring(r2.getOffset(), r2.getOffset() + r2.getLength());
+                            //The occurrences are known from the last parse
+                            regions = DocumentOccurrenceIndex.getIndex(document).getOccurrences(document, refName);
+                            annString = "References";
                         }
                     }
-                    return Status.OK_STATUS;
                 }
-        };
+            } catch (BadLocationException ex) {
+                //Do not inform the user cause this is only a decorator
+            }
+        }
+        updateAnnotations(regions, annString, model);
     }
 
-
     /**
      * Tests if the selection is already annotated
      * @param selection current selection
@@ -254,30 +184,47 @@ public class TexlipseAnnotationUpdater implements ISelectionChangedListener {
     }
     
     /**
-     * Removes all existing annotations
-     * @param model AnnotationModel
+     * Changes the existing annotations to highlight the given regions. Annotations
+     * that already highlight one of the regions are kept, the others are removed.
+     * @param regions The IRegions which should be highlighted
+     * @param annString The name of new annotations (not important)
+     * @param model The AnnotationModel
      */
-    private void removeOldAnnotations(IAnnotationModel model) {
-
-        for (Iterator<Annotation> it= fOldAnnotations.iterator(); it.hasNext();) {
-            Annotation annotation= (Annotation) it.next();
-            model.removeAnnotation(annotation);
+    private void updateAnnotations(List<IRegion> regions, String annString, IAnnotationModel model) {
+        Set<Position> newPositions = new HashSet<Position>();
+        for (IRegion r : regions) {
+            newPositions.add(new Position(r.getOffset(), r.getLength()));
         }
 
-        fOldAnnotations.clear();
-    }
+        List<Annotation> toRemove = new ArrayList<Annotation>();
+        for (Iterator<Annotation> it = fOldAnnotations.iterator(); it.hasNext();) {
+            Annotation annotation = it.next();
+            Position p = model.getPosition(annotation);
+            if (p == null || !newPositions.remove(p)) {
+                toRemove.add(annotation);
+                it.remove();
+            }
+        }
 
-    /**
-     * Creates a new annotation
-     * @param r The IRegion which should be highlighted
-     * @param annString The name of the annotation (not important)
-     * @param model The AnnotationModel
-     */
-    private void createNewAnnotation(IRegion r, String annString, IAnnotationModel model) {
-            Annotation annotation= new Annotation(ANNOTATION_TYPE, false, annString);
-            Position position= new Position(r.getOffset(), r.getLength());
-            model.addAnnotation(annotation, position);
+        Map<Annotation, Position> toAdd = new HashMap<Annotation, Position>();
+        for (Position position : newPositions) {
+            Annotation annotation = new Annotation(ANNOTATION_TYPE, false, annString);
+            toAdd.put(annotation, position);
             fOldAnnotations.add(annotation);
+        }
+
+        if (toRemove.isEmpty() && toAdd.isEmpty()) return;
+        if (model instanceof IAnnotationModelExtension) {
+            ((IAnnotationModelExtension) model).replaceAnnotations(
+                    toRemove.toArray(new Annotation[toRemove.size()]), toAdd);
+        } else {
+            for (Annotation annotation : toRemove) {
+                model.removeAnnotation(annotation);
+            }
+            for (Map.Entry<Annotation, Position> e : toAdd.entrySet()) {
+                model.addAnnotation(e.getKey(), e.getValue());
+            }
+        }
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,251 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.editor.hover;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.TextUtilities;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.builder.BuilderRegistry;
+import org.eclipse.texlipse.builder.ProgramRunner;
+import org.eclipse.texlipse.editor.TexEditor;
+import org.eclipse.texlipse.editor.partitioner.FastLaTeXPartitionScanner;
+import org.eclipse.texlipse.preview.LatexSnippetRenderer;
+import org.eclipse.texlipse.preview.PreviewCache;
+import org.eclipse.texlipse.properties.TexlipseProperties;
+
+/**
+ * The rendered previews of the formulas of each project, shown by the
+ * hovers. The images are kept in the temporary files directory of the
+ * project. When a formula is missing, all the formulas visible in the
+ * editor are rendered in one latex run in the background.
+ * 
+ * The previews of a project are set up from its temp and source
+ * directories and the latex path. They are dropped when the project is
+ * closed or deleted or when one of these settings changes, and set up
+ * again when next needed. The images already rendered stay on disk.
+ */
+public class FormulaPreviews {
+
+    // the directory of the images in the temp directory
+    private static final String CACHE_DIR = ".preview";
+    private static final int RESOLUTION = 120;
+    // used until the main file has been parsed, ends like the parsed preamble
+    private static final String DEFAULT_PREAMBLE =
+        "\\documentclass{article}\n\\usepackage{amsmath}\n\\usepackage{amssymb}\n\\begin{document}";
+
+    private static final Map<IProject, PreviewCache> caches = new HashMap<IProject, PreviewCache>();
+    // the keys of the formulas in the jobs that are scheduled or running
+    private static final Set<String> pending = new HashSet<String>();
+
+    // drops all the previews when the path of a program changes, see
+    // AbstractProgramRunner.getProgramPath()
+    private static final IPropertyChangeListener preferenceListener = new IPropertyChangeListener() {
+        public void propertyChange(PropertyChangeEvent event) {
+            if (event.getProperty().endsWith("_prog")) {
+                synchronized (FormulaPreviews.class) {
+                    caches.clear();
+                }
+            }
+        }
+    };
+
+    /**
+     * @param text the text of a hover
+     * @return true, if the text is a formula with its delimiters
+     */
+    public static boolean isFormula(String text) {
+        // the region of a \begin{figure} command has no \end, a math environment has
+        return text.startsWith("$") || text.startsWith("\\[") || text.startsWith("\\(")
+                || (text.startsWith("\\begin") && text.indexOf("\\end", 6) > 0);
+    }
+
+    /**
+     * Returns the previews of a project.
+     * 
+     * @param project the project
+     * @return the previews, or null if latex or dvipng wasn't found
+     */
+    public static synchronized PreviewCache getCache(IProject project) {
+        PreviewCache cache = caches.get(project);
+        if (cache == null) {
+            ProgramRunner latex = BuilderRegistry.getRunner(TexlipseProperties.INPUT_FORMAT_TEX,
+                    TexlipseProperties.OUTPUT_FORMAT_DVI, 0);
+            if (latex == null || latex.getProgramPath() == null) {
+                return null;
+            }
+            File latexFile = new File(latex.getProgramPath());
+            File dvipng = new File(latexFile.getParentFile(),
+                    latexFile.getName().endsWith(".exe") ? "dvipng.exe" : "dvipng");
+            if (!latexFile.isFile() || !dvipng.isFile()) {
+                return null;
+            }
+
+            IContainer tempDir = TexlipseProperties.getProjectTempDir(project);
+            IPath dir = (tempDir != null ? tempDir : project).getLocation();
+            IPath sourceDir = TexlipseProperties.getProjectSourceDir(project).getLocation();
+            if (dir == null || sourceDir == null) {
+                return null;
+            }
+            cache = new PreviewCache(dir.append(CACHE_DIR).toFile().toPath(),
+                    new LatexSnippetRenderer(latexFile.getAbsolutePath(), dvipng.getAbsolutePath(),
+                            RESOLUTION, sourceDir.toFile().toPath()));
+            caches.put(project, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * Drops the previews of a project, after it has been closed or
+     * deleted or its temp or source directory has changed.
+     * 
+     * @param project the project
+     */
+    public static synchronized void removeCache(IProject project) {
+        caches.remove(project);
+    }
+
+    /**
+     * Returns the listener that drops the previews when the latex path
+     * changes.
+     * 
+     * @return the listener for the plugin preferences
+     */
+    public static IPropertyChangeListener getPreferenceListener() {
+        return preferenceListener;
+    }
+
+    /**
+     * @param project the project
+     * @return the preamble of the main file of the project
+     */
+    public static String getPreamble(IProject project) {
+        String preamble = (String) TexlipseProperties.getSessionProperty(project,
+                TexlipseProperties.PREAMBLE_PROPERTY);
+        return preamble != null ? preamble : DEFAULT_PREAMBLE;
+    }
+
+    /**
+     * Renders the formula and the other formulas visible in the editor in
+     * the background. Must be called in the UI thread. Nothing is
+     * scheduled if the formula failed before or a job renders it already.
+     * 
+     * @param editor the editor
+     * @param formula the formula that is needed first
+     * @param done run in the UI thread if the formula was rendered
+     */
+    public static void renderVisible(TexEditor editor, final String formula, final Runnable done) {
+        final IProject project = editor.getProject();
+        if (project == null) {
+            return;
+        }
+        final PreviewCache cache = getCache(project);
+        if (cache == null) {
+            return;
+        }
+        final String preamble = getPreamble(project);
+        if (cache.hasFailed(preamble, formula)) {
+            return;
+        }
+        List<String> batch = new ArrayList<String>();
+        batch.add(formula);
+        batch.addAll(getVisibleFormulas(editor.getViewer()));
+        final List<String> formulas = new ArrayList<String>();
+        final List<String> keys = new ArrayList<String>();
+        synchronized (pending) {
+            if (pending.contains(pendingKey(project, preamble, formula))) {
+                return;
+            }
+            for (String f : batch) {
+                String key = pendingKey(project, preamble, f);
+                // the formulas of a running job are left to it
+                if (pending.add(key)) {
+                    formulas.add(f);
+                    keys.add(key);
+                }
+            }
+        }
+        final Display display = Display.getCurrent();
+
+        Job job = new Job(TexlipsePlugin.getResourceString("previewRenderJob")) {
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    cache.render(preamble, formulas);
+                } catch (IOException e) {
+                    TexlipsePlugin.log("Rendering the formula previews", e);
+                    return Status.CANCEL_STATUS;
+                } finally {
+                    synchronized (pending) {
+                        pending.removeAll(keys);
+                    }
+                }
+                if (done != null && cache.get(preamble, formula) != null && !display.isDisposed()) {
+                    display.asyncExec(done);
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+        job.schedule();
+    }
+
+    private static String pendingKey(IProject project, String preamble, String formula) {
+        return project.getName() + '/' + PreviewCache.key(preamble, formula);
+    }
+
+    /**
+     * @param viewer the viewer of an editor
+     * @return the text of the math partitions on the screen
+     */
+    private static List<String> getVisibleFormulas(ITextViewer viewer) {
+        List<String> formulas = new ArrayList<String>();
+        IDocument document = viewer.getDocument();
+        int top = viewer.getTopIndexStartOffset();
+        int bottom = viewer.getBottomIndexEndOffset();
+        try {
+            ITypedRegion[] partitions = TextUtilities.computePartitioning(document,
+                    TexEditor.TEX_PARTITIONING, top, bottom - top, false);
+            for (ITypedRegion partition : partitions) {
+                if (FastLaTeXPartitionScanner.TEX_MATH.equals(partition.getType())) {
+                    formulas.add(document.get(partition.getOffset(), partition.getLength()));
+                }
+            }
+        } catch (BadLocationException e) {
+            // the document changed, render the formula alone
+        }
+        return formulas;
+    }
+}
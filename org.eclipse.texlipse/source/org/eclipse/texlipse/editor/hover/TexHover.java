@@ -19,8 +19,11 @@ import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextHover;
 import org.eclipse.jface.text.ITextHoverExtension;
 import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.jface.text.ITypedRegion;
 import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.texlipse.editor.TexEditor;
+import org.eclipse.texlipse.editor.partitioner.FastLaTeXPartitionScanner;
 import org.eclipse.texlipse.texparser.LatexParserUtils;
 
 /**
@@ -65,12 +68,31 @@ public class TexHover implements ITextHover, ITextHoverExtension {
             int start = offset - lOffset;
 
             IRegion r = LatexParserUtils.getCommand(line, start);
-            if (r == null) return new Region(offset, 0);
+            if (r == null) {
+                // the whole formula, for the rendered preview
+                ITypedRegion partition = TextUtilities.getPartition(textViewer.getDocument(),
+                        TexEditor.TEX_PARTITIONING, offset, false);
+                if (FastLaTeXPartitionScanner.TEX_MATH.equals(partition.getType())) {
+                    return partition;
+                }
+                return new Region(offset, 0);
+            }
 
-            IRegion rArg = LatexParserUtils.getCommandArgument(line, r.getOffset());
+            String command = line.substring(r.getOffset()+1, r.getOffset() + r.getLength());
+            int argStart = r.getOffset();
+            if (command.equals("includegraphics")) {
+                // skip the options to get the file
+                int end = r.getOffset() + r.getLength();
+                int close = line.indexOf(']', end);
+                if (end < line.length() && line.charAt(end) == '[' && close > 0
+                        && close + 1 < line.length()) {
+                    argStart = close + 1;
+                }
+            }
+
+            IRegion rArg = LatexParserUtils.getCommandArgument(line, argStart);
             if (rArg == null) return new Region(lOffset + r.getOffset(), r.getLength());
             
-            String command = line.substring(r.getOffset()+1, r.getOffset() + r.getLength());
             if (command.indexOf("cite") >= 0 && start > r.getOffset() + r.getLength()) {
                 //Return only the citation entry, not the full command string
                 int cEnd = rArg.getOffset() + rArg.getLength();
@@ -13,10 +13,19 @@
 
 package org.eclipse.texlipse.editor.hover;
 
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IInformationControl;
 import org.eclipse.jface.text.IInformationControlExtension;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.events.DisposeListener;
@@ -26,6 +35,7 @@ import org.eclipse.swt.events.PaintListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.layout.GridData;
@@ -39,6 +49,8 @@ import org.eclipse.texlipse.model.AbstractEntry;
 import org.eclipse.texlipse.model.ReferenceEntry;
 import org.eclipse.texlipse.model.ReferenceManager;
 import org.eclipse.texlipse.model.TexCommandEntry;
+import org.eclipse.texlipse.preview.PreviewCache;
+import org.eclipse.texlipse.properties.TexlipseProperties;
 
 /**
  * This class creates a informative hover for commands and BibTex entries.
@@ -49,11 +61,22 @@ import org.eclipse.texlipse.model.TexCommandEntry;
 public class TexInformationControl implements IInformationControl,
         IInformationControlExtension {
     
+    // included figures are scaled down to this many pixels
+    private static final int MAX_FIGURE_SIZE = 300;
+    // the extensions tried for an included graphics file
+    private static final String[] FIGURE_EXTENSIONS = { "", ".png", ".jpg", ".jpeg", ".gif" };
+
     private AbstractEntry entry = null;
     private ReferenceManager refMana;
     private IDocument document;
     private TexEditor editor;
     private Image image;
+    // the descriptor of the image, which is released when the hover changes
+    private ImageDescriptor imageDesc;
+    // the rendered formula or the included figure, disposed when the hover changes
+    private Image previewImage;
+    // the formula shown, null if the hover isn't for a formula
+    private String formula;
     private Composite imageComposite;
     private Composite textComposite;
     private Shell shell;
@@ -183,7 +206,7 @@ public class TexInformationControl implements IInformationControl,
         if (bibentry != null) {
             entry = bibentry;
             initTextBox();
-            hoverText.setText(bibentry.info);
+            hoverText.setText(bibentry.getInfo());
         }
     }
 
@@ -201,32 +224,166 @@ public class TexInformationControl implements IInformationControl,
             entry = label;
             initTextBox();
             
-            hoverText.setText(label.info);
+            hoverText.setText(label.getInfo());
             return true;
         }
         return false;
     }
     
+    /**
+     * Sets the hover for a formula, showing its rendered preview if it
+     * has been rendered. Otherwise the visible formulas are rendered, and
+     * the preview is added to the hover if it is still open.
+     * 
+     * @param text the formula with its delimiters
+     */
+    private void setFormulaHover(final String text) {
+        formula = text;
+        final IProject project = editor.getProject();
+        final PreviewCache cache = project != null ? FormulaPreviews.getCache(project) : null;
+        Path preview = cache != null ? cache.get(FormulaPreviews.getPreamble(project), text) : null;
+        if (preview != null) {
+            // an unreadable image leaves the text alone
+            loadPreview(preview);
+        } else if (cache != null) {
+            FormulaPreviews.renderVisible(editor, text, new Runnable() {
+                public void run() {
+                    if (shell.isDisposed() || hasImage || !text.equals(formula)) {
+                        return;
+                    }
+                    Path preview = cache.get(FormulaPreviews.getPreamble(project), text);
+                    if (preview != null && loadPreview(preview)) {
+                        imageComposite.moveAbove(textComposite);
+                        resize();
+                    }
+                }
+            });
+        }
+        initTextBox();
+        hoverText.setText(text);
+    }
+
+    /**
+     * Shows a rendered preview.
+     * 
+     * @param preview the image file
+     * @return true, if the image could be read
+     */
+    private boolean loadPreview(Path preview) {
+        ImageData data;
+        try {
+            data = new ImageData(preview.toString());
+        } catch (SWTException e) {
+            return false;
+        }
+        setPreview(data);
+        return true;
+    }
+
+    /**
+     * Sets the hover for an included graphics file, if it is an image
+     * that can be shown.
+     * 
+     * @param name the file name, maybe without its extension
+     * @return true, if the image was found
+     */
+    private boolean setFigureHover(String name) {
+        File file = findFigure(name);
+        if (file == null) {
+            return false;
+        }
+        ImageData data;
+        try {
+            data = new ImageData(file.getPath());
+        } catch (SWTException e) {
+            return false;
+        }
+        if (data.width > MAX_FIGURE_SIZE || data.height > MAX_FIGURE_SIZE) {
+            double scale = (double) MAX_FIGURE_SIZE / Math.max(data.width, data.height);
+            data = data.scaledTo(Math.max(1, (int) (data.width * scale)),
+                    Math.max(1, (int) (data.height * scale)));
+        }
+        setPreview(data);
+        initTextBox();
+        hoverText.setText(name);
+        return true;
+    }
+
+    /**
+     * Finds an included graphics file next to the edited file or in the
+     * source directory of the project.
+     * 
+     * @param name the file name, maybe without its extension
+     * @return the file, or null if there is no file SWT can show
+     */
+    private File findFigure(String name) {
+        if (name.length() == 0) {
+            return null;
+        }
+        List<File> dirs = new ArrayList<File>();
+        IResource res = (IResource) editor.getEditorInput().getAdapter(IResource.class);
+        if (res != null && res.getLocation() != null) {
+            dirs.add(res.getLocation().toFile().getParentFile());
+        }
+        IProject project = editor.getProject();
+        if (project != null && TexlipseProperties.getProjectSourceDir(project).getLocation() != null) {
+            dirs.add(TexlipseProperties.getProjectSourceDir(project).getLocation().toFile());
+        }
+        for (File dir : dirs) {
+            for (String ext : FIGURE_EXTENSIONS) {
+                File file = new File(dir, name + ext);
+                String lower = file.getName().toLowerCase();
+                if (file.isFile() && (lower.endsWith(".png") || lower.endsWith(".gif")
+                        || lower.endsWith(".jpg") || lower.endsWith(".jpeg"))) {
+                    return file;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Shows an image owned by this hover.
+     * 
+     * @param data the image
+     */
+    private void setPreview(ImageData data) {
+        previewImage = new Image(display, data);
+        image = previewImage;
+        hasImage = true;
+        createImageComp();
+    }
+
     /* (non-Javadoc)
      * @see org.eclipse.jface.text.IInformationControl#setInformation(java.lang.String)
      */
     public void setInformation(String information) {
         entry = null;
         hasImage = false;
-        // Only processing of commands
-        if (information.startsWith("\\")) {
+        formula = null;
+        releaseImage();
+        if (FormulaPreviews.isFormula(information)) {
+            setFormulaHover(information);
+            resize();
+        } else if (information.startsWith("\\")) {
+            // Only processing of commands
             String command = information.substring(1);
             if (command.indexOf("ref") > -1 && command.indexOf("{") > -1) {
                 if (!setRefHover(getArgument(command)))
                     return; 
+            } else if (command.startsWith("includegraphics") && setFigureHover(getArgument(command))) {
+                // the image of the file is shown
             } else {
                 TexCommandEntry comEntries = refMana.getEntry(getCommand(command));
                 if (comEntries != null) {
                     entry = comEntries;
                     if (comEntries.imageDesc != null) {
-                        hasImage = true;
-                        image = comEntries.getImage();
-                        createImageComp();
+                        image = TexlipsePlugin.getSharedImages().acquire(comEntries.imageDesc);
+                        if (image != null) {
+                            hasImage = true;
+                            imageDesc = comEntries.imageDesc;
+                            createImageComp();
+                        }
                     }
                     initTextBox();
                     if (comEntries.info != null) {
@@ -235,25 +392,32 @@ public class TexInformationControl implements IInformationControl,
                 } else
                     return;
             }
-            shell.pack();
-            int w = shell.getSize().x;
-            int h = shell.getSize().y;
-            int fontHeight = hoverText.getFont().getFontData()[0].getHeight() + 2;
-            if (w > maxWidth) {
-                int plus = (h * w) / maxWidth - h;
-                if (plus % fontHeight != 0)
-                    plus = (plus / fontHeight + 1) * fontHeight;
-                h += plus;
-                w = maxWidth;
-            }
-            shell.setSize(w, h);
-            shell.layout();
+            resize();
         } else {
             // if there's just text, then it's a bibtex-entry
             setBibHover(information.trim());
         }
     }
 
+    /**
+     * Sizes the shell to its contents, wrapping the text at the maximum width.
+     */
+    private void resize() {
+        shell.pack();
+        int w = shell.getSize().x;
+        int h = shell.getSize().y;
+        int fontHeight = hoverText.getFont().getFontData()[0].getHeight() + 2;
+        if (w > maxWidth) {
+            int plus = (h * w) / maxWidth - h;
+            if (plus % fontHeight != 0)
+                plus = (plus / fontHeight + 1) * fontHeight;
+            h += plus;
+            w = maxWidth;
+        }
+        shell.setSize(w, h);
+        shell.layout();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -313,9 +477,26 @@ public class TexInformationControl implements IInformationControl,
      * @see org.eclipse.jface.text.IInformationControl#dispose()
      */
     public void dispose() {
+        releaseImage();
         shell.dispose();
     }
 
+    /**
+     * Releases the image of the last hover.
+     */
+    private void releaseImage() {
+        if (imageDesc != null) {
+            TexlipsePlugin.getSharedImages().release(imageDesc);
+            imageDesc = null;
+            image = null;
+        }
+        if (previewImage != null) {
+            previewImage.dispose();
+            previewImage = null;
+            image = null;
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
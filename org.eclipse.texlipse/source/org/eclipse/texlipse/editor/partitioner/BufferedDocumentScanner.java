@@ -44,6 +44,8 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
     private int fBufferLength;
     /** The offset of the scanner within the buffer. */
     private int fOffset;
+    /** The number of reads past the end of the range that were not unread. */
+    private int fEOFReads;
 
 
     /**
@@ -98,6 +100,7 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 
         updateBuffer(offset);
         fOffset= 0;
+        fEOFReads= 0;
     }
 
     /*
@@ -107,8 +110,10 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
 
         if (fOffset == fBufferLength) {
             int end= fBufferOffset + fBufferLength;
-            if (end == fDocument.getLength() || end == fRangeOffset + fRangeLength)
+            if (end == fDocument.getLength() || end == fRangeOffset + fRangeLength) {
+                fEOFReads++;
                 return EOF;
+            }
             else {
                 updateBuffer(fBufferOffset + fBufferLength);
                 fOffset= 0;
@@ -140,7 +145,10 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
      */
     public final void unread() {
 
-        if (fOffset == 0) {
+        if (fEOFReads > 0) {
+            // the EOF didn't move the scanner
+            fEOFReads--;
+        } else if (fOffset == 0) {
             if (fBufferOffset == fRangeOffset) {
                 // error: BOF
             } else {
@@ -152,6 +160,15 @@ public final class BufferedDocumentScanner implements ICharacterScanner {
         }
     }
 
+    /**
+     * Returns the document offset of the next character to read.
+     *
+     * @return the offset of the scanner
+     */
+    public final int getOffset() {
+        return fBufferOffset + fOffset;
+    }
+
     /*
      * @see ICharacterScanner#getColumn()
      */
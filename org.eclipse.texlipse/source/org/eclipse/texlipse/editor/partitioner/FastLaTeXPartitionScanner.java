@@ -13,6 +13,10 @@
 
 package org.eclipse.texlipse.editor.partitioner;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.rules.ICharacterScanner;
 import org.eclipse.jface.text.rules.IPartitionTokenScanner;
@@ -22,6 +26,14 @@ import org.eclipse.jface.text.rules.Token;
 
 /**
  * This scanner recognizes math, verbatim and comments.
+ * 
+ * Inside long math and environment partitions the scanner keeps a
+ * checkpoint of its state every few lines. When the
+ * <code>FastLaTeXPartitioner</code> reports an edit, a damaged partition
+ * is scanned again from the last checkpoint before the edit instead of
+ * from its start, and the scanning of the partition stops at the first
+ * checkpoint after the edit that is reached in the same state, because
+ * the partition ends where it ended before.
  */
 public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
 
@@ -82,9 +94,80 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
     private int fTokenLength;
     private String currContentType;
 
+    // the kinds of checkpoints
+    private static final int DOLLAR_MATH = 0;
+    private static final int ENVIRONMENT = 1;
+    /** The number of lines between checkpoints */
+    private static final int CHECKPOINT_LINES = 32;
+
+    /**
+     * The state of the scanner at the start of a line inside a partition
+     */
+    private static final class Checkpoint {
+        int offset;
+        int partitionOffset;
+        int partitionEnd;
+        final int kind;
+        // the character after the opening $, or the environment name
+        final int terminator;
+        final String envName;
+        // the text before was edited, only usable for finding the end
+        boolean pending;
+
+        Checkpoint(int offset, int kind, int terminator, String envName) {
+            this.offset = offset;
+            this.kind = kind;
+            this.terminator = terminator;
+            this.envName = envName;
+            this.partitionEnd = -1;
+        }
+
+        boolean hasState(int kind, int terminator, String envName) {
+            return this.kind == kind && this.terminator == terminator
+                    && (envName == null ? this.envName == null : envName.equals(this.envName));
+        }
+    }
+
+    /** The checkpoints sorted by offset */
+    private final List<Checkpoint> fCheckpoints = new ArrayList<Checkpoint>();
+    /** The checkpoints passed while scanning the current token */
+    private final List<Checkpoint> fNewCheckpoints = new ArrayList<Checkpoint>();
+    private int fPendingCount;
+    private boolean fEdited;
+    private int fEditOffset;
+    private boolean fRepairing;
+    private IDocument fDocument;
+    private int fRangeEnd;
+    private Checkpoint fResume;
+    private int fScanStart;
+    private int fJumpOffset;
+    private int fLines;
+    // the token doesn't start where the scanner is
+    private boolean fMisaligned;
+
     public void setPartialRange(IDocument document, int offset, int length, String contentType, int partitionOffset) {
+        if (fEdited) {
+            fRepairing = true;
+        } else {
+            // the checkpoints can't be moved without knowing the edit
+            clearCheckpoints();
+        }
+        fDocument = document;
+        fRangeEnd = offset + length;
+        fResume = null;
+        if (!IDocument.DEFAULT_CONTENT_TYPE.equals(contentType) && partitionOffset != -1
+                && partitionOffset <= offset && fEdited) {
+            fResume = findResumePoint(contentType, partitionOffset);
+        }
+        if (fResume != null) {
+            // the partition is the same up to the last checkpoint before the edit
+            fScanner.setRange(document, fResume.offset, fRangeEnd - fResume.offset);
+            fTokenOffset= partitionOffset;
+            fTokenLength= 0;
+            currContentType = null;
+        }
         //Set start of range to partitionOffset if contentType is not default
-        if(!IDocument.DEFAULT_CONTENT_TYPE.equals(contentType) && partitionOffset != -1 && partitionOffset < offset){
+        else if(!IDocument.DEFAULT_CONTENT_TYPE.equals(contentType) && partitionOffset != -1 && partitionOffset < offset){
             fScanner.setRange(document, partitionOffset, length+(offset-partitionOffset));
             fTokenOffset= partitionOffset;
             fTokenLength= 0;
@@ -99,6 +182,10 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
     }
 
     public void setRange(IDocument document, int offset, int length) {
+        clearCheckpoints();
+        fDocument = document;
+        fRangeEnd = offset + length;
+        fResume = null;
         currContentType = null;
         fScanner.setRange(document, offset, length);
         fTokenOffset= offset;
@@ -120,7 +207,33 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
     public IToken nextToken() {
         fTokenOffset += fTokenLength;
         fTokenLength= 0;
-        
+        fLines = 0;
+        fJumpOffset = -1;
+
+        Checkpoint resume = fResume;
+        fResume = null;
+        IToken token;
+        if (resume != null) {
+            fScanStart = resume.offset;
+            fMisaligned = false;
+            if (resume.kind == DOLLAR_MATH) {
+                token = scanDollarMath(resume.terminator, resume.offset);
+            } else {
+                token = checkForEndEnv(resume.envName, resume.offset);
+            }
+        } else {
+            fScanStart = fTokenOffset;
+            fMisaligned = fScanner.getOffset() != fTokenOffset;
+            token = scanToken();
+        }
+        if (!token.isEOF()) {
+            updateCheckpoints(resume != null);
+        }
+        fNewCheckpoints.clear();
+        return token;
+    }
+
+    private IToken scanToken() {
         int ch= fScanner.read();
         if(ch == ICharacterScanner.EOF){
             fTokenLength++;
@@ -136,6 +249,10 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
         switch (ch) {
         case '\\':
             int c1 = fScanner.read();
+            if (c1 == ICharacterScanner.EOF) {
+                fTokenLength++;
+                return fTokens[TEX];
+            }
             if (c1 != 'b' && c1 != '[' && c1 != '('
                     && c1 != 'v' && c1 != 'l' && c1 != 't') {
                 fTokenLength+=2;
@@ -168,7 +285,7 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
                         return fTokens[MATH];
                     }
                     else if (ch == ICharacterScanner.EOF){
-                        fTokenLength = offsetEnd-fTokenOffset-1;
+                        fTokenLength = fRangeEnd - fTokenOffset;
                         return fTokens[MATH];
                     }
                 }
@@ -187,42 +304,10 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
                 return fTokens[TEX];                                  
             }
         case '$':
-            int offsetEnd = fTokenOffset;
             c1 = fScanner.read();
-            offsetEnd+=2;
-            while (true) {
-                ch = fScanner.read();
-                offsetEnd++;
-                if (ch == '\\'){
-                    ch = fScanner.read();
-                    offsetEnd++;
-                    if (ch == '[' || ch == ']' || ch == '(' || ch == ')'){
-                        //Something is wrong here
-                        //Tag everything except \( as MATH and stop
-                        fScanner.unread();
-                        fScanner.unread();
-                        offsetEnd -= 2;
-                        fTokenLength = offsetEnd-fTokenOffset;
-                        return fTokens[MATH];                         
-                    }
-                }
-                else if (ch == '%') {
-                    offsetEnd += ignoreComment();
-                }
-                else if (ch == '$' && c1 != '$') {
-                    fTokenLength = offsetEnd-fTokenOffset;
-                    return fTokens[MATH];
-                }
-                else if (ch == '$') {
-                    c1 = ' ';
-                }
-                else if (ch == ICharacterScanner.EOF) {
-                    fTokenLength = offsetEnd-fTokenOffset-1;
-                    return fTokens[MATH];
-                }
-            }
+            return scanDollarMath(c1, fTokenOffset + 2);
         case '%':
-            offsetEnd = fTokenOffset;
+            int offsetEnd = fTokenOffset;
             offsetEnd++;
             while (true) {
                 ch = fScanner.read();
@@ -234,7 +319,7 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
                     return fTokens[COMMENT];
                 }
                 else if (ch == ICharacterScanner.EOF) {
-                    fTokenLength = offsetEnd-fTokenOffset-1;
+                    fTokenLength = fRangeEnd - fTokenOffset;
                     return fTokens[COMMENT];
                 }
             }
@@ -256,6 +341,52 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
         }
     }
 
+    /**
+     * Scans $...$ or $$...$$ math to its end.
+     * 
+     * @param c1 The character after the opening $, or a space after the
+     * first closing $ of $$ math
+     * @param offsetEnd The offset of the scanner
+     */
+    private IToken scanDollarMath(int c1, int offsetEnd) {
+        while (true) {
+            int ch = fScanner.read();
+            offsetEnd++;
+            if (ch == '\\'){
+                ch = fScanner.read();
+                offsetEnd++;
+                if (ch == '[' || ch == ']' || ch == '(' || ch == ')'){
+                    //Something is wrong here
+                    //Tag everything except \( as MATH and stop
+                    fScanner.unread();
+                    fScanner.unread();
+                    offsetEnd -= 2;
+                    fTokenLength = offsetEnd-fTokenOffset;
+                    return fTokens[MATH];                         
+                }
+            }
+            else if (ch == '%') {
+                offsetEnd += ignoreComment();
+            }
+            else if (ch == '$' && c1 != '$') {
+                fTokenLength = offsetEnd-fTokenOffset;
+                return fTokens[MATH];
+            }
+            else if (ch == '$') {
+                c1 = ' ';
+            }
+            else if (ch == '\n') {
+                if (lineStart(DOLLAR_MATH, c1, null, offsetEnd)) {
+                    return fTokens[MATH];
+                }
+            }
+            else if (ch == ICharacterScanner.EOF) {
+                fTokenLength = fRangeEnd - fTokenOffset;
+                return fTokens[MATH];
+            }
+        }
+    }
+
     private int ignoreComment() {
         int ch = fScanner.read();
         int r=1;
@@ -301,7 +432,11 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
             ch = fScanner.read();
             offsetEnd++;
         }
-        if (ch != verbch) offsetEnd--;
+        if (ch != verbch) {
+            // the line break belongs to the next token
+            fScanner.unread();
+            offsetEnd--;
+        }
         fTokenLength = offsetEnd-fTokenOffset;
         return fTokens[VERBATIM];
     }
@@ -345,7 +480,7 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
                 else if (ch == ICharacterScanner.EOF) {
                     // Something got screwed up when setting optional arguments
                     // for the environment - mark everything as plain latex
-                    fTokenLength = offsetEnd - fTokenOffset - 1;
+                    fTokenLength = fRangeEnd - fTokenOffset;
                     return fTokens[TEX];
                 }
             }
@@ -372,7 +507,7 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
                 }
             }
             else if (ch == ICharacterScanner.EOF) {
-                fTokenLength = offsetEnd - fTokenOffset - 1;
+                fTokenLength = fRangeEnd - fTokenOffset;
                 return fTokens[TIKZPIC];
             }
         }
@@ -452,18 +587,221 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
                     offsetEnd++;
                 }
                 String envName = b.toString();
+                if (ch == ICharacterScanner.EOF) {
+                    fTokenLength = fRangeEnd - fTokenOffset;
+                    return fTokens[getEnvIndex(name)];
+                }
                 if (envName.equals(name)) {
                     fTokenLength = offsetEnd-fTokenOffset;
                     return fTokens[getEnvIndex(envName)];
                 }
             }
+            else if (ch == '\n') {
+                if (lineStart(ENVIRONMENT, 0, name, offsetEnd)) {
+                    return fTokens[getEnvIndex(name)];
+                }
+            }
             else if (ch == ICharacterScanner.EOF) {
-                fTokenLength = offsetEnd-fTokenOffset-1;
+                fTokenLength = fRangeEnd - fTokenOffset;
                 return fTokens[getEnvIndex(name)];
             }
         }
     }
 
+    /**
+     * Called at the start of each line inside a math or environment
+     * partition. Either records a checkpoint or, if a checkpoint from
+     * before an edit is found here in the same state, ends the token
+     * where its partition ended before.
+     * 
+     * @param kind The kind of the partition
+     * @param terminator The state of $ math
+     * @param envName The name of the environment
+     * @param offset The offset of the line
+     * @return true if the token was ended
+     */
+    private boolean lineStart(int kind, int terminator, String envName, int offset) {
+        if (fMisaligned) {
+            // the offsets of the token are off
+            return false;
+        }
+        if (fPendingCount > 0) {
+            int i = indexOf(offset);
+            if (i < fCheckpoints.size()) {
+                Checkpoint cp = fCheckpoints.get(i);
+                if (cp.offset == offset && cp.pending
+                        && cp.partitionEnd >= offset && cp.partitionEnd <= fRangeEnd
+                        && cp.hasState(kind, terminator, envName)) {
+                    // the rest is scanned as before the edit
+                    fJumpOffset = offset;
+                    fTokenLength = cp.partitionEnd - fTokenOffset;
+                    fScanner.setRange(fDocument, cp.partitionEnd, fRangeEnd - cp.partitionEnd);
+                    return true;
+                }
+            }
+        }
+        if (++fLines % CHECKPOINT_LINES == 0) {
+            fNewCheckpoints.add(new Checkpoint(offset, kind, terminator, envName));
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the checkpoints of the text scanned for the current token
+     * by the ones passed, and marks the checkpoints inside the token as
+     * belonging to its partition.
+     * 
+     * @param resumed Whether the token was resumed at a checkpoint
+     */
+    private void updateCheckpoints(boolean resumed) {
+        int tokenEnd = fTokenOffset + fTokenLength;
+        int scanned = fJumpOffset != -1 ? fJumpOffset : tokenEnd + 1;
+        int from = indexOf(fTokenOffset);
+        // a partition overlapping the token is no longer known
+        while (from > 0 && fCheckpoints.get(from - 1).partitionEnd > fTokenOffset) {
+            if (fCheckpoints.remove(--from).pending) {
+                fPendingCount--;
+            }
+        }
+        if (tokenEnd > fDocument.getLength()) {
+            // the partitioner ignores a token past the end
+            fNewCheckpoints.clear();
+            scanned = tokenEnd + 1;
+            resumed = false;
+        }
+        from = indexOf(resumed ? fScanStart + 1 : fTokenOffset);
+        int to = from;
+        while (to < fCheckpoints.size() && fCheckpoints.get(to).offset < scanned) {
+            if (fCheckpoints.get(to).pending) {
+                fPendingCount--;
+            }
+            to++;
+        }
+        if (to > from) {
+            fCheckpoints.subList(from, to).clear();
+        }
+        for (Checkpoint cp : fNewCheckpoints) {
+            // a line ending the document is not in the partition
+            if (cp.offset < tokenEnd) {
+                fCheckpoints.add(from++, cp);
+            }
+        }
+
+        for (int i = indexOf(fTokenOffset + 1); i < fCheckpoints.size(); i++) {
+            Checkpoint cp = fCheckpoints.get(i);
+            if (cp.offset >= tokenEnd) {
+                break;
+            }
+            if (cp.pending) {
+                cp.pending = false;
+                fPendingCount--;
+            }
+            cp.partitionOffset = fTokenOffset;
+            cp.partitionEnd = tokenEnd;
+        }
+    }
+
+    /**
+     * Returns the checkpoint to resume the scanning of a partition at.
+     * 
+     * @param contentType The type of the partition
+     * @param partitionOffset The start of the partition
+     * @return The last checkpoint of the partition before the edit,
+     * or null if there is none
+     */
+    private Checkpoint findResumePoint(String contentType, int partitionOffset) {
+        int i = indexOf(fEditOffset) - 1;
+        if (i < 0) {
+            return null;
+        }
+        Checkpoint cp = fCheckpoints.get(i);
+        if (cp.pending || cp.partitionOffset != partitionOffset || cp.offset <= partitionOffset) {
+            return null;
+        }
+        int type = cp.kind == DOLLAR_MATH ? MATH : getEnvIndex(cp.envName);
+        return contentType.equals(fTokens[type].getData()) ? cp : null;
+    }
+
+    /**
+     * @return The index of the first checkpoint at or after the offset
+     */
+    private int indexOf(int offset) {
+        int low = 0;
+        int high = fCheckpoints.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (fCheckpoints.get(mid).offset < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void clearCheckpoints() {
+        fCheckpoints.clear();
+        fPendingCount = 0;
+        fEdited = false;
+        fRepairing = false;
+    }
+
+    /**
+     * Moves the checkpoints for an edit of the document. The checkpoints
+     * before the edit stay valid; the ones after it are moved and only
+     * used for finding where the repair can stop.
+     * 
+     * @param event The document event
+     */
+    void documentAboutToBeChanged(DocumentEvent event) {
+        if (fEdited) {
+            // the previous edit wasn't repaired
+            clearCheckpoints();
+            return;
+        }
+        int offset = event.getOffset();
+        int end = offset + event.getLength();
+        fEditOffset = offset;
+        int delta = (event.getText() == null ? 0 : event.getText().length()) - event.getLength();
+        int from = indexOf(offset);
+        int to = from;
+        while (to < fCheckpoints.size() && fCheckpoints.get(to).offset < end) {
+            to++;
+        }
+        fCheckpoints.subList(from, to).clear();
+        for (int i = from; i < fCheckpoints.size(); i++) {
+            Checkpoint cp = fCheckpoints.get(i);
+            cp.offset += delta;
+            cp.partitionEnd += delta;
+            if (cp.partitionOffset >= end) {
+                cp.partitionOffset += delta;
+            }
+            cp.pending = true;
+        }
+        fPendingCount = fCheckpoints.size() - from;
+        fEdited = true;
+        fRepairing = false;
+    }
+
+    /**
+     * Called after the partitioning has been repaired for an edit. The
+     * checkpoints after the repaired text are valid again.
+     */
+    void documentChanged() {
+        if (!fRepairing) {
+            clearCheckpoints();
+            return;
+        }
+        if (fPendingCount > 0) {
+            for (Checkpoint cp : fCheckpoints) {
+                cp.pending = false;
+            }
+            fPendingCount = 0;
+        }
+        fEdited = false;
+        fRepairing = false;
+    }
+
     private IToken scanBracket(int openChar, int closeChar, int type, int currentOffset) {
         int ch;
         int offsetEnd = currentOffset;
@@ -489,7 +827,7 @@ public class FastLaTeXPartitionScanner implements IPartitionTokenScanner {
                 offsetEnd++;
             }
             else if (ch == ICharacterScanner.EOF) {
-                fTokenLength = offsetEnd - fTokenOffset - 1;
+                fTokenLength = fRangeEnd - fTokenOffset;
                 return fTokens[type];
             }
         }
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.editor.partitioner;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.rules.FastPartitioner;
+
+/**
+ * The partitioner of LaTeX documents. Tells the
+ * <code>FastLaTeXPartitionScanner</code> about the edits of the document,
+ * so that it can repair a damaged partition from its checkpoints.
+ * <p>
+ * A math partition ends before a following <code>\)</code> or
+ * <code>\]</code>, so an edit one character after the end of a partition
+ * can change it. <code>FastPartitioner</code> doesn't scan the partition
+ * before an edit again, so such an edit is passed on as a replacement of
+ * the character between them too.
+ */
+public class FastLaTeXPartitioner extends FastPartitioner {
+
+    // the edit as passed to FastPartitioner and the scanner
+    private DocumentEvent fEvent;
+
+    /**
+     * Creates a new partitioner with a new scanner.
+     */
+    public FastLaTeXPartitioner() {
+        super(new FastLaTeXPartitionScanner(), FastLaTeXPartitionScanner.TEX_PARTITION_TYPES);
+    }
+
+    /*
+     * @see org.eclipse.jface.text.rules.FastPartitioner#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+     */
+    public void documentAboutToBeChanged(DocumentEvent e) {
+        super.documentAboutToBeChanged(e);
+        fEvent = widen(e);
+        ((FastLaTeXPartitionScanner) fScanner).documentAboutToBeChanged(fEvent);
+    }
+
+    /*
+     * @see org.eclipse.jface.text.rules.FastPartitioner#documentChanged2(org.eclipse.jface.text.DocumentEvent)
+     */
+    public IRegion documentChanged2(DocumentEvent e) {
+        DocumentEvent event = fEvent != null && fEvent.getDocument() == e.getDocument() ? fEvent : e;
+        fEvent = null;
+        try {
+            return super.documentChanged2(event);
+        } finally {
+            ((FastLaTeXPartitionScanner) fScanner).documentChanged();
+        }
+    }
+
+    /**
+     * Extends the edit over the character before it, if a partition ends
+     * right before that character. Only the partitions next to that
+     * character are looked at, found by a binary search.
+     * 
+     * @param e The edit of the document
+     * @return The edit to pass on
+     */
+    private DocumentEvent widen(DocumentEvent e) {
+        int offset = e.getOffset();
+        if (fDocument == null || offset == 0) {
+            return e;
+        }
+        try {
+            // the document's positions as cached by FastPartitioner
+            Position[] positions = getPositions();
+            // the first partition starting at or after the character
+            int i = fDocument.computeIndexInCategory(getManagingPositionCategories()[0], offset - 1);
+            for (int j = Math.max(i - 1, 0); j <= i && j < positions.length; j++) {
+                Position p = positions[j];
+                if (p.getOffset() + p.getLength() == offset - 1) {
+                    String text = e.getText() == null ? "" : e.getText();
+                    return new DocumentEvent(e.getDocument(), offset - 1, e.getLength() + 1,
+                            fDocument.getChar(offset - 1) + text);
+                }
+            }
+        } catch (BadPositionCategoryException ex) {
+            // not connected
+        } catch (BadLocationException ex) {
+            // can't happen, offset is in the document
+        }
+        return e;
+    }
+}
@@ -0,0 +1,26 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+/**
+ * A lookup of content assist proposals for labels, citations or commands.
+ * Only created if <code>Events.AVAILABLE</code>.
+ */
+public class CompletionEvent extends TimedEvent {
+
+    // what is completed: ref, cite, citeSearch, citeFields or command
+    public String kind;
+    public int queryLength;
+    public int results;
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+
+/**
+ * Records the events of this package. The plugin only has a recorder
+ * that does nothing; the <code>org.eclipse.texlipse.jfr</code> fragment
+ * provides one that writes flight recorder events.
+ */
+public interface EventRecorder {
+
+    /**
+     * Starts the recording of an event.
+     * 
+     * @param event the event
+     * @return the state of the recording, or null if the event isn't recorded
+     */
+    Object begin(TimedEvent event);
+
+    /**
+     * @param recorded the state returned by <code>begin</code>
+     * @return true, if the event will be recorded when it is committed
+     */
+    boolean shouldCommit(Object recorded);
+
+    /**
+     * Records an event with its fields.
+     * 
+     * @param event the event
+     * @param recorded the state returned by <code>begin</code>
+     */
+    void commit(TimedEvent event, Object recorded);
+
+    /**
+     * Starts following the performance recording preference.
+     * 
+     * @param store the preference store of the plugin
+     */
+    void start(IPreferenceStore store);
+
+    /**
+     * Stops following the preference and writes the running recording.
+     */
+    void stop();
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+import org.eclipse.jface.preference.IPreferenceStore;
+
+/**
+ * Holds the recorder of the events of this package.
+ * <p>
+ * Java Flight Recorder needs Java 11, and the plugin is compiled for
+ * Java 8. The recorder that writes flight recorder events lives in the
+ * <code>org.eclipse.texlipse.jfr</code> fragment, which shares the class
+ * loader of the plugin. Without the fragment the recorder does nothing
+ * and <code>AVAILABLE</code> is false, so the call sites create their
+ * event like this:
+ * <pre>
+ * ParseEvent event = Events.AVAILABLE ? new ParseEvent() : null;
+ * if (event != null) {
+ *     event.begin();
+ * }
+ * ...
+ * if (event != null &amp;&amp; event.shouldCommit()) {
+ *     event.length = ...;
+ *     event.commit();
+ * }
+ * </pre>
+ * When no recording is running, <code>shouldCommit()</code> is false and
+ * the event costs an allocation that the JIT usually removes.
+ */
+public final class Events {
+
+    // the recorder of the fragment
+    private static final String FLIGHT_RECORDER = "org.eclipse.texlipse.jfr.internal.FlightRecorder";
+
+    /**
+     * A recorder that records nothing.
+     */
+    public static final EventRecorder NONE = new EventRecorder() {
+        public Object begin(TimedEvent event) {
+            return null;
+        }
+
+        public boolean shouldCommit(Object recorded) {
+            return false;
+        }
+
+        public void commit(TimedEvent event, Object recorded) {
+        }
+
+        public void start(IPreferenceStore store) {
+        }
+
+        public void stop() {
+        }
+    };
+
+    private static final EventRecorder recorder = loadRecorder();
+
+    /**
+     * Whether the events are recorded when a recording is running.
+     */
+    public static final boolean AVAILABLE = recorder != NONE;
+
+    private Events() {
+    }
+
+    /**
+     * @return the recorder, <code>NONE</code> if the fragment isn't installed
+     */
+    public static EventRecorder getRecorder() {
+        return recorder;
+    }
+
+    private static EventRecorder loadRecorder() {
+        try {
+            Class<?> c = Class.forName(FLIGHT_RECORDER, true, Events.class.getClassLoader());
+            return (EventRecorder) c.newInstance();
+        } catch (ClassNotFoundException e) {
+            return NONE;
+        } catch (InstantiationException e) {
+            return NONE;
+        } catch (IllegalAccessException e) {
+            return NONE;
+        } catch (LinkageError e) {
+            // the fragment on a runtime without jdk.jfr
+            return NONE;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+/**
+ * The run of an external program from its start to the end of its
+ * output. Only created if <code>Events.AVAILABLE</code>.
+ */
+public class ExternalProcessEvent extends TimedEvent {
+
+    public String command;
+    public String directory;
+    // the number of characters the program wrote
+    public int outputLength;
+    // the exit code, or -1 if the program was not waited for
+    public int exitCode;
+}
@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+/**
+ * The update of the code folds of an editor after a parse. Only created
+ * if <code>Events.AVAILABLE</code>.
+ */
+public class FoldingEvent extends TimedEvent {
+
+    public int outlineNodes;
+    // whether the folds were created from scratch
+    public boolean initial;
+}
@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+/**
+ * The update of the outline, the folds and the label occurrences of an
+ * editor in the UI thread after a parse. Only created if
+ * <code>Events.AVAILABLE</code>.
+ */
+public class OutlineUpdateEvent extends TimedEvent {
+
+    public String file;
+    public int outlineNodes;
+    // the nodes of the full outline of the project, 0 if it is not shown
+    public int projectOutlineNodes;
+}
@@ -0,0 +1,31 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+/**
+ * The parse of a LaTeX document in the background after the user stops
+ * typing. Only created if <code>Events.AVAILABLE</code>.
+ */
+public class ParseEvent extends TimedEvent {
+
+    public String file;
+    // the number of characters in the document
+    public int length;
+    public int outlineNodes;
+    // the number of \ref commands
+    public int references;
+    // the number of \cite commands
+    public int citations;
+    public int errors;
+}
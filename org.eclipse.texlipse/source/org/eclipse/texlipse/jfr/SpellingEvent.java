@@ -0,0 +1,27 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+/**
+ * The spell check of a whole document. Only created if
+ * <code>Events.AVAILABLE</code>.
+ */
+public class SpellingEvent extends TimedEvent {
+
+    public String file;
+    public String engine;
+    public int length;
+    public int lines;
+    public int misspellings;
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.jfr;
+
+/**
+ * An event of TeXlipse with a duration. The fields are set by the
+ * subclasses and copied to the recording when the event is committed.
+ * <p>
+ * The events don't depend on Java Flight Recorder, which the plugin can't
+ * compile against. The recorder of <code>Events</code> turns them into
+ * flight recorder events if the <code>org.eclipse.texlipse.jfr</code>
+ * fragment is installed.
+ */
+public abstract class TimedEvent {
+
+    // the event of the recorder, null if this event isn't recorded
+    private Object recorded;
+
+    /**
+     * Starts the timing of the event.
+     */
+    public void begin() {
+        recorded = Events.getRecorder().begin(this);
+    }
+
+    /**
+     * @return true, if the event is recorded and its fields should be set
+     */
+    public boolean shouldCommit() {
+        return recorded != null && Events.getRecorder().shouldCommit(recorded);
+    }
+
+    /**
+     * Ends the timing of the event and records it with its fields.
+     */
+    public void commit() {
+        if (recorded != null) {
+            Events.getRecorder().commit(this, recorded);
+            recorded = null;
+        }
+    }
+}
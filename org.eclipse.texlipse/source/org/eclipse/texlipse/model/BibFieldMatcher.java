@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches a typed string against the author and title of BibTeX entries,
+ * for completing a citation when the key isn't known.
+ *
+ * An entry matches if the string occurs in its author or title (case
+ * insensitively), or if the string can be split into pieces that start
+ * successive words of them. Words are separated by non-alphanumeric
+ * characters and case changes, so "knart" and "dekn" both match
+ * "Donald E. Knuth, The Art of Computer Programming".
+ *
+ * Like <code>PrefixIndex</code> the matcher remembers the last result.
+ * A string extending the last one only matches entries the last one
+ * matched, so only those are tested again. A search stops when enough
+ * entries have been found; such a partial result is not narrowed.
+ */
+public final class BibFieldMatcher {
+
+    private final List<ReferenceEntry> entries;
+    // the lower case texts and the offsets of their words, as chars
+    private String[] texts;
+    private String[] words;
+
+    private String lastQuery;
+    private int[] lastHits;
+    private int lastHitCount;
+    private boolean lastComplete;
+
+    // the word match state, see matchWords
+    private int[] best = new int[16];
+
+    /**
+     * Creates a matcher over the given entries. The texts of the entries
+     * are collected on the first match.
+     *
+     * @param entries The BibTeX entries
+     */
+    public BibFieldMatcher(List<ReferenceEntry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the entries whose author or title matches the given string.
+     *
+     * @param query The typed string
+     * @param max The maximum number of entries to return
+     * @return The matching entries in the order of the entry list
+     */
+    public synchronized List<ReferenceEntry> getMatches(String query, int max) {
+        query = lowerCase(query);
+        if (texts == null) {
+            collectTexts();
+        }
+        if (best.length <= query.length()) {
+            best = new int[query.length() + 1];
+        }
+
+        int[] hits;
+        int hitCount = 0;
+        boolean complete = true;
+        if (lastQuery != null && lastComplete && query.startsWith(lastQuery)) {
+            // only the last matches can match a longer string
+            hits = lastHits;
+            for (int i = 0; i < lastHitCount; i++) {
+                int e = lastHits[i];
+                if (matches(e, query)) {
+                    hits[hitCount++] = e;
+                }
+            }
+        } else {
+            hits = lastHits != null ? lastHits : new int[texts.length];
+            for (int e = 0; e < texts.length; e++) {
+                if (matches(e, query)) {
+                    if (hitCount == max) {
+                        complete = false;
+                        break;
+                    }
+                    hits[hitCount++] = e;
+                }
+            }
+        }
+        lastQuery = query;
+        lastHits = hits;
+        lastHitCount = hitCount;
+        lastComplete = complete;
+
+        int n = Math.min(hitCount, max);
+        List<ReferenceEntry> result = new ArrayList<ReferenceEntry>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(entries.get(hits[i]));
+        }
+        return result;
+    }
+
+    private void collectTexts() {
+        texts = new String[entries.size()];
+        words = new String[entries.size()];
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < texts.length; i++) {
+            String text = textOf(entries.get(i));
+            sb.setLength(0);
+            for (int j = 0; j < text.length() && j <= Character.MAX_VALUE; j++) {
+                if (isWordStart(text, j)) {
+                    sb.append((char) j);
+                }
+            }
+            texts[i] = lowerCase(text);
+            words[i] = sb.toString();
+        }
+    }
+
+    /**
+     * Converts the string to lower case one character at a time, so the
+     * word offsets taken from the original text stay valid and the
+     * result doesn't depend on the locale. <code>String.toLowerCase</code>
+     * can change the length, e.g. for a dotted capital I.
+     */
+    private static String lowerCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @return The author and title of the entry, or its descriptive text
+     * if the fields are not available separately
+     */
+    private static String textOf(ReferenceEntry entry) {
+        String author = entry.author != null ? entry.author : entry.getField("author");
+        String title = entry.getField("title");
+        if (title == null) {
+            title = entry.getInfo();
+        }
+        if (author == null) {
+            return title != null ? title : "";
+        }
+        return title != null ? author + " " + title : author;
+    }
+
+    private static boolean isWordStart(String text, int i) {
+        char c = text.charAt(i);
+        if (!Character.isLetterOrDigit(c)) {
+            return false;
+        }
+        if (i == 0) {
+            return true;
+        }
+        char p = text.charAt(i - 1);
+        return !Character.isLetterOrDigit(p)
+                || (Character.isUpperCase(c) && Character.isLowerCase(p))
+                || (Character.isDigit(c) != Character.isDigit(p));
+    }
+
+    /**
+     * @param e The index of the entry
+     * @param query The lower case string
+     * @return True if the text of the entry contains the string or its
+     * words start with the pieces of the string
+     */
+    private boolean matches(int e, String query) {
+        return texts[e].indexOf(query) >= 0 || matchWords(texts[e], words[e], query);
+    }
+
+    /**
+     * Tests if the query can be split into pieces that start successive
+     * words of the text. <code>best[i]</code> is the smallest index of
+     * the word after the pieces matching the first <code>i</code>
+     * characters; a smaller index leaves more words for the rest, so the
+     * other ways of matching those characters need not be followed.
+     */
+    private boolean matchWords(String text, String words, String query) {
+        int length = query.length();
+        int wordCount = words.length();
+        for (int i = 1; i <= length; i++) {
+            best[i] = Integer.MAX_VALUE;
+        }
+        best[0] = 0;
+        for (int qi = 0; qi < length; qi++) {
+            if (best[qi] == Integer.MAX_VALUE) {
+                continue;
+            }
+            for (int w = best[qi]; w < wordCount; w++) {
+                int s = words.charAt(w);
+                int n = 0;
+                while (qi + n < length && s + n < text.length()
+                        && text.charAt(s + n) == query.charAt(qi + n)) {
+                    n++;
+                    if (best[qi + n] > w + 1) {
+                        best[qi + n] = w + 1;
+                    }
+                }
+            }
+        }
+        return best[length] != Integer.MAX_VALUE;
+    }
+}
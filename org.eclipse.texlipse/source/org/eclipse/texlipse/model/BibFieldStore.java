@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar storage for the fields of the BibTeX entries of one file.
+ *
+ * The field values of all entries are packed as UTF-8 into one shared
+ * byte array, and entry types and field names are stored once as
+ * indices into a name table. The descriptive text of an entry (formerly
+ * kept as a string in each <code>ReferenceEntry</code>) is rendered on
+ * demand from this data.
+ *
+ * A store is filled by a single parser thread and is read-only after
+ * <code>trim()</code> has been called, so it can be shared freely.
+ */
+public final class BibFieldStore {
+
+    private String[] names = new String[32];
+    private int nameCount;
+    private Map<String, Integer> nameIds = new HashMap<String, Integer>();
+
+    /**
+     * Pool for deduplicating repeated strings (e.g. authors), dropped by trim()
+     */
+    private Map<String, String> strings = new HashMap<String, String>();
+
+    // per entry: type name index and index of the first field
+    private int[] entryType = new int[256];
+    private int[] entryFields = new int[256];
+    private int entryCount;
+
+    // per field: name index and start of the value in the pool
+    private int[] fieldName = new int[1024];
+    private int[] fieldValue = new int[1024];
+    private int fieldCount;
+
+    private byte[] pool = new byte[16 * 1024];
+    private int poolLength;
+
+    // marks for discarding a partial entry
+    private int markFields;
+    private int markPool;
+
+    /**
+     * Starts a new entry.
+     *
+     * @param type The entry type as written in the file
+     * @return The index of the new entry
+     */
+    public int beginEntry(String type) {
+        if (entryCount == entryType.length) {
+            entryType = Arrays.copyOf(entryType, entryCount * 2);
+            entryFields = Arrays.copyOf(entryFields, entryCount * 2);
+        }
+        entryType[entryCount] = nameId(type);
+        entryFields[entryCount] = fieldCount;
+        markFields = fieldCount;
+        markPool = poolLength;
+        return entryCount;
+    }
+
+    /**
+     * Starts a new field in the current entry.
+     *
+     * @param name The (lower case) name of the field
+     */
+    public void beginField(String name) {
+        if (fieldCount == fieldName.length) {
+            fieldName = Arrays.copyOf(fieldName, fieldCount * 2);
+            fieldValue = Arrays.copyOf(fieldValue, fieldCount * 2);
+        }
+        fieldName[fieldCount] = nameId(name);
+        fieldValue[fieldCount] = poolLength;
+        fieldCount++;
+    }
+
+    /**
+     * Appends text to the value of the current field.
+     *
+     * @param text The text to append
+     */
+    public void appendValue(String text) {
+        int len = text.length();
+        ensurePool(3 * len);
+        byte[] b = pool;
+        int p = poolLength;
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                b[p++] = (byte) c;
+            } else if (c < 0x800) {
+                b[p++] = (byte) (0xC0 | (c >> 6));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                // surrogates are stored as such, they only need to
+                // survive the round trip
+                b[p++] = (byte) (0xE0 | (c >> 12));
+                b[p++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[p++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        poolLength = p;
+    }
+
+    /**
+     * Finishes the current entry.
+     */
+    public void endEntry() {
+        entryCount++;
+        markFields = fieldCount;
+        markPool = poolLength;
+    }
+
+    /**
+     * Discards the fields of the current, unfinished entry. Does nothing
+     * if there is no such entry.
+     */
+    public void abortEntry() {
+        fieldCount = markFields;
+        poolLength = markPool;
+    }
+
+    /**
+     * Returns a shared instance of a string equal to the given one, so that
+     * values repeated in many entries (authors, journals, years) are only
+     * kept once.
+     *
+     * @param s The string
+     * @return An equal string, shared by all callers
+     */
+    public String intern(String s) {
+        if (strings == null) {
+            return s;
+        }
+        String shared = strings.get(s);
+        if (shared == null) {
+            strings.put(s, s);
+            shared = s;
+        }
+        return shared;
+    }
+
+    /**
+     * Releases the unused space after all entries have been added.
+     */
+    public void trim() {
+        entryType = Arrays.copyOf(entryType, entryCount);
+        entryFields = Arrays.copyOf(entryFields, entryCount);
+        fieldName = Arrays.copyOf(fieldName, fieldCount);
+        fieldValue = Arrays.copyOf(fieldValue, fieldCount);
+        pool = Arrays.copyOf(pool, poolLength);
+        names = Arrays.copyOf(names, nameCount);
+        nameIds = null;
+        strings = null;
+    }
+
+    /**
+     * @return The number of entries in this store
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * @param entry The index of the entry
+     * @return The type of the entry as written in the file
+     */
+    public String getType(int entry) {
+        return names[entryType[entry]];
+    }
+
+    /**
+     * Returns the value of a field of an entry. If the field appears more
+     * than once, the first value is returned.
+     *
+     * @param entry The index of the entry
+     * @param name The (lower case) name of the field
+     * @return The value of the field or null if the entry doesn't have it
+     */
+    public String getField(int entry, String name) {
+        int end = fieldsEnd(entry);
+        for (int f = entryFields[entry]; f < end; f++) {
+            if (names[fieldName[f]].equals(name)) {
+                StringBuilder sb = new StringBuilder(valueEnd(f) - fieldValue[f]);
+                decode(sb, fieldValue[f], valueEnd(f));
+                return sb.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renders the descriptive text of an entry: the type on the first line
+     * and one <code>field: value</code> line per field.
+     *
+     * @param entry The index of the entry
+     * @return The descriptive text
+     */
+    public String getInfo(int entry) {
+        int start = entryFields[entry];
+        int end = fieldsEnd(entry);
+        int size = 0;
+        if (end > start) {
+            size = valueEnd(end - 1) - fieldValue[start] + 16 * (end - start);
+        }
+        StringBuilder sb = new StringBuilder(size + 16);
+        sb.append(names[entryType[entry]]);
+        sb.append('\n');
+        for (int f = start; f < end; f++) {
+            sb.append(names[fieldName[f]]);
+            sb.append(": ");
+            decode(sb, fieldValue[f], valueEnd(f));
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return A rough estimate of the heap used by this store in bytes
+     */
+    public long getHeapSize() {
+        long size = 64 + pool.length + 4L * (entryType.length + entryFields.length
+                + fieldName.length + fieldValue.length) + 8L * names.length;
+        for (int i = 0; i < nameCount; i++) {
+            size += 40 + names[i].length();
+        }
+        return size;
+    }
+
+    private int fieldsEnd(int entry) {
+        return entry + 1 < entryCount ? entryFields[entry + 1] : fieldCount;
+    }
+
+    private int valueEnd(int field) {
+        return field + 1 < fieldCount ? fieldValue[field + 1] : poolLength;
+    }
+
+    private void decode(StringBuilder sb, int start, int end) {
+        byte[] b = pool;
+        int i = start;
+        while (i < end) {
+            int c = b[i++];
+            if (c >= 0) {
+                sb.append((char) c);
+            } else if ((c & 0xE0) == 0xC0) {
+                sb.append((char) (((c & 0x1F) << 6) | (b[i++] & 0x3F)));
+            } else {
+                sb.append((char) (((c & 0x0F) << 12) | ((b[i] & 0x3F) << 6)
+                        | (b[i + 1] & 0x3F)));
+                i += 2;
+            }
+        }
+    }
+
+    private int nameId(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            if (nameCount == names.length) {
+                names = Arrays.copyOf(names, nameCount * 2);
+            }
+            names[nameCount] = name;
+            id = Integer.valueOf(nameCount++);
+            nameIds.put(name, id);
+        }
+        return id.intValue();
+    }
+
+    private void ensurePool(int extra) {
+        if (poolLength + extra > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolLength + extra));
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.bibparser.BibParser;
+
+/**
+ * Plugin-wide cache of parsed BibTeX files, shared by the reference
+ * containers of all projects.
+ *
+ * Files are keyed by their canonical path and validated by size and
+ * modification time on every lookup, so external changes are noticed.
+ * If only the modification time differs, the content checksum taken
+ * while the file was parsed decides; it is the only case in which a
+ * cached file is read again without being parsed. Changes in the workspace are also
+ * picked up from resource change events. The cache is bounded by the
+ * estimated size of the entries and evicts the least recently used files.
+ *
+ * The cached entry lists are unmodifiable and must not be changed.
+ */
+public class BibFileCache implements IResourceChangeListener {
+
+    /**
+     * The default upper bound of the estimated cache size in bytes
+     */
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+
+    private static BibFileCache theInstance;
+
+    /**
+     * The parse result of one file, as seen under one file name
+     */
+    public static final class Result {
+        private final List<ReferenceEntry> entries;
+        private final List<ParseErrorMessage> errors;
+        private final BibTermIndex termIndex;
+        private final IOException readError;
+
+        private Result(List<ReferenceEntry> entries, List<ParseErrorMessage> errors,
+                BibTermIndex termIndex) {
+            this.entries = entries;
+            this.errors = errors;
+            this.termIndex = termIndex;
+            this.readError = null;
+        }
+
+        private Result(IOException readError) {
+            this.entries = null;
+            this.errors = null;
+            this.termIndex = null;
+            this.readError = readError;
+        }
+
+        /**
+         * @return The entries of the file (unmodifiable)
+         * @throws IOException If the file could not be read
+         */
+        public List<ReferenceEntry> getEntries() throws IOException {
+            if (readError != null) {
+                throw readError;
+            }
+            return entries;
+        }
+
+        /**
+         * @return The syntax errors of the file (unmodifiable)
+         */
+        public List<ParseErrorMessage> getErrors() {
+            return errors;
+        }
+
+        /**
+         * @return The index of the words of the entries, or null if the
+         * file could not be read
+         */
+        public BibTermIndex getTermIndex() {
+            return termIndex;
+        }
+    }
+
+    /**
+     * A cached file
+     */
+    private static final class CachedBib {
+        final long length;
+        long lastModified;
+        final long checksum;
+        final String fileName;
+        final List<ReferenceEntry> entries;
+        final List<ParseErrorMessage> errors;
+        final BibTermIndex termIndex;
+        final Map<String, List<ReferenceEntry>> views = new HashMap<String, List<ReferenceEntry>>(2);
+        long size;
+
+        CachedBib(long length, long lastModified, long checksum, String fileName,
+                List<ReferenceEntry> entries, List<ParseErrorMessage> errors,
+                BibTermIndex termIndex) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.checksum = checksum;
+            this.fileName = fileName;
+            this.entries = entries;
+            this.errors = errors;
+            this.termIndex = termIndex;
+            this.size = estimateSize(entries) + termIndex.getHeapSize();
+        }
+    }
+
+    private final LinkedHashMap<String, CachedBib> cache =
+            new LinkedHashMap<String, CachedBib>(16, 0.75f, true);
+    private long totalSize;
+    private long maxSize = DEFAULT_MAX_SIZE;
+
+    private BibFileCache() {
+    }
+
+    /**
+     * Returns the sole instance of the cache
+     *
+     * @return The BibFileCache
+     */
+    public static synchronized BibFileCache getInstance() {
+        if (theInstance == null) {
+            theInstance = new BibFileCache();
+        }
+        return theInstance;
+    }
+
+    /**
+     * Sets the upper bound of the estimated cache size, evicting files
+     * if necessary.
+     *
+     * @param maxSize The maximum size in bytes
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * Returns the parsed contents of the given files, parsing those that
+     * are not cached or have changed. The files to parse are parsed
+     * concurrently.
+     *
+     * @param filepaths The absolute paths of the files
+     * @param fileNames The names under which the entries are referred to
+     * (stored into <code>ReferenceEntry.fileName</code>)
+     * @return The results, in the order of <code>filepaths</code>
+     */
+    public List<Result> load(List<String> filepaths, List<String> fileNames) {
+        int n = filepaths.size();
+        Result[] results = new Result[n];
+        String[] keys = new String[n];
+        long[] stamps = new long[2 * n];
+        List<BibParser> parsers = new ArrayList<BibParser>();
+        List<Integer> toParse = new ArrayList<Integer>();
+
+        for (int i = 0; i < n; i++) {
+            try {
+                File file = new File(filepaths.get(i));
+                keys[i] = file.getCanonicalPath();
+                stamps[2 * i] = file.length();
+                stamps[2 * i + 1] = file.lastModified();
+                CachedBib cb = lookup(keys[i], file, stamps[2 * i], stamps[2 * i + 1]);
+                if (cb != null) {
+                    results[i] = view(cb, fileNames.get(i));
+                } else {
+                    parsers.add(new BibParser(filepaths.get(i)));
+                    toParse.add(Integer.valueOf(i));
+                }
+            } catch (IOException e) {
+                results[i] = new Result(e);
+            }
+        }
+
+        BibParser.parseAll(parsers);
+
+        for (int j = 0; j < parsers.size(); j++) {
+            int i = toParse.get(j).intValue();
+            BibParser parser = parsers.get(j);
+            try {
+                List<ReferenceEntry> entries = parser.getEntries();
+                String fileName = fileNames.get(i);
+                for (ReferenceEntry re : entries) {
+                    re.fileName = fileName;
+                }
+                // indexed here, in the parsing thread, not when completing
+                List<ReferenceEntry> unmodifiable = Collections.unmodifiableList(entries);
+                CachedBib cb = new CachedBib(stamps[2 * i], stamps[2 * i + 1], parser.getChecksum(),
+                        fileName, unmodifiable,
+                        Collections.unmodifiableList(parser.getErrors()),
+                        new BibTermIndex(unmodifiable));
+                File file = new File(keys[i]);
+                if (file.length() == cb.length && file.lastModified() == cb.lastModified) {
+                    store(keys[i], cb);
+                }
+                results[i] = new Result(cb.entries, cb.errors, cb.termIndex);
+            } catch (IOException e) {
+                results[i] = new Result(e);
+            }
+        }
+
+        List<Result> list = new ArrayList<Result>(n);
+        Collections.addAll(list, results);
+        return list;
+    }
+
+    /**
+     * Removes the given file from the cache.
+     *
+     * @param filepath The path of the file
+     */
+    public void invalidate(String filepath) {
+        String key;
+        try {
+            key = new File(filepath).getCanonicalPath();
+        } catch (IOException e) {
+            key = new File(filepath).getAbsolutePath();
+        }
+        synchronized (this) {
+            CachedBib cb = cache.remove(key);
+            if (cb != null) {
+                totalSize -= cb.size;
+            }
+        }
+    }
+
+    /**
+     * Removes all files from the cache.
+     */
+    public synchronized void clear() {
+        cache.clear();
+        totalSize = 0;
+    }
+
+    /**
+     * Invalidates the changed and removed BibTeX files in the workspace.
+     *
+     * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+     */
+    public void resourceChanged(IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if (delta == null) {
+            return;
+        }
+        try {
+            delta.accept(new IResourceDeltaVisitor() {
+                public boolean visit(IResourceDelta delta) {
+                    IResource res = delta.getResource();
+                    if (res.getType() != IResource.FILE) {
+                        return true;
+                    }
+                    if (!"bib".equals(res.getFileExtension())) {
+                        return false;
+                    }
+                    boolean changed = delta.getKind() == IResourceDelta.REMOVED
+                            || (delta.getFlags() & (IResourceDelta.CONTENT
+                                    | IResourceDelta.REPLACED)) != 0;
+                    IPath location = res.getLocation();
+                    if (changed && location != null) {
+                        invalidate(location.toOSString());
+                    }
+                    return false;
+                }
+            });
+        } catch (CoreException ce) {
+            TexlipsePlugin.log("Processing BibTeX file changes", ce);
+        }
+    }
+
+    /**
+     * Finds a cached file and checks that it is still valid.
+     *
+     * @return The cached file or null
+     */
+    private CachedBib lookup(String key, File file, long length, long lastModified)
+            throws IOException {
+        CachedBib cb;
+        synchronized (this) {
+            cb = cache.get(key);
+        }
+        if (cb == null || cb.length != length) {
+            return null;
+        }
+        if (cb.lastModified != lastModified) {
+            // same size, but possibly changed
+            if (checksum(file) != cb.checksum) {
+                return null;
+            }
+            synchronized (this) {
+                cb.lastModified = lastModified;
+            }
+        }
+        return cb;
+    }
+
+    private synchronized void store(String key, CachedBib cb) {
+        CachedBib old = cache.put(key, cb);
+        if (old != null) {
+            totalSize -= old.size;
+        }
+        totalSize += cb.size;
+        evict();
+    }
+
+    /**
+     * Returns the entries of the file as seen under the given file name.
+     * If the name differs from the one the file was parsed for, the
+     * entries are copied once.
+     */
+    private Result view(CachedBib cb, String fileName) {
+        if (cb.fileName.equals(fileName)) {
+            return new Result(cb.entries, cb.errors, cb.termIndex);
+        }
+        List<ReferenceEntry> view;
+        synchronized (this) {
+            view = cb.views.get(fileName);
+            if (view == null) {
+                List<ReferenceEntry> copies = new ArrayList<ReferenceEntry>(cb.entries.size());
+                for (ReferenceEntry re : cb.entries) {
+                    ReferenceEntry copy = (ReferenceEntry) re.copy();
+                    copy.fileName = fileName;
+                    copies.add(copy);
+                }
+                view = Collections.unmodifiableList(copies);
+                cb.views.put(fileName, view);
+                // the strings are shared, only count the objects
+                long added = 48L * copies.size();
+                cb.size += added;
+                if (cache.containsValue(cb)) {
+                    totalSize += added;
+                    evict();
+                }
+            }
+        }
+        return new Result(view, cb.errors, cb.termIndex.forEntries(view));
+    }
+
+    /**
+     * Evicts least recently used files until the cache fits its bounds.
+     * Always keeps the most recently used file.
+     */
+    private void evict() {
+        Iterator<CachedBib> iter = cache.values().iterator();
+        while (totalSize > maxSize && cache.size() > 1 && iter.hasNext()) {
+            CachedBib cb = iter.next();
+            totalSize -= cb.size;
+            iter.remove();
+        }
+    }
+
+    /**
+     * @return A rough estimate of the heap used by the entries in bytes
+     */
+    private static long estimateSize(List<ReferenceEntry> entries) {
+        long size = 0;
+        BibFieldStore store = null;
+        for (ReferenceEntry re : entries) {
+            // author, journal and year are shared through the store
+            size += 56 + stringSize(re.key) + stringSize(re.info);
+            if (re.getFieldStore() != null && re.getFieldStore() != store) {
+                store = re.getFieldStore();
+                size += store.getHeapSize();
+            }
+        }
+        return size;
+    }
+
+    private static long stringSize(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    /**
+     * @return The CRC-32 checksum of the contents of the file
+     */
+    private static long checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[64 * 1024];
+        InputStream in = new FileInputStream(file);
+        try {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                crc.update(buf, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,388 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index over the words of the fields of the BibTeX entries
+ * of one file, for finding entries by author, title words, year etc.
+ *
+ * The words of the author, editor, title, year, journal and booktitle
+ * fields are lower cased and folded to ASCII letters, with LaTeX accents
+ * and braces removed and letter commands replaced by their letters, so
+ * <code>M{\"u}ller</code> and <code>M\"uller</code> are indexed as
+ * <code>muller</code> and <code>Gro{\ss}</code> as <code>gross</code>. Each
+ * word has a posting list of the entries containing it, together with
+ * the weight of the most important field it occurs in.
+ *
+ * A query is split and folded the same way, so "M&uuml;ller" finds
+ * <code>M{\"u}ller</code>; an entry matches if each
+ * query word is a prefix of one of its words. Matches are ranked by the
+ * sum of the field weights, doubled for whole-word matches, so that
+ * "smith 2019 graph" finds a 2019 paper by Smith about graphs before a
+ * paper citing Smith in its title.
+ *
+ * The index is immutable and is built once per parsed file, in the
+ * thread that parses it. It refers to the entries by their position in
+ * the file, so the same index serves the copies of the entries made for
+ * other file names (see <code>forEntries</code>).
+ */
+public final class BibTermIndex {
+
+    /**
+     * A matching entry and its score
+     */
+    public static final class Hit {
+        private final ReferenceEntry entry;
+        private final int score;
+
+        Hit(ReferenceEntry entry, int score) {
+            this.entry = entry;
+            this.score = score;
+        }
+
+        /**
+         * @return The matching entry
+         */
+        public ReferenceEntry getEntry() {
+            return entry;
+        }
+
+        /**
+         * @return The score of the match, higher is better
+         */
+        public int getScore() {
+            return score;
+        }
+    }
+
+    // the indexed fields and their weights (at most 7)
+    private static final String[] FIELDS = {"author", "editor", "title", "year", "journal", "booktitle"};
+    private static final int[] WEIGHTS = {4, 2, 3, 3, 1, 1};
+    private static final int INFO_WEIGHT = 1;
+
+    // the letters of the LaTeX commands for letters, folded
+    private static final Map<String, String> LETTERS = new HashMap<String, String>();
+    static {
+        String[] letters = {"o", "o", "O", "o", "ss", "ss", "SS", "ss", "ae", "ae", "AE", "ae",
+                "oe", "oe", "OE", "oe", "aa", "a", "AA", "a", "l", "l", "L", "l", "i", "i", "j", "j",
+                "dh", "d", "DH", "d", "dj", "d", "DJ", "d", "th", "th", "TH", "th", "ng", "ng", "NG", "ng"};
+        for (int i = 0; i < letters.length; i += 2) {
+            LETTERS.put(letters[i], letters[i + 1]);
+        }
+    }
+    // the accents named by a letter, like \c{c} or \v s
+    private static final String LETTER_ACCENTS = "bcdHkrtuv";
+
+    // bits of a posting used for the weight, the rest is the entry
+    private static final int WEIGHT_BITS = 3;
+    private static final int WEIGHT_MASK = (1 << WEIGHT_BITS) - 1;
+
+    private final List<ReferenceEntry> entries;
+    // the sorted words and their postings (entry << WEIGHT_BITS | weight)
+    private final String[] terms;
+    private final int[][] postings;
+
+    /**
+     * Builds the index of the given entries.
+     *
+     * @param entries The entries of a BibTeX file
+     */
+    public BibTermIndex(List<ReferenceEntry> entries) {
+        this.entries = entries;
+        Map<String, int[]> lists = new HashMap<String, int[]>();
+        List<String> words = new ArrayList<String>();
+        for (int e = 0; e < entries.size(); e++) {
+            ReferenceEntry entry = entries.get(e);
+            boolean fromStore = entry.getFieldStore() != null;
+            for (int f = 0; f < FIELDS.length; f++) {
+                String value = fromStore ? entry.getField(FIELDS[f]) : fieldOf(entry, f);
+                if (value != null) {
+                    words.clear();
+                    tokenize(value, words);
+                    for (String word : words) {
+                        addPosting(lists, word, e, WEIGHTS[f]);
+                    }
+                }
+            }
+            if (!fromStore && entry.info != null) {
+                // the fields are only available as the descriptive text
+                words.clear();
+                tokenize(entry.info, words);
+                for (String word : words) {
+                    addPosting(lists, word, e, INFO_WEIGHT);
+                }
+            }
+        }
+
+        terms = lists.keySet().toArray(new String[lists.size()]);
+        Arrays.sort(terms);
+        postings = new int[terms.length][];
+        for (int i = 0; i < terms.length; i++) {
+            int[] list = lists.get(terms[i]);
+            postings[i] = Arrays.copyOfRange(list, 1, list[0] + 1);
+        }
+    }
+
+    private BibTermIndex(List<ReferenceEntry> entries, BibTermIndex index) {
+        this.entries = entries;
+        this.terms = index.terms;
+        this.postings = index.postings;
+    }
+
+    /**
+     * Returns an index over a list of entries in the same order as the
+     * indexed ones, such as copies of them, sharing this index.
+     *
+     * @param sameEntries The entries in the order of the indexed ones
+     * @return The index for the given entries
+     */
+    public BibTermIndex forEntries(List<ReferenceEntry> sameEntries) {
+        return sameEntries == entries ? this : new BibTermIndex(sameEntries, this);
+    }
+
+    /**
+     * @return A rough estimate of the heap used by this index in bytes
+     */
+    public long getHeapSize() {
+        long size = 32 + 8L * terms.length;
+        for (int i = 0; i < terms.length; i++) {
+            size += 56 + 2L * terms[i].length() + 4L * postings[i].length;
+        }
+        return size;
+    }
+
+    /**
+     * @return The indexed entries
+     */
+    public List<ReferenceEntry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Appends the entries matching all the words of the query to the
+     * given list, best first.
+     *
+     * @param words The lower case query words (see <code>tokenize</code>)
+     * @param max The maximum number of hits to add
+     * @param hits The list to add the hits to
+     */
+    public void search(List<String> words, int max, List<Hit> hits) {
+        if (words.isEmpty() || entries.isEmpty()) {
+            return;
+        }
+        int n = entries.size();
+        int[] score = new int[n];
+        int[] matched = new int[n];
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            int from = lowerBound(word);
+            for (int t = from; t < terms.length && terms[t].startsWith(word); t++) {
+                int factor = terms[t].length() == word.length() ? 2 : 1;
+                for (int p : postings[t]) {
+                    int e = p >>> WEIGHT_BITS;
+                    if (matched[e] == w) {
+                        // the first word of the entry matching this query word
+                        matched[e] = w + 1;
+                        score[e] += factor * (p & WEIGHT_MASK);
+                    }
+                }
+            }
+        }
+
+        // the best ones of the entries matching all words, in the order
+        // of the entries for equal scores
+        int k = Math.min(max, n);
+        int[] best = new int[k];
+        int count = 0;
+        for (int e = 0; e < n; e++) {
+            if (matched[e] != words.size()) {
+                continue;
+            }
+            int i;
+            if (count < k) {
+                i = count++;
+            } else if (k > 0 && score[best[k - 1]] < score[e]) {
+                i = k - 1;
+            } else {
+                continue;
+            }
+            while (i > 0 && score[best[i - 1]] < score[e]) {
+                best[i] = best[i - 1];
+                i--;
+            }
+            best[i] = e;
+        }
+        for (int i = 0; i < count; i++) {
+            hits.add(new Hit(entries.get(best[i]), score[best[i]]));
+        }
+    }
+
+    /**
+     * @return The index of the first term not less than the word
+     */
+    private int lowerBound(String word) {
+        int left = 0;
+        int right = terms.length;
+        while (left < right) {
+            int middle = (left + right) >>> 1;
+            if (terms[middle].compareTo(word) < 0) {
+                left = middle + 1;
+            } else {
+                right = middle;
+            }
+        }
+        return left;
+    }
+
+    private static String fieldOf(ReferenceEntry entry, int field) {
+        switch (field) {
+        case 0:
+            return entry.author;
+        case 3:
+            return entry.year;
+        case 4:
+            return entry.journal;
+        default:
+            return null;
+        }
+    }
+
+    private static void addPosting(Map<String, int[]> lists, String word, int entry, int weight) {
+        int[] list = lists.get(word);
+        if (list == null) {
+            // the first element is the length
+            list = new int[4];
+            lists.put(word, list);
+        }
+        int length = list[0];
+        if (length > 0 && list[length] >>> WEIGHT_BITS == entry) {
+            // the same entry again, keep the higher weight
+            if ((list[length] & WEIGHT_MASK) < weight) {
+                list[length] = entry << WEIGHT_BITS | weight;
+            }
+            return;
+        }
+        if (length + 1 == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            lists.put(word, list);
+        }
+        list[length + 1] = entry << WEIGHT_BITS | weight;
+        list[0] = length + 1;
+    }
+
+    /**
+     * Splits a text into lower case words, folded to ASCII letters.
+     * LaTeX accents and braces are skipped, so accented letters don't
+     * split words, and letter commands like <code>\ss</code> are
+     * replaced by their letters. Other commands are skipped.
+     *
+     * @param text The text, a field value or a query
+     * @param words The list to add the words to
+     */
+    public static void tokenize(String text, List<String> words) {
+        StringBuilder sb = new StringBuilder();
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                // the command name, or the symbol of an accent like \"
+                int start = ++i;
+                if (i < length && Character.isLetter(text.charAt(i))) {
+                    while (i + 1 < length && Character.isLetter(text.charAt(i + 1))) {
+                        i++;
+                    }
+                    String name = text.substring(start, i + 1);
+                    String letters = LETTERS.get(name);
+                    if (letters != null) {
+                        sb.append(letters);
+                    }
+                    if (letters != null || (name.length() == 1 && LETTER_ACCENTS.indexOf(name.charAt(0)) >= 0)) {
+                        // the space ending the command doesn't end the word
+                        while (i + 1 < length && text.charAt(i + 1) == ' ') {
+                            i++;
+                        }
+                    }
+                }
+            } else if (c == '{' || c == '}') {
+                continue;
+            } else if (Character.isLetterOrDigit(c)) {
+                fold(c, sb);
+            } else if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                // a combining accent
+                continue;
+            } else if (sb.length() > 0) {
+                words.add(sb.toString());
+                sb.setLength(0);
+            }
+        }
+        if (sb.length() > 0) {
+            words.add(sb.toString());
+        }
+    }
+
+    /**
+     * Appends the lower case letter without its accents, or the letters
+     * it is written with in ASCII.
+     */
+    private static void fold(char c, StringBuilder sb) {
+        c = Character.toLowerCase(c);
+        if (c < 0x80) {
+            sb.append(c);
+            return;
+        }
+        switch (c) {
+        case '\u00df':
+            sb.append("ss");
+            return;
+        case '\u00e6':
+            sb.append("ae");
+            return;
+        case '\u0153':
+            sb.append("oe");
+            return;
+        case '\u00fe':
+            sb.append("th");
+            return;
+        case '\u00f8':
+            sb.append('o');
+            return;
+        case '\u0142':
+            sb.append('l');
+            return;
+        case '\u0131':
+            sb.append('i');
+            return;
+        case '\u00f0':
+        case '\u0111':
+            sb.append('d');
+            return;
+        default:
+            break;
+        }
+        String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+        for (int i = 0; i < decomposed.length(); i++) {
+            char d = decomposed.charAt(i);
+            if (Character.getType(d) != Character.NON_SPACING_MARK) {
+                sb.append(d);
+            }
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.DefaultPositionUpdater;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.Region;
+
+/**
+ * Index of the <code>\label</code> definitions and <code>\...ref</code>
+ * usages of a document, by key.
+ *
+ * The index is filled from the parse results of the document model. The
+ * occurrences are kept as document positions, so they follow the edits
+ * made until the next parse without rescanning the text. An occurrence
+ * whose text no longer is its key is skipped.
+ */
+public class DocumentOccurrenceIndex {
+
+    /**
+     * The position category of the occurrences
+     */
+    public static final String CATEGORY = "__occurrences";
+
+    private static final Map<IDocument, DocumentOccurrenceIndex> indices =
+        new WeakHashMap<IDocument, DocumentOccurrenceIndex>();
+
+    private Map<String, List<Position>> occurrences = new HashMap<String, List<Position>>();
+
+    private DocumentOccurrenceIndex() {
+    }
+
+    /**
+     * Returns the occurrence index of the given document, creating an empty
+     * index if necessary.
+     *
+     * @param document The document
+     * @return The occurrence index of the document
+     */
+    public static synchronized DocumentOccurrenceIndex getIndex(IDocument document) {
+        DocumentOccurrenceIndex index = indices.get(document);
+        if (index == null) {
+            index = new DocumentOccurrenceIndex();
+            indices.put(document, index);
+            document.addPositionCategory(CATEGORY);
+            document.addPositionUpdater(new DefaultPositionUpdater(CATEGORY));
+        }
+        return index;
+    }
+
+    /**
+     * Replaces the occurrences with those of a new parse. Must be called
+     * in the thread that modifies the document.
+     *
+     * @param document The document that was parsed
+     * @param labels The labels found by the parser
+     * @param refs The references found by the parser
+     */
+    public synchronized void update(IDocument document, List<ReferenceEntry> labels,
+            List<DocumentReference> refs) {
+        try {
+            document.removePositionCategory(CATEGORY);
+        } catch (BadPositionCategoryException bpce) {
+            // only removed to drop the old positions
+        }
+        document.addPositionCategory(CATEGORY);
+
+        Map<String, List<Position>> newOccurrences = new HashMap<String, List<Position>>();
+        for (ReferenceEntry label : labels) {
+            if (label.position != null) {
+                add(document, newOccurrences, label.key, label.startLine,
+                        label.position.getOffset(), label.position.getLength());
+            }
+        }
+        for (DocumentReference ref : refs) {
+            add(document, newOccurrences, ref.getKey(), ref.getLine(), ref.getPos(), ref.getLength());
+        }
+        occurrences = newOccurrences;
+    }
+
+    private static void add(IDocument document, Map<String, List<Position>> map,
+            String key, int line, int pos, int length) {
+        try {
+            Position p = new Position(document.getLineOffset(line - 1) + pos, length);
+            document.addPosition(CATEGORY, p);
+            List<Position> list = map.get(key);
+            if (list == null) {
+                list = new ArrayList<Position>(2);
+                map.put(key, list);
+            }
+            list.add(p);
+        } catch (BadLocationException ble) {
+            // the document has changed since it was parsed
+        } catch (BadPositionCategoryException bpce) {
+            // cannot happen, the category was just added
+        }
+    }
+
+    /**
+     * Returns the regions of the commands (from the backslash to the
+     * closing brace) that define or reference the given key.
+     *
+     * @param document The document
+     * @param key The label
+     * @return The regions of the occurrences, empty if there are none
+     */
+    public synchronized List<IRegion> getOccurrences(IDocument document, String key) {
+        List<Position> list = occurrences.get(key);
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<IRegion> regions = new ArrayList<IRegion>(list.size());
+        for (Position p : list) {
+            if (p.isDeleted()) {
+                continue;
+            }
+            try {
+                IRegion r = getCommandRegion(document, p, key);
+                if (r != null) {
+                    regions.add(r);
+                }
+            } catch (BadLocationException ble) {
+                // the position is outdated, skip it
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * @return The region from the backslash of the command to the brace
+     * after the argument, or null if the text at the position isn't
+     * <code>\command{key}</code>
+     */
+    private static IRegion getCommandRegion(IDocument document, Position p, String key)
+            throws BadLocationException {
+        int end = p.getOffset() + p.getLength();
+        if (end >= document.getLength() || document.getChar(end) != '}'
+                || !key.equals(document.get(p.getOffset(), p.getLength()))) {
+            return null;
+        }
+        int i = p.getOffset() - 1;
+        while (i >= 0 && Character.isWhitespace(document.getChar(i))) {
+            i--;
+        }
+        if (i < 0 || document.getChar(i) != '{') {
+            return null;
+        }
+        i--;
+        while (i >= 0 && Character.isWhitespace(document.getChar(i))) {
+            i--;
+        }
+        while (i >= 0 && Character.isLetter(document.getChar(i))) {
+            i--;
+        }
+        if (i < 0 || document.getChar(i) != '\\') {
+            return null;
+        }
+        return new Region(i, end + 1 - i);
+    }
+}
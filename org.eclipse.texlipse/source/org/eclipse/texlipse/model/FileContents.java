@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.texlipse.texparser.CharSequenceReader;
+
+/**
+ * The contents of a file, decoded with the encoding of the file, and the
+ * hash of its bytes.
+ * <p>
+ * The file is read through its channel into a buffer of its size and
+ * decoded straight into a <code>CharBuffer</code>. It isn't mapped into
+ * memory, as a mapped file stays locked on Windows until the mapping is
+ * garbage collected. The characters can be given to the parser as
+ * a <code>CharSequence</code> or a <code>Reader</code>, without copying
+ * them into a string. The hash lets callers skip parsing a file that
+ * hasn't changed since it was last parsed.
+ */
+public class FileContents {
+
+    private final CharBuffer chars;
+    private final String hash;
+
+    private FileContents(CharBuffer chars, String hash) {
+        this.chars = chars;
+        this.hash = hash;
+    }
+
+    /**
+     * Reads a file of the workspace with its encoding. If the encoding
+     * isn't supported, the default encoding is used.
+     * 
+     * @param file the file
+     * @return the contents of the file
+     * @throws IOException if the file can't be read
+     */
+    public static FileContents read(IFile file) throws IOException {
+        Charset charset;
+        try {
+            charset = Charset.forName(file.getCharset());
+        } catch (CoreException e) {
+            charset = Charset.defaultCharset();
+        } catch (IllegalCharsetNameException e) {
+            charset = Charset.defaultCharset();
+        } catch (UnsupportedCharsetException e) {
+            charset = Charset.defaultCharset();
+        }
+        IPath location = file.getLocation();
+        if (location != null) {
+            return read(location.toFile().toPath(), charset);
+        }
+
+        // a file not in the local file system can only be streamed
+        try {
+            InputStream in = file.getContents();
+            try {
+                return decode(ByteBuffer.wrap(readAll(in)), charset);
+            } finally {
+                in.close();
+            }
+        } catch (CoreException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads a file.
+     * 
+     * @param path the file
+     * @param charset the encoding of the file
+     * @return the contents of the file
+     * @throws IOException if the file can't be read
+     */
+    public static FileContents read(Path path, Charset charset) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + path);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                // the channel may return less than asked
+            }
+            bytes.flip();
+            return decode(bytes, charset);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        byte[] buf = new byte[8192];
+        int len = 0;
+        int n;
+        while ((n = in.read(buf, len, buf.length - len)) > 0) {
+            len += n;
+            if (len == buf.length) {
+                byte[] larger = new byte[buf.length * 2];
+                System.arraycopy(buf, 0, larger, 0, len);
+                buf = larger;
+            }
+        }
+        byte[] bytes = new byte[len];
+        System.arraycopy(buf, 0, bytes, 0, len);
+        return bytes;
+    }
+
+    private static FileContents decode(ByteBuffer bytes, Charset charset) {
+        String hash = hash(bytes.duplicate());
+        // malformed input is replaced, as InputStreamReader does
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer chars = CharBuffer.allocate(
+                (int) (bytes.remaining() * (double) decoder.averageCharsPerByte()) + 1);
+        while (decoder.decode(bytes, chars, true).isOverflow()) {
+            chars = grow(chars, bytes.remaining());
+        }
+        while (decoder.flush(chars).isOverflow()) {
+            chars = grow(chars, 16);
+        }
+        chars.flip();
+        return new FileContents(chars, hash);
+    }
+
+    private static CharBuffer grow(CharBuffer chars, int needed) {
+        CharBuffer larger = CharBuffer.allocate(chars.capacity() + Math.max(needed, chars.capacity() / 2) + 1);
+        chars.flip();
+        larger.put(chars);
+        return larger;
+    }
+
+    private static String hash(ByteBuffer bytes) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java runtime has SHA-1
+            throw new IllegalStateException(e);
+        }
+        md.update(bytes);
+        byte[] digest = md.digest();
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the characters of the file, read-only
+     */
+    public CharSequence getChars() {
+        return chars.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return a reader of the characters of the file
+     */
+    public CharSequenceReader getReader() {
+        return new CharSequenceReader(getChars());
+    }
+
+    /**
+     * @return the SHA-1 of the bytes of the file in hexadecimal
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return the number of characters in the file
+     */
+    public int length() {
+        return chars.remaining();
+    }
+
+    /**
+     * @return the characters of the file as a string
+     */
+    public String toString() {
+        return chars.toString();
+    }
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.Document;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.texparser.LatexRefExtractingParser;
+
+/**
+ * Keeps the project occurrence indices up to date with the LaTeX files
+ * that are changed, added or removed in the workspace. Only the changed
+ * files are parsed again, in a background job.
+ */
+public class OccurrenceIndexUpdater implements IResourceChangeListener {
+
+    private static OccurrenceIndexUpdater theInstance;
+
+    private final List<IFile> pending = new ArrayList<IFile>();
+
+    private final Job job = new Job("Update LaTeX occurrence index") {
+        protected IStatus run(IProgressMonitor monitor) {
+            while (true) {
+                IFile file;
+                synchronized (pending) {
+                    if (pending.isEmpty()) {
+                        return Status.OK_STATUS;
+                    }
+                    file = pending.remove(0);
+                }
+                if (monitor.isCanceled()) {
+                    return Status.CANCEL_STATUS;
+                }
+                index(file);
+            }
+        }
+    };
+
+    private OccurrenceIndexUpdater() {
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+    }
+
+    /**
+     * Returns the sole instance of the updater
+     *
+     * @return The OccurrenceIndexUpdater
+     */
+    public static synchronized OccurrenceIndexUpdater getInstance() {
+        if (theInstance == null) {
+            theInstance = new OccurrenceIndexUpdater();
+        }
+        return theInstance;
+    }
+
+    /**
+     * Removes the removed files from the indices and schedules the changed
+     * and added files for parsing.
+     *
+     * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+     */
+    public void resourceChanged(IResourceChangeEvent event) {
+        IResourceDelta delta = event.getDelta();
+        if (delta == null) {
+            return;
+        }
+        final List<IFile> changed = new ArrayList<IFile>();
+        try {
+            delta.accept(new IResourceDeltaVisitor() {
+                public boolean visit(IResourceDelta delta) {
+                    IResource res = delta.getResource();
+                    if (res.getType() == IResource.PROJECT) {
+                        return res.isAccessible() && ProjectOccurrenceIndex.getIndex(res.getProject()) != null;
+                    }
+                    if (res.getType() != IResource.FILE) {
+                        return true;
+                    }
+                    if (!isLatexFile(res)) {
+                        return false;
+                    }
+                    if (delta.getKind() == IResourceDelta.REMOVED) {
+                        ProjectOccurrenceIndex index = ProjectOccurrenceIndex.getIndex(res.getProject());
+                        if (index != null) {
+                            index.removeFile(res.getProjectRelativePath().toString());
+                        }
+                    } else if (delta.getKind() == IResourceDelta.ADDED
+                            || (delta.getFlags() & (IResourceDelta.CONTENT
+                                    | IResourceDelta.REPLACED)) != 0) {
+                        changed.add((IFile) res);
+                    }
+                    return false;
+                }
+            });
+        } catch (CoreException ce) {
+            TexlipsePlugin.log("Processing LaTeX file changes", ce);
+        }
+        if (!changed.isEmpty()) {
+            synchronized (pending) {
+                for (IFile file : changed) {
+                    if (!pending.contains(file)) {
+                        pending.add(file);
+                    }
+                }
+            }
+            job.schedule();
+        }
+    }
+
+    private static boolean isLatexFile(IResource res) {
+        String ext = res.getFileExtension();
+        return "tex".equals(ext) || "ltx".equals(ext) || "sty".equals(ext);
+    }
+
+    /**
+     * Parses a file and replaces its occurrences in the index of its project.
+     */
+    private static void index(IFile file) {
+        ProjectOccurrenceIndex index = ProjectOccurrenceIndex.getIndex(file.getProject());
+        if (index == null || !file.exists()) {
+            return;
+        }
+        String fileName = file.getProjectRelativePath().toString();
+        try {
+            FileContents contents = FileContents.read(file);
+            if (index.isIndexed(fileName, contents.getHash())) {
+                // touched or saved without changes
+                return;
+            }
+            String input = contents.toString();
+            LatexRefExtractingParser lrep = new LatexRefExtractingParser();
+            lrep.parse(input);
+            if (lrep.isFatalErrors()) {
+                index.removeFile(fileName);
+                return;
+            }
+            index.updateFile(fileName, contents.getHash(), new Document(input), lrep.getLabels(),
+                    lrep.getRefs(), lrep.getCites());
+        } catch (IOException ioe) {
+            TexlipsePlugin.log("Unable to open file " + file.getFullPath() + " for indexing", ioe);
+        }
+    }
+}
@@ -14,6 +14,7 @@
 package org.eclipse.texlipse.model;
 
 import java.util.ArrayList;
+import java.util.List;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.jface.text.Position;
@@ -143,6 +144,21 @@ public class OutlineNode {
     public boolean hasChildren() {
         return (this.children != null && this.children.size() > 0);
     }
+
+    /**
+     * @param nodes a list of trees, may be null
+     * @return the number of nodes in the trees
+     */
+    public static int countNodes(List<OutlineNode> nodes) {
+        if (nodes == null) {
+            return 0;
+        }
+        int count = nodes.size();
+        for (OutlineNode node : nodes) {
+            count += countNodes(node.children);
+        }
+        return count;
+    }
     
     /**
      * @return Returns the name.
@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.builder.KpathseaResolver;
+
+/**
+ * An index of the commands defined by the LaTeX packages of the local TeX
+ * distribution, for completing and describing the commands of the
+ * packages a document loads with the usepackage command.
+ *
+ * The packages are found in the ls-R databases of kpathsea, in the
+ * directories kpathsea searches for TeX input (see
+ * <code>KpathseaResolver</code>). They are scanned in
+ * parallel by a background job when the commands of a package are first
+ * asked for. The result is stored in the plugin's state area, keyed by
+ * the paths and modification times of the ls-R databases, so the
+ * distribution is only scanned again after <code>mktexlsr</code> has
+ * been run.
+ *
+ * Until the index is ready no package has commands. The generation of
+ * the index is increased when it becomes ready, so that the command
+ * containers know to reorganize.
+ */
+public final class PackageCommandIndex {
+
+    /**
+     * The commands of one package, as sorted names and signatures (see
+     * <code>PackageCommandScanner</code>). The command entries are only
+     * created when the package is used.
+     */
+    static final class PackageCommands {
+        private final String name;
+        private final String[] commands;
+        private final short[] signatures;
+        private TexCommandEntry[] entries;
+
+        PackageCommands(String name, String[] commands, short[] signatures) {
+            this.name = name;
+            this.commands = commands;
+            this.signatures = signatures;
+        }
+
+        synchronized TexCommandEntry[] getEntries() {
+            if (entries == null) {
+                String definedIn = MessageFormat.format(
+                        TexlipsePlugin.getResourceString("packageCommandInfo"),
+                        new Object[] {name});
+                entries = new TexCommandEntry[commands.length];
+                for (int i = 0; i < commands.length; i++) {
+                    int[] parameters = PackageCommandScanner.getParameters(signatures[i]);
+                    StringBuilder info = new StringBuilder("\\").append(commands[i]);
+                    for (int p : parameters) {
+                        info.append(p == TexCommandEntry.OPT_PARAMETER ? "[]" : "{}");
+                    }
+                    info.append("\n\n").append(definedIn);
+                    TexCommandEntry entry = new TexCommandEntry(commands[i], info.toString(),
+                            parameters.length, parameters, TexCommandEntry.NORMAL_CONTEXT);
+                    entry.depend = name;
+                    entries[i] = entry;
+                }
+            }
+            return entries;
+        }
+    }
+
+    private static final String INDEX_FILE = "packagecommands.idx";
+    private static final int INDEX_MAGIC = 0x54585043;
+    private static final int INDEX_VERSION = 1;
+
+    // the files scanned by one task before it splits
+    private static final int SCAN_THRESHOLD = 32;
+
+    private static PackageCommandIndex theInstance;
+
+    private volatile Map<String, PackageCommands> packages = Collections.emptyMap();
+    private volatile int generation;
+    private boolean scheduled;
+
+    private final Job job = new Job("Index the commands of the TeX packages") {
+        protected IStatus run(IProgressMonitor monitor) {
+            try {
+                Map<String, PackageCommands> index = loadOrBuild(monitor);
+                if (index == null) {
+                    synchronized (PackageCommandIndex.this) {
+                        // try again when asked next time
+                        scheduled = false;
+                    }
+                    return Status.CANCEL_STATUS;
+                }
+                packages = index;
+                generation++;
+            } catch (CoreException ce) {
+                TexlipsePlugin.log("Indexing the TeX packages", ce);
+            } catch (IOException ioe) {
+                TexlipsePlugin.log("Indexing the TeX packages", ioe);
+            }
+            return Status.OK_STATUS;
+        }
+    };
+
+    private PackageCommandIndex() {
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+    }
+
+    /**
+     * Returns the sole instance of the index
+     *
+     * @return The PackageCommandIndex
+     */
+    public static synchronized PackageCommandIndex getInstance() {
+        if (theInstance == null) {
+            theInstance = new PackageCommandIndex();
+        }
+        return theInstance;
+    }
+
+    /**
+     * @return The generation of the index, increased each time the index
+     * is loaded
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Returns the commands defined by the given package. The first call
+     * starts indexing the distribution in the background.
+     *
+     * @param packageName The name of the package
+     * @return The commands of the package, sorted by their names, or
+     * null if the package is unknown or the index isn't ready
+     */
+    public TexCommandEntry[] getCommands(String packageName) {
+        synchronized (this) {
+            if (!scheduled) {
+                scheduled = true;
+                job.schedule();
+            }
+        }
+        PackageCommands pc = packages.get(packageName);
+        return pc != null ? pc.getEntries() : null;
+    }
+
+    /**
+     * Loads the stored index if it belongs to the current ls-R databases,
+     * otherwise scans the packages and stores the new index.
+     *
+     * @return The index, or null if indexing was canceled
+     */
+    private Map<String, PackageCommands> loadOrBuild(final IProgressMonitor monitor)
+            throws CoreException, IOException {
+        KpathseaResolver resolver = KpathseaResolver.getInstance();
+        if (resolver == null) {
+            return Collections.emptyMap();
+        }
+        String key = resolver.getDatabaseKey();
+        File indexFile = TexlipsePlugin.getDefault().getStateLocation().append(INDEX_FILE).toFile();
+        Map<String, PackageCommands> index = read(indexFile, key);
+        if (index != null) {
+            return index;
+        }
+
+        // the packages in the searched directories, the first of a name counts
+        Map<String, String> files = resolver.listFiles("latex", "tex", ".sty");
+        final List<String> names = new ArrayList<String>(files.size());
+        final List<File> packageFiles = new ArrayList<File>(files.size());
+        for (Map.Entry<String, String> e : files.entrySet()) {
+            String name = e.getKey();
+            names.add(name.substring(0, name.length() - ".sty".length()));
+            packageFiles.add(new File(e.getValue()));
+        }
+        List<PackageCommands> scanned = ForkJoinPool.commonPool().invoke(
+                new ScanTask(names, packageFiles, 0, names.size(), monitor));
+        if (monitor.isCanceled()) {
+            return null;
+        }
+        index = new HashMap<String, PackageCommands>(scanned.size() * 2);
+        for (PackageCommands pc : scanned) {
+            index.put(pc.name, pc);
+        }
+        write(indexFile, key, index);
+        return index;
+    }
+
+    /**
+     * Scans a range of the package files, splitting it among the workers
+     * of the fork-join pool.
+     */
+    private static final class ScanTask extends RecursiveTask<List<PackageCommands>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> names;
+        private final List<File> files;
+        private final int from;
+        private final int to;
+        private final IProgressMonitor monitor;
+
+        ScanTask(List<String> names, List<File> files, int from, int to, IProgressMonitor monitor) {
+            this.names = names;
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.monitor = monitor;
+        }
+
+        protected List<PackageCommands> compute() {
+            if (to - from > SCAN_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                ScanTask right = new ScanTask(names, files, middle, to, monitor);
+                right.fork();
+                List<PackageCommands> result = new ScanTask(names, files, from, middle, monitor).compute();
+                result.addAll(right.join());
+                return result;
+            }
+            List<PackageCommands> result = new ArrayList<PackageCommands>();
+            for (int i = from; i < to && !monitor.isCanceled(); i++) {
+                try {
+                    // package sources are ASCII, one byte per char keeps the offsets
+                    String text = new String(Files.readAllBytes(files.get(i).toPath()),
+                            Charset.forName("ISO-8859-1"));
+                    PackageCommands pc = PackageCommandScanner.scan(names.get(i), text);
+                    if (pc.commands.length > 0) {
+                        result.add(pc);
+                    }
+                } catch (IOException ioe) {
+                    // unreadable packages have no commands
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @return The stored index or null if there is none for the given key
+     */
+    private static Map<String, PackageCommands> read(File file, String key) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(new FileInputStream(file))));
+            try {
+                if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION
+                        || !key.equals(in.readUTF())) {
+                    return null;
+                }
+                int count = in.readInt();
+                Map<String, PackageCommands> index = new HashMap<String, PackageCommands>(count * 2);
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    int size = in.readInt();
+                    String[] commands = new String[size];
+                    short[] signatures = new short[size];
+                    for (int j = 0; j < size; j++) {
+                        commands[j] = in.readUTF();
+                        signatures[j] = in.readShort();
+                    }
+                    index.put(name, new PackageCommands(name, commands, signatures));
+                }
+                return index;
+            } finally {
+                in.close();
+            }
+        } catch (IOException ioe) {
+            // rebuilt
+            return null;
+        }
+    }
+
+    private static void write(File file, String key, Map<String, PackageCommands> index)
+            throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(tmp))));
+        try {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeUTF(key);
+            out.writeInt(index.size());
+            for (PackageCommands pc : index.values()) {
+                out.writeUTF(pc.name);
+                out.writeInt(pc.commands.length);
+                for (int j = 0; j < pc.commands.length; j++) {
+                    out.writeUTF(pc.commands[j]);
+                    out.writeShort(pc.signatures[j]);
+                }
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            file.delete();
+            tmp.renameTo(file);
+        }
+    }
+}
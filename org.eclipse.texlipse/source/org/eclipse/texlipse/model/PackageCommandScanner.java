@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the commands a LaTeX package file defines, with the number of
+ * their arguments, from <code>\newcommand</code>, <code>\renewcommand</code>,
+ * <code>\providecommand</code>, <code>\DeclareRobustCommand</code>,
+ * <code>\def</code> (and <code>\gdef</code>, <code>\edef</code>,
+ * <code>\xdef</code>) and the xparse <code>\NewDocumentCommand</code>
+ * family.
+ *
+ * Only the user level commands are extracted; names containing
+ * <code>@</code> are internal to the package.
+ *
+ * The signature of a command packs the number of arguments into the low
+ * four bits and sets the bit <code>4 + i</code> if argument
+ * <code>i</code> is optional.
+ */
+final class PackageCommandScanner {
+
+    private static final String NAME = "\\\\([A-Za-z]+)(?![A-Za-z@])";
+
+    private static final Pattern DEFINITION = Pattern.compile(
+            // 1 name, 2 number of arguments, 3 default of the first argument
+            "\\\\(?:(?:new|renew|provide)command|DeclareRobustCommand)\\*?\\s*\\{?\\s*" + NAME
+            + "\\s*\\}?\\s*(?:\\[(\\d)\\]\\s*(\\[)?)?"
+            // 4 name, 5 parameter text
+            + "|\\\\[gex]?def\\s*" + NAME + "([^{\\\\]*)\\{"
+            // 6 name, 7 argument specification
+            + "|\\\\(?:New|Renew|Provide|Declare)DocumentCommand\\s*\\{?\\s*" + NAME
+            + "\\s*\\}?\\s*\\{((?:[^{}]|\\{[^{}]*\\})*)\\}");
+
+    private static final int MAX_ARGUMENTS = 9;
+
+    private PackageCommandScanner() {
+    }
+
+    /**
+     * Extracts the commands defined in the text of a package.
+     *
+     * @param packageName The name of the package
+     * @param text The contents of the package file
+     * @return The commands of the package
+     */
+    static PackageCommandIndex.PackageCommands scan(String packageName, String text) {
+        // the first definition of a name counts
+        Map<String, Short> commands = new TreeMap<String, Short>();
+        Matcher m = DEFINITION.matcher(stripComments(text));
+        while (m.find()) {
+            String name;
+            int signature;
+            if (m.group(1) != null) {
+                name = m.group(1);
+                int args = m.group(2) != null ? m.group(2).charAt(0) - '0' : 0;
+                signature = args;
+                if (args > 0 && m.group(3) != null) {
+                    signature |= 1 << 4;
+                }
+            } else if (m.group(4) != null) {
+                name = m.group(4);
+                signature = countParameters(m.group(5));
+            } else {
+                name = m.group(6);
+                signature = parseArgumentSpec(m.group(7));
+            }
+            if (!commands.containsKey(name)) {
+                commands.put(name, Short.valueOf((short) signature));
+            }
+        }
+        String[] names = commands.keySet().toArray(new String[commands.size()]);
+        short[] signatures = new short[names.length];
+        for (int i = 0; i < names.length; i++) {
+            signatures[i] = commands.get(names[i]).shortValue();
+        }
+        return new PackageCommandIndex.PackageCommands(packageName, names, signatures);
+    }
+
+    /**
+     * Returns the types of the parameters of a signature.
+     *
+     * @param signature The packed signature
+     * @return The parameter types, see <code>TexCommandEntry</code>
+     */
+    static int[] getParameters(int signature) {
+        int[] parameters = new int[signature & 0xf];
+        Arrays.fill(parameters, TexCommandEntry.MAND_PARAMETER);
+        for (int i = 0; i < parameters.length; i++) {
+            if ((signature & (1 << (4 + i))) != 0) {
+                parameters[i] = TexCommandEntry.OPT_PARAMETER;
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @return The number of <code>#n</code> in the parameter text of a
+     * <code>\def</code>
+     */
+    private static int countParameters(String parameterText) {
+        int count = 0;
+        for (int i = 0; i + 1 < parameterText.length(); i++) {
+            if (parameterText.charAt(i) == '#' && Character.isDigit(parameterText.charAt(i + 1))) {
+                count++;
+            }
+        }
+        return Math.min(count, MAX_ARGUMENTS);
+    }
+
+    /**
+     * Converts an xparse argument specification like <code>s o m</code> or
+     * <code>O{default} m</code> to a signature. Stars and other tokens
+     * that aren't inserted as arguments are skipped.
+     */
+    private static int parseArgumentSpec(String spec) {
+        int count = 0;
+        int signature = 0;
+        for (int i = 0; i < spec.length() && count < MAX_ARGUMENTS; i++) {
+            char c = spec.charAt(i);
+            boolean optional;
+            switch (c) {
+            case 'm':
+            case 'v':
+            case 'b':
+                optional = false;
+                break;
+            case 'r':
+            case 'R':
+                optional = false;
+                i += 2;
+                break;
+            case 'o':
+            case 'O':
+                optional = true;
+                break;
+            case 'd':
+            case 'D':
+                optional = true;
+                i += 2;
+                break;
+            case 't':
+                i++;
+                continue;
+            case '{':
+                i = skipGroup(spec, i);
+                continue;
+            default:
+                // s, e, E, +, ! and spaces aren't arguments
+                continue;
+            }
+            if (optional) {
+                signature |= 1 << (4 + count);
+            }
+            count++;
+        }
+        return signature | count;
+    }
+
+    /**
+     * @return The index of the brace closing the group starting at the
+     * given index
+     */
+    private static int skipGroup(String s, int start) {
+        int depth = 0;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return s.length();
+    }
+
+    /**
+     * @return The text without its comments
+     */
+    private static String stripComments(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '%' && (i == 0 || text.charAt(i - 1) != '\\')) {
+                while (i < length && text.charAt(i) != '\n') {
+                    i++;
+                }
+                if (i < length) {
+                    sb.append('\n');
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A prefix index over the keys of a list of entries, for completing
+ * partially typed keys.
+ *
+ * The index is a path compressed trie over the sorted keys. As the keys
+ * are sorted, the entries below a trie node are a contiguous range of
+ * the list, so a node is stored as that range and the length of the
+ * common prefix of its keys; the labels of the edges are read from the
+ * keys themselves. The trie has at most two nodes per entry and a
+ * lookup costs one character comparison per character of the prefix
+ * plus a binary search over the children at each branch.
+ *
+ * The index remembers the node of the last lookup. When the user types
+ * one more character the new prefix extends the last one, and the
+ * lookup continues from that node instead of the root.
+ *
+ * The entries are never copied; completions are views of the list.
+ *
+ * @param <E> The type of the entries
+ */
+public final class PrefixIndex<E extends AbstractEntry> {
+
+    private final List<E> entries;
+    private final String[] keys;
+    private final boolean lowerCase;
+
+    // the nodes: the range [lo, hi) of the entries, the length of the
+    // common prefix of their keys and the range of the children
+    private int[] lo;
+    private int[] hi;
+    private int[] depth;
+    private int[] firstChild;
+    private int[] childCount;
+    private int nodeCount;
+
+    // the last lookup, for narrowing
+    private String lastPrefix;
+    private int lastNode;
+
+    /**
+     * Creates a prefix index over the given entries. If the entries are
+     * not sorted by their keys (lower case keys, if <code>lowerCase</code>
+     * is set), the index is built over a sorted copy of the list.
+     *
+     * @param entries The entries
+     * @param lowerCase True if the keys are matched case insensitively
+     */
+    public PrefixIndex(List<E> entries, boolean lowerCase) {
+        this.lowerCase = lowerCase;
+        String[] k = keysOf(entries, lowerCase);
+        if (!isSorted(k)) {
+            entries = sortedCopy(entries, lowerCase);
+            k = keysOf(entries, lowerCase);
+        }
+        this.entries = entries;
+        this.keys = k;
+
+        int capacity = Math.max(1, 2 * k.length);
+        lo = new int[capacity];
+        hi = new int[capacity];
+        depth = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new int[capacity];
+        if (k.length > 0) {
+            newNode(0, k.length);
+            build(0);
+        }
+    }
+
+    /**
+     * @return The indexed entries, sorted by their keys
+     */
+    public List<E> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the entries whose keys start with the given prefix.
+     *
+     * @param prefix The typed start of the key
+     * @return A view of the matching entries or null if there are none
+     */
+    public synchronized List<E> getCompletions(String prefix) {
+        if (lowerCase) {
+            prefix = prefix.toLowerCase();
+        }
+        if (prefix.length() == 0) {
+            return entries.isEmpty() ? null : entries;
+        }
+        int node;
+        if (lastPrefix != null && prefix.startsWith(lastPrefix)) {
+            // narrow the last result
+            node = lastNode < 0 ? -1 : find(prefix, lastNode, lastPrefix.length());
+        } else {
+            node = nodeCount == 0 ? -1 : find(prefix, 0, 0);
+        }
+        lastPrefix = prefix;
+        lastNode = node;
+        if (node < 0) {
+            return null;
+        }
+        return entries.subList(lo[node], hi[node]);
+    }
+
+    /**
+     * Walks down from the given node, whose keys are known to match
+     * the prefix up to <code>pos</code>.
+     *
+     * @return The topmost node whose keys all start with the prefix,
+     * or -1 if no key does
+     */
+    private int find(String prefix, int node, int pos) {
+        int length = prefix.length();
+        while (true) {
+            int d = depth[node];
+            String key = keys[lo[node]];
+            int end = Math.min(d, length);
+            for (; pos < end; pos++) {
+                if (key.charAt(pos) != prefix.charAt(pos)) {
+                    return -1;
+                }
+            }
+            if (length <= d) {
+                return node;
+            }
+            // binary search for the child continuing with the next character
+            char c = prefix.charAt(d);
+            int left = firstChild[node];
+            int right = left + childCount[node] - 1;
+            int next = -1;
+            while (left <= right) {
+                int middle = (left + right) >>> 1;
+                char mc = keys[lo[middle]].charAt(d);
+                if (mc < c) {
+                    left = middle + 1;
+                } else if (mc > c) {
+                    right = middle - 1;
+                } else {
+                    next = middle;
+                    break;
+                }
+            }
+            if (next < 0) {
+                return -1;
+            }
+            node = next;
+            pos = d + 1;
+        }
+    }
+
+    private int newNode(int from, int to) {
+        int node = nodeCount++;
+        lo[node] = from;
+        hi[node] = to;
+        return node;
+    }
+
+    /**
+     * Creates the subtrie below the given node, whose range is set.
+     */
+    private void build(int node) {
+        int from = lo[node];
+        int to = hi[node];
+        // sorted, so the first and last key have the shortest common prefix
+        int d = commonPrefix(keys[from], keys[to - 1]);
+        depth[node] = d;
+
+        // the keys ending here come first, the rest is grouped by the next character
+        int i = from;
+        while (i < to && keys[i].length() == d) {
+            i++;
+        }
+        int groups = 0;
+        for (int j = i; j < to; j++) {
+            if (j == i || keys[j].charAt(d) != keys[j - 1].charAt(d)) {
+                groups++;
+            }
+        }
+        firstChild[node] = nodeCount;
+        childCount[node] = groups;
+        if (groups == 0) {
+            return;
+        }
+        int first = nodeCount;
+        int start = i;
+        for (int j = i + 1; j <= to; j++) {
+            if (j == to || keys[j].charAt(d) != keys[start].charAt(d)) {
+                newNode(start, j);
+                start = j;
+            }
+        }
+        for (int child = first; child < first + groups; child++) {
+            build(child);
+        }
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String[] keysOf(List<? extends AbstractEntry> entries, boolean lowerCase) {
+        String[] k = new String[entries.size()];
+        for (int i = 0; i < k.length; i++) {
+            k[i] = entries.get(i).getkey(lowerCase);
+        }
+        return k;
+    }
+
+    private static boolean isSorted(String[] k) {
+        for (int i = 1; i < k.length; i++) {
+            if (k[i - 1].compareTo(k[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <E extends AbstractEntry> List<E> sortedCopy(List<E> entries, final boolean lowerCase) {
+        List<E> copy = new ArrayList<E>(entries);
+        Collections.sort(copy, new Comparator<E>() {
+            public int compare(E o1, E o2) {
+                return o1.getkey(lowerCase).compareTo(o2.getkey(lowerCase));
+            }
+        });
+        return copy;
+    }
+}
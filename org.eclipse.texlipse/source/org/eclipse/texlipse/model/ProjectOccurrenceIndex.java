@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.texlipse.properties.TexlipseProperties;
+
+/**
+ * Project-wide index of the occurrences of labels and citation keys.
+ *
+ * For every label the index knows where it is defined (<code>\label</code>)
+ * and referenced (<code>\ref</code>, <code>\eqref</code>, ...), and for every
+ * BibTeX key where it is cited, as file and offset. The occurrences of a
+ * file are replaced when the file is parsed in an editor or changes on disk,
+ * so finding all references or renaming a key doesn't read the other files.
+ *
+ * The offsets are those of the file when it was last indexed. Users of the
+ * index should check that the key is still found at an offset.
+ */
+public class ProjectOccurrenceIndex {
+
+    /**
+     * Occurrence kind of a label definition
+     */
+    public static final int LABEL = 0;
+    /**
+     * Occurrence kind of a reference to a label
+     */
+    public static final int REF = 1;
+    /**
+     * Occurrence kind of a citation of a BibTeX key
+     */
+    public static final int CITE = 2;
+
+    /**
+     * A single occurrence of a key
+     */
+    public static final class Occurrence {
+        private final String key;
+        private final String fileName;
+        private final int kind;
+        private final int line;
+        private final int offset;
+
+        Occurrence(String key, String fileName, int kind, int line, int offset) {
+            this.key = key;
+            this.fileName = fileName;
+            this.kind = kind;
+            this.line = line;
+            this.offset = offset;
+        }
+
+        /**
+         * @return The label or BibTeX key
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return The project relative path of the file
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * @return One of <code>LABEL</code>, <code>REF</code> and <code>CITE</code>
+         */
+        public int getKind() {
+            return kind;
+        }
+
+        /**
+         * @return The line of the occurrence (starting from 1)
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return The offset of the key in the file
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * @return The length of the key
+         */
+        public int getLength() {
+            return key.length();
+        }
+    }
+
+    private static final Comparator<Occurrence> FILE_ORDER = new Comparator<Occurrence>() {
+        public int compare(Occurrence o1, Occurrence o2) {
+            int c = o1.fileName.compareTo(o2.fileName);
+            return c != 0 ? c : o1.offset - o2.offset;
+        }
+    };
+
+    // the occurrences of each file and of each key
+    private final Map<String, List<Occurrence>> files = new HashMap<String, List<Occurrence>>();
+    private final Map<String, List<Occurrence>> labelKeys = new HashMap<String, List<Occurrence>>();
+    private final Map<String, List<Occurrence>> citeKeys = new HashMap<String, List<Occurrence>>();
+    // the content hashes of the files last indexed from disk
+    private final Map<String, String> hashes = new HashMap<String, String>();
+
+    /**
+     * Returns the occurrence index of the given project.
+     *
+     * @param project The project
+     * @return The index or null if the project has not been indexed yet
+     */
+    public static ProjectOccurrenceIndex getIndex(IProject project) {
+        return (ProjectOccurrenceIndex) TexlipseProperties.getSessionProperty(project,
+                TexlipseProperties.SESSION_OCCURRENCE_INDEX);
+    }
+
+    /**
+     * Replaces the occurrences of a file with those of a new parse of
+     * the text in an editor. The file is no longer considered indexed
+     * from disk, so the next change on disk parses it again even if the
+     * saved contents are the same as before.
+     *
+     * @param fileName The project relative path of the file
+     * @param document The parsed text, for converting lines to offsets
+     * @param labels The labels of the file
+     * @param refs The references of the file
+     * @param cites The citations of the file, one for each key
+     */
+    public synchronized void updateFile(String fileName, IDocument document,
+            List<ReferenceEntry> labels, List<DocumentReference> refs,
+            List<DocumentReference> cites) {
+        hashes.remove(fileName);
+        removeOccurrences(fileName);
+        List<Occurrence> list = new ArrayList<Occurrence>(labels.size() + refs.size() + cites.size());
+        try {
+            for (ReferenceEntry label : labels) {
+                if (label.position != null) {
+                    int offset = document.getLineOffset(label.startLine - 1) + label.position.getOffset();
+                    list.add(new Occurrence(label.key, fileName, LABEL, label.startLine, offset));
+                }
+            }
+            for (DocumentReference ref : refs) {
+                int offset = document.getLineOffset(ref.getLine() - 1) + ref.getPos();
+                list.add(new Occurrence(ref.getKey(), fileName, REF, ref.getLine(), offset));
+            }
+            for (DocumentReference cite : cites) {
+                if (cite.getKey().length() == 0) {
+                    continue;
+                }
+                // a citation may have several keys, find this one in the argument
+                int offset = document.getLineOffset(cite.getLine() - 1) + cite.getPos();
+                int keyOffset = findKey(document.get(offset, cite.getLength()), cite.getKey());
+                if (keyOffset >= 0) {
+                    list.add(new Occurrence(cite.getKey(), fileName, CITE, cite.getLine(), offset + keyOffset));
+                }
+            }
+        } catch (BadLocationException ble) {
+            // the document has changed since it was parsed, keep what was found
+        }
+        if (list.isEmpty()) {
+            return;
+        }
+        files.put(fileName, list);
+        for (Occurrence o : list) {
+            Map<String, List<Occurrence>> keys = o.kind == CITE ? citeKeys : labelKeys;
+            List<Occurrence> keyList = keys.get(o.key);
+            if (keyList == null) {
+                keyList = new ArrayList<Occurrence>(2);
+                keys.put(o.key, keyList);
+            }
+            keyList.add(o);
+        }
+    }
+
+    /**
+     * Replaces the occurrences of a file with those of a new parse of the
+     * file on disk, and remembers the hash of its contents.
+     *
+     * @param fileName The project relative path of the file
+     * @param hash The hash of the contents of the file
+     * @param document The parsed text, for converting lines to offsets
+     * @param labels The labels of the file
+     * @param refs The references of the file
+     * @param cites The citations of the file, one for each key
+     * @see FileContents#getHash()
+     */
+    public synchronized void updateFile(String fileName, String hash, IDocument document,
+            List<ReferenceEntry> labels, List<DocumentReference> refs,
+            List<DocumentReference> cites) {
+        updateFile(fileName, document, labels, refs, cites);
+        hashes.put(fileName, hash);
+    }
+
+    /**
+     * Tells whether a file has been indexed from disk with the given
+     * contents, and not changed in an editor since, so it doesn't need
+     * to be parsed again.
+     *
+     * @param fileName The project relative path of the file
+     * @param hash The hash of the current contents of the file
+     * @return true, if the occurrences of the file are up to date
+     */
+    public synchronized boolean isIndexed(String fileName, String hash) {
+        return hash.equals(hashes.get(fileName));
+    }
+
+    /**
+     * Removes the occurrences of a file.
+     *
+     * @param fileName The project relative path of the file
+     */
+    public synchronized void removeFile(String fileName) {
+        hashes.remove(fileName);
+        removeOccurrences(fileName);
+    }
+
+    private void removeOccurrences(String fileName) {
+        List<Occurrence> old = files.remove(fileName);
+        if (old == null) {
+            return;
+        }
+        for (Occurrence o : old) {
+            Map<String, List<Occurrence>> keys = o.kind == CITE ? citeKeys : labelKeys;
+            List<Occurrence> keyList = keys.get(o.key);
+            if (keyList != null) {
+                for (Iterator<Occurrence> iter = keyList.iterator(); iter.hasNext();) {
+                    if (iter.next().fileName.equals(fileName)) {
+                        iter.remove();
+                    }
+                }
+                if (keyList.isEmpty()) {
+                    keys.remove(o.key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the definitions of and references to a label.
+     *
+     * @param key The label
+     * @return The occurrences ordered by file and offset
+     */
+    public synchronized List<Occurrence> getLabelOccurrences(String key) {
+        return sorted(labelKeys.get(key));
+    }
+
+    /**
+     * Returns the citations of a BibTeX key.
+     *
+     * @param key The BibTeX key
+     * @return The occurrences ordered by file and offset
+     */
+    public synchronized List<Occurrence> getCiteOccurrences(String key) {
+        return sorted(citeKeys.get(key));
+    }
+
+    private static List<Occurrence> sorted(List<Occurrence> list) {
+        if (list == null) {
+            return Collections.emptyList();
+        }
+        List<Occurrence> copy = new ArrayList<Occurrence>(list);
+        Collections.sort(copy, FILE_ORDER);
+        return copy;
+    }
+
+    /**
+     * @return The offset of the key as an element of the comma separated
+     * list, or -1
+     */
+    private static int findKey(String argument, String key) {
+        int i = argument.indexOf(key);
+        while (i >= 0) {
+            int end = i + key.length();
+            if ((i == 0 || isSeparator(argument.charAt(i - 1)))
+                    && (end == argument.length() || isSeparator(argument.charAt(end)))) {
+                return i;
+            }
+            i = argument.indexOf(key, i + 1);
+        }
+        return -1;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || Character.isWhitespace(c);
+    }
+}
@@ -36,6 +36,14 @@ public class ReferenceContainer {
     private List<ReferenceEntry> sortedReferences;
     private int size;
     
+    // the search structures of sortedReferences, built when first needed
+    private List<ReferenceEntry> indexedReferences;
+    private PrefixIndex<ReferenceEntry> prefixIndex;
+    private BibFieldMatcher fieldMatcher;
+    
+    // the word indices of the BibTeX sources that have one
+    private final Map<String, BibTermIndex> termIndices = new HashMap<String, BibTermIndex>(4);
+    
     /**
      * Creates a new reference container and initializes its datastructures.
      */
@@ -54,6 +62,18 @@ public class ReferenceContainer {
      * @param refs The references to store
      */
     public void addRefSource(String key, List<ReferenceEntry> refs) {
+        addRefSource(key, refs, null);
+    }
+    
+    /**
+     * Adds a BibTeX reference source together with the index of the
+     * words of its entries. Does not update the sorted array of references.
+     * 
+     * @param key The key associated with these references in the internal set
+     * @param refs The references to store
+     * @param termIndex The word index of <code>refs</code>, or null
+     */
+    public void addRefSource(String key, List<ReferenceEntry> refs, BibTermIndex termIndex) {
     	if (key != null && key.endsWith(".aux")) {
         	// Avoid duplicates
         	Iterator<ReferenceEntry> it = refs.iterator();
@@ -65,15 +85,25 @@ public class ReferenceContainer {
         	}
     	}
     	
-    	// Add filename to all references
+    	// Add filename to all references (cached lists are already
+    	// stamped and shared, so they must not be written to)
     	for (ReferenceEntry r : refs) {
-    	    r.fileName = key;
+    	    if (key == null || !key.equals(r.fileName)) {
+    	        r.fileName = key;
+    	    }
         }
     	
         size += refs.size();
         List<ReferenceEntry> al = referenceHash.put(key, refs);
         if (al != null)
             size -= al.size();
+        synchronized (termIndices) {
+            if (termIndex != null) {
+                termIndices.put(key, termIndex);
+            } else {
+                termIndices.remove(key);
+            }
+        }
     }
         
     /**
@@ -91,7 +121,11 @@ public class ReferenceContainer {
      */
     public boolean updateRefSource(String key, List<ReferenceEntry> refs) {
         if (referenceHash.containsKey(key)) {
-            this.addRefSource(key, refs);
+            boolean indexed;
+            synchronized (termIndices) {
+                indexed = termIndices.containsKey(key);
+            }
+            this.addRefSource(key, refs, indexed ? new BibTermIndex(refs) : null);
             this.organize();
             return true;
         }
@@ -115,8 +149,9 @@ public class ReferenceContainer {
                 allRefs.addAll(refList);
             }
         } else if (referenceHash.size() == 1) {
+            // copy, the source list may be shared and unmodifiable
             Iterator<List<ReferenceEntry>> iter = referenceHash.values().iterator();
-            allRefs = iter.next();
+            allRefs.addAll(iter.next());
         }
         sortedReferences = allRefs;
         
@@ -160,6 +195,9 @@ public class ReferenceContainer {
         }
         referenceHash = newHash;
         size = newSize;
+        synchronized (termIndices) {
+            termIndices.keySet().retainAll(newHash.keySet());
+        }
         
         return toParse;
     }
@@ -224,4 +262,89 @@ public class ReferenceContainer {
     public List<ReferenceEntry> getSortedReferences() {
         return sortedReferences;
     }
+    
+    /**
+     * Returns the prefix index of the references for completing keys.
+     * 
+     * @return The prefix index or null if the container hasn't been organized
+     */
+    public synchronized PrefixIndex<ReferenceEntry> getPrefixIndex() {
+        if (!checkIndexed()) {
+            return null;
+        }
+        if (prefixIndex == null) {
+            prefixIndex = new PrefixIndex<ReferenceEntry>(indexedReferences, true);
+        }
+        return prefixIndex;
+    }
+    
+    /**
+     * Returns the matcher of the authors and titles of the references.
+     * 
+     * @return The matcher or null if the container hasn't been organized
+     */
+    public synchronized BibFieldMatcher getFieldMatcher() {
+        if (!checkIndexed()) {
+            return null;
+        }
+        if (fieldMatcher == null) {
+            fieldMatcher = new BibFieldMatcher(indexedReferences);
+        }
+        return fieldMatcher;
+    }
+    
+    /**
+     * Searches the word indices of the BibTeX sources for entries
+     * matching all the words of the query (see <code>BibTermIndex</code>).
+     * 
+     * @param query The query, e.g. "smith 2019 graph"
+     * @param max The maximum number of entries to return
+     * @return The matching entries, best first
+     */
+    public List<ReferenceEntry> search(String query, int max) {
+        List<String> words = new ArrayList<String>();
+        BibTermIndex.tokenize(query, words);
+        List<BibTermIndex.Hit> hits = new ArrayList<BibTermIndex.Hit>();
+        int sources = 0;
+        if (!words.isEmpty()) {
+            synchronized (termIndices) {
+                for (BibTermIndex index : termIndices.values()) {
+                    index.search(words, max, hits);
+                }
+                sources = termIndices.size();
+            }
+        }
+        if (sources > 1) {
+            // each source is sorted, merge them
+            Collections.sort(hits, new Comparator<BibTermIndex.Hit>() {
+                public int compare(BibTermIndex.Hit h1, BibTermIndex.Hit h2) {
+                    return h2.getScore() - h1.getScore();
+                }
+            });
+        }
+        int n = Math.min(max, hits.size());
+        List<ReferenceEntry> result = new ArrayList<ReferenceEntry>(n);
+        for (int i = 0; i < n; i++) {
+            result.add(hits.get(i).getEntry());
+        }
+        return result;
+    }
+    
+    /**
+     * Drops the search structures if the references have been reorganized.
+     * 
+     * @return False if there are no sorted references
+     */
+    private boolean checkIndexed() {
+        List<ReferenceEntry> refs = sortedReferences;
+        if (refs == null) {
+            return false;
+        }
+        if (refs != indexedReferences) {
+            indexedReferences = refs;
+            prefixIndex = null;
+            fieldMatcher = null;
+        }
+        return true;
+    }
 }
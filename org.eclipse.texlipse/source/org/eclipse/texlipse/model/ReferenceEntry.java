@@ -27,7 +27,8 @@ import java.io.StringReader;
 public final class ReferenceEntry extends AbstractEntry {
 
     /**
-     * A descriptive text of the reference
+     * A descriptive text of the reference. Null for BibTeX entries whose
+     * text is rendered from a field store, use <code>getInfo()</code>.
      */
     public String info;
     /**
@@ -44,6 +45,13 @@ public final class ReferenceEntry extends AbstractEntry {
      */
     public File refFile;
     
+    /**
+     * The field store holding the data of a BibTeX entry and the index of
+     * the entry in it
+     */
+    private BibFieldStore fieldStore;
+    private int fieldIndex;
+    
     /**
      * Constructs a new entry with the given key (reference key/name)
      * 
@@ -81,9 +89,52 @@ public final class ReferenceEntry extends AbstractEntry {
         re.refFile = refFile;
         re.fileName = fileName;
         re.position = position;
+        re.fieldStore = fieldStore;
+        re.fieldIndex = fieldIndex;
         return re;
     }
     
+    /**
+     * Sets the store from which the descriptive text of this BibTeX entry
+     * is rendered.
+     * 
+     * @param store The field store of the parsed file
+     * @param index The index of this entry in the store
+     */
+    public void setFieldStore(BibFieldStore store, int index) {
+        this.fieldStore = store;
+        this.fieldIndex = index;
+    }
+    
+    /**
+     * @return The field store of this entry or null if it doesn't have one
+     */
+    BibFieldStore getFieldStore() {
+        return fieldStore;
+    }
+    
+    /**
+     * @param name The (lower case) name of the field
+     * @return The value of the field or null if this entry has no field
+     * store or the field is missing
+     */
+    String getField(String name) {
+        return fieldStore != null ? fieldStore.getField(fieldIndex, name) : null;
+    }
+
+    /**
+     * Returns the descriptive text of the reference. For BibTeX entries
+     * the text is rendered on demand from the field store.
+     * 
+     * @return The descriptive text or null if there is none
+     */
+    public String getInfo() {
+        if (info == null && fieldStore != null) {
+            return fieldStore.getInfo(fieldIndex);
+        }
+        return info;
+    }
+    
     /* (non-Javadoc)
      * @see java.lang.Object#toString()
      */
@@ -15,6 +15,9 @@ package org.eclipse.texlipse.model;
 
 import java.util.List;
 
+import org.eclipse.texlipse.jfr.CompletionEvent;
+import org.eclipse.texlipse.jfr.Events;
+
 /**
  * Manages the references (BibTeX and \label) and provides an interface
  * for searching them efficiently by partial matches.
@@ -106,18 +109,9 @@ public class ReferenceManager extends PartialRetriever {
         if (start.equals(""))
             return labels;
 
-        // don't refetch the proposal list in partial fill;
-        // use the existing proposal list and make it smaller
-        int[] bounds;
-        // if (lastLab.length() > 0 && start.startsWith(lastLab))
-        // bounds = getCompletionsBin(start, labels, lastLabBounds);
-        // else
-        // bounds = getCompletionsBin(start, labels);
-
-        bounds = getCompletionsBin(start, labels, true);
-
-        if (bounds[0] == -1) return null;
-        return labels.subList(bounds[0], bounds[1]);
+        // the index narrows the last result while the user types
+        CompletionEvent event = beginEvent();
+        return completed(event, "ref", start, labelContainer.getPrefixIndex().getCompletions(start));
     }
 
     /**
@@ -135,19 +129,44 @@ public class ReferenceManager extends PartialRetriever {
         if (start.equals(""))
             return bibEntries;
 
-        // don't refetch the proposal list in partial fill;
-        // use the existing proposal list and make it smaller
-        int[] bounds;
-        // if (lastBib.length() > 0 && start.startsWith(lastBib))
-        // bounds = getCompletionsBin(start, bibEntries, lastBibBounds);
-        // else
-        // bounds = getCompletionsBin(start, bibEntries);
+        // the index narrows the last result while the user types
+        CompletionEvent event = beginEvent();
+        return completed(event, "cite", start, bibContainer.getPrefixIndex().getCompletions(start));
+    }
 
-        // ...either solve problems with bounds or remove them...
-        bounds = getCompletionsBin(start, bibEntries, true);
+    /**
+     * Gets the BibTeX entries whose fields (author, title, year...) have
+     * words starting with each of the words of the given query, best
+     * matches first.
+     * 
+     * @param query The typed query, e.g. "smith 2019 graph"
+     * @param max The maximum number of entries to return
+     * @return A list of matching entries or null if there were none
+     */
+    public List<ReferenceEntry> searchBib(String query, int max) {
+        CompletionEvent event = beginEvent();
+        List<ReferenceEntry> matches = completed(event, "citeSearch", query,
+                bibContainer.search(query, max));
+        return matches.isEmpty() ? null : matches;
+    }
 
-        if (bounds[0] == -1) return null;
-        return bibEntries.subList(bounds[0], bounds[1]);
+    /**
+     * Gets the BibTeX entries whose author or title contains the given
+     * string or has words starting with its pieces (see
+     * <code>BibFieldMatcher</code>).
+     * 
+     * @param query The typed string
+     * @param max The maximum number of entries to return
+     * @return A list of matching entries or null if there were none
+     */
+    public List<ReferenceEntry> getFieldMatchesBib(String query, int max) {
+        BibFieldMatcher matcher = bibContainer.getFieldMatcher();
+        if (matcher == null || query.length() == 0)
+            return null;
+        CompletionEvent event = beginEvent();
+        List<ReferenceEntry> matches = completed(event, "citeFields", query,
+                matcher.getMatches(query, max));
+        return matches.isEmpty() ? null : matches;
     }
 
     /**
@@ -163,10 +182,39 @@ public class ReferenceManager extends PartialRetriever {
         if (start.equals(""))
             return commands;
 
-        int[] bounds = getCompletionsBin(start, commands, false);
-        if (bounds[1] == -1)
-            return null;
-        
-        return commands.subList(bounds[0], bounds[1]);
+        CompletionEvent event = beginEvent();
+        return completed(event, "command", start,
+                commandContainer.getPrefixIndex(context).getCompletions(start));
+    }
+
+    /**
+     * @return a started completion event, or null if events are not available
+     */
+    private static CompletionEvent beginEvent() {
+        CompletionEvent event = Events.AVAILABLE ? new CompletionEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Commits the event of a lookup if it is recorded.
+     * 
+     * @param event the event returned by <code>beginEvent()</code>
+     * @param kind what was completed
+     * @param query the typed string
+     * @param result the result of the lookup
+     * @return the result
+     */
+    private static <T> List<T> completed(CompletionEvent event, String kind, String query,
+            List<T> result) {
+        if (event != null && event.shouldCommit()) {
+            event.kind = kind;
+            event.queryLength = query.length();
+            event.results = result != null ? result.size() : 0;
+            event.commit();
+        }
+        return result;
     }
 }
@@ -14,11 +14,19 @@
 package org.eclipse.texlipse.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jface.resource.ImageDescriptor;
 
 /**
  * Contains the LaTeX commands that can be completed.
@@ -425,21 +433,43 @@ public class TexCommandContainer {
     	new TexCommandEntry("Pr", "\\Pr  \n\n", 0, TexCommandEntry.MATH_CONTEXT)
     };
 
+    //Orders the commands of one context
+    private static final Comparator<TexCommandEntry> keyComparator = new Comparator<TexCommandEntry>() {
+        public int compare(TexCommandEntry o1, TexCommandEntry o2) {
+            return o1.key.compareTo(o2.key);
+        }
+    };
+
+    /**
+     * The built-in commands of each context, sorted by their keys.
+     * Sorted once, as they never change.
+     */
+    private static final TexCommandEntry[][] builtInByContext = sortByContext(
+            builtIn, greekCapital, greekSmall, miscMath, stdArrows, stdCompare,
+            functionNames, stdBinOpSymbols, stdBraces, stdAccents);
+
+    //The keys of the built-in commands, which packages can't override
+    private static final Set<String> builtInKeys = keysOf(builtInByContext);
+
     private Map<String, List<TexCommandEntry>> commandHash;
-    private List<TexCommandEntry> sortedCommands;
     private int size;
-    //Saves the positions of the contexts
-    private int[] contexts;
+    //The packages loaded by each reference source
+    private Map<String, List<String>> packageHash;
+    //The generation of the package index last merged, -1 if no packages are loaded
+    private volatile int packageGeneration = -1;
+    //The sorted commands of each context, replaced (never changed) on organize
+    private volatile List<TexCommandEntry>[] sortedCommands;
+    //The prefix indices of the contexts, built when first needed
+    private PrefixIndex<TexCommandEntry>[] prefixIndices;
     
     /**
      * Constructs a new command container
      */
     public TexCommandContainer() {
-    	sortedCommands = new ArrayList<TexCommandEntry>(100);
         commandHash = new HashMap<String, List<TexCommandEntry>>(4);
-        contexts = new int[TexCommandEntry.NUMBER_OF_CONTEXTS + 1];
+        packageHash = new HashMap<String, List<String>>(4);
+        prefixIndices = newPrefixIndices();
         organize();
-//        for (int i=0; i<builtIn.length; i++) sortedCommands.add(builtIn[i]);
         size = 0;
     }
 
@@ -451,7 +481,7 @@ public class TexCommandContainer {
      * @param refs The commands to insert
      * @return true if the container needs a reorganize
      */
-    public boolean addRefSource(String key, List<TexCommandEntry> refs) {
+    public synchronized boolean addRefSource(String key, List<TexCommandEntry> refs) {
         //Add filenames to the entries
         for (Iterator<TexCommandEntry> iter = refs.iterator(); iter.hasNext();) {
             AbstractEntry r = (AbstractEntry) iter.next();
@@ -469,69 +499,207 @@ public class TexCommandContainer {
     }
 
     /**
-     * Searches (very inefficient) for the last entries of each
-     * context and saves them in contexts
+     * Sets the packages a reference source (tex file) loads with the
+     * usepackage command. Their commands are offered along with the
+     * commands of the reference sources.
+     * 
+     * @param key The name of the reference source (filename)
+     * @param packages The names of the packages
+     * @return true if the container needs a reorganize
      */
-    private void createContexts(){
-    	contexts[0] = -1;
-    	int current = 1;
-    	for (int i=0; i < sortedCommands.size(); i++){
-    		if (current != ((TexCommandEntry) sortedCommands.get(i)).context){
-    			contexts[current] = i - 2;
-    			current++;
-    			if (current == TexCommandEntry.NUMBER_OF_CONTEXTS) break;
-    		}
-    	}
-    	contexts[current] = sortedCommands.size() - 2;
+    public synchronized boolean addPackageSource(String key, List<String> packages) {
+        List<String> old = packages.isEmpty() ? packageHash.remove(key)
+                : packageHash.put(key, packages);
+        if (old == null)
+            return !packages.isEmpty();
+        else
+            return !old.equals(packages);
     }
-    
+
     /**
-     * Organizes this container's contents into the sorted command array.
-     * The added reference sources' commands are added to the built-in commands
-     * and sorted.
+     * Organizes this container's contents into the sorted command lists.
+     * The added reference sources' commands and the commands of the
+     * packages they load are sorted and merged with the presorted
+     * built-in commands of each context. The user commands are also
+     * offered in math mode; the same entries are used for that.
      */
-    public void organize() {
-        //if (commandHash.size() == 0)
-        //    return;
+    public synchronized void organize() {
         List<TexCommandEntry> allRefs = new ArrayList<TexCommandEntry>(size);
-        if (commandHash.size() > 1) {
-            for (List<TexCommandEntry> l : commandHash.values()) {
-                allRefs.addAll(l);
-            }
-        } else if (commandHash.size() == 1) {
-            Iterator<List<TexCommandEntry>> iter = commandHash.values().iterator();
-            allRefs = iter.next();
+        for (List<TexCommandEntry> l : commandHash.values()) {
+            allRefs.addAll(l);
+        }
+        if (packageHash.isEmpty()) {
+            packageGeneration = -1;
+        } else {
+            addPackageCommands(allRefs);
+        }
+        // only the (few) user and package commands need sorting
+        Collections.sort(allRefs, keyComparator);
+
+        List<TexCommandEntry>[] lists = newCommandLists();
+        for (int context = 1; context <= TexCommandEntry.NUMBER_OF_CONTEXTS; context++) {
+            List<TexCommandEntry> overlay = context == TexCommandEntry.MATH_CONTEXT
+                    ? allRefs : ofContext(allRefs, context);
+            lists[context] = merge(builtInByContext[context], overlay);
         }
-        //copy all commands and change the context to activate them also in mathmode
-        List<TexCommandEntry> mathRefs = new ArrayList<TexCommandEntry> (allRefs.size());
+        sortedCommands = lists;
+        prefixIndices = newPrefixIndices();
+    }
+    
+    /**
+     * Adds the commands of the loaded packages that aren't built-in or
+     * defined by the user to the list.
+     */
+    private void addPackageCommands(List<TexCommandEntry> allRefs) {
+        PackageCommandIndex packageIndex = PackageCommandIndex.getInstance();
+        // read first, a newer index is merged on the next organize
+        packageGeneration = packageIndex.getGeneration();
+        Set<String> keys = new HashSet<String>(builtInKeys);
         for (TexCommandEntry c : allRefs) {
-            TexCommandEntry element = new TexCommandEntry(c);
-            element.context = TexCommandEntry.MATH_CONTEXT;
-            mathRefs.add(element);
+            keys.add(c.key);
+        }
+        for (List<String> packages : packageHash.values()) {
+            for (String name : packages) {
+                TexCommandEntry[] commands = packageIndex.getCommands(name);
+                if (commands == null) {
+                    continue;
+                }
+                for (TexCommandEntry c : commands) {
+                    if (keys.add(c.key)) {
+                        allRefs.add(c);
+                    }
+                }
+            }
         }
-        
-        sortedCommands.clear();
-        for (TexCommandEntry c : builtIn) sortedCommands.add(c);
-        sortedCommands.addAll(allRefs);
-        for (TexCommandEntry c : greekCapital) sortedCommands.add(c);
-        for (TexCommandEntry c : greekSmall) sortedCommands.add(c);
-        for (TexCommandEntry c : miscMath) sortedCommands.add(c);
-        for (TexCommandEntry c : stdArrows) sortedCommands.add(c);
-        for (TexCommandEntry c : stdCompare) sortedCommands.add(c);
-        for (TexCommandEntry c : functionNames) sortedCommands.add(c);
-        for (TexCommandEntry c : stdBinOpSymbols) sortedCommands.add(c);
-        for (TexCommandEntry c : stdBraces) sortedCommands.add(c);
-        for (TexCommandEntry c : stdAccents) sortedCommands.add(c);
-        sortedCommands.addAll(mathRefs);
-        Collections.sort(sortedCommands);
-        createContexts();
     }
     
     /**
-     * @return Returns the sortedCommands.
+     * @return The commands of the context sorted by their keys
      */
     public List<TexCommandEntry> getSortedCommands(int context) {
-        return sortedCommands.subList(contexts[context-1]+1, contexts[context]+2);
+        int generation = packageGeneration;
+        if (generation >= 0 && generation != PackageCommandIndex.getInstance().getGeneration()) {
+            // the package index has been loaded since the last organize
+            organize();
+        }
+        return sortedCommands[context];
+    }
+
+    /**
+     * Returns the prefix index of the commands of a context for
+     * completing command names. The index is rebuilt after the
+     * container has been reorganized.
+     * 
+     * @param context The context
+     * @return The prefix index of the commands
+     */
+    public synchronized PrefixIndex<TexCommandEntry> getPrefixIndex(int context) {
+        if (prefixIndices[context] == null) {
+            prefixIndices[context] = new PrefixIndex<TexCommandEntry>(
+                    getSortedCommands(context), false);
+        }
+        return prefixIndices[context];
+    }
+
+    /**
+     * @return The commands of the list belonging to the context
+     */
+    private static List<TexCommandEntry> ofContext(List<TexCommandEntry> commands, int context) {
+        List<TexCommandEntry> result = new ArrayList<TexCommandEntry>(commands.size());
+        for (TexCommandEntry c : commands) {
+            if (c.context == context) {
+                result.add(c);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Merges the sorted built-in commands with sorted user commands. Of
+     * equal keys, the built-in command comes first.
+     * 
+     * @return An unmodifiable list of the commands
+     */
+    private static List<TexCommandEntry> merge(TexCommandEntry[] builtIns,
+            List<TexCommandEntry> user) {
+        if (user.isEmpty()) {
+            return Collections.unmodifiableList(Arrays.asList(builtIns));
+        }
+        TexCommandEntry[] merged = new TexCommandEntry[builtIns.length + user.size()];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < builtIns.length && j < user.size()) {
+            if (user.get(j).key.compareTo(builtIns[i].key) < 0) {
+                merged[k++] = user.get(j++);
+            } else {
+                merged[k++] = builtIns[i++];
+            }
+        }
+        while (i < builtIns.length) {
+            merged[k++] = builtIns[i++];
+        }
+        while (j < user.size()) {
+            merged[k++] = user.get(j++);
+        }
+        return Collections.unmodifiableList(Arrays.asList(merged));
+    }
+
+    private static TexCommandEntry[][] sortByContext(TexCommandEntry[]... tables) {
+        List<List<TexCommandEntry>> byContext = new ArrayList<List<TexCommandEntry>>();
+        for (int context = 0; context <= TexCommandEntry.NUMBER_OF_CONTEXTS; context++) {
+            byContext.add(new ArrayList<TexCommandEntry>());
+        }
+        for (TexCommandEntry[] table : tables) {
+            for (TexCommandEntry c : table) {
+                byContext.get(c.context).add(c);
+            }
+        }
+        TexCommandEntry[][] result = new TexCommandEntry[byContext.size()][];
+        for (int context = 0; context < result.length; context++) {
+            List<TexCommandEntry> l = byContext.get(context);
+            Collections.sort(l, keyComparator);
+            result[context] = l.toArray(new TexCommandEntry[l.size()]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the images of the built-in math symbols, for decoding them
+     * before the first completion or hover shows them.
+     * 
+     * @return the distinct image descriptors of the built-in commands
+     */
+    public static Collection<ImageDescriptor> getImageDescriptors() {
+        Set<ImageDescriptor> descriptors = new LinkedHashSet<ImageDescriptor>();
+        for (TexCommandEntry[] context : builtInByContext) {
+            for (TexCommandEntry c : context) {
+                if (c.imageDesc != null) {
+                    descriptors.add(c.imageDesc);
+                }
+            }
+        }
+        return descriptors;
+    }
+
+    private static Set<String> keysOf(TexCommandEntry[][] commands) {
+        Set<String> keys = new HashSet<String>();
+        for (TexCommandEntry[] context : commands) {
+            for (TexCommandEntry c : context) {
+                keys.add(c.key);
+            }
+        }
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TexCommandEntry>[] newCommandLists() {
+        return new List[TexCommandEntry.NUMBER_OF_CONTEXTS + 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PrefixIndex<TexCommandEntry>[] newPrefixIndices() {
+        return new PrefixIndex[TexCommandEntry.NUMBER_OF_CONTEXTS + 1];
     }
 
 }
@@ -173,13 +173,14 @@ public class TexCommandEntry extends AbstractEntry {
     }
     
     /**
-     * If exists returns an image for this command
+     * If exists returns an image for this command. The image is shared
+     * with the other commands of the same image and must not be disposed.
      * @return image or null if no image exists
      */
     public Image getImage(){
-        if (image != null) return image;
+        if (image != null && !image.isDisposed()) return image;
         else if (imageDesc != null)
-            image = imageDesc.createImage();
+            image = TexlipsePlugin.getSharedImages().get(imageDesc);
         return image;
     }
 
@@ -36,6 +36,7 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.SubStatusLineManager;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.BadPositionCategoryException;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
@@ -43,10 +44,12 @@ import org.eclipse.jface.text.Position;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.texlipse.TexlipsePlugin;
-import org.eclipse.texlipse.bibparser.BibParser;
 import org.eclipse.texlipse.builder.KpsewhichRunner;
 import org.eclipse.texlipse.editor.TexDocumentParseException;
 import org.eclipse.texlipse.editor.TexEditor;
+import org.eclipse.texlipse.jfr.Events;
+import org.eclipse.texlipse.jfr.OutlineUpdateEvent;
+import org.eclipse.texlipse.jfr.ParseEvent;
 import org.eclipse.texlipse.outline.TexOutlinePage;
 import org.eclipse.texlipse.outline.TexProjectOutline;
 import org.eclipse.texlipse.properties.TexlipseProperties;
@@ -103,10 +106,18 @@ public class TexDocumentModel implements IDocumentListener {
                 
                 // parsing
                 ArrayList<OutlineNode> rootNodes;
+                ParseEvent event = Events.AVAILABLE ? new ParseEvent() : null;
+                if (event != null) {
+                    event.begin();
+                }
                 try {
                     rootNodes = doParse(monitor);
                 } catch (TexDocumentParseException e1) {
                     return Status.CANCEL_STATUS;
+                } finally {
+                    if (event != null && event.shouldCommit()) {
+                        commitParseEvent(event);
+                    }
                 }
                 pollCancel(monitor);
                 
@@ -159,6 +170,8 @@ public class TexDocumentModel implements IDocumentListener {
         
         private ArrayList<OutlineNode> rootNodes;
         private List<OutlineNode> fullOutlineNodes;
+        private List<ReferenceEntry> labels;
+        private List<DocumentReference> refs;
 
         /**
          * 
@@ -182,10 +195,23 @@ public class TexDocumentModel implements IDocumentListener {
             this.fullOutlineNodes = rootNodes;
         }
 
+        /**
+         * @param labels The labels of the document
+         * @param refs The references of the document
+         */
+        public void setOccurrences(List<ReferenceEntry> labels, List<DocumentReference> refs) {
+            this.labels = labels;
+            this.refs = refs;
+        }
+
         /**
          * @see org.eclipse.ui.progress.UIJob#runInUIThread(org.eclipse.core.runtime.IProgressMonitor)
          */
         public IStatus runInUIThread(IProgressMonitor monitor) {
+            OutlineUpdateEvent event = Events.AVAILABLE ? new OutlineUpdateEvent() : null;
+            if (event != null) {
+                event.begin();
+            }
             try {
             	//long time = System.currentTimeMillis();
                 updateDocumentPositions(rootNodes, monitor);
@@ -193,6 +219,12 @@ public class TexDocumentModel implements IDocumentListener {
                 
                 pollCancel(monitor);
                 
+                if (labels != null) {
+                    IDocument document = editor.getDocumentProvider().getDocument(editor.getEditorInput());
+                    DocumentOccurrenceIndex.getIndex(document).update(document, labels, refs);
+                    pollCancel(monitor);
+                }
+                
                 //time = System.currentTimeMillis();
                 editor.updateCodeFolder(rootNodes, monitor);
                 //System.out.println("updateCodeFolder: " + (System.currentTimeMillis() - time));
@@ -216,6 +248,12 @@ public class TexDocumentModel implements IDocumentListener {
                     }
                 }
 
+                if (event != null && event.shouldCommit()) {
+                    event.file = editor.getEditorInput().getName();
+                    event.outlineNodes = OutlineNode.countNodes(rootNodes);
+                    event.projectOutlineNodes = OutlineNode.countNodes(fullOutlineNodes);
+                    event.commit();
+                }
                 return Status.OK_STATUS;
             } catch (Exception e) {
                 // npe when exiting eclipse and saving
@@ -234,6 +272,7 @@ public class TexDocumentModel implements IDocumentListener {
     private ReferenceContainer bibContainer;
     private ReferenceContainer labelContainer;
     private TexCommandContainer commandContainer;
+    private ProjectOccurrenceIndex occurrenceIndex;
     
     private ReferenceManager refMana;
     
@@ -425,6 +464,24 @@ public class TexDocumentModel implements IDocumentListener {
         }
     }
     
+    /**
+     * Fills in the results of the last parse and commits the event.
+     * 
+     * @param event the event started before the parse
+     */
+    private void commitParseEvent(ParseEvent event) {
+        IDocument document = editor.getDocumentProvider().getDocument(editor.getEditorInput());
+        event.file = editor.getEditorInput().getName();
+        event.length = document != null ? document.getLength() : 0;
+        if (parser != null) {
+            event.outlineNodes = OutlineNode.countNodes(parser.getOutlineTree());
+            event.references = parser.getRefs() != null ? parser.getRefs().size() : 0;
+            event.citations = parser.getCites() != null ? parser.getCites().size() : 0;
+            event.errors = parser.getErrors() != null ? parser.getErrors().size() : 0;
+        }
+        event.commit();
+    }
+
     /**
      * Parses the LaTeX-document and adds error markers if there were any
      * errors. Throws <code>TexDocumentParseException</code> if there were
@@ -676,8 +733,11 @@ public class TexDocumentModel implements IDocumentListener {
      * @param monitor Progress monitor
      */
     private void updateReferences(IProgressMonitor monitor) {
-        this.updateLabels(parser.getLabels());
-        this.updateCommands(parser.getCommands());
+        List<ReferenceEntry> labels = parser.getLabels();
+        postParseJob.setOccurrences(labels, parser.getRefs());
+        this.updateLabels(labels);
+        this.updateCommands(parser.getCommands(), parser.getPackages());
+        this.updateOccurrences(labels);
         IProject project = getCurrentProject();
         if (project == null) return;
         IFile cFile = ((FileEditorInput) editor.getEditorInput()).getFile();
@@ -767,6 +827,10 @@ public class TexDocumentModel implements IDocumentListener {
             path = path.addTrailingSeparator();
         
         KpsewhichRunner filesearch = new KpsewhichRunner();
+        
+        // resolve the files first, then load them (concurrently) through the cache
+        List<String> bibKeys = new ArrayList<String>();
+        List<String> bibPaths = new ArrayList<String>();
                 
         for (Iterator<String> iter = newBibs.iterator(); iter.hasNext();) {
         	String name = iter.next();
@@ -811,19 +875,8 @@ public class TexDocumentModel implements IDocumentListener {
         	    }
         	    
         		if (filepath.length() > 0) {
-        			BibParser parser = new BibParser(filepath);
-        			try {
-        				List<ReferenceEntry> bibEntriesList = parser.getEntries();
-        				if (bibEntriesList != null && bibEntriesList.size() > 0) {
-        					bibContainer.addRefSource(path + name, bibEntriesList);
-        				} else if (bibEntriesList == null) {
-        					MarkerHandler marker = MarkerHandler.getInstance();
-        					marker.addFatalError(editor, "The BibTeX file " + filepath + " contains fatal errors, parsing aborted.");
-        					continue;
-        				}
-        			} catch (IOException ioe) {
-        				TexlipsePlugin.log("Can't read BibTeX file " + filepath, ioe);
-        			}
+        			bibKeys.add(path + name);
+        			bibPaths.add(filepath);
         		} else {
         			MarkerHandler marker = MarkerHandler.getInstance();
         			marker.addFatalError(editor, "The BibTeX file " +name+ " not found.");
@@ -833,6 +886,24 @@ public class TexDocumentModel implements IDocumentListener {
         		TexlipsePlugin.log("Can't run Kpathsea", ce);
         	}
         }
+        
+        List<BibFileCache.Result> bibFiles = BibFileCache.getInstance().load(bibPaths, bibKeys);
+        for (int i = 0; i < bibFiles.size(); i++) {
+            BibFileCache.Result bibFile = bibFiles.get(i);
+            try {
+                List<ReferenceEntry> bibEntriesList = bibFile.getEntries();
+                if (bibFile.getErrors().size() > 0) {
+                    MarkerHandler marker = MarkerHandler.getInstance();
+                    marker.addFatalError(editor, "The BibTeX file " + bibPaths.get(i) + " contains errors, the erroneous entries were skipped.");
+                }
+                if (bibEntriesList.size() > 0) {
+                    bibContainer.addRefSource(bibKeys.get(i), bibEntriesList,
+                            bibFile.getTermIndex());
+                }
+            } catch (IOException ioe) {
+                TexlipsePlugin.log("Can't read BibTeX file " + bibPaths.get(i), ioe);
+            }
+        }
         bibContainer.organize();
     }
     
@@ -847,14 +918,29 @@ public class TexDocumentModel implements IDocumentListener {
         labelContainer.organize();
     }
     
+    /**
+     * Updates the occurrences of this file in the project occurrence index.
+     * @param labels
+     */
+    private void updateOccurrences(List<ReferenceEntry> labels) {
+        IResource resource = getFile();
+        if (resource == null || occurrenceIndex == null) return;
+        IDocument document = editor.getDocumentProvider().getDocument(editor.getEditorInput());
+        occurrenceIndex.updateFile(resource.getProjectRelativePath().toString(), document,
+                labels, parser.getRefs(), parser.getCites());
+    }
+    
     /**
      * Updates the commands.
      * @param commands
+     * @param packages The packages loaded by the file
      */
-    private void updateCommands(ArrayList<TexCommandEntry> commands) {
+    private void updateCommands(ArrayList<TexCommandEntry> commands, List<String> packages) {
         IResource resource = getFile();
         if (resource == null) return;
-        if (commandContainer.addRefSource(resource.getProjectRelativePath().toString(), commands))
+        String key = resource.getProjectRelativePath().toString();
+        boolean changed = commandContainer.addRefSource(key, commands);
+        if (commandContainer.addPackageSource(key, packages) || changed)
             commandContainer.organize();
     }
     
@@ -935,6 +1021,14 @@ public class TexDocumentModel implements IDocumentListener {
         } else {
             commandContainer = comCon;
         }
+        occurrenceIndex = ProjectOccurrenceIndex.getIndex(project);
+        if (occurrenceIndex == null) {
+            occurrenceIndex = new ProjectOccurrenceIndex();
+            TexlipseProperties.setSessionProperty(project,
+                    TexlipseProperties.SESSION_OCCURRENCE_INDEX,
+                    occurrenceIndex);
+            parseAll = true;
+        }
         
         if (parseAll) {
             createProjectDatastructs(project);
@@ -962,7 +1056,8 @@ public class TexDocumentModel implements IDocumentListener {
 				// here are the file types we want to parse
                 if ("tex".equals(ext) || "ltx".equals(ext) || "sty".equals(ext)) {
                     try {
-                        String input = TexlipseProperties.getFileContents(files[i]);
+                        FileContents contents = FileContents.read((IFile) files[i]);
+                        String input = contents.toString();
                         LatexRefExtractingParser lrep = new LatexRefExtractingParser();
                         lrep.parse(input);
                         if (lrep.isFatalErrors()) {
@@ -978,6 +1073,11 @@ public class TexDocumentModel implements IDocumentListener {
                         if (commands.size() > 0) {
                             commandContainer.addRefSource(files[i].getProjectRelativePath().toString(), commands);
                         }
+                        commandContainer.addPackageSource(files[i].getProjectRelativePath().toString(),
+                                lrep.getPackages());
+                        occurrenceIndex.updateFile(files[i].getProjectRelativePath().toString(),
+                                contents.getHash(), new Document(input), labels, lrep.getRefs(),
+                                lrep.getCites());
                         //Only update Preamble, Bibstyle if main Document
                         if (files[i].equals(mainFile)) {
                             String[] bibs = lrep.getBibs();
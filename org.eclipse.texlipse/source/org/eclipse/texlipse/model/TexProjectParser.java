@@ -13,9 +13,7 @@
 
 package org.eclipse.texlipse.model;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.List;
 
 import org.eclipse.core.resources.IFile;
@@ -130,8 +128,7 @@ public class TexProjectParser {
      * @throws TexDocumentParseException if the parsing ended in fatal errors
      */
     private List<OutlineNode> parseFile() throws IOException {
-        String inputContent = readFile(file);
-        parseDocument(inputContent);
+        parseDocument(FileContents.read(file).getChars());
         if (parser.isFatalErrors()) {
             throw new IOException("Unable to parse document successfully");
         }
@@ -146,43 +143,11 @@ public class TexProjectParser {
      * @param labels the label container.
      * @param bibs the bib container.
      */
-    private void parseDocument(String input) throws IOException {
+    private void parseDocument(CharSequence input) throws IOException {
         if (this.parser == null) {
             this.parser = new TexParser(null);
         }
         this.parser.parseDocument(input, false);
     }
 
-    /**
-     * Reads a file from the project.
-     * 
-     * @param file the file to be read.
-     * @return The contents of the file as a String.
-     * @throws IOException
-     */
-    private String readFile(IFile file) throws IOException {
-        StringBuilder inputContent = new StringBuilder("");
-        try {
-            BufferedReader buf = new BufferedReader(
-                    new InputStreamReader(file.getContents()));
-            
-            final int length = 10000;
-            int read = length;
-            char[] fileData = new char[length];
-            while (read == length) {
-                read = buf.read(fileData, 0, length);
-                if (read > 0) {
-                    inputContent.append(fileData, 0, read);
-                }
-            }
-            buf.close();
-        } catch (CoreException e) {
-            // This should be very rare...
-            throw new IOException(e.getMessage());
-        }
-        // TODO
-        //return this.rmTrailingWhitespace(inputContent);
-        return inputContent.toString();
-    }
-    
 }
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.preview;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.texlipse.builder.core.CommandRunner;
+import org.eclipse.texlipse.texparser.LatexParserUtils;
+
+/**
+ * Renders snippets with latex and dvipng. All the snippets of a run go
+ * into one document, each on a page of its own, so the preamble is read
+ * and the fonts are loaded once per run.
+ */
+public class LatexSnippetRenderer implements SnippetRenderer {
+
+    // the name of the document of a run
+    private static final String DOCUMENT = "preview";
+
+    private final String latex;
+    private final String dvipng;
+    private final int resolution;
+    private final Map<String, String> env;
+    private final CommandRunner runner = new CommandRunner();
+
+    /**
+     * @param latex the latex program producing DVI
+     * @param dvipng the dvipng program
+     * @param resolution the resolution of the images in dots per inch
+     * @param inputDir the directory of the files the preamble includes, or null
+     */
+    public LatexSnippetRenderer(String latex, String dvipng, int resolution, Path inputDir) {
+        this.latex = latex;
+        this.dvipng = dvipng;
+        this.resolution = resolution;
+        if (inputDir != null) {
+            // the trailing separator keeps the default search path
+            env = Collections.singletonMap("TEXINPUTS",
+                    inputDir.toAbsolutePath().toString() + File.pathSeparator);
+        } else {
+            env = null;
+        }
+    }
+
+    public List<Path> render(String preamble, List<String> snippets, Path dir) throws IOException {
+        Writer out = Files.newBufferedWriter(dir.resolve(DOCUMENT + ".tex"), StandardCharsets.UTF_8);
+        try {
+            out.write(preamble);
+            // the preamble of the parser ends with \begin{document}
+            if (LatexParserUtils.findBeginEnvironment(preamble, "document", 0) == null) {
+                out.write("\n\\begin{document}");
+            }
+            out.write("\n\\pagestyle{empty}\n");
+            for (int i = 0; i < snippets.size(); i++) {
+                // the page number names the image, so a snippet that
+                // fails without output doesn't shift the others
+                out.write("\\setcounter{page}{" + (i + 1) + "}\n");
+                out.write(snippets.get(i));
+                out.write("\n\\clearpage\n");
+            }
+            out.write("\\end{document}\n");
+        } finally {
+            out.close();
+        }
+
+        runner.run(Arrays.asList(latex, "-interaction=nonstopmode", DOCUMENT + ".tex"), dir, env);
+        List<Path> images = new ArrayList<Path>(snippets.size());
+        if (Files.isRegularFile(dir.resolve(DOCUMENT + ".dvi"))) {
+            runner.run(Arrays.asList(dvipng, "-T", "tight", "-D", Integer.toString(resolution),
+                    "-bg", "Transparent", "-o", "snippet%d.png", DOCUMENT + ".dvi"), dir, env);
+        }
+        for (int i = 0; i < snippets.size(); i++) {
+            Path image = dir.resolve("snippet" + (i + 1) + ".png");
+            images.add(Files.isRegularFile(image) ? image : null);
+        }
+        return images;
+    }
+
+    /**
+     * Kills the program that is running.
+     */
+    public void stop() {
+        runner.stop();
+    }
+}
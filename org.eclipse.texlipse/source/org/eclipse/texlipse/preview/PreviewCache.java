@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.preview;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The rendered images of snippets, kept in a directory. An image is named
+ * by the hash of the preamble and the snippet, so it survives restarts
+ * and is rendered again when the preamble changes.
+ * <p>
+ * Lookups are cheap and can be done in the UI thread. <code>render</code>
+ * renders the missing snippets in one run of the renderer, and should be
+ * called in the background. A snippet that couldn't be rendered isn't
+ * tried again until the preamble or the snippet changes.
+ */
+public class PreviewCache {
+
+    private static final String EXTENSION = ".png";
+
+    private final Path dir;
+    private final SnippetRenderer renderer;
+
+    // one run of the renderer at a time
+    private final Object renderLock = new Object();
+    // the keys of the snippets that couldn't be rendered
+    private final Set<String> failed = new HashSet<String>();
+
+    private long lookups;
+    private long hits;
+    private long runs;
+    private long renderedSnippets;
+    private long renderNanos;
+
+    /**
+     * @param dir the directory of the images, created when needed
+     * @param renderer renders the missing images
+     */
+    public PreviewCache(Path dir, SnippetRenderer renderer) {
+        this.dir = dir;
+        this.renderer = renderer;
+    }
+
+    /**
+     * Returns the rendered image of a snippet.
+     *
+     * @param preamble the preamble of the document
+     * @param snippet the snippet
+     * @return the image, or null if the snippet hasn't been rendered
+     */
+    public Path get(String preamble, String snippet) {
+        Path image = dir.resolve(key(preamble, snippet) + EXTENSION);
+        boolean hit = Files.isRegularFile(image);
+        synchronized (this) {
+            lookups++;
+            if (hit) {
+                hits++;
+            }
+        }
+        return hit ? image : null;
+    }
+
+    /**
+     * @param preamble the preamble of the document
+     * @param snippet the snippet
+     * @return true, if the renderer couldn't render the snippet
+     */
+    public synchronized boolean hasFailed(String preamble, String snippet) {
+        return failed.contains(key(preamble, snippet));
+    }
+
+    /**
+     * Renders the snippets that haven't been rendered or failed, all in one run.
+     *
+     * @param preamble the preamble of the document
+     * @param snippets the snippets
+     * @return the number of snippets rendered
+     * @throws IOException if the renderer can't be run
+     */
+    public int render(String preamble, Collection<String> snippets) throws IOException {
+        synchronized (renderLock) {
+            // checked again here, an earlier run may have rendered them
+            Set<String> missing = new LinkedHashSet<String>();
+            for (String snippet : snippets) {
+                if (!hasFailed(preamble, snippet)
+                        && !Files.isRegularFile(dir.resolve(key(preamble, snippet) + EXTENSION))) {
+                    missing.add(snippet);
+                }
+            }
+            if (missing.isEmpty()) {
+                return 0;
+            }
+
+            Files.createDirectories(dir);
+            Path work = Files.createTempDirectory(dir, "run");
+            long start = System.nanoTime();
+            try {
+                List<String> batch = new ArrayList<String>(missing);
+                List<Path> images = renderer.render(preamble, batch, work);
+                int rendered = 0;
+                List<String> failures = new ArrayList<String>();
+                for (int i = 0; i < batch.size(); i++) {
+                    Path image = images.get(i);
+                    String key = key(preamble, batch.get(i));
+                    if (image != null) {
+                        Files.move(image, dir.resolve(key + EXTENSION),
+                                StandardCopyOption.REPLACE_EXISTING);
+                        rendered++;
+                    } else {
+                        failures.add(key);
+                    }
+                }
+                synchronized (this) {
+                    failed.addAll(failures);
+                    runs++;
+                    renderedSnippets += rendered;
+                    renderNanos += System.nanoTime() - start;
+                }
+                return rendered;
+            } finally {
+                delete(work);
+            }
+        }
+    }
+
+    /**
+     * @return the share of the lookups that found an image, 0 if there were none
+     */
+    public synchronized double getHitRate() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return the number of lookups
+     */
+    public synchronized long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return the number of runs of the renderer
+     */
+    public synchronized long getRenderRuns() {
+        return runs;
+    }
+
+    /**
+     * @return the number of snippets rendered
+     */
+    public synchronized long getRenderedSnippets() {
+        return renderedSnippets;
+    }
+
+    /**
+     * @return the average time of a run of the renderer in milliseconds, 0 if there were none
+     */
+    public synchronized double getAverageRenderMillis() {
+        return runs == 0 ? 0 : renderNanos / 1e6 / runs;
+    }
+
+    /**
+     * Computes the name of the image of a snippet.
+     *
+     * @param preamble the preamble of the document
+     * @param snippet the snippet
+     * @return the SHA-1 of the preamble and the snippet in hexadecimal
+     */
+    public static String key(String preamble, String snippet) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java runtime has SHA-1
+            throw new IllegalStateException(e);
+        }
+        md.update(preamble.getBytes(StandardCharsets.UTF_8));
+        md.update((byte) 0);
+        md.update(snippet.getBytes(StandardCharsets.UTF_8));
+        byte[] digest = md.digest();
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            DirectoryStream<Path> files = Files.newDirectoryStream(path);
+            try {
+                for (Path file : files) {
+                    delete(file);
+                }
+            } finally {
+                files.close();
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}
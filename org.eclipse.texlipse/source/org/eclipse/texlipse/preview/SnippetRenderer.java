@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.preview;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Renders LaTeX snippets, like formulas, to images.
+ */
+public interface SnippetRenderer {
+
+    /**
+     * Renders the snippets in one run.
+     *
+     * @param preamble the preamble of the document, from
+     *     <code>\documentclass</code> up to and including
+     *     <code>\begin{document}</code>
+     * @param snippets the snippets with their math delimiters or
+     *     environments, like <code>$x^2$</code>
+     * @param dir an empty directory for the files of the run
+     * @return the PNG images, in the order of the snippets; an element is
+     *     null if its snippet couldn't be rendered
+     * @throws IOException if the renderer can't be run
+     */
+    List<Path> render(String preamble, List<String> snippets, Path dir) throws IOException;
+}
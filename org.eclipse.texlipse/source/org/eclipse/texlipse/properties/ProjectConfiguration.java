@@ -0,0 +1,74 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.properties;
+
+import org.eclipse.core.resources.IResource;
+
+/**
+ * The LaTeX settings of a project, read once from the persistent project
+ * properties that are loaded from the .texlipse file. A configuration
+ * never changes; <code>TexlipseProperties</code> replaces the configuration
+ * of a project when one of its properties is set, so the editor and the
+ * builders read plain fields instead of the property store.
+ *
+ * The values are those of <code>TexlipseProperties.getProjectProperty</code>,
+ * null if the property isn't set.
+ */
+public final class ProjectConfiguration {
+
+    /** The main file, relative to the source directory */
+    public final String mainFile;
+    /** The output file, relative to the output directory */
+    public final String outputFile;
+    public final String sourceDir;
+    public final String outputDir;
+    public final String tempDir;
+    public final String bibrefDir;
+    public final String bibFiles;
+    public final String builderNumber;
+    public final String outputFormat;
+    /** The language code of the spelling, the quotes and the hyphenation */
+    public final String language;
+    public final String makeindexStyleFile;
+    public final boolean markTempDerived;
+    public final boolean markOutputDerived;
+    /** Whether the file of the current editor is built instead of the main file */
+    public final boolean partialBuild;
+
+    /**
+     * Reads the configuration of a project.
+     *
+     * @param project the project
+     */
+    ProjectConfiguration(IResource project) {
+        mainFile = TexlipseProperties.getProjectProperty(project, TexlipseProperties.MAINFILE_PROPERTY);
+        outputFile = TexlipseProperties.getProjectProperty(project, TexlipseProperties.OUTPUTFILE_PROPERTY);
+        sourceDir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.SOURCE_DIR_PROPERTY);
+        outputDir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.OUTPUT_DIR_PROPERTY);
+        tempDir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.TEMP_DIR_PROPERTY);
+        bibrefDir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.BIBREF_DIR_PROPERTY);
+        bibFiles = TexlipseProperties.getProjectProperty(project, TexlipseProperties.BIBFILE_PROPERTY);
+        builderNumber = TexlipseProperties.getProjectProperty(project, TexlipseProperties.BUILDER_NUMBER);
+        outputFormat = TexlipseProperties.getProjectProperty(project, TexlipseProperties.OUTPUT_FORMAT);
+        language = TexlipseProperties.getProjectProperty(project, TexlipseProperties.LANGUAGE_PROPERTY);
+        makeindexStyleFile = TexlipseProperties.getProjectProperty(project,
+                TexlipseProperties.MAKEINDEX_STYLEFILE_PROPERTY);
+        markTempDerived = "true".equals(TexlipseProperties.getProjectProperty(project,
+                TexlipseProperties.MARK_TEMP_DERIVED_PROPERTY));
+        markOutputDerived = "true".equals(TexlipseProperties.getProjectProperty(project,
+                TexlipseProperties.MARK_OUTPUT_DERIVED_PROPERTY));
+        partialBuild = TexlipseProperties.getProjectProperty(project,
+                TexlipseProperties.PARTIAL_BUILD_PROPERTY) != null;
+    }
+}
@@ -153,5 +153,8 @@ public class TexlipsePreferenceInitializer extends
         pref.setDefault(TexlipseProperties.SPELLCHECKER_IGNORE_MIXED_CASE, true);
         
         pref.setDefault(TexlipseProperties.BUILDER_FORCE_RETURN_FOCUS, true);
+        
+        pref.setDefault(TexlipseProperties.PERFORMANCE_RECORDING, false);
+        pref.setDefault(TexlipseProperties.PERFORMANCE_RECORDING_DIR, "");
     }
 }
@@ -13,12 +13,15 @@
 
 package org.eclipse.texlipse.properties;
 
+import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.DirectoryFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.jfr.Events;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
 
@@ -51,6 +54,19 @@ public class TexlipsePreferencePage
      * restore itself.
      */
 	public void createFieldEditors() {
+        if (Events.AVAILABLE) {
+            addField(new BooleanFieldEditor(TexlipseProperties.PERFORMANCE_RECORDING,
+                    TexlipsePlugin.getResourceString("preferencePerformanceRecordingLabel"),
+                    getFieldEditorParent()));
+            DirectoryFieldEditor dir = new DirectoryFieldEditor(TexlipseProperties.PERFORMANCE_RECORDING_DIR,
+                    TexlipsePlugin.getResourceString("preferencePerformanceRecordingDir"),
+                    getFieldEditorParent());
+            dir.setEmptyStringAllowed(true);
+            addField(dir);
+        } else {
+            addLabelField(3, TexlipsePlugin.getResourceString("preferencePerformanceRecordingUnavailable"),
+                    getFieldEditorParent());
+        }
     }
 
     /**
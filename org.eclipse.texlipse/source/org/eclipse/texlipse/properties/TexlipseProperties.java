@@ -15,25 +15,30 @@ package org.eclipse.texlipse.properties;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.QualifiedName;
 import org.eclipse.jface.dialogs.IDialogConstants;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.editor.hover.FormulaPreviews;
+import org.eclipse.texlipse.model.FileContents;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.PlatformUI;
 
@@ -179,6 +184,7 @@ public class TexlipseProperties {
     // attribute for session properties to hold the viewer process object
     public static final String SESSION_ATTRIBUTE_VIEWER = "active.viewer";
     public static final String SESSION_PROJECT_FULLOUTLINE = "project.fullTexParser";
+    public static final String SESSION_OCCURRENCE_INDEX = "project.occurrenceIndex";
     
     public static final String ECLIPSE_BUILDIN_SPELLCHECKER = "eclipseBuildInSpellChecker";
     public static final String SPELLCHECKER_DICT_DIR = "spellcheckerDictDir";
@@ -186,6 +192,9 @@ public class TexlipseProperties {
     public static final String SPELLCHECKER_IGNORE_COMMENTS = "spellcheckerIgnoreComments"; 
     public static final String SPELLCHECKER_IGNORE_MATH = "spellcheckerIgnoreMath"; 
     public static final String SPELLCHECKER_IGNORE_MIXED_CASE = "spellcheckerIgnoreMixedCase"; 
+
+    public static final String PERFORMANCE_RECORDING = "performanceRecording";
+    public static final String PERFORMANCE_RECORDING_DIR = "performanceRecordingDir";
     
     /**
        * A named preference that controls whether bracket matching highlighting is turned on or off.
@@ -205,6 +214,34 @@ public class TexlipseProperties {
        */
     public final static String MATCHING_BRACKETS_COLOR = "matchingBracketsColor"; //$NON-NLS-1$
 
+    // the configurations of the projects, removed when a property is set
+    private static final ConcurrentMap<IResource, ProjectConfiguration> configurations =
+        new ConcurrentHashMap<IResource, ProjectConfiguration>();
+
+    private static final Function<IResource, ProjectConfiguration> readConfiguration =
+        new Function<IResource, ProjectConfiguration>() {
+            public ProjectConfiguration apply(IResource project) {
+                return new ProjectConfiguration(project);
+            }
+        };
+
+    // drops the configurations and formula previews of the projects that
+    // are closed, opened or deleted
+    private static final IResourceChangeListener projectListener = new IResourceChangeListener() {
+        public void resourceChanged(IResourceChangeEvent event) {
+            IResourceDelta delta = event.getDelta();
+            if (delta == null) {
+                return;
+            }
+            for (IResourceDelta child : delta.getAffectedChildren()) {
+                if (child.getKind() == IResourceDelta.REMOVED
+                        || (child.getFlags() & IResourceDelta.OPEN) != 0) {
+                    configurations.remove(child.getResource());
+                    FormulaPreviews.removeCache(child.getResource().getProject());
+                }
+            }
+        }
+    };
     
     /**
      * Returns the contents of a file in the project.
@@ -214,38 +251,11 @@ public class TexlipseProperties {
      * @throws IOException if an error occurs
      */
     public static String getFileContents(IResource resource) throws IOException {
-        
-//       IFolder srcDir = getProjectSourceDir(project);
-//       IFile file = srcDir.getFile(filename);
-       if (resource.getType() != IResource.FILE)
-           return null;
-
-       File f = resource.getLocation().toFile();
-       FileInputStream in = new FileInputStream(f);
-       ByteArrayOutputStream out = new ByteArrayOutputStream();
-       byte[] buff = new byte[4096];
-       
-       int len = 0;
-       while ((len = in.read(buff)) == buff.length) {
-           out.write(buff);
-       }
-       
-       if (len > 0) {
-           out.write(buff, 0, len);
-       }
-       in.close();
-       String contents = null;
-       try {
-           // cast will succeed, because we have already checked for it to be a file
-           contents = out.toString(((IFile) resource).getCharset());
-       } catch (UnsupportedEncodingException e) {
-           // if the correct encoding is not supported, try with default
-           contents = out.toString();
-       } catch (CoreException e) {
-           // should not happen
-       }
-       out.close();
-       return contents;
+        if (resource.getType() != IResource.FILE) {
+            return null;
+        }
+        // cast will succeed, because we have already checked for it to be a file
+        return FileContents.read((IFile) resource).toString();
     }
     
     /**
@@ -307,13 +317,13 @@ public class TexlipseProperties {
      * @return Name of the output file without path
      */
     public static String getOutputFileName (IProject project) {
-        String outputFileName = getProjectProperty(project, TexlipseProperties.OUTPUTFILE_PROPERTY);
+        ProjectConfiguration config = getProjectConfiguration(project);
+        String outputFileName = config.outputFile;
         //Check for partial build
-        Object s = getProjectProperty(project, TexlipseProperties.PARTIAL_BUILD_PROPERTY);
-        if (s != null) {
+        if (config.partialBuild) {
             IFile tmpFile = (IFile)getSessionProperty(project, TexlipseProperties.PARTIAL_BUILD_FILE);
             if (tmpFile != null){
-                String fmtProp = getProjectProperty(project, TexlipseProperties.OUTPUT_FORMAT);
+                String fmtProp = config.outputFormat;
                 String name = tmpFile.getName();
                 name = name.substring(0, name.lastIndexOf('.')) + "." + fmtProp;
                 outputFileName = name;
@@ -329,8 +339,9 @@ public class TexlipseProperties {
      */
     public static IFile getProjectSourceFile(IProject project) {
     	//IContainer folder = getProjectSourceDir(project);
-        String dir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.SOURCE_DIR_PROPERTY);
-        String mainFile = getProjectProperty(project, MAINFILE_PROPERTY);
+        ProjectConfiguration config = getProjectConfiguration(project);
+        String dir = config.sourceDir;
+        String mainFile = config.mainFile;
         if (mainFile != null) {
             if (dir != null && dir.length() > 0) {
                 return project.getFolder(dir).getFile(mainFile);
@@ -347,7 +358,7 @@ public class TexlipseProperties {
      *         the same as project directory
      */
     public static IContainer getProjectSourceDir(IProject project) {
-        String dir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.SOURCE_DIR_PROPERTY);
+        String dir = getProjectConfiguration(project).sourceDir;
         if (dir != null && dir.length() > 0) {
             return project.getFolder(dir);
         }
@@ -363,9 +374,9 @@ public class TexlipseProperties {
     public static IFile getProjectOutputFile(IProject project) {
     	IFolder folder = getProjectOutputDir(project);
     	if (folder == null) {
-    		return project.getFile(getProjectProperty(project, OUTPUTFILE_PROPERTY));
+    		return project.getFile(getProjectConfiguration(project).outputFile);
     	}
-        return folder.getFile(getProjectProperty(project, OUTPUTFILE_PROPERTY));
+        return folder.getFile(getProjectConfiguration(project).outputFile);
     }
     
     /**
@@ -375,7 +386,7 @@ public class TexlipseProperties {
      *         the same as project's directory
      */
     public static IFolder getProjectOutputDir(IProject project) {
-        String dir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.OUTPUT_DIR_PROPERTY);
+        String dir = getProjectConfiguration(project).outputDir;
         if (dir != null && dir.length() > 0) {
             return project.getFolder(dir);
         }
@@ -389,7 +400,7 @@ public class TexlipseProperties {
      *         the same as project's directory
      */
     public static IFolder getProjectTempDir(IProject project) {
-        String dir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.TEMP_DIR_PROPERTY);
+        String dir = getProjectConfiguration(project).tempDir;
         if (dir != null && dir.length() > 0) {
             return project.getFolder(dir);
         }
@@ -420,18 +431,21 @@ public class TexlipseProperties {
         }
         
         setSessionProperty(project, SESSION_PROPERTIES_LOAD, Long.valueOf(System.currentTimeMillis()));
-        setProjectProperty(project, MAINFILE_PROPERTY, prop.getProperty(MAINFILE_PROPERTY, ""));
-        setProjectProperty(project, OUTPUTFILE_PROPERTY, prop.getProperty(OUTPUTFILE_PROPERTY, ""));
-        setProjectProperty(project, SOURCE_DIR_PROPERTY, prop.getProperty(SOURCE_DIR_PROPERTY, ""));
-        setProjectProperty(project, OUTPUT_DIR_PROPERTY, prop.getProperty(OUTPUT_DIR_PROPERTY, ""));
-        setProjectProperty(project, TEMP_DIR_PROPERTY, prop.getProperty(TEMP_DIR_PROPERTY, ""));
-        setProjectProperty(project, BIBREF_DIR_PROPERTY, prop.getProperty(BIBREF_DIR_PROPERTY, ""));
-        setProjectProperty(project, BUILDER_NUMBER, prop.getProperty(BUILDER_NUMBER, ""));
-        setProjectProperty(project, OUTPUT_FORMAT, prop.getProperty(OUTPUT_FORMAT, ""));
-        setProjectProperty(project, MARK_TEMP_DERIVED_PROPERTY, prop.getProperty(MARK_TEMP_DERIVED_PROPERTY, "true"));
-        setProjectProperty(project, MARK_OUTPUT_DERIVED_PROPERTY, prop.getProperty(MARK_OUTPUT_DERIVED_PROPERTY, "true"));
-        setProjectProperty(project, LANGUAGE_PROPERTY, prop.getProperty(LANGUAGE_PROPERTY, ""));
-        setProjectProperty(project, MAKEINDEX_STYLEFILE_PROPERTY, prop.getProperty(MAKEINDEX_STYLEFILE_PROPERTY, ""));
+        writeProjectProperty(project, MAINFILE_PROPERTY, prop.getProperty(MAINFILE_PROPERTY, ""));
+        writeProjectProperty(project, OUTPUTFILE_PROPERTY, prop.getProperty(OUTPUTFILE_PROPERTY, ""));
+        writeProjectProperty(project, SOURCE_DIR_PROPERTY, prop.getProperty(SOURCE_DIR_PROPERTY, ""));
+        writeProjectProperty(project, OUTPUT_DIR_PROPERTY, prop.getProperty(OUTPUT_DIR_PROPERTY, ""));
+        writeProjectProperty(project, TEMP_DIR_PROPERTY, prop.getProperty(TEMP_DIR_PROPERTY, ""));
+        writeProjectProperty(project, BIBREF_DIR_PROPERTY, prop.getProperty(BIBREF_DIR_PROPERTY, ""));
+        writeProjectProperty(project, BUILDER_NUMBER, prop.getProperty(BUILDER_NUMBER, ""));
+        writeProjectProperty(project, OUTPUT_FORMAT, prop.getProperty(OUTPUT_FORMAT, ""));
+        writeProjectProperty(project, MARK_TEMP_DERIVED_PROPERTY, prop.getProperty(MARK_TEMP_DERIVED_PROPERTY, "true"));
+        writeProjectProperty(project, MARK_OUTPUT_DERIVED_PROPERTY, prop.getProperty(MARK_OUTPUT_DERIVED_PROPERTY, "true"));
+        writeProjectProperty(project, LANGUAGE_PROPERTY, prop.getProperty(LANGUAGE_PROPERTY, ""));
+        writeProjectProperty(project, MAKEINDEX_STYLEFILE_PROPERTY, prop.getProperty(MAKEINDEX_STYLEFILE_PROPERTY, ""));
+        // the readers see either the old or the new configuration
+        configurations.put(project, new ProjectConfiguration(project));
+        FormulaPreviews.removeCache(project);
     }
     
     /**
@@ -535,18 +549,56 @@ public class TexlipseProperties {
 
     /**
      * Write a project property. This value will be stored to the project settings file on disk.
+     * The configuration of the project is read again when it is next asked for.
      * 
      * @param project the current project
      * @param property the name of the property
      * @param value new value for the property
      */
     public static void setProjectProperty(IResource project, String property, String value) {
+        writeProjectProperty(project, property, value);
+        // after the write, so that a configuration read meanwhile is dropped
+        configurations.remove(project);
+        if (SOURCE_DIR_PROPERTY.equals(property) || TEMP_DIR_PROPERTY.equals(property)) {
+            FormulaPreviews.removeCache(project.getProject());
+        }
+    }
+
+    private static void writeProjectProperty(IResource project, String property, String value) {
         try {
             project.setPersistentProperty(new QualifiedName(TexlipseProperties.PACKAGE_NAME, property), value);
         } catch (CoreException e) {
             // do nothing
         }
     }
+
+    /**
+     * Returns the configuration of a project, the values of its project
+     * properties. Unlike <code>getProjectProperty</code> this doesn't
+     * access the property store, except on the first call after a property
+     * has been set.
+     * 
+     * @param project the current project
+     * @return the current configuration of the project
+     */
+    public static ProjectConfiguration getProjectConfiguration(IResource project) {
+        ProjectConfiguration config = configurations.get(project);
+        if (config == null) {
+            config = configurations.computeIfAbsent(project, readConfiguration);
+        }
+        return config;
+    }
+
+    /**
+     * Returns the listener that drops the configurations and formula
+     * previews of the projects that are closed, opened or deleted, so that
+     * they don't stay in memory and a reopened project is read again.
+     * 
+     * @return the resource change listener for <code>POST_CHANGE</code> events
+     */
+    public static IResourceChangeListener getProjectListener() {
+        return projectListener;
+    }
     
     /**
      * Read a session property.
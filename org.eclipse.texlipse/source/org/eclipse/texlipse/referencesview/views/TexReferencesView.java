@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.referencesview.views;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.jface.text.TextSelection;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.DoubleClickEvent;
+import org.eclipse.jface.viewers.IDoubleClickListener;
+import org.eclipse.jface.viewers.IStructuredSelection;
+import org.eclipse.jface.viewers.ITableLabelProvider;
+import org.eclipse.jface.viewers.LabelProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.model.ProjectOccurrenceIndex;
+import org.eclipse.texlipse.model.ProjectOccurrenceIndex.Occurrence;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.ide.IDE;
+import org.eclipse.ui.part.ViewPart;
+import org.eclipse.ui.texteditor.ITextEditor;
+
+/**
+ * The view listing the occurrences of a label or a BibTeX key in the
+ * project, as found by the "Find References" action. Double-clicking
+ * an occurrence opens the file and selects the key.
+ */
+public class TexReferencesView extends ViewPart {
+
+    /**
+     * The id of the view
+     */
+    public static final String ID = "org.eclipse.texlipse.ReferencesView";
+
+    private static final String[] columnNames = new String[] {"File", "Line", "Kind"};
+    private static final int[] columnWidths = new int[] {250, 60, 100};
+
+    private TableViewer viewer;
+    private IProject project;
+
+    /**
+     * Provides the file, line and kind of an occurrence for the columns.
+     */
+    private static class ViewLabelProvider extends LabelProvider implements ITableLabelProvider {
+
+        public String getColumnText(Object obj, int index) {
+            Occurrence o = (Occurrence) obj;
+            switch (index) {
+            case 0:
+                return o.getFileName();
+            case 1:
+                return String.valueOf(o.getLine());
+            default:
+                switch (o.getKind()) {
+                case ProjectOccurrenceIndex.LABEL:
+                    return "\\label";
+                case ProjectOccurrenceIndex.REF:
+                    return "\\ref";
+                default:
+                    return "\\cite";
+                }
+            }
+        }
+
+        public Image getColumnImage(Object obj, int index) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates the table of occurrences.
+     */
+    public void createPartControl(Composite parent) {
+        Table table = new Table(parent, SWT.SINGLE | SWT.FULL_SELECTION | SWT.H_SCROLL | SWT.V_SCROLL);
+        table.setHeaderVisible(true);
+        table.setLinesVisible(true);
+        for (int i = 0; i < columnNames.length; i++) {
+            TableColumn column = new TableColumn(table, SWT.LEFT, i);
+            column.setText(columnNames[i]);
+            column.setWidth(columnWidths[i]);
+        }
+
+        viewer = new TableViewer(table);
+        viewer.setContentProvider(new ArrayContentProvider());
+        viewer.setLabelProvider(new ViewLabelProvider());
+        viewer.setInput(Collections.EMPTY_LIST);
+        viewer.addDoubleClickListener(new IDoubleClickListener() {
+            public void doubleClick(DoubleClickEvent event) {
+                Object o = ((IStructuredSelection) event.getSelection()).getFirstElement();
+                if (o instanceof Occurrence) {
+                    open((Occurrence) o);
+                }
+            }
+        });
+    }
+
+    /**
+     * Shows the occurrences of a key.
+     *
+     * @param project The project the occurrences are from
+     * @param key The label or BibTeX key
+     * @param occurrences The occurrences to list
+     */
+    public void setOccurrences(IProject project, String key, List<Occurrence> occurrences) {
+        this.project = project;
+        setContentDescription(TexlipsePlugin.getResourceString("referencesViewDescription")
+                .replaceAll("%s", key).replaceAll("%d", String.valueOf(occurrences.size())));
+        viewer.setInput(occurrences);
+    }
+
+    /**
+     * Opens the file of an occurrence in an editor and selects the key.
+     *
+     * @param o The occurrence
+     */
+    private void open(Occurrence o) {
+        if (project == null) {
+            return;
+        }
+        IFile file = project.getFile(o.getFileName());
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            IEditorPart part = IDE.openEditor(getSite().getPage(), file);
+            if (part instanceof ITextEditor) {
+                ((ITextEditor) part).getSelectionProvider().setSelection(
+                        new TextSelection(o.getOffset(), o.getLength()));
+            }
+        } catch (PartInitException e) {
+            TexlipsePlugin.log("Open reference", e);
+        }
+    }
+
+    /**
+     * Passes the focus to the table.
+     */
+    public void setFocus() {
+        viewer.getControl().setFocus();
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.spelling;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.builder.BuilderRegistry;
+
+/**
+ * A spelling engine that pipes the lines to an external aspell process
+ * running in the ispell compatible mode.
+ */
+public class AspellEngine implements SpellingEngine {
+
+    static final String ASPELL_ENCODING = "UTF-8";
+
+    // spelling program command with arguments
+    private final String command;
+
+    // environment variables for the program
+    private final String[] envp;
+
+    // the external spelling program
+    private Process spellProgram;
+
+    // the stream to the program
+    private PrintWriter output;
+
+    // the stream from the program
+    private BufferedReader input;
+
+    /**
+     * Creates an engine running the given command.
+     *
+     * @param command the spelling program with its arguments
+     * @param envp the environment variables of the program
+     */
+    public AspellEngine(String command, String[] envp) {
+        this.command = command;
+        this.envp = envp;
+    }
+
+    /**
+     * Starts the spelling program.
+     *
+     * @return true if the program is up and running
+     */
+    public boolean start() {
+
+        BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("viewerRunning") + ' ' + command);
+        try {
+            if (command == null) throw new IOException();
+            spellProgram = Runtime.getRuntime().exec(command, envp);
+
+        } catch (IOException e) {
+            spellProgram = null;
+            BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("spellProgramStartError"));
+            return false;
+        }
+
+        // get output and input stream
+        try {
+            output = new PrintWriter(new
+                    OutputStreamWriter(spellProgram.getOutputStream(), ASPELL_ENCODING));
+            input = new BufferedReader(new
+                    InputStreamReader(spellProgram.getInputStream(), ASPELL_ENCODING));
+        }
+        catch (UnsupportedEncodingException e1) {
+            dispose();
+            BuilderRegistry.printToConsole("Unsupported encoding");
+            return false;
+        }
+
+        // read the version info
+        try {
+            String message = input.readLine();
+            if (null == message) { // Something went wrong, get message from aspell's error stream
+                BufferedReader error = new BufferedReader(new InputStreamReader(spellProgram.getErrorStream()));
+                message = error.readLine();
+                if (null == message) {
+                    BuilderRegistry.printToConsole("Aspell failed! No output could be read.");
+                } else {
+                    BuilderRegistry.printToConsole("aspell> " + message.trim());
+                }
+                error.close();
+                dispose();
+                return false;
+            }
+            BuilderRegistry.printToConsole("aspell> " + message.trim());
+            // Now it's up and running :)
+            // put it in terse mode, then it's faster
+            output.println("!");
+            return true;
+        } catch (IOException e) {
+            TexlipsePlugin.log("Aspell died", e);
+            BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("spellProgramStartError"));
+            dispose();
+            return false;
+        }
+    }
+
+    /**
+     * This method parses ispell-style spelling error proposals.
+     *
+     * @see org.eclipse.texlipse.spelling.SpellingEngine#checkLine(java.lang.String)
+     */
+    public List<Misspelling> checkLine(String line) {
+        /*
+         * a prefixed "^" tells aspell to parse the line without exceptions. From
+         * http://aspell.sourceforge.net/man-html/Through-A-Pipe.html#Through-A-Pipe:
+         * "lines of single words prefixed with any of `*', `&', `@', `+', `-',
+         * `~', `#', `!', `%', or `^'" are also valid and have a special meaning
+         * Special meaning of "^" is to ignore all other prefixes.
+         *
+         */
+        output.println("^" + line);
+        output.flush();
+        // wait until there is input
+        List<String> lines = new ArrayList<String>();
+        try {
+            String result = input.readLine();
+            while ((!"".equals(result)) && (result != null)) {
+                lines.add(result);
+                result = input.readLine();
+            }
+            //Wait a bit and clear the input buffer (sometimes there are more than one empty line)
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                //No problem
+            }
+            while (input.ready()) {
+                input.readLine();
+            }
+        } catch (IOException e) {
+            BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("spellProgramStartError"));
+            TexlipsePlugin.log("aspell error at line: " + line, e);
+        }
+
+        // loop through the output lines (they contain only errors)
+        List<Misspelling> errors = new ArrayList<Misspelling>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String[] tmp = (lines.get(i)).split(":");
+            String[] error = tmp[0].split(" ");
+            String word = error[1].trim();
+            // column, where the word starts in the line of text
+            // is always the last entry in error (sometimes 3, if there
+            // are matches, else 2)
+            // we have to subtract 1 since the first char is always "^"
+            int column = Integer.valueOf(error[error.length - 1]).intValue() - 1;
+
+            // list of proposals starts after the colon
+            String[] proposals;
+            if (tmp.length > 1) {
+                proposals = (tmp[1].trim()).split(", ");
+                for (int j = 0; j < proposals.length; j++) {
+                    proposals[j] = proposals[j].trim();
+                }
+            } else {
+                proposals = new String[0];
+            }
+            errors.add(new Misspelling(word, column, proposals));
+        }
+        return errors;
+    }
+
+    /**
+     * Adds the word to the aspell user dictionary with a separate aspell
+     * process.
+     *
+     * @see org.eclipse.texlipse.spelling.SpellingEngine#addWord(java.lang.String)
+     */
+    public void addWord(String word) {
+        addWord(command, envp, word);
+    }
+
+    /**
+     * Add the given word to Aspell user dictionary.
+     *
+     * @param cmd the spelling program with its arguments
+     * @param environp the environment variables of the program
+     * @param word word to add
+     */
+    static void addWord(String cmd, String[] environp, String word) {
+        BuilderRegistry.printToConsole("aspell> adding word: " + word);
+
+        try {
+            Process p = Runtime.getRuntime().exec(cmd, environp);
+            PrintWriter w = new PrintWriter(new
+                        OutputStreamWriter(p.getOutputStream(), ASPELL_ENCODING));
+            w.println("*" + word);
+            w.println("#");
+            w.flush();
+            w.close();
+            p.getOutputStream().close();
+            p.waitFor();
+        } catch (Exception e) {
+            BuilderRegistry.printToConsole("Error adding word \""
+                    + word + "\" to Aspell user dict\n");
+            TexlipsePlugin.log("Adding word \""
+                    + word + "\" to Aspell user dict", e);
+        }
+    }
+
+    /**
+     * @return true if the spelling program is still running
+     */
+    public boolean isAlive() {
+        if (spellProgram == null) {
+            return false;
+        }
+        try {
+            spellProgram.exitValue();
+            // an exit code is defined, so program has ended
+            return false;
+        } catch (IllegalThreadStateException e) {
+            // program is still running, good
+            return true;
+        }
+    }
+
+    /**
+     * Stop running the spelling program.
+     */
+    public void dispose() {
+        if (spellProgram != null) {
+            spellProgram.destroy();
+            spellProgram = null;
+        }
+        input = null;
+        output = null;
+    }
+}
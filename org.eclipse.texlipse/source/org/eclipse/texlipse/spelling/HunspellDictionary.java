@@ -0,0 +1,864 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.spelling;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A dictionary in the format of Hunspell and MySpell: a <code>.dic</code>
+ * file of stems with their affix flags and an <code>.aff</code> file of
+ * the affix rules.
+ *
+ * The stems are packed into one character array and found with an open
+ * addressing hash table, so that even a large dictionary takes a few
+ * megabytes and no objects per word. Words are checked by stripping the
+ * affixes and looking up the stems. A dictionary is immutable after
+ * loading and is shared by all the projects of its language, see
+ * <code>getDictionary</code>.
+ *
+ * The supported options of the affix file are SET, FLAG, AF, TRY, REP,
+ * WORDCHARS, PFX and SFX with cross products and two suffixes by
+ * continuation classes, NEEDAFFIX, FORBIDDENWORD, KEEPCASE, NOSUGGEST,
+ * ONLYINCOMPOUND, and compounding with COMPOUNDFLAG, COMPOUNDBEGIN,
+ * COMPOUNDMIDDLE, COMPOUNDEND, COMPOUNDMIN and COMPOUNDWORDMAX. Other
+ * options are ignored.
+ */
+public final class HunspellDictionary {
+
+    // the formats of the flags
+    private static final int FLAG_CHAR = 0;
+    private static final int FLAG_LONG = 1;
+    private static final int FLAG_NUM = 2;
+
+    // the letters tried for suggestions if the affix file has none
+    private static final String DEFAULT_TRY = "etaoinshrdlcumwfgypbvkjxqz";
+
+    // the loaded dictionaries by their affix files
+    private static final Map<File, HunspellDictionary> loaded = new HashMap<File, HunspellDictionary>();
+
+    /**
+     * An affix rule.
+     */
+    private static final class Affix {
+        final char flag;
+        final boolean cross;
+        final String strip;
+        final String add;
+        // sorted
+        final char[] continuation;
+        // the characters allowed at each position, null for any
+        final String[] condition;
+        final boolean[] negated;
+
+        Affix(char flag, boolean cross, String strip, String add, char[] continuation,
+                String[] condition, boolean[] negated) {
+            this.flag = flag;
+            this.cross = cross;
+            this.strip = strip;
+            this.add = add;
+            this.continuation = continuation;
+            this.condition = condition;
+            this.negated = negated;
+        }
+
+        boolean hasContinuation(char f) {
+            return f != 0 && Arrays.binarySearch(continuation, f) >= 0;
+        }
+
+        /**
+         * @return true if the condition matches the given root at the given
+         * index
+         */
+        private boolean matches(String root, int start) {
+            for (int i = 0; i < condition.length; i++) {
+                if (condition[i] != null
+                        && (condition[i].indexOf(root.charAt(start + i)) >= 0) == negated[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matchesStart(String root) {
+            return root.length() >= condition.length && matches(root, 0);
+        }
+
+        boolean matchesEnd(String root) {
+            return root.length() >= condition.length
+                && matches(root, root.length() - condition.length);
+        }
+    }
+
+    private final File affixFile;
+    private final long modified;
+
+    private int flagFormat = FLAG_CHAR;
+    private List<char[]> aliases = new ArrayList<char[]>();
+
+    // the stems and their sorted flags
+    private char[] stems;
+    private int[] stemStarts;
+    private char[] flags;
+    private int[] flagStarts;
+    // indexes of the stems plus one by their hashes, 0 for free slots
+    private int[] table;
+
+    // the rules by the strings they add
+    private Map<String, Affix[]> prefixes = new HashMap<String, Affix[]>();
+    private Map<String, Affix[]> suffixes = new HashMap<String, Affix[]>();
+    private int maxPrefix;
+    private int maxSuffix;
+    private boolean continuations;
+
+    private String tryChars = DEFAULT_TRY;
+    private String wordChars = "";
+    private List<String> repFrom = new ArrayList<String>();
+    private List<String> repTo = new ArrayList<String>();
+
+    private char needAffix;
+    private char forbidden;
+    private char keepCase;
+    private char noSuggest;
+    private char onlyInCompound;
+    private char compoundFlag;
+    private char compoundBegin;
+    private char compoundMiddle;
+    private char compoundEnd;
+    private int compoundMin = 3;
+    private int compoundWordMax = 4;
+
+    /**
+     * Loads a dictionary.
+     *
+     * @param affixFile the .aff file
+     * @param dictionaryFile the .dic file
+     * @throws IOException if the files can't be read
+     */
+    private HunspellDictionary(File affixFile, File dictionaryFile) throws IOException {
+        this.affixFile = affixFile;
+        this.modified = affixFile.lastModified() + dictionaryFile.lastModified();
+        Charset charset = readAffixes(affixFile);
+        readStems(dictionaryFile, charset);
+        // the loading state isn't needed anymore
+        aliases = null;
+    }
+
+    /**
+     * Returns the dictionary of the given language in the given directory.
+     * A dictionary is loaded once and shared until its files change.
+     *
+     * @param directory the directory of the .aff and .dic files
+     * @param language the language code, like "en" or "en_US"
+     * @return the dictionary, or null if the directory has none of the language
+     * @throws IOException if the dictionary can't be read
+     */
+    public static HunspellDictionary getDictionary(File directory, String language) throws IOException {
+        File aff = findAffixFile(directory, language.replace('-', '_'));
+        if (aff == null) {
+            return null;
+        }
+        File dic = getDictionaryFile(aff);
+        synchronized (loaded) {
+            HunspellDictionary dictionary = loaded.get(aff);
+            if (dictionary == null || dictionary.modified != aff.lastModified() + dic.lastModified()) {
+                dictionary = new HunspellDictionary(aff, dic);
+                loaded.put(aff, dictionary);
+            }
+            return dictionary;
+        }
+    }
+
+    /**
+     * Finds the affix file of a language. A file named by the language is
+     * preferred, then one of the main region of the language, like de_DE,
+     * then any region.
+     *
+     * @return the .aff file having a .dic file or null if there is none
+     */
+    private static File findAffixFile(File directory, String language) {
+        String[] names = new String[] {
+                language,
+                language + '_' + language.toUpperCase(Locale.ENGLISH),
+                "en".equals(language) ? "en_US" : language };
+        for (String name : names) {
+            File aff = new File(directory, name + ".aff");
+            if (aff.isFile() && getDictionaryFile(aff).isFile()) {
+                return aff;
+            }
+        }
+        String[] files = directory.list();
+        if (files == null) {
+            return null;
+        }
+        Arrays.sort(files);
+        for (String name : files) {
+            if (name.startsWith(language + '_') && name.endsWith(".aff")) {
+                File aff = new File(directory, name);
+                if (getDictionaryFile(aff).isFile()) {
+                    return aff;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static File getDictionaryFile(File affixFile) {
+        String path = affixFile.getPath();
+        return new File(path.substring(0, path.length() - ".aff".length()) + ".dic");
+    }
+
+    /**
+     * @return the affix file of this dictionary
+     */
+    public File getAffixFile() {
+        return affixFile;
+    }
+
+    /**
+     * @return the characters other than letters that words may contain
+     */
+    public String getWordChars() {
+        return wordChars;
+    }
+
+    /**
+     * Checks the spelling of a word. A capitalized word is also correct in
+     * lower case and a word in upper case also capitalized or in lower case.
+     *
+     * @param word the word
+     * @return true if the word is correct
+     */
+    public boolean check(String word) {
+        if (word.length() == 0) {
+            return true;
+        }
+        int result = checkWord(word, false);
+        if (result != 0) {
+            return result > 0;
+        }
+        String lower = word.toLowerCase(Locale.ENGLISH);
+        if (lower.equals(word)) {
+            return false;
+        }
+        if (word.equals(word.toUpperCase(Locale.ENGLISH)) && word.length() > 1) {
+            result = checkWord(word.charAt(0) + lower.substring(1), true);
+            if (result != 0) {
+                return result > 0;
+            }
+            return checkWord(lower, true) > 0;
+        }
+        if (Character.isUpperCase(word.charAt(0)) && lower.substring(1).equals(word.substring(1))) {
+            return checkWord(lower, true) > 0;
+        }
+        return false;
+    }
+
+    /**
+     * Finds correct words near the given misspelled word: the replacements
+     * of the REP table, words with neighbouring characters swapped, with a
+     * character removed, added or replaced by one of the TRY characters,
+     * and the word split into two.
+     *
+     * @param word the misspelled word
+     * @param max the maximum number of suggestions
+     * @return the suggestions, best first
+     */
+    public String[] suggest(String word, int max) {
+        Set<String> result = new LinkedHashSet<String>();
+        int length = word.length();
+
+        // the word in another case
+        String lower = word.toLowerCase(Locale.ENGLISH);
+        addSuggestion(result, lower, word, max);
+        if (length > 0) {
+            addSuggestion(result, Character.toUpperCase(lower.charAt(0)) + lower.substring(1), word, max);
+        }
+
+        for (int i = 0; i < repFrom.size(); i++) {
+            String from = repFrom.get(i);
+            for (int index = word.indexOf(from); index >= 0; index = word.indexOf(from, index + 1)) {
+                addSuggestion(result, word.substring(0, index) + repTo.get(i)
+                        + word.substring(index + from.length()), word, max);
+            }
+        }
+
+        // swapped neighbours
+        char[] chars = word.toCharArray();
+        for (int i = 0; i + 1 < length; i++) {
+            swap(chars, i, i + 1);
+            addSuggestion(result, new String(chars), word, max);
+            swap(chars, i, i + 1);
+        }
+
+        // a character too many
+        for (int i = 0; i < length; i++) {
+            addSuggestion(result, word.substring(0, i) + word.substring(i + 1), word, max);
+        }
+
+        // a character forgotten or wrong
+        StringBuilder sb = new StringBuilder(word);
+        for (int i = 0; i <= length && result.size() < max; i++) {
+            for (int j = 0; j < tryChars.length(); j++) {
+                sb.insert(i, tryChars.charAt(j));
+                addSuggestion(result, sb.toString(), word, max);
+                sb.deleteCharAt(i);
+            }
+        }
+        for (int i = 0; i < length && result.size() < max; i++) {
+            for (int j = 0; j < tryChars.length(); j++) {
+                sb.setCharAt(i, tryChars.charAt(j));
+                addSuggestion(result, sb.toString(), word, max);
+            }
+            sb.setCharAt(i, word.charAt(i));
+        }
+
+        // two words
+        for (int i = 1; i < length; i++) {
+            addSuggestion(result, word.substring(0, i) + ' ' + word.substring(i), word, max);
+        }
+        return result.toArray(new String[result.size()]);
+    }
+
+    private static void swap(char[] chars, int i, int j) {
+        char c = chars[i];
+        chars[i] = chars[j];
+        chars[j] = c;
+    }
+
+    /**
+     * Adds the candidate to the suggestions if it is correct and may be
+     * suggested.
+     */
+    private void addSuggestion(Set<String> result, String candidate, String word, int max) {
+        if (result.size() >= max || candidate.equals(word) || result.contains(candidate)) {
+            return;
+        }
+        int space = candidate.indexOf(' ');
+        if (space >= 0) {
+            String first = candidate.substring(0, space);
+            String second = candidate.substring(space + 1);
+            if (!isSuggestable(first) || !isSuggestable(second)) {
+                return;
+            }
+        } else if (!isSuggestable(candidate)) {
+            return;
+        }
+        result.add(candidate);
+    }
+
+    private boolean isSuggestable(String word) {
+        if (word.length() == 0 || !check(word)) {
+            return false;
+        }
+        int stem = lookup(word);
+        return stem < 0 || !hasFlag(stem, noSuggest);
+    }
+
+    /**
+     * Checks a word in the given case.
+     *
+     * @param caseChanged whether the case of the word was changed from the text
+     * @return 1 if the word is correct, -1 if it is forbidden, 0 otherwise
+     */
+    private int checkWord(String word, boolean caseChanged) {
+        int stem = lookup(word);
+        if (stem >= 0) {
+            if (hasFlag(stem, forbidden)) {
+                return -1;
+            }
+            if (!hasFlag(stem, needAffix) && accepts(stem, caseChanged)) {
+                return 1;
+            }
+        }
+        if (checkSuffix(word, null, null, caseChanged) || checkPrefix(word, caseChanged)) {
+            return 1;
+        }
+        if (compoundFlag != 0 || compoundBegin != 0) {
+            return checkCompound(word, 0, caseChanged) ? 1 : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * @return true if the stem makes a correct word outside of compounds
+     */
+    private boolean accepts(int stem, boolean caseChanged) {
+        return !hasFlag(stem, forbidden) && !hasFlag(stem, onlyInCompound)
+            && !(caseChanged && hasFlag(stem, keepCase));
+    }
+
+    /**
+     * Checks if the word is a stem with a suffix.
+     *
+     * @param prefix the prefix already stripped from the word, or null
+     * @param outer the suffix already stripped from the word, or null
+     * @return true if the word is correct
+     */
+    private boolean checkSuffix(String word, Affix prefix, Affix outer, boolean caseChanged) {
+        int length = word.length();
+        int max = Math.min(maxSuffix, length - 1);
+        for (int k = 0; k <= max; k++) {
+            Affix[] rules = suffixes.get(word.substring(length - k));
+            if (rules == null) {
+                continue;
+            }
+            String base = word.substring(0, length - k);
+            for (Affix rule : rules) {
+                if (prefix != null && !rule.cross) {
+                    continue;
+                }
+                if (outer != null ? !rule.hasContinuation(outer.flag)
+                        : prefix == null && rule.hasContinuation(needAffix)) {
+                    continue;
+                }
+                String root = base.concat(rule.strip);
+                if (!rule.matchesEnd(root)) {
+                    continue;
+                }
+                int stem = lookup(root);
+                if (stem >= 0 && hasFlag(stem, rule.flag)
+                        && (prefix == null || hasFlag(stem, prefix.flag))
+                        && accepts(stem, caseChanged)) {
+                    return true;
+                }
+                if (outer == null && continuations && checkSuffix(root, prefix, rule, caseChanged)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the word is a stem with a prefix and possibly a suffix.
+     *
+     * @return true if the word is correct
+     */
+    private boolean checkPrefix(String word, boolean caseChanged) {
+        int length = word.length();
+        int max = Math.min(maxPrefix, length - 1);
+        for (int k = 0; k <= max; k++) {
+            Affix[] rules = prefixes.get(word.substring(0, k));
+            if (rules == null) {
+                continue;
+            }
+            String rest = word.substring(k);
+            for (Affix rule : rules) {
+                String root = rule.strip.concat(rest);
+                if (!rule.matchesStart(root)) {
+                    continue;
+                }
+                if (!rule.hasContinuation(needAffix)) {
+                    int stem = lookup(root);
+                    if (stem >= 0 && hasFlag(stem, rule.flag) && accepts(stem, caseChanged)) {
+                        return true;
+                    }
+                }
+                if (rule.cross && checkSuffix(root, rule, null, caseChanged)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the word is a compound of stems allowed in compounds.
+     *
+     * @param parts the number of parts before the word
+     * @return true if the word is correct
+     */
+    private boolean checkCompound(String word, int parts, boolean caseChanged) {
+        int length = word.length();
+        for (int i = compoundMin; i <= length - compoundMin; i++) {
+            if (!isCompoundPart(word.substring(0, i), parts == 0 ? compoundBegin : compoundMiddle,
+                    caseChanged)) {
+                continue;
+            }
+            String rest = word.substring(i);
+            if (isCompoundPart(rest, compoundEnd, caseChanged)
+                    || (parts + 2 < compoundWordMax && checkCompound(rest, parts + 1, caseChanged))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isCompoundPart(String part, char position, boolean caseChanged) {
+        int stem = lookup(part);
+        return stem >= 0 && (hasFlag(stem, compoundFlag) || hasFlag(stem, position))
+            && !hasFlag(stem, forbidden) && !(caseChanged && hasFlag(stem, keepCase));
+    }
+
+    /**
+     * @return the index of the stem or -1 if there is no such stem
+     */
+    private int lookup(String word) {
+        int mask = table.length - 1;
+        int length = word.length();
+        for (int i = hash(word) & mask; table[i] != 0; i = (i + 1) & mask) {
+            int stem = table[i] - 1;
+            int start = stemStarts[stem];
+            if (stemStarts[stem + 1] - start == length) {
+                int j = 0;
+                while (j < length && stems[start + j] == word.charAt(j)) {
+                    j++;
+                }
+                if (j == length) {
+                    return stem;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static int hash(String word) {
+        int h = word.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    private boolean hasFlag(int stem, char flag) {
+        return flag != 0
+            && Arrays.binarySearch(flags, flagStarts[stem], flagStarts[stem + 1], flag) >= 0;
+    }
+
+    /**
+     * Reads the rules and options of the affix file.
+     *
+     * @return the character set of the dictionary
+     */
+    private Charset readAffixes(File file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        Charset charset = Charset.forName("ISO-8859-1");
+        for (String line : split(new String(bytes, charset))) {
+            String[] f = line.trim().split("\\s+");
+            if (f.length > 1 && f[0].equals("SET")) {
+                charset = getCharset(f[1]);
+                break;
+            }
+        }
+
+        Map<String, List<Affix>> pfx = new HashMap<String, List<Affix>>();
+        Map<String, List<Affix>> sfx = new HashMap<String, List<Affix>>();
+        String[] lines = split(new String(bytes, charset));
+        for (int i = 0; i < lines.length; i++) {
+            String[] f = lines[i].trim().split("\\s+");
+            if (f.length < 2) {
+                continue;
+            }
+            String option = f[0];
+            String value = f[1];
+            if (option.equals("FLAG")) {
+                if (value.equals("long")) {
+                    flagFormat = FLAG_LONG;
+                } else if (value.equals("num")) {
+                    flagFormat = FLAG_NUM;
+                }
+            } else if (option.equals("AF") && f.length == 2 && !isNumber(value)) {
+                aliases.add(parseFlags(value));
+            } else if (option.equals("TRY")) {
+                tryChars = value;
+            } else if (option.equals("WORDCHARS")) {
+                wordChars = value;
+            } else if (option.equals("REP") && f.length > 2) {
+                repFrom.add(value.replace('_', ' '));
+                repTo.add(f[2].replace('_', ' '));
+            } else if (option.equals("NEEDAFFIX") || option.equals("PSEUDOROOT")) {
+                needAffix = parseFlag(value);
+            } else if (option.equals("FORBIDDENWORD")) {
+                forbidden = parseFlag(value);
+            } else if (option.equals("KEEPCASE")) {
+                keepCase = parseFlag(value);
+            } else if (option.equals("NOSUGGEST")) {
+                noSuggest = parseFlag(value);
+            } else if (option.equals("ONLYINCOMPOUND")) {
+                onlyInCompound = parseFlag(value);
+            } else if (option.equals("COMPOUNDFLAG")) {
+                compoundFlag = parseFlag(value);
+            } else if (option.equals("COMPOUNDBEGIN")) {
+                compoundBegin = parseFlag(value);
+            } else if (option.equals("COMPOUNDMIDDLE")) {
+                compoundMiddle = parseFlag(value);
+            } else if (option.equals("COMPOUNDEND")) {
+                compoundEnd = parseFlag(value);
+            } else if (option.equals("COMPOUNDMIN") && isNumber(value)) {
+                compoundMin = Math.max(1, Integer.parseInt(value));
+            } else if (option.equals("COMPOUNDWORDMAX") && isNumber(value)) {
+                compoundWordMax = Math.max(2, Integer.parseInt(value));
+            } else if ((option.equals("PFX") || option.equals("SFX")) && f.length >= 4
+                    && isNumber(f[3])) {
+                boolean prefix = option.equals("PFX");
+                char flag = parseFlag(value);
+                boolean cross = f[2].equals("Y");
+                int count = Integer.parseInt(f[3]);
+                while (count > 0 && ++i < lines.length) {
+                    String[] r = lines[i].trim().split("\\s+");
+                    if (r.length < 4 || !r[0].equals(option)) {
+                        continue;
+                    }
+                    count--;
+                    Affix affix = parseAffix(flag, cross, r);
+                    Map<String, List<Affix>> rules = prefix ? pfx : sfx;
+                    List<Affix> list = rules.get(affix.add);
+                    if (list == null) {
+                        list = new ArrayList<Affix>(2);
+                        rules.put(affix.add, list);
+                    }
+                    list.add(affix);
+                    if (prefix) {
+                        maxPrefix = Math.max(maxPrefix, affix.add.length());
+                    } else {
+                        maxSuffix = Math.max(maxSuffix, affix.add.length());
+                        continuations |= affix.continuation.length > 0;
+                    }
+                }
+            }
+        }
+        for (Map.Entry<String, List<Affix>> e : pfx.entrySet()) {
+            prefixes.put(e.getKey(), e.getValue().toArray(new Affix[e.getValue().size()]));
+        }
+        for (Map.Entry<String, List<Affix>> e : sfx.entrySet()) {
+            suffixes.put(e.getKey(), e.getValue().toArray(new Affix[e.getValue().size()]));
+        }
+        return charset;
+    }
+
+    /**
+     * Parses a rule line "SFX flag strip add[/flags] [condition]".
+     */
+    private Affix parseAffix(char flag, boolean cross, String[] r) {
+        String strip = r[2].equals("0") ? "" : r[2];
+        String add = r[3];
+        char[] continuation = new char[0];
+        int slash = add.indexOf('/');
+        if (slash >= 0) {
+            continuation = parseFlagsOrAlias(add.substring(slash + 1));
+            add = add.substring(0, slash);
+        }
+        if (add.equals("0")) {
+            add = "";
+        }
+
+        List<String> sets = new ArrayList<String>();
+        List<Boolean> negations = new ArrayList<Boolean>();
+        String condition = r.length > 4 ? r[4] : ".";
+        for (int i = 0; i < condition.length(); i++) {
+            char c = condition.charAt(i);
+            if (c == '.') {
+                sets.add(null);
+                negations.add(Boolean.FALSE);
+            } else if (c == '[') {
+                int end = condition.indexOf(']', i);
+                if (end < 0) {
+                    end = condition.length();
+                }
+                boolean negated = i + 1 < end && condition.charAt(i + 1) == '^';
+                sets.add(condition.substring(negated ? i + 2 : i + 1, end));
+                negations.add(Boolean.valueOf(negated));
+                i = end;
+            } else {
+                sets.add(String.valueOf(c));
+                negations.add(Boolean.FALSE);
+            }
+        }
+        boolean[] negated = new boolean[negations.size()];
+        for (int i = 0; i < negated.length; i++) {
+            negated[i] = negations.get(i).booleanValue();
+        }
+        return new Affix(flag, cross, strip, add, continuation,
+                sets.toArray(new String[sets.size()]), negated);
+    }
+
+    /**
+     * Reads the stems of the dictionary file and packs them with their
+     * flags.
+     */
+    private void readStems(File file, Charset charset) throws IOException {
+        String[] lines = split(new String(Files.readAllBytes(file.toPath()), charset));
+        Map<String, char[]> words = new HashMap<String, char[]>(lines.length * 2);
+        int stemLength = 0;
+        int flagLength = 0;
+        for (int i = 0; i < lines.length; i++) {
+            String line = lines[i];
+            if (line.length() == 0 || (i == 0 && isNumber(line.trim()))
+                    || line.charAt(0) == '\t' || line.charAt(0) == '#') {
+                continue;
+            }
+            // the word ends at an unescaped slash or at the morphological fields
+            StringBuilder word = new StringBuilder();
+            int j = 0;
+            while (j < line.length()) {
+                char c = line.charAt(j);
+                if (c == '\\' && j + 1 < line.length() && line.charAt(j + 1) == '/') {
+                    word.append('/');
+                    j += 2;
+                } else if (c == '/' || c == '\t' || (c == ' ' && j > 0)) {
+                    break;
+                } else {
+                    word.append(c);
+                    j++;
+                }
+            }
+            char[] wordFlags = new char[0];
+            if (j < line.length() && line.charAt(j) == '/') {
+                int end = j + 1;
+                while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+                    end++;
+                }
+                wordFlags = parseFlagsOrAlias(line.substring(j + 1, end));
+            }
+            String stem = word.toString();
+            char[] previous = words.get(stem);
+            if (previous != null) {
+                // homonyms share their flags
+                char[] merged = Arrays.copyOf(previous, previous.length + wordFlags.length);
+                System.arraycopy(wordFlags, 0, merged, previous.length, wordFlags.length);
+                Arrays.sort(merged);
+                wordFlags = merged;
+                flagLength -= previous.length;
+            } else {
+                stemLength += stem.length();
+            }
+            words.put(stem, wordFlags);
+            flagLength += wordFlags.length;
+        }
+
+        int count = words.size();
+        stems = new char[stemLength];
+        stemStarts = new int[count + 1];
+        flags = new char[flagLength];
+        flagStarts = new int[count + 1];
+        int capacity = Integer.highestOneBit(Math.max(8, count) * 2) * 2;
+        table = new int[capacity];
+        int mask = capacity - 1;
+        int index = 0;
+        int stemOffset = 0;
+        int flagOffset = 0;
+        for (Map.Entry<String, char[]> e : words.entrySet()) {
+            String stem = e.getKey();
+            char[] wordFlags = e.getValue();
+            stem.getChars(0, stem.length(), stems, stemOffset);
+            System.arraycopy(wordFlags, 0, flags, flagOffset, wordFlags.length);
+            stemOffset += stem.length();
+            flagOffset += wordFlags.length;
+            stemStarts[index + 1] = stemOffset;
+            flagStarts[index + 1] = flagOffset;
+            int slot = hash(stem) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = ++index;
+        }
+    }
+
+    /**
+     * Parses flags that may be given by the number of an AF alias.
+     *
+     * @return the sorted flags
+     */
+    private char[] parseFlagsOrAlias(String s) {
+        if (!aliases.isEmpty() && isNumber(s)) {
+            int alias = Integer.parseInt(s) - 1;
+            return alias >= 0 && alias < aliases.size() ? aliases.get(alias) : new char[0];
+        }
+        return parseFlags(s);
+    }
+
+    /**
+     * @return the sorted flags of the string in the flag format of the
+     * dictionary
+     */
+    private char[] parseFlags(String s) {
+        char[] result;
+        switch (flagFormat) {
+        case FLAG_LONG:
+            result = new char[s.length() / 2];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = (char) (((s.charAt(2 * i) & 0xff) << 8) | (s.charAt(2 * i + 1) & 0xff));
+            }
+            break;
+        case FLAG_NUM:
+            String[] numbers = s.split(",");
+            result = new char[numbers.length];
+            int count = 0;
+            for (String n : numbers) {
+                if (isNumber(n)) {
+                    result[count++] = (char) Integer.parseInt(n);
+                }
+            }
+            result = Arrays.copyOf(result, count);
+            break;
+        default:
+            result = s.toCharArray();
+            break;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private char parseFlag(String s) {
+        char[] parsed = parseFlags(s);
+        return parsed.length > 0 ? parsed[0] : 0;
+    }
+
+    private static boolean isNumber(String s) {
+        if (s.length() == 0 || s.length() > 9) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] split(String text) {
+        if (text.length() > 0 && text.charAt(0) == '\uFEFF') {
+            // byte order mark
+            text = text.substring(1);
+        }
+        return text.split("\r?\n");
+    }
+
+    /**
+     * @return the Java character set of the given SET option
+     */
+    private static Charset getCharset(String name) {
+        String javaName = name;
+        if (name.startsWith("ISO8859-")) {
+            javaName = "ISO-8859-" + name.substring("ISO8859-".length());
+        } else if (name.startsWith("microsoft-cp")) {
+            javaName = "windows-" + name.substring("microsoft-cp".length());
+        }
+        try {
+            return Charset.forName(javaName);
+        } catch (IllegalArgumentException e) {
+            return Charset.forName("ISO-8859-1");
+        }
+    }
+}
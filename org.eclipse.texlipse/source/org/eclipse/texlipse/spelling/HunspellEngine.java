@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.spelling;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.texlipse.TexlipsePlugin;
+
+/**
+ * A spelling engine that checks the words in process with a
+ * <code>HunspellDictionary</code>. Command names, the arguments of
+ * commands like ref and cite, and optionally comments and inline math
+ * are skipped. The words the user adds are kept in a word list file
+ * of the language.
+ */
+public class HunspellEngine implements SpellingEngine {
+
+    // the maximum number of proposals for a misspelled word
+    private static final int MAX_PROPOSALS = 10;
+
+    private static final Charset USER_ENCODING = Charset.forName("UTF-8");
+
+    // commands with arguments that aren't text, by the number of braced arguments to skip
+    private static final Map<String, Integer> SKIPPED_ARGUMENTS = new HashMap<String, Integer>();
+    static {
+        String[] one = new String[] { "label", "ref", "eqref", "pageref", "autoref", "cref", "Cref",
+                "cite", "citep", "citet", "citealp", "citeauthor", "citeyear", "nocite",
+                "usepackage", "RequirePackage", "documentclass", "input", "include", "includeonly",
+                "includegraphics", "bibliography", "bibliographystyle", "url", "href", "hyperref",
+                "newcommand", "renewcommand", "providecommand", "newenvironment",
+                "renewenvironment", "pagestyle", "thispagestyle", "newcounter", "newlength",
+                "color", "textcolor", "vspace", "hspace", "lstinputlisting" };
+        for (String command : one) {
+            SKIPPED_ARGUMENTS.put(command, Integer.valueOf(1));
+        }
+        SKIPPED_ARGUMENTS.put("setlength", Integer.valueOf(2));
+        SKIPPED_ARGUMENTS.put("addtolength", Integer.valueOf(2));
+        SKIPPED_ARGUMENTS.put("setcounter", Integer.valueOf(2));
+        SKIPPED_ARGUMENTS.put("addtocounter", Integer.valueOf(2));
+        SKIPPED_ARGUMENTS.put("definecolor", Integer.valueOf(3));
+        // the environment name and the arguments of the environment
+        SKIPPED_ARGUMENTS.put("begin", Integer.valueOf(-1));
+        SKIPPED_ARGUMENTS.put("end", Integer.valueOf(1));
+    }
+
+    private final HunspellDictionary dictionary;
+    private final File userFile;
+    private final Set<String> userWords;
+    private final boolean ignoreComments;
+    private final boolean ignoreMath;
+    private final boolean ignoreMixedCase;
+
+    /**
+     * Creates an engine.
+     *
+     * @param dictionary the dictionary of the language
+     * @param userFile the list of the user's words of the language
+     * @param ignoreComments whether to skip comments
+     * @param ignoreMath whether to skip inline math
+     * @param ignoreMixedCase whether to skip words like LaTeX
+     */
+    public HunspellEngine(HunspellDictionary dictionary, File userFile,
+            boolean ignoreComments, boolean ignoreMath, boolean ignoreMixedCase) {
+        this.dictionary = dictionary;
+        this.userFile = userFile;
+        this.ignoreComments = ignoreComments;
+        this.ignoreMath = ignoreMath;
+        this.ignoreMixedCase = ignoreMixedCase;
+        userWords = new HashSet<String>();
+        if (userFile.isFile()) {
+            try {
+                for (String word : Files.readAllLines(userFile.toPath(), USER_ENCODING)) {
+                    if (word.trim().length() > 0) {
+                        userWords.add(word.trim());
+                    }
+                }
+            } catch (IOException e) {
+                TexlipsePlugin.log("Reading the user dictionary " + userFile, e);
+            }
+        }
+    }
+
+    /*
+     * @see org.eclipse.texlipse.spelling.SpellingEngine#checkLine(java.lang.String)
+     */
+    public List<Misspelling> checkLine(String line) {
+        List<Misspelling> errors = new ArrayList<Misspelling>();
+        String wordChars = dictionary.getWordChars();
+        int length = line.length();
+        int i = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            if (c == '\\') {
+                int start = ++i;
+                while (i < length && Character.isLetter(line.charAt(i))) {
+                    i++;
+                }
+                if (i == start) {
+                    if (i < length && ignoreMath && (line.charAt(i) == '(' || line.charAt(i) == '[')) {
+                        int end = line.indexOf(line.charAt(i) == '(' ? "\\)" : "\\]", i);
+                        i = end < 0 ? length : end + 2;
+                    } else {
+                        // a control symbol
+                        i++;
+                    }
+                    continue;
+                }
+                String command = line.substring(start, i);
+                if (i < length && line.charAt(i) == '*') {
+                    i++;
+                }
+                if (command.equals("verb") && i < length) {
+                    int end = line.indexOf(line.charAt(i), i + 1);
+                    i = end < 0 ? length : end + 1;
+                } else {
+                    Integer skipped = SKIPPED_ARGUMENTS.get(command);
+                    if (skipped != null) {
+                        i = skipArguments(line, i, skipped.intValue());
+                    }
+                }
+            } else if (c == '%') {
+                if (ignoreComments) {
+                    break;
+                }
+                i++;
+            } else if (c == '$' && ignoreMath) {
+                int end = line.indexOf('$', i + 1);
+                while (end > 0 && line.charAt(end - 1) == '\\') {
+                    end = line.indexOf('$', end + 1);
+                }
+                if (end == i + 1) {
+                    // display math
+                    end = line.indexOf("$$", i + 2);
+                    i = end < 0 ? length : end + 2;
+                } else {
+                    i = end < 0 ? length : end + 1;
+                }
+            } else if (Character.isLetter(c)) {
+                int start = i;
+                while (i < length && (Character.isLetter(line.charAt(i))
+                        || wordChars.indexOf(line.charAt(i)) >= 0)) {
+                    i++;
+                }
+                // the word characters like apostrophes can't end a word
+                int end = i;
+                while (!Character.isLetter(line.charAt(end - 1))) {
+                    end--;
+                }
+                String word = line.substring(start, end);
+                if (!isIgnored(word) && !dictionary.check(word)) {
+                    errors.add(new Misspelling(word, start, dictionary.suggest(word, MAX_PROPOSALS)));
+                }
+            } else {
+                i++;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Skips the optional arguments and the given number of braced
+     * arguments of a command.
+     *
+     * @param count the number of braced arguments, -1 for all
+     * @return the index after the arguments
+     */
+    private static int skipArguments(String line, int i, int count) {
+        int length = line.length();
+        int braced = 0;
+        while (i < length) {
+            char c = line.charAt(i);
+            char close;
+            if (c == '[') {
+                close = ']';
+            } else if (c == '{' && (count < 0 || braced < count)) {
+                close = '}';
+                braced++;
+            } else if (c == ' ' && braced == 0) {
+                i++;
+                continue;
+            } else {
+                break;
+            }
+            int depth = 0;
+            for (; i < length; i++) {
+                char d = line.charAt(i);
+                if (d == '\\') {
+                    i++;
+                } else if (d == c) {
+                    depth++;
+                } else if (d == close && --depth == 0) {
+                    break;
+                }
+            }
+            i++;
+        }
+        return Math.min(i, length);
+    }
+
+    /**
+     * @return true if the word isn't checked
+     */
+    private boolean isIgnored(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (Character.isDigit(word.charAt(i))) {
+                return true;
+            }
+        }
+        if (ignoreMixedCase) {
+            String rest = word.substring(1);
+            if (!rest.equals(rest.toLowerCase(Locale.ENGLISH))
+                    && !word.equals(word.toUpperCase(Locale.ENGLISH))) {
+                return true;
+            }
+        }
+        synchronized (userWords) {
+            return userWords.contains(word)
+                || userWords.contains(word.toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    /**
+     * Adds the word to the user's word list of the language.
+     *
+     * @see org.eclipse.texlipse.spelling.SpellingEngine#addWord(java.lang.String)
+     */
+    public void addWord(String word) {
+        synchronized (userWords) {
+            if (!userWords.add(word)) {
+                return;
+            }
+            try {
+                userFile.getParentFile().mkdirs();
+                Writer out = new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(userFile, true), USER_ENCODING));
+                try {
+                    out.write(word);
+                    out.write('\n');
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                TexlipsePlugin.log("Adding word \"" + word + "\" to " + userFile, e);
+            }
+        }
+    }
+
+    /**
+     * @return true, the engine runs in process
+     */
+    public boolean isAlive() {
+        return true;
+    }
+
+    /**
+     * Nothing to free, the dictionary is shared.
+     */
+    public void dispose() {
+    }
+}
@@ -13,24 +13,19 @@
 
 package org.eclipse.texlipse.spelling;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.resources.WorkspaceJob;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -40,19 +35,17 @@ import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
-import org.eclipse.jface.text.Position;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
-import org.eclipse.jface.text.source.IAnnotationModel;
 import org.eclipse.jface.text.source.ISourceViewer;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.texlipse.PathUtils;
-import org.eclipse.texlipse.SelectedResourceManager;
 import org.eclipse.texlipse.TexlipsePlugin;
 import org.eclipse.texlipse.builder.BuilderRegistry;
+import org.eclipse.texlipse.jfr.Events;
+import org.eclipse.texlipse.jfr.SpellingEvent;
 import org.eclipse.texlipse.properties.TexlipseProperties;
 import org.eclipse.ui.IMarkerResolution;
-import org.eclipse.ui.texteditor.AbstractMarkerAnnotationModel;
 
 /**
  * An abstraction to a spell checker program.
@@ -70,7 +63,6 @@ public class SpellChecker implements IPropertyChangeListener {
     public static final String SPELL_CHECKER_COMMAND = "spellCmd";
     public static final String SPELL_CHECKER_ARGUMENTS = "spellArgs";
     public static final String SPELL_CHECKER_ENV = "spellEnv";
-    private static final String ASPELL_ENCODING = "UTF-8";
 
     // These two strings have to have multiple words, because otherwise
     // they may come up in aspells proposals.
@@ -113,14 +105,8 @@ public class SpellChecker implements IPropertyChangeListener {
     // the shared instance
     private static SpellChecker instance = new SpellChecker();
     
-    // the external spelling program
-    private Process spellProgram;
-    
-    // the stream to the program
-    private PrintWriter output;
-    
-    // the stream from the program
-    private BufferedReader input;
+    // the engine checking the lines, null if not running
+    private SpellingEngine engine;
 
     // spelling program command with arguments
     private String command;
@@ -130,6 +116,9 @@ public class SpellChecker implements IPropertyChangeListener {
     
     // map of proposals so far
     private Map<IMarker, String[]> proposalMap;
+
+    // the spelling errors of the checked documents
+    private final Map<IDocument, SpellingErrorIndex> indexes = new WeakHashMap<IDocument, SpellingErrorIndex>();
     
     // the current language
     private String language;
@@ -164,34 +153,19 @@ public class SpellChecker implements IPropertyChangeListener {
     }
     
     /**
-     * Add the given word to Aspell user dictionary.
+     * Add the given word to the user dictionary of the spelling engine.
      * @param word word to add
      */
-    public static void addWordToAspell(String word) {
+    public static void addWordToDictionary(String word) {
+        SpellingEngine current = instance.engine;
+        if (current != null) {
+            current.addWord(word);
+            return;
+        }
         //patch 1537979 by daniel309
         if (instance.command == null) instance.readSettings();
-        String cmd = instance.command;
-        
-        BuilderRegistry.printToConsole("aspell> adding word: " + word);
-
-        String[] environp = PathUtils.mergeEnvFromPrefs(PathUtils.getEnv(),
-                SPELL_CHECKER_ENV);
-        try {
-            Process p = Runtime.getRuntime().exec(cmd, environp);
-            PrintWriter w = new PrintWriter(new
-                        OutputStreamWriter(p.getOutputStream(), ASPELL_ENCODING));
-            w.println("*" + word);
-            w.println("#");
-            w.flush();
-            w.close();
-            p.getOutputStream().close();
-            p.waitFor();
-        } catch (Exception e) {
-            BuilderRegistry.printToConsole("Error adding word \""
-                    + word + "\" to Aspell user dict\n");
-            TexlipsePlugin.log("Adding word \""
-                    + word + "\" to Aspell user dict", e);
-        }
+        AspellEngine.addWord(instance.command,
+                PathUtils.mergeEnvFromPrefs(PathUtils.getEnv(), SPELL_CHECKER_ENV), word);
     }
 
     /**
@@ -214,7 +188,7 @@ public class SpellChecker implements IPropertyChangeListener {
         
         String args = TexlipsePlugin.getPreference(SPELL_CHECKER_ARGUMENTS);
         
-        args = args.replaceAll("%encoding", ASPELL_ENCODING);
+        args = args.replaceAll("%encoding", AspellEngine.ASPELL_ENCODING);
 
         args = args.replaceAll("%language", language);
         
@@ -229,7 +203,7 @@ public class SpellChecker implements IPropertyChangeListener {
         String pLang = null;
         IProject prj = file.getProject();
         if (prj != null) {
-            pLang = TexlipseProperties.getProjectProperty(prj, TexlipseProperties.LANGUAGE_PROPERTY);
+            pLang = TexlipseProperties.getProjectConfiguration(prj).language;
         }
         
         boolean restart = false;
@@ -249,97 +223,69 @@ public class SpellChecker implements IPropertyChangeListener {
     }
 
     /**
-     * Check if the spelling program is still running.
-     * Restart the program, if necessary.
+     * Check if the spelling engine is still running.
+     * Restart the engine, if necessary.
      * @param file
      */
     protected boolean checkProgram(IFile file) {
         checkLanguage(file);
-        if (spellProgram == null) {
-            return startProgram();
-        } else {
-            int exitCode = -1;
-            try {
-                exitCode = spellProgram.exitValue();
-            } catch (IllegalThreadStateException e) {
-                // program is still running, good
-            }
-            if (exitCode != -1) {
-                // an exit code is defined, so program has ended
-                spellProgram = null;
-                return startProgram();
-            }
+        if (engine != null && engine.isAlive()) {
+            return true;
         }
-        return false;
+        stopProgram();
+        engine = createEngine();
+        return engine != null;
     }
-    
+
     /**
-     * Restarts the spelling program.
-     * Assumes that the program is not currently running.
+     * Creates the engine for the current language. The build in engine is
+     * used if it is enabled and the dictionary directory has a dictionary of
+     * the language, otherwise aspell is started.
+     *
+     * @return the running engine or null if no engine could be started
      */
-    private boolean startProgram(){
-        
-        BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("viewerRunning") + ' ' + command);
-        try {
-            if (command == null) throw new IOException();
-            spellProgram = Runtime.getRuntime().exec(command, envp);
-            
-        } catch (IOException e) {
-            spellProgram = null;
-            input = null;
-            output = null;
-            BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("spellProgramStartError"));
-            return false;
-        }
-        
-        // get output and input stream
-        try {
-            output = new PrintWriter(new
-                    OutputStreamWriter(spellProgram.getOutputStream(), ASPELL_ENCODING));
-            input = new BufferedReader(new
-                    InputStreamReader(spellProgram.getInputStream(), ASPELL_ENCODING));
-        }
-        catch (UnsupportedEncodingException e1) {
-            spellProgram = null;
-            input = null;
-            output = null;
-            BuilderRegistry.printToConsole("Unsupported encoding");
-            return false;
-        }
-        
-        // read the version info
-        try {
-            String message = input.readLine();
-            if (null == message) { // Something went wrong, get message from aspell's error stream
-                BufferedReader error = new BufferedReader(new InputStreamReader(spellProgram.getErrorStream()));
-                message = error.readLine();
-                if (null == message) {
-                    BuilderRegistry.printToConsole("Aspell failed! No output could be read.");
-                } else {
-                    BuilderRegistry.printToConsole("aspell> " + message.trim());
+    private SpellingEngine createEngine() {
+        IPreferenceStore prefs = TexlipsePlugin.getDefault().getPreferenceStore();
+        String dir = prefs.getString(TexlipseProperties.SPELLCHECKER_DICT_DIR);
+        if (prefs.getBoolean(TexlipseProperties.ECLIPSE_BUILDIN_SPELLCHECKER)
+                && dir != null && dir.length() > 0) {
+            try {
+                HunspellDictionary dictionary = HunspellDictionary.getDictionary(new File(dir), language);
+                if (dictionary != null) {
+                    return new HunspellEngine(dictionary, getUserDictionary(),
+                            prefs.getBoolean(TexlipseProperties.SPELLCHECKER_IGNORE_COMMENTS),
+                            prefs.getBoolean(TexlipseProperties.SPELLCHECKER_IGNORE_MATH),
+                            prefs.getBoolean(TexlipseProperties.SPELLCHECKER_IGNORE_MIXED_CASE));
                 }
-                error.close();
-                return false;
+                BuilderRegistry.printToConsole(MessageFormat.format(
+                        TexlipsePlugin.getResourceString("spellNoDictionary"),
+                        new Object[] { language, dir }));
+            } catch (IOException e) {
+                TexlipsePlugin.log("Loading the dictionary of " + language, e);
+                BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("spellProgramStartError"));
             }
-            BuilderRegistry.printToConsole("aspell> " + message.trim());
-            // Now it's up and running :)
-            // put it in terse mode, then it's faster
-            output.println("!");
-            return true;
-        } catch (IOException e) {
-            TexlipsePlugin.log("Aspell died", e);
-            BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("spellProgramStartError"));
-            return false;
         }
+        AspellEngine aspell = new AspellEngine(command, envp);
+        return aspell.start() ? aspell : null;
+    }
+
+    /**
+     * @return the file of the words the user has added in the current language
+     */
+    private File getUserDictionary() {
+        String dir = TexlipsePlugin.getPreference(TexlipseProperties.SPELLCHECKER_CUSTOM_DICT_DIR);
+        File parent = dir != null && dir.length() > 0 ? new File(dir)
+                : TexlipsePlugin.getDefault().getStateLocation().toFile();
+        return new File(parent, language + ".usr");
     }
 
     /**
-     * Stop running the spelling program.
+     * Stop running the spelling engine.
      */
     private void stopProgram() {
-        if (spellProgram != null) {
-            spellProgram.destroy();
-            spellProgram = null;
+        if (engine != null) {
+            engine.dispose();
+            engine = null;
         }
     }
 
@@ -349,7 +295,8 @@ public class SpellChecker implements IPropertyChangeListener {
      */
     public void propertyChange(PropertyChangeEvent event) {
         String prop = event.getProperty();
-        if (prop.startsWith("spell")) {
+        if (prop.startsWith("spell")
+                || prop.equals(TexlipseProperties.ECLIPSE_BUILDIN_SPELLCHECKER)) {
             // encoding, program args or program path changed
             //BuilderRegistry.printToConsole("spelling property changed: " + prop);
             stopProgram();
@@ -367,7 +314,7 @@ public class SpellChecker implements IPropertyChangeListener {
      */
     public static void checkSpelling(String line, int offset, int lineNumber, IFile file) {
         if (instance.checkProgram(file)){
-            instance.checkLineSpelling(line, offset, lineNumber, file);
+            instance.checkLineSpelling(line, offset, lineNumber, file, null);
         }
     }
     
@@ -411,7 +358,17 @@ public class SpellChecker implements IPropertyChangeListener {
      */
     private void checkDocumentSpelling(IDocument doc, IFile file, IProgressMonitor monitor) {
         deleteOldProposals(file);
-        //doc.addDocumentListener(instance);
+        SpellingErrorIndex index = new SpellingErrorIndex(file);
+        doc.addDocumentListener(index);
+        synchronized (indexes) {
+            indexes.put(doc, index);
+        }
+        SpellingEvent event = Events.AVAILABLE ? new SpellingEvent() : null;
+        if (event != null) {
+            event.begin();
+        }
+        int lines = 0;
+        int errors = 0;
         try {
             int num = doc.getNumberOfLines();
             monitor.beginTask("Check spelling", num);
@@ -420,13 +377,25 @@ public class SpellChecker implements IPropertyChangeListener {
                 int offset = doc.getLineOffset(i);
                 int length = doc.getLineLength(i);
                 String line = doc.get(offset, length);
-                checkLineSpelling(line, offset, i+1, file);
+                errors += checkLineSpelling(line, offset, i+1, file, index);
+                lines++;
                 monitor.worked(1);
             }
         } catch (BadLocationException e) {
             TexlipsePlugin.log("Checking spelling on a line", e);
         }
-        stopProgram();
+        if (event != null && event.shouldCommit()) {
+            event.file = file.getName();
+            event.engine = engine.getClass().getSimpleName();
+            event.length = doc.getLength();
+            event.lines = lines;
+            event.misspellings = errors;
+            event.commit();
+        }
+        if (engine instanceof AspellEngine) {
+            // aspell is started again for the next check
+            stopProgram();
+        }
     }
 
     /**
@@ -496,23 +465,24 @@ public class SpellChecker implements IPropertyChangeListener {
     }
     
     /**
-     * Check spelling of a single line.
-     * This method parses ispell-style spelling error proposals.
+     * Check spelling of a single line with the spelling engine.
      * 
      * @param line the line of text
      * @param offset start offset of the line in the document
      * @param file
-     * @return fix proposals, or empty array if all correct
+     * @param index the errors of the document, or null
+     * @return the number of misspelled words on the line
      */
-    private void checkLineSpelling(String line, int offset, int lineNumber, IFile file) {
+    private int checkLineSpelling(String line, int offset, int lineNumber, IFile file,
+            SpellingErrorIndex index) {
         
         // check that there is text for the checker
         if (line == null || line.length() == 0) {
-            return;
+            return 0;
         }
         
         if (line.trim().length() == 0) {
-            return;
+            return 0;
         }
         
         // give the speller something to parse
@@ -521,81 +491,21 @@ public class SpellChecker implements IPropertyChangeListener {
             lineToPost = replaceUmlauts(line);
         }
         
-        /*
-         * a prefixed "^" tells aspell to parse the line without exceptions. From
-         * http://aspell.sourceforge.net/man-html/Through-A-Pipe.html#Through-A-Pipe:
-         * "lines of single words prefixed with any of `*', `&', `@', `+', `-',
-         * `~', `#', `!', `%', or `^'" are also valid and have a special meaning
-         * Special meaning of "^" is to ignore all other prefixes.
-         * 
-         */
-        output.println("^" + lineToPost);
-        output.flush();
-        // wait until there is input
-        List<String> lines = new ArrayList<String>();
-        try {
-            String result = input.readLine();
-            while ((!"".equals(result)) && (result != null)) {
-                lines.add(result);
-                result = input.readLine();
-            }
-            //Wait a bit and clear the input buffer (sometimes there are more than one empty line)
-            try {
-                Thread.sleep(5);
-            } catch (InterruptedException e) {
-                //No problem
-            } 
-            while (input.ready()) { 
-                input.readLine();
-            }
-        } catch (IOException e) {
-            BuilderRegistry.printToConsole(TexlipsePlugin.getResourceString("spellProgramStartError"));
-            TexlipsePlugin.log("aspell error at line " + lineNumber + ": " + lineToPost, e);
-        }
-        
-        // loop through the output lines (they contain only errors)
-        for (int i = 0; i < lines.size(); i++) {
-            String[] tmp = (lines.get(i)).split(":");
-            String[] error = tmp[0].split(" ");
-            String word = error[1].trim();
-            // column, where the word starts in the line of text
-            // is always the last entry in error (sometimes 3, if there
-            // are matches, else 2)
-            // we have to subtract 1 since the first char is always "^"
-            int column = Integer.valueOf(error[error.length - 1]).intValue() - 1;
-            
-            /*
-            // if we have multi byte chars (e.g. umlauts in utf-8), then aspell
-            // returns them as multiple columns. computing the difference
-            // between byte-length and String-length:
-            byte[] bytes = lineToPost.getBytes();
-            byte[] before = new byte[column];
-            for (int j = 0; j < column; j++) {
-                before[j] = bytes[j];
-            }
-            int difference = column - (new String(before)).length();
-            column -= difference;
-            */
-            
-            // list of proposals starts after the colon
-            String[] options;
-            if (tmp.length > 1) {
-                String[] proposals = (tmp[1].trim()).split(", ");
-                options = new String[proposals.length + 2];
-                for (int j = 0; j < proposals.length; j++) {
-                    options[j] = proposals[j].trim();
-                }
-            } else {
-                options = new String[2];
-            }
+        List<SpellingEngine.Misspelling> errors = engine.checkLine(lineToPost);
+        for (SpellingEngine.Misspelling error : errors) {
+            String word = error.getWord();
+            String[] proposals = error.getProposals();
+            String[] options = new String[proposals.length + 2];
+            System.arraycopy(proposals, 0, options, 0, proposals.length);
             options[options.length - 2] = MessageFormat.format(SPELL_CHECKER_IGNORE,
                     new Object[] { word });
             options[options.length - 1] = MessageFormat.format(SPELL_CHECKER_ADD, 
                     new Object[] { word });
 
-            createMarker(file, options, offset + column, word,
-                    lineNumber);
+            createMarker(file, options, offset + error.getColumn(), word,
+                    lineNumber, index);
         }
+        return errors.size();
     }
 
     /**
@@ -605,8 +515,10 @@ public class SpellChecker implements IPropertyChangeListener {
      * @param proposals list of proposals for correcting the error
      * @param charBegin  beginning offset in the file
      * @param wordLength length of the misspelled word
+     * @param index the errors of the document, or null
      */
-    private void createMarker(IResource file, String[] proposals, int charBegin, String word, int lineNumber) {
+    private void createMarker(IResource file, String[] proposals, int charBegin, String word, int lineNumber,
+            SpellingErrorIndex index) {
         
         Map<String, ? super Object> attributes = new HashMap<String, Object>();
         attributes.put(IMarker.CHAR_START, Integer.valueOf(charBegin));
@@ -620,6 +532,9 @@ public class SpellChecker implements IPropertyChangeListener {
             IMarker marker = file.createMarker(SPELLING_ERROR_MARKER_TYPE);
             marker.setAttributes(attributes);
             proposalMap.put(marker, proposals);
+            if (index != null) {
+                index.add(charBegin, charBegin + word.length(), marker);
+            }
 /*            MarkerUtilities.createMarker(file, attributes, SPELLING_ERROR_MARKER_TYPE);
             addProposal(file, charBegin, charBegin+word.length(), proposals);*/
             
@@ -644,14 +559,17 @@ public class SpellChecker implements IPropertyChangeListener {
     private void deleteOldProposals(IResource res) {
         
         // delete all markers with proposals, because there might be something in the other files
-        Iterator<IMarker> iter = proposalMap.keySet().iterator();
-        while (iter.hasNext()) {
-            IMarker marker = (IMarker) iter.next();
-            try {
-                marker.delete();
-            } catch (CoreException e) {
-                TexlipsePlugin.log("Deleting marker", e);
+        IMarker[] markers = proposalMap.keySet().toArray(new IMarker[proposalMap.size()]);
+        try {
+            ResourcesPlugin.getWorkspace().deleteMarkers(markers);
+        } catch (CoreException e) {
+            TexlipsePlugin.log("Deleting markers", e);
+        }
+        synchronized (indexes) {
+            for (Map.Entry<IDocument, SpellingErrorIndex> e : indexes.entrySet()) {
+                e.getKey().removeDocumentListener(e.getValue());
             }
+            indexes.clear();
         }
         
         // just in case delete all markers from this file
@@ -675,36 +593,6 @@ public class SpellChecker implements IPropertyChangeListener {
         return instance.proposalMap.get(marker);
     }
 
-    /**
-     * Returns the actual position of <i>marker</i> or null if the marker was
-     * deleted. Code inspired by 
-     * @param marker
-     * @param sourceViewer
-     * @return
-     */
-    private static int[] getMarkerPosition(IMarker marker, ISourceViewer sourceViewer) {
-        int[] p = new int[2];
-        p[0] = marker.getAttribute(IMarker.CHAR_START, -1);
-        p[1] = marker.getAttribute(IMarker.CHAR_END, -1);
-     // look up the current range of the marker when the document has been edited
-        IAnnotationModel model= sourceViewer.getAnnotationModel();
-        if (model instanceof AbstractMarkerAnnotationModel) {
-
-            AbstractMarkerAnnotationModel markerModel= (AbstractMarkerAnnotationModel) model;
-            Position pos= markerModel.getMarkerPosition(marker);
-            if (pos != null && !pos.isDeleted()) {
-                // use position instead of marker values
-                p[0] = pos.getOffset();
-                p[1] = pos.getOffset() + pos.getLength();
-            }
-
-            if (pos != null && pos.isDeleted()) {
-                // do nothing if position has been deleted
-                return null;
-            }
-        }
-        return p;
-    }
     /**
      * Finds the spelling correction proposals for the word at the given offset.
      * 
@@ -713,51 +601,54 @@ public class SpellChecker implements IPropertyChangeListener {
      */
     public static ICompletionProposal[] getSpellingProposal(int offset, ISourceViewer sourceViewer) {
         
-        IResource res = SelectedResourceManager.getDefault().getSelectedResource();
-
-        if (res == null) {
+        SpellingErrorIndex index;
+        synchronized (instance.indexes) {
+            index = instance.indexes.get(sourceViewer.getDocument());
+        }
+        if (index == null) {
             return null;
         }
         
-        IMarker[] markers = null;
-        try {
-            markers = res.findMarkers(SPELLING_ERROR_MARKER_TYPE, false, IResource.DEPTH_ZERO);
-        } catch (CoreException e) {
+        SpellingErrorIndex.Entry error = index.find(offset);
+        if (error == null) {
             return null;
         }
+        SpellingResolutionGenerator gen = new SpellingResolutionGenerator();
+        return convertAll(gen.getResolutions(error.marker), error);
+    }
 
-        for (int i = 0; i < markers.length; i++) {
-            int[] p = getMarkerPosition(markers[i], sourceViewer);
-            if (p != null && p[0] <= offset && offset <= p[1]) {
-                try {
-                    //Update marker's position
-                    markers[i].setAttribute(IMarker.CHAR_START, p[0]);
-                    markers[i].setAttribute(IMarker.CHAR_END, p[1]);
-                } catch (CoreException e) {
-                    TexlipsePlugin.log("Error while updating Marker", e);
-                }
-                SpellingResolutionGenerator gen = new SpellingResolutionGenerator();
-                return convertAll(gen.getResolutions(markers[i]), markers[i]);
-            }
+    /**
+     * Writes the moved positions of the spelling errors of the document
+     * to their markers. Called when the document is saved.
+     * 
+     * @param document the saved document
+     */
+    public static void documentSaved(IDocument document) {
+        SpellingErrorIndex index;
+        synchronized (instance.indexes) {
+            index = instance.indexes.get(document);
+        }
+        if (index != null) {
+            index.commit(document);
         }
-        
-        return null;
     }
 
     /**
      * Converts the given marker resolutions to completion proposals.
      * 
      * @param resolutions marker resolutions
-     * @param marker marker that holds the given resolutions
+     * @param error the error whose marker holds the given resolutions
      * @return completion proposals for the given marker
      */
-    private static ICompletionProposal[] convertAll(IMarkerResolution[] resolutions, IMarker marker) {
+    private static ICompletionProposal[] convertAll(IMarkerResolution[] resolutions,
+            SpellingErrorIndex.Entry error) {
         
         ICompletionProposal[] array = new ICompletionProposal[resolutions.length];
         
         for (int i = 0; i < resolutions.length; i++) {
             SpellingMarkerResolution smr = (SpellingMarkerResolution) resolutions[i];
-            array[i] = new SpellingCompletionProposal(smr.getSolution(), marker);
+            array[i] = new SpellingCompletionProposal(smr.getSolution(), error.marker,
+                    error.start, error.end - error.start);
         }
         
         return array;
@@ -37,14 +37,22 @@ public class SpellingCompletionProposal implements ICompletionProposal {
     // error marker
     private IMarker marker;
 
+    // the current position of the misspelled word
+    private int offset;
+    private int length;
+
     /**
      * Constructs a new completion proposal for spelling correction.
      * @param solution solution string
      * @param marker spelling error marker
+     * @param offset the current offset of the misspelled word
+     * @param length the length of the misspelled word
      */
-    public SpellingCompletionProposal(String solution, IMarker marker) {
+    public SpellingCompletionProposal(String solution, IMarker marker, int offset, int length) {
         this.solution = solution;
         this.marker = marker;
+        this.offset = offset;
+        this.length = length;
     }
 
     /**
@@ -54,14 +62,13 @@ public class SpellingCompletionProposal implements ICompletionProposal {
      */
     public void apply(IDocument document) {
         try {
-            int charStart = marker.getAttribute(IMarker.CHAR_START, -1);
-            int documentOffset = charStart;
-            int wordLength = marker.getAttribute(IMarker.CHAR_END, -1) - charStart;
+            int documentOffset = offset;
+            int wordLength = length;
             
             // add word to user dictionary
             if (this.solution.equals(SpellChecker.SPELL_CHECKER_ADD)) {
                 String word = document.get(documentOffset, wordLength);
-                SpellChecker.addWordToAspell(word);
+                SpellChecker.addWordToDictionary(word);
             } else {
                 // replace word in document only if user chose a replacement word
                 if (!this.solution.equals(SpellChecker.SPELL_CHECKER_IGNORE)) {
@@ -95,10 +102,6 @@ public class SpellingCompletionProposal implements ICompletionProposal {
      * @return the new selection in absolute document coordinates
      */
     public Point getSelection(IDocument document) {
-        int offset = marker.getAttribute(IMarker.CHAR_START, -1);
-        if (offset == -1) {
-            return null;
-        }
         return new Point(offset, solution.length());
     }
 
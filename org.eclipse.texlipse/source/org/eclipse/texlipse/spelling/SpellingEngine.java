@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.spelling;
+
+import java.util.List;
+
+/**
+ * The engine the <code>SpellChecker</code> checks the lines of a document
+ * with. An engine checks the words of one language.
+ */
+public interface SpellingEngine {
+
+    /**
+     * A misspelled word of a line.
+     */
+    public static final class Misspelling {
+        private final String word;
+        private final int column;
+        private final String[] proposals;
+
+        /**
+         * @param word the misspelled word
+         * @param column the index of the word in the line
+         * @param proposals the correct words proposed instead
+         */
+        public Misspelling(String word, int column, String[] proposals) {
+            this.word = word;
+            this.column = column;
+            this.proposals = proposals;
+        }
+
+        /**
+         * @return the misspelled word
+         */
+        public String getWord() {
+            return word;
+        }
+
+        /**
+         * @return the index of the word in the line
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * @return the correct words proposed instead, best first
+         */
+        public String[] getProposals() {
+            return proposals;
+        }
+    }
+
+    /**
+     * Checks the spelling of a line of LaTeX.
+     *
+     * @param line the line of text
+     * @return the misspelled words in the order of the line, empty if
+     * all words are correct
+     */
+    public List<Misspelling> checkLine(String line);
+
+    /**
+     * Adds the given word to the user's dictionary.
+     *
+     * @param word the word to add
+     */
+    public void addWord(String word);
+
+    /**
+     * @return true if the engine can check lines, false if it has
+     * stopped and has to be created again
+     */
+    public boolean isAlive();
+
+    /**
+     * Stops the engine and frees its resources.
+     */
+    public void dispose();
+}
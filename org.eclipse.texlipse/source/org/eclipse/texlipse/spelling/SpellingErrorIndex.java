@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.spelling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.texlipse.TexlipsePlugin;
+
+/**
+ * The spelling errors of a document, sorted by their offsets. The offsets
+ * follow the edits of the document, so the error at an offset is found
+ * by a binary search without asking the workspace for the markers. The
+ * errors don't overlap, so their ends are sorted as well.
+ *
+ * An edit touching the inside of an error drops it. The moved positions
+ * and the dropped markers are written to the markers in one workspace
+ * operation when the document is saved.
+ */
+final class SpellingErrorIndex implements IDocumentListener {
+
+    /**
+     * A spelling error found in the index.
+     */
+    static final class Entry {
+        final int start;
+        final int end;
+        final IMarker marker;
+
+        Entry(int start, int end, IMarker marker) {
+            this.start = start;
+            this.end = end;
+            this.marker = marker;
+        }
+    }
+
+    private final IResource resource;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private IMarker[] markers = new IMarker[16];
+    // whether the position differs from the marker
+    private boolean[] moved = new boolean[16];
+    private int size;
+
+    // the markers of the dropped errors
+    private List<IMarker> dropped = new ArrayList<IMarker>();
+
+    /**
+     * @param resource the file of the document
+     */
+    SpellingErrorIndex(IResource resource) {
+        this.resource = resource;
+    }
+
+    /**
+     * @return the file of the document
+     */
+    IResource getResource() {
+        return resource;
+    }
+
+    /**
+     * Adds an error. Adding in the order of the offsets appends.
+     *
+     * @param start the offset of the misspelled word
+     * @param end the end offset of the word
+     * @param marker the marker of the error
+     */
+    synchronized void add(int start, int end, IMarker marker) {
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            markers = Arrays.copyOf(markers, capacity);
+            moved = Arrays.copyOf(moved, capacity);
+        }
+        int i = size;
+        if (i > 0 && starts[i - 1] > start) {
+            i = firstEndingAfter(start);
+            System.arraycopy(starts, i, starts, i + 1, size - i);
+            System.arraycopy(ends, i, ends, i + 1, size - i);
+            System.arraycopy(markers, i, markers, i + 1, size - i);
+            System.arraycopy(moved, i, moved, i + 1, size - i);
+        }
+        starts[i] = start;
+        ends[i] = end;
+        markers[i] = marker;
+        moved[i] = false;
+        size++;
+    }
+
+    /**
+     * Finds the error at the given offset, the end of a word included.
+     *
+     * @param offset an offset of the document
+     * @return the error, or null if there is no error at the offset
+     */
+    synchronized Entry find(int offset) {
+        int i = firstEndingAfter(offset - 1);
+        if (i < size && starts[i] <= offset) {
+            if (markers[i].exists()) {
+                return new Entry(starts[i], ends[i], markers[i]);
+            }
+            // resolved from the problems view
+            remove(i, i + 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return the index of the first error ending after the offset
+     */
+    private int firstEndingAfter(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void remove(int from, int to) {
+        System.arraycopy(starts, to, starts, from, size - to);
+        System.arraycopy(ends, to, ends, from, size - to);
+        System.arraycopy(markers, to, markers, from, size - to);
+        System.arraycopy(moved, to, moved, from, size - to);
+        Arrays.fill(markers, size - (to - from), size, null);
+        size -= to - from;
+    }
+
+    /**
+     * Drops the errors the edit touches and moves the ones after it.
+     *
+     * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+     */
+    public synchronized void documentAboutToBeChanged(DocumentEvent event) {
+        int offset = event.getOffset();
+        int end = offset + event.getLength();
+        String text = event.getText();
+        int delta = (text == null ? 0 : text.length()) - event.getLength();
+
+        int first = firstEndingAfter(offset);
+        int last = first;
+        while (last < size && (starts[last] < end || starts[last] < offset)) {
+            dropped.add(markers[last]);
+            last++;
+        }
+        if (last > first) {
+            remove(first, last);
+        }
+        if (delta != 0) {
+            for (int i = first; i < size; i++) {
+                starts[i] += delta;
+                ends[i] += delta;
+                moved[i] = true;
+            }
+        }
+    }
+
+    /*
+     * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+     */
+    public void documentChanged(DocumentEvent event) {
+    }
+
+    /**
+     * Writes the moved positions to the markers and deletes the markers of
+     * the dropped errors, in one workspace operation run in the background.
+     *
+     * @param document the saved document
+     */
+    void commit(IDocument document) {
+        final IMarker[] deleted;
+        final List<IMarker> changed = new ArrayList<IMarker>();
+        final List<Object[]> values = new ArrayList<Object[]>();
+        synchronized (this) {
+            deleted = dropped.toArray(new IMarker[dropped.size()]);
+            dropped.clear();
+            for (int i = 0; i < size; i++) {
+                if (moved[i]) {
+                    int line;
+                    try {
+                        line = document.getLineOfOffset(starts[i]) + 1;
+                    } catch (BadLocationException e) {
+                        continue;
+                    }
+                    changed.add(markers[i]);
+                    values.add(new Object[] { Integer.valueOf(starts[i]),
+                            Integer.valueOf(ends[i]), Integer.valueOf(line) });
+                    moved[i] = false;
+                }
+            }
+        }
+        if (deleted.length == 0 && changed.isEmpty()) {
+            return;
+        }
+
+        final IWorkspaceRunnable update = new IWorkspaceRunnable() {
+            public void run(IProgressMonitor monitor) throws CoreException {
+                String[] attributes = new String[] {
+                        IMarker.CHAR_START, IMarker.CHAR_END, IMarker.LINE_NUMBER };
+                for (IMarker marker : deleted) {
+                    if (marker.exists()) {
+                        marker.delete();
+                    }
+                }
+                for (int i = 0; i < changed.size(); i++) {
+                    IMarker marker = changed.get(i);
+                    if (marker.exists()) {
+                        marker.setAttributes(attributes, values.get(i));
+                    }
+                }
+            }
+        };
+        Job job = new Job("Update spelling markers") {
+            protected IStatus run(IProgressMonitor monitor) {
+                try {
+                    IWorkspace workspace = ResourcesPlugin.getWorkspace();
+                    workspace.run(update, workspace.getRuleFactory().markerRule(resource),
+                            IWorkspace.AVOID_UPDATE, monitor);
+                } catch (CoreException e) {
+                    TexlipsePlugin.log("Updating spelling markers", e);
+                }
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+        job.schedule();
+    }
+
+    /**
+     * @return the markers of all the errors, dropped ones included
+     */
+    synchronized IMarker[] getMarkers() {
+        IMarker[] result = Arrays.copyOf(markers, size + dropped.size());
+        for (int i = 0; i < dropped.size(); i++) {
+            result[size + i] = dropped.get(i);
+        }
+        return result;
+    }
+}
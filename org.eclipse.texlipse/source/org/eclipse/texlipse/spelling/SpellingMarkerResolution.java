@@ -19,6 +19,7 @@ import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.texparser.DocumentCharSequence;
 import org.eclipse.ui.IMarkerResolution2;
 
 /**
@@ -68,7 +69,7 @@ public class SpellingMarkerResolution implements IMarkerResolution2 {
         int charBegin = marker.getAttribute(IMarker.CHAR_START, -1);
         int charEnd = marker.getAttribute(IMarker.CHAR_END, -1);
 
-        String str = document.get();
+        CharSequence str = new DocumentCharSequence(document);
         
         if (charBegin > 0 && str.length() < charEnd
                 && (!Character.isWhitespace(str.charAt(charBegin-1))
@@ -85,7 +86,7 @@ public class SpellingMarkerResolution implements IMarkerResolution2 {
             // add word to user dictionary
             if (this.solution.equals(SpellChecker.SPELL_CHECKER_ADD)) {
                 String word = document.get(charBegin, charEnd-charBegin);
-                SpellChecker.addWordToAspell(word);
+                SpellChecker.addWordToDictionary(word);
             } else {
                 // replace word in document only if user chose a replacement word
                 if (!this.solution.equals(SpellChecker.SPELL_CHECKER_IGNORE)) {
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.texparser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * A reader of a character sequence, such as the contents of a file
+ * decoded into a <code>CharBuffer</code>, that doesn't copy the
+ * sequence into a string.
+ */
+public class CharSequenceReader extends Reader {
+
+    private CharSequence chars;
+    private int next;
+    private int mark;
+
+    /**
+     * @param chars the characters to read
+     */
+    public CharSequenceReader(CharSequence chars) {
+        this.chars = chars;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (chars == null) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    public int read() throws IOException {
+        ensureOpen();
+        return next < chars.length() ? chars.charAt(next++) : -1;
+    }
+
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int n = Math.min(len, chars.length() - next);
+        if (n <= 0) {
+            return -1;
+        }
+        if (chars instanceof String) {
+            ((String) chars).getChars(next, next + n, cbuf, off);
+        } else if (chars instanceof CharBuffer) {
+            // charAt of a buffer is relative to its position
+            CharBuffer buffer = ((CharBuffer) chars).duplicate();
+            buffer.position(buffer.position() + next);
+            buffer.get(cbuf, off, n);
+        } else {
+            for (int i = 0; i < n; i++) {
+                cbuf[off + i] = chars.charAt(next + i);
+            }
+        }
+        next += n;
+        return n;
+    }
+
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        long skipped = Math.max(0, Math.min(n, chars.length() - next));
+        next += skipped;
+        return skipped;
+    }
+
+    public boolean ready() throws IOException {
+        ensureOpen();
+        return true;
+    }
+
+    public boolean markSupported() {
+        return true;
+    }
+
+    public void mark(int readAheadLimit) throws IOException {
+        ensureOpen();
+        mark = next;
+    }
+
+    public void reset() throws IOException {
+        ensureOpen();
+        next = mark;
+    }
+
+    public void close() {
+        chars = null;
+    }
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.texparser;
+
+import java.util.ConcurrentModificationException;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+
+/**
+ * A read-only <code>CharSequence</code> view of a document.
+ *
+ * The characters are read from the document's text store on access, so
+ * creating the view is free and a search only touches the part of the
+ * document it looks at, unlike <code>IDocument.get()</code> which copies
+ * the whole text.
+ * <p>
+ * The view is of the document as it was when the view was created. A
+ * read after the document was changed throws a
+ * <code>ConcurrentModificationException</code>, which the caller should
+ * let through or handle by starting over, so a search never mixes two
+ * versions of the text. The check uses the modification stamp of the
+ * document; a synchronized document changes its text and its stamp under
+ * its lock, which <code>getChar</code> takes as well. A document without
+ * modification stamps must only be read on the thread that changes it.
+ */
+public final class DocumentCharSequence implements CharSequence {
+
+    private final IDocument document;
+    private final long stamp;
+
+    /**
+     * Creates a view of the given document.
+     *
+     * @param document The document
+     */
+    public DocumentCharSequence(IDocument document) {
+        this.document = document;
+        this.stamp = getStamp(document);
+    }
+
+    public int length() {
+        int length = document.getLength();
+        checkUnchanged();
+        return length;
+    }
+
+    public char charAt(int index) {
+        try {
+            char c = document.getChar(index);
+            checkUnchanged();
+            return c;
+        } catch (BadLocationException e) {
+            checkUnchanged();
+            throw new IndexOutOfBoundsException("Index: " + index + ", length: " + document.getLength());
+        }
+    }
+
+    /**
+     * Returns a copy of the given part of the document.
+     *
+     * @see java.lang.CharSequence#subSequence(int, int)
+     */
+    public CharSequence subSequence(int start, int end) {
+        try {
+            String text = document.get(start, end - start);
+            checkUnchanged();
+            return text;
+        } catch (BadLocationException e) {
+            checkUnchanged();
+            throw new IndexOutOfBoundsException("Range: " + start + "-" + end + ", length: " + document.getLength());
+        }
+    }
+
+    /**
+     * Returns a copy of the whole document.
+     */
+    public String toString() {
+        String text = document.get();
+        checkUnchanged();
+        return text;
+    }
+
+    /**
+     * @throws ConcurrentModificationException if the document was changed
+     * after the view was created
+     */
+    private void checkUnchanged() {
+        if (getStamp(document) != stamp) {
+            throw new ConcurrentModificationException("The document was changed while it was read");
+        }
+    }
+
+    private static long getStamp(IDocument document) {
+        return document instanceof IDocumentExtension4
+                ? ((IDocumentExtension4) document).getModificationStamp()
+                : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+    }
+}
@@ -134,6 +134,7 @@ public class LatexParser {
     private List<DocumentReference> cites;
     private List<DocumentReference> refs;
     private ArrayList<TexCommandEntry> commands;
+    private List<String> packages;
     private List<ParseErrorMessage> tasks;
     
     private List<String> bibs;
@@ -161,6 +162,7 @@ public class LatexParser {
         this.cites = new ArrayList<DocumentReference>();
         this.refs = new ArrayList<DocumentReference>();
         this.commands = new ArrayList<TexCommandEntry>();
+        this.packages = new ArrayList<String>();
         this.tasks = new ArrayList<ParseErrorMessage>();
         
         this.inputs = new ArrayList<OutlineNode>(2);
@@ -578,6 +580,7 @@ public class LatexParser {
                         lexer.registerCommand(currentCommand.key);
                         expectArg2 = true;
                     } else if (prevToken instanceof TCpackage) {
+                        addPackages(t.getText());
                         if (t.getText().equals("biblatex")) {
                             biblatexMode = true;
                             if (packageOptions != null) {
@@ -916,6 +919,28 @@ public class LatexParser {
         return commands;
     }
     
+    /**
+     * @return Returns the names of the packages loaded with the usepackage command.
+     */
+    public List<String> getPackages() {
+        return packages;
+    }
+    
+    /**
+     * Adds the packages of a usepackage argument.
+     * 
+     * @param arg The comma separated package names
+     */
+    private void addPackages(String arg) {
+        String[] names = arg.split(",");
+        for (String name : names) {
+            name = name.trim();
+            if (name.length() > 0) {
+                packages.add(name);
+            }
+        }
+    }
+    
     /**
      * @return Returns the tasks.
      */
@@ -20,7 +20,11 @@ import org.eclipse.jface.text.source.ICharacterPairMatcher;
 
 /**
  * This class has some static functions which are often needed when parsing
- * latex files
+ * latex files.
+ * 
+ * The functions take a <code>CharSequence</code>, so editor code can pass a
+ * <code>DocumentCharSequence</code> instead of copying the whole document.
+ * The searches only look at the characters they need.
  * 
  * @author Boris von Loesch
  */
@@ -32,6 +36,67 @@ public class LatexParserUtils {
     public final static int LEFT = ICharacterPairMatcher.LEFT;
 
     
+    /**
+     * Returns the index of the first occurrence of the string in the input
+     * at or after the given index, like <code>String.indexOf</code>.
+     * 
+     * @param input
+     * @param str The string to search for
+     * @param fromIndex The index from where to start the search
+     * @return The index of the string, or -1 if it does not occur
+     */
+    public static int indexOf(CharSequence input, String str, int fromIndex) {
+        if (input instanceof String) {
+            return ((String) input).indexOf(str, fromIndex);
+        }
+        int max = input.length() - str.length();
+        if (str.length() == 0) {
+            return Math.max(0, Math.min(fromIndex, input.length()));
+        }
+        char first = str.charAt(0);
+        for (int i = Math.max(fromIndex, 0); i <= max; i++) {
+            if (input.charAt(i) == first && regionMatches(input, i, str)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last occurrence of the string in the input
+     * at or before the given index, like <code>String.lastIndexOf</code>.
+     * 
+     * @param input
+     * @param str The string to search for
+     * @param fromIndex The index from which to backward start the search
+     * @return The index of the string, or -1 if it does not occur
+     */
+    public static int lastIndexOf(CharSequence input, String str, int fromIndex) {
+        if (input instanceof String) {
+            return ((String) input).lastIndexOf(str, fromIndex);
+        }
+        int i = Math.min(fromIndex, input.length() - str.length());
+        if (str.length() == 0) {
+            return i < 0 ? -1 : i;
+        }
+        char first = str.charAt(0);
+        for (; i >= 0; i--) {
+            if (input.charAt(i) == first && regionMatches(input, i, str)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionMatches(CharSequence input, int index, String str) {
+        for (int j = 1; j < str.length(); j++) {
+            if (input.charAt(index + j) != str.charAt(j)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Checks whether the character at position <code>index</code> is escaped
      * by a backslash or not.
@@ -39,7 +104,7 @@ public class LatexParserUtils {
      * @param index
      * @return
      */
-    public static boolean isEscaped (String input, int index) {
+    public static boolean isEscaped (CharSequence input, int index) {
         while (index > 0) {
             index--;
             if (input.charAt(index) != '\\') return false;
@@ -57,7 +122,7 @@ public class LatexParserUtils {
      * @param index
      * @return
      */
-    public static int getStartofLine(String input, int index) {
+    public static int getStartofLine(CharSequence input, int index) {
         int pos = index;
         char c;
         c = input.charAt(pos);
@@ -75,7 +140,7 @@ public class LatexParserUtils {
      * @return 
      * @throws BadLocationException if index is out of bounds
      */
-    public static boolean isInsideComment(String input, int index){
+    public static boolean isInsideComment(CharSequence input, int index){
         int lastLine = getStartofLine(input, index);
         int p = lastLine;
             while (p < index) {
@@ -101,7 +166,7 @@ public class LatexParserUtils {
      * @return
      * @throws BadLocationException if index is out of bounds
      */
-    private static boolean testForCommand(String input, int commandLength, int index){
+    private static boolean testForCommand(CharSequence input, int commandLength, int index){
 
         if (isEscaped(input, index)) return false;
         // Check the character after the command
@@ -123,12 +188,12 @@ public class LatexParserUtils {
      * @return The position of the command, or -1 if the command is not
      *         contained in the String
      */
-    public static int findCommand(String input, String command, int fromIndex) {
-        int pos = input.indexOf(command, fromIndex);
+    public static int findCommand(CharSequence input, String command, int fromIndex) {
+        int pos = indexOf(input, command, fromIndex);
         while (pos != -1) {
             if (testForCommand(input, command.length(), pos))
                 return pos;
-            pos = input.indexOf(command, pos + command.length());
+            pos = indexOf(input, command, pos + command.length());
         }
         return -1;
     }
@@ -143,12 +208,12 @@ public class LatexParserUtils {
      * @return The position of the command, or -1 if the command is not
      *         contained in the String
      */
-    private static int findLastCommand(String input, String command, int fromIndex) {
-        int pos = input.lastIndexOf(command, fromIndex);
+    private static int findLastCommand(CharSequence input, String command, int fromIndex) {
+        int pos = lastIndexOf(input, command, fromIndex);
         while (pos != -1) {
             if (testForCommand(input, command.length(), pos))
                 return pos;
-            pos = input.lastIndexOf(command, pos-1);
+            pos = lastIndexOf(input, command, pos-1);
         }
         return -1;
     }
@@ -168,7 +233,7 @@ public class LatexParserUtils {
      * @return index of the matching closing character, or -1 if the search
      *         failed
      */
-    public static int findPeerChar(String input,
+    public static int findPeerChar(CharSequence input,
             int offset, int anchor, char opening, char closing) {
         int stack = 1, index;
         index = offset;
@@ -202,7 +267,7 @@ public class LatexParserUtils {
      * @return The argument without braces, null if there is no valid argument
      * @throws BadLocationException if index is out of bounds
      */
-    public static IRegion getCommandArgument(String input, int index){
+    public static IRegion getCommandArgument(CharSequence input, int index){
         int pos = index;
         final int length = input.length();
         if (input.charAt(index) == '\\')
@@ -229,8 +294,8 @@ public class LatexParserUtils {
      * @return null if it could not find any command
      * @throws BadLocationException
      */
-    public static IRegion getCommand (String input, int index){
-        if ("".equals(input)) return null;
+    public static IRegion getCommand (CharSequence input, int index){
+        if (input.length() == 0) return null;
 
         int pos = index;
         if (pos >= input.length()) {
@@ -277,8 +342,8 @@ public class LatexParserUtils {
         return null; 
     }
 
-    private static IRegion findEnvironment(String input, String envName, String command, int fromIndex) {
-        int pos = input.indexOf("{" + envName + "}", fromIndex + command.length());
+    private static IRegion findEnvironment(CharSequence input, String envName, String command, int fromIndex) {
+        int pos = indexOf(input, "{" + envName + "}", fromIndex + command.length());
         while (pos != -1) {
             int end = pos + envName.length() + 2;
             // Search for the command
@@ -291,13 +356,13 @@ public class LatexParserUtils {
                     return new Region(beginStart, end - beginStart);
                 }
             }
-            pos = input.indexOf("{" + envName + "}", pos + envName.length() + 2);
+            pos = indexOf(input, "{" + envName + "}", pos + envName.length() + 2);
         }
         return null;
     }
 
-    private static IRegion findLastEnvironment(String input, String envName, String command, int fromIndex) {
-        int pos = input.lastIndexOf("{" + envName + "}", fromIndex);
+    private static IRegion findLastEnvironment(CharSequence input, String envName, String command, int fromIndex) {
+        int pos = lastIndexOf(input, "{" + envName + "}", fromIndex);
         while (pos != -1) {
             int end = pos + envName.length() + 2;
             // Search for the command
@@ -310,7 +375,7 @@ public class LatexParserUtils {
                     return new Region(beginStart, end - beginStart);
                 }
             }
-            pos = input.lastIndexOf("{" + envName + "}", pos-1);
+            pos = lastIndexOf(input, "{" + envName + "}", pos-1);
         }
         return null;
     }
@@ -322,7 +387,7 @@ public class LatexParserUtils {
      * @param fromIndex The index from which to start the search
      * @return
      */
-    public static IRegion findBeginEnvironment(String input, String envName, int fromIndex) {
+    public static IRegion findBeginEnvironment(CharSequence input, String envName, int fromIndex) {
         return findEnvironment(input, envName, "\\begin", fromIndex);
     }
 
@@ -334,7 +399,7 @@ public class LatexParserUtils {
      * @param fromIndex The index from which to start the search
      * @return
      */
-    public static IRegion findEndEnvironment(String input, String envName, int fromIndex) {
+    public static IRegion findEndEnvironment(CharSequence input, String envName, int fromIndex) {
         return findEnvironment(input, envName, "\\end", fromIndex);
     }
 
@@ -346,7 +411,7 @@ public class LatexParserUtils {
      * @param beginIndex    Must be at the start or inside of \begin{env}
      * @return  The region of the \end{env} command or null if the end was not found
      */
-    public static IRegion findMatchingEndEnvironment(String input, String envName, int beginIndex) {
+    public static IRegion findMatchingEndEnvironment(CharSequence input, String envName, int beginIndex) {
         int pos = beginIndex + 1;
         IRegion nextEnd, nextBegin;
         int level = 0;
@@ -374,7 +439,7 @@ public class LatexParserUtils {
      * @param beginIndex    Must be at the start of \end{env}
      * @return  The region of the \begin{env} command or null if the end was not found
      */
-    public static IRegion findMatchingBeginEnvironment(String input, String envName, int beginIndex) {
+    public static IRegion findMatchingBeginEnvironment(CharSequence input, String envName, int beginIndex) {
         int pos = beginIndex;
         IRegion nextEnd, nextBegin;
         int level = 0;
@@ -19,6 +19,7 @@ import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.texlipse.model.DocumentReference;
 import org.eclipse.texlipse.model.ReferenceEntry;
 import org.eclipse.texlipse.model.TexCommandEntry;
 import org.eclipse.texlipse.texparser.lexer.LexerException;
@@ -26,11 +27,13 @@ import org.eclipse.texlipse.texparser.node.EOF;
 import org.eclipse.texlipse.texparser.node.TArgument;
 import org.eclipse.texlipse.texparser.node.TCbib;
 import org.eclipse.texlipse.texparser.node.TCbibstyle;
+import org.eclipse.texlipse.texparser.node.TCcite;
 import org.eclipse.texlipse.texparser.node.TClabel;
 import org.eclipse.texlipse.texparser.node.TCnew;
 import org.eclipse.texlipse.texparser.node.TCommentline;
 import org.eclipse.texlipse.texparser.node.TCpackage;
 import org.eclipse.texlipse.texparser.node.TCpindex;
+import org.eclipse.texlipse.texparser.node.TCref;
 import org.eclipse.texlipse.texparser.node.TOptargument;
 import org.eclipse.texlipse.texparser.node.TStar;
 import org.eclipse.texlipse.texparser.node.TWhitespace;
@@ -38,15 +41,18 @@ import org.eclipse.texlipse.texparser.node.Token;
 
 
 /**
- * A LaTeX parser for extracting labels, BibTeX -information and
- * whether an index is to be generated or not.
+ * A LaTeX parser for extracting labels, references, citations, BibTeX
+ * -information and whether an index is to be generated or not.
  * 
  * @author Oskar Ojala
  */
 public class LatexRefExtractingParser {
     
     private ArrayList<ReferenceEntry> labels;
+    private ArrayList<DocumentReference> refs;
+    private ArrayList<DocumentReference> cites;
     private ArrayList<TexCommandEntry> commands; //type: TexCommandEntry
+    private List<String> packages;
     private List<String> bibs;
     private String bibstyle;
     private boolean biblatexMode;
@@ -73,7 +79,10 @@ public class LatexRefExtractingParser {
     private void initializeDatastructs() {
         //reserve enough space
         this.labels = new ArrayList<ReferenceEntry>(100);
+        this.refs = new ArrayList<DocumentReference>();
+        this.cites = new ArrayList<DocumentReference>();
         this.commands = new ArrayList<TexCommandEntry>();
+        this.packages = new ArrayList<String>();
         this.bibs = new ArrayList<String>();
         this.biblatexMode = false;
         this.biblatexBackend = null;
@@ -144,6 +153,16 @@ public class LatexRefExtractingParser {
                             l.startLine = t.getLine();
                             l.setLabelInfo(input);
                             this.labels.add(l);
+                        } else if (prevToken instanceof TCref) {
+                            this.refs.add(new DocumentReference(t.getText(),
+                                    t.getLine(), t.getPos(), t.getText().length()));
+                        } else if (prevToken instanceof TCcite) {
+                            if (!"*".equals(t.getText())) {
+                                for (String c : t.getText().split(",")) {
+                                    this.cites.add(new DocumentReference(c.trim(),
+                                            t.getLine(), t.getPos(), t.getText().length()));
+                                }
+                            }
                         } else if (prevToken instanceof TCbib) {
                             String[] sBibs = t.getText().split(",");
                             for (String bib : sBibs) {
@@ -157,6 +176,12 @@ public class LatexRefExtractingParser {
                             currentCommand.startLine = t.getLine();
                             expectArg2 = true;
                         } else if (prevToken instanceof TCpackage) {
+                            String[] names = t.getText().split(",");
+                            for (String name : names) {
+                                if (name.trim().length() > 0) {
+                                    packages.add(name.trim());
+                                }
+                            }
                             if (t.getText().equals("biblatex")) {
                                 biblatexMode = true;
                                 if (packageOptions != null) {
@@ -202,7 +227,8 @@ public class LatexRefExtractingParser {
                     }
                 } else {
                     if (t instanceof TClabel || t instanceof TCbib || t instanceof TCbibstyle
-                            || t instanceof TCnew || t instanceof TCpackage) {
+                            || t instanceof TCnew || t instanceof TCpackage
+                            || t instanceof TCref || t instanceof TCcite) {
                         prevToken = t;
                         expectArg = true;
                     } else if (t instanceof TCpindex)
@@ -214,6 +240,20 @@ public class LatexRefExtractingParser {
         }
     }
     
+    /**
+     * @return The references (\ref and similar) of the document
+     */
+    public ArrayList<DocumentReference> getRefs() {
+        return refs;
+    }
+
+    /**
+     * @return The citations of the document, one for each key
+     */
+    public ArrayList<DocumentReference> getCites() {
+        return cites;
+    }
+
     /**
      * @return Returns the bibs.
      */
@@ -256,6 +296,12 @@ public class LatexRefExtractingParser {
     public ArrayList<TexCommandEntry> getCommands() {
         return commands;
     }
+    /**
+     * @return Returns the names of the packages loaded with the usepackage command.
+     */
+    public List<String> getPackages() {
+        return packages;
+    }
     /**
      * @return Returns the preamble (contains \begin{document} at the end).
      */
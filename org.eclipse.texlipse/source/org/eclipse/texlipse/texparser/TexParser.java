@@ -15,7 +15,6 @@ package org.eclipse.texlipse.texparser;
 
 import java.io.IOException;
 import java.io.PushbackReader;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -69,17 +68,17 @@ public class TexParser {
      * 
      * @see Character.isWhitespace
      */
-    private String rmTrailingWhitespace(String input) {
+    private CharSequence rmTrailingWhitespace(CharSequence input) {
         int lastChar = input.length() - 1;
         while (lastChar >= 0 && Character.isWhitespace(input.charAt(lastChar)))
             lastChar--;
         lastChar++;
         if (lastChar < input.length())
-            return input.substring(0, lastChar);
+            return input.subSequence(0, lastChar);
         return input;
     }
     
-    static String extractLaTeXPreamble(String input) {
+    static String extractLaTeXPreamble(CharSequence input) {
         /*if (LatexParserUtils.findCommand(input, "\\documentclass", 0) == -1
                 && LatexParserUtils.findCommand(input, "\\documentstyle", 0) == -1) {
             return null;
@@ -87,7 +86,7 @@ public class TexParser {
         
         IRegion region = LatexParserUtils.findBeginEnvironment(input, "document", 0);
         if (region != null) {
-            return input.substring(0, region.getOffset() + region.getLength());
+            return input.subSequence(0, region.getOffset() + region.getLength()).toString();
         } else {
             return null;
         }
@@ -103,7 +102,7 @@ public class TexParser {
      * 
      * @param input The document
      */
-    private void extractPreamble(String input) {
+    private void extractPreamble(CharSequence input) {
 /*
         // These regexps lead to stack overflows in the regexp parser in some occasions.
 
@@ -139,9 +138,10 @@ public class TexParser {
     /**
      * Parses the document
      * 
+     * @param input The document, read without copying it into a string
      * @throws IOException
      */
-    public void parseDocument(String input, boolean checkForMissingSections) throws IOException {
+    public void parseDocument(CharSequence input, boolean checkForMissingSections) throws IOException {
         
         // remove trailing ws (this is because a discrepancy in the lexer's 
         // and IDocument's line counting for trailing whitespace)
@@ -151,7 +151,7 @@ public class TexParser {
         
         try {
             // start the parse
-            LatexLexer lexer = new LatexLexer(new PushbackReader(new StringReader(input), 4096));
+            LatexLexer lexer = new LatexLexer(new PushbackReader(new CharSequenceReader(input), 4096));
             //LatexLexer lexer = this.getLexer(input); 
             if (this.preamble != null) {
                 OutlineNode on = new OutlineNode("Preamble",
@@ -285,6 +285,13 @@ public class TexParser {
         return lparser.getCommands();
     }
     
+    /**
+     * @return The names of the packages loaded with the usepackage command
+     */
+    public List<String> getPackages() {
+        return lparser.getPackages();
+    }
+    
     /**
      * @return The tasks to mark
      */
@@ -14,6 +14,10 @@
 package org.eclipse.texlipse.ui;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.AbstractTreeViewer;
 import org.eclipse.jface.viewers.ITreeContentProvider;
 import org.eclipse.jface.viewers.Viewer;
 
@@ -26,18 +30,41 @@ import org.eclipse.texlipse.builder.KpsewhichRunner;
 import org.eclipse.core.resources.IProject;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.ui.ISharedImages;
 import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.progress.DeferredTreeContentManager;
+import org.eclipse.ui.progress.IDeferredWorkbenchAdapter;
+import org.eclipse.ui.progress.IElementCollector;
 
 
 /**
  * Adds a sub-tree to the Eclipse Project Explorer showing the Kpathsea search paths for projects
  * 
+ * The search paths and the directories are listed in background jobs; the
+ * tree shows a pending node until they are listed, and the entries of
+ * large directories appear page by page. Directory listings are cached
+ * until the directory is modified, and the search paths for the lifetime
+ * of the tree.
+ *
  * @author Christopher Hoskin
  *
  */
 public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
+
+	// the number of entries added to the tree at once
+	private static final int PAGE_SIZE = 200;
+	// the most directory listings kept
+	private static final int MAX_LISTINGS = 256;
 	
 	/**
 	 * We need to provide information about the nodes in the sub-tree.
@@ -74,6 +101,100 @@ public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
 			else
 				return pathname.getName().endsWith(extension);
 		}
+
+		/**
+		 * @return A key identifying the filter in the listing cache
+		 */
+		public String getKey() {
+			return extension + (folders ? "//" : "/");
+		}
+	}
+
+	/**
+	 * The result of listing a directory with a filter
+	 */
+	private static class Listing {
+		protected final long modified;
+		protected final File[] files;
+		protected final boolean[] directories;
+
+		public Listing(long modified, File[] files, boolean[] directories) {
+			this.modified = modified;
+			this.files = files;
+			this.directories = directories;
+		}
+	}
+
+	// the directory listings by directory and filter, least recently used first
+	private final Map<String, Listing> listings = new LinkedHashMap<String, Listing>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, Listing> eldest) {
+			return size() > MAX_LISTINGS;
+		}
+	};
+
+	// the trees of the projects, so the search paths are only asked once
+	private final Map<IProject, TopLevel> topLevels = new HashMap<IProject, TopLevel>();
+
+	// fetches the children of the nodes in the background
+	private DeferredTreeContentManager manager;
+
+	/**
+	 * A node whose children are fetched in a background job. The children
+	 * are handed to the tree in pages.
+	 */
+	private abstract class DeferredNode implements ITreeNode, IDeferredWorkbenchAdapter {
+
+		/**
+		 * Fetches the children, possibly slowly.
+		 *
+		 * @param collector Receives the pages of children, or null to
+		 * only return them
+		 * @return The children
+		 */
+		protected abstract Object[] fetchChildren(IElementCollector collector, IProgressMonitor monitor);
+
+		/**
+		 * @return The children if they are known and up to date, or null
+		 * if they must be fetched
+		 */
+		protected abstract Object[] getCachedChildren();
+
+		public Object[] getChildren() {
+			Object[] children = getCachedChildren();
+			return children != null ? children : fetchChildren(null, null);
+		}
+
+		public void fetchDeferredChildren(Object object, IElementCollector collector,
+				IProgressMonitor monitor) {
+			fetchChildren(collector, monitor);
+			collector.done();
+		}
+
+		public boolean isContainer() {
+			return hasChildren();
+		}
+
+		public ISchedulingRule getRule(Object object) {
+			return null;
+		}
+
+		public Object[] getChildren(Object o) {
+			return getChildren();
+		}
+
+		public ImageDescriptor getImageDescriptor(Object object) {
+			return null;
+		}
+
+		public String getLabel(Object o) {
+			return getText();
+		}
+
+		public Object getParent(Object o) {
+			return getParent();
+		}
 	}
 	
 	/**
@@ -81,26 +202,91 @@ public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
 	 * Path nodes are folders or files in the search path
 	 *
 	 */
-	private class PathNode implements ITreeNode {
+	private class PathNode extends DeferredNode {
 		protected ITreeNode parent;
 		protected File path;
-		protected FileFilter filter;
+		protected ExtFilter filter;
+		protected boolean directory;
+		protected boolean exists;
 		
 		
-		public PathNode(ITreeNode parent, File path, FileFilter filter) {
+		public PathNode(ITreeNode parent, File path, ExtFilter filter, boolean directory, boolean exists) {
 			this.parent = parent;
 			this.path = path;
 			this.filter = filter;
+			this.directory = directory;
+			this.exists = exists;
 		}
 
-		public Object[] getChildren() {
+		protected Object[] getCachedChildren() {
+			if (!directory) {
+				return new Object[0];
+			}
+			Listing listing;
+			synchronized (listings) {
+				listing = listings.get(getKey());
+			}
+			if (listing == null || listing.modified != path.lastModified()) {
+				return null;
+			}
+			return createNodes(listing);
+		}
 			
-			File[] files = path.listFiles(filter);
-			PathNode[] nodes = new PathNode[files.length];
-			for (int i=0; i < files.length; i++)
-				nodes[i] = new PathNode(this,files[i],filter);
+		protected Object[] fetchChildren(IElementCollector collector, IProgressMonitor monitor) {
+			long modified = path.lastModified();
+			List<File> files = new ArrayList<File>();
+			List<Boolean> directories = new ArrayList<Boolean>();
+			List<PathNode> page = new ArrayList<PathNode>(PAGE_SIZE);
+			try {
+				DirectoryStream<Path> stream = Files.newDirectoryStream(path.toPath());
+				try {
+					for (Path p : stream) {
+						if (monitor != null && monitor.isCanceled()) {
+							return new Object[0];
+						}
+						File f = p.toFile();
+						if (!filter.accept(f)) {
+							continue;
+						}
+						boolean isDirectory = f.isDirectory();
+						files.add(f);
+						directories.add(Boolean.valueOf(isDirectory));
+						page.add(new PathNode(this, f, filter, isDirectory, true));
+						if (collector != null && page.size() == PAGE_SIZE) {
+							collector.add(page.toArray(), monitor);
+							page.clear();
+						}
+					}
+				} finally {
+					stream.close();
+				}
+			} catch (IOException ioe) {
+				// an unreadable directory has no children
+			}
+			if (collector != null && !page.isEmpty()) {
+				collector.add(page.toArray(), monitor);
+			}
+
+			boolean[] dirs = new boolean[directories.size()];
+			for (int i = 0; i < dirs.length; i++) {
+				dirs[i] = directories.get(i).booleanValue();
+			}
+			Listing listing = new Listing(modified, files.toArray(new File[files.size()]), dirs);
+			synchronized (listings) {
+				listings.put(getKey(), listing);
+			}
+			return createNodes(listing);
+		}
+
+		private Object[] createNodes(Listing listing) {
+			PathNode[] nodes = new PathNode[listing.files.length];
+			for (int i=0; i < nodes.length; i++)
+				nodes[i] = new PathNode(this, listing.files[i], filter, listing.directories[i], true);
 			return nodes;
+		}
 			
+		private String getKey() {
+			return path.getPath() + '\0' + filter.getKey();
 		}
 
 		public Object getParent() {
@@ -112,14 +298,14 @@ public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
 		}
 
 		public boolean hasChildren() {
-			return (path.isDirectory()&&(getChildren().length>0));
+			return directory;
 		}
 
 		public Image getImage() {
 			// TODO Create more appropriate images
-			if (path.isDirectory())
+			if (directory)
 				return PlatformUI.getWorkbench().getSharedImages().getImage(ISharedImages.IMG_OBJ_FOLDER); 
-			else if (!path.exists())
+			else if (!exists)
 				return PlatformUI.getWorkbench().getSharedImages().getImage(ISharedImages.IMG_TOOL_DELETE);
 			else
 				return PlatformUI.getWorkbench().getSharedImages().getImage(ISharedImages.IMG_OBJ_FILE);
@@ -134,8 +320,8 @@ public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
 	 */
 	private class KpathNode extends PathNode {
 		
-		public KpathNode(ITreeNode parent, File path, FileFilter filter) {
-			super(parent, path, filter);
+		public KpathNode(ITreeNode parent, File path, ExtFilter filter, boolean directory, boolean exists) {
+			super(parent, path, filter, directory, exists);
 		}
 
 		public String getText() {
@@ -148,10 +334,12 @@ public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
 	 * FileTypes (e.g. .bib, .tex, .bst) to search for
 	 *
 	 */
-	private class FileType implements ITreeNode{
+	private class FileType extends DeferredNode {
 		protected String extension;
 		protected TopLevel parent;
 		protected Image image;
+		// the search paths, once asked
+		private volatile Object[] nodes;
 
 		public FileType(TopLevel parent, String extension, String imageFile) {
 			this.parent = parent;
@@ -159,22 +347,37 @@ public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
 			this.image = TexlipsePlugin.getImage(imageFile);
 		}
 
-		public Object[] getChildren() {
-			KpsewhichRunner filesearch = new KpsewhichRunner();
-			try {
-				Kpath[] paths = filesearch.getSearchPaths(parent.getProject(), extension);
-				KpathNode[] nodes = new KpathNode[paths.length];
-				for (int i=0; i<paths.length; i++)
-					nodes[i] = new KpathNode(this,paths[i].path,new ExtFilter(extension,paths[i].searchChildren));
-				return nodes;
-			} catch (CoreException ce) {
-				TexlipsePlugin.log("Can't run Kpathsea", ce);
-				return null;
+		protected Object[] getCachedChildren() {
+			return nodes;
+		}
+
+		protected Object[] fetchChildren(IElementCollector collector, IProgressMonitor monitor) {
+			Object[] children = nodes;
+			if (children == null) {
+				KpsewhichRunner filesearch = new KpsewhichRunner();
+				try {
+					Kpath[] paths = filesearch.getSearchPaths(parent.getProject(), extension);
+					children = new Object[paths != null ? paths.length : 0];
+					for (int i=0; i<children.length; i++) {
+						File path = paths[i].path;
+						children[i] = new KpathNode(this, path, new ExtFilter(extension, paths[i].searchChildren),
+								path.isDirectory(), path.exists());
+					}
+					nodes = children;
+				} catch (CoreException ce) {
+					TexlipsePlugin.log("Can't run Kpathsea", ce);
+					children = new Object[0];
+				}
+			}
+			if (collector != null) {
+				collector.add(children, monitor);
 			}
+			return children;
 		}
 
 		public boolean hasChildren() {
-			return (getChildren()!=null);
+			// not known before kpsewhich has been asked
+			return true;
 		}
 
 		public String getText() {
@@ -243,9 +446,25 @@ public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
 	 * @see org.eclipse.jface.viewers.ITreeContentProvider#getChildren(java.lang.Object)
 	 */
 	public Object[] getChildren(Object parentElement) {
-		if (parentElement instanceof IProject)
-			return new Object[] { this.new TopLevel((IProject) parentElement) };
-		else if (parentElement instanceof ITreeNode)
+		if (parentElement instanceof IProject) {
+			IProject project = (IProject) parentElement;
+			synchronized (topLevels) {
+				TopLevel top = topLevels.get(project);
+				if (top == null) {
+					top = this.new TopLevel(project);
+					topLevels.put(project, top);
+				}
+				return new Object[] { top };
+			}
+		} else if (parentElement instanceof DeferredNode) {
+			DeferredNode node = (DeferredNode) parentElement;
+			Object[] children = node.getCachedChildren();
+			if (children != null) {
+				return children;
+			}
+			// a pending node until the children have been fetched
+			return manager != null ? manager.getChildren(node) : node.getChildren();
+		} else if (parentElement instanceof ITreeNode)
 			return ((ITreeNode) parentElement).getChildren();
 		else 
 			return null;
@@ -285,16 +504,26 @@ public class KpathseaProvider implements ITreeContentProvider, ILabelProvider {
 	 * @see org.eclipse.jface.viewers.IContentProvider#dispose()
 	 */
 	public void dispose() {
-		// TODO Auto-generated method stub
-
+		if (manager != null) {
+			manager.cancel(null);
+		}
+		synchronized (listings) {
+			listings.clear();
+		}
+		synchronized (topLevels) {
+			topLevels.clear();
+		}
 	}
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.jface.viewers.IContentProvider#inputChanged(org.eclipse.jface.viewers.Viewer, java.lang.Object, java.lang.Object)
 	 */
 	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
-		// TODO Auto-generated method stub
-
+		if (viewer instanceof AbstractTreeViewer) {
+			manager = new DeferredTreeContentManager((AbstractTreeViewer) viewer);
+		} else {
+			manager = null;
+		}
 	}
 
 	/*
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.ui;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * The images of the command and outline icons, shared by everyone using
+ * an equal descriptor. An image is created once, and disposed when the
+ * last reference to it is released.
+ * <p>
+ * <code>get</code> returns an image that is kept until the registry is
+ * disposed, for users without a lifetime of their own (command entries,
+ * label providers). Users that are disposed, like hovers, should
+ * <code>acquire</code> and <code>release</code> the image instead.
+ * <p>
+ * The decoded image data is kept, so an image released and needed again
+ * is not read again from the plugin. <code>preload</code> decodes images
+ * in a background thread before they are first shown.
+ */
+public class SharedImageRegistry {
+
+    private static class Entry {
+        // the decoded image, null if not decoded yet
+        ImageData data;
+        Image image;
+        int references;
+        // whether one of the references is held until the registry is disposed
+        boolean kept;
+    }
+
+    private Map<ImageDescriptor, Entry> entries = new HashMap<ImageDescriptor, Entry>();
+    private boolean disposed;
+
+    /**
+     * Returns the shared image of the descriptor, and keeps it until the
+     * registry is disposed. The image must not be disposed by the caller.
+     * 
+     * @param descriptor the descriptor of the image, or null
+     * @return the image, or null if it can't be created
+     */
+    public synchronized Image get(ImageDescriptor descriptor) {
+        Entry entry = createImage(descriptor);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.kept) {
+            entry.kept = true;
+            entry.references++;
+        }
+        return entry.image;
+    }
+
+    /**
+     * Returns the shared image of the descriptor. Each call must be paired
+     * with a call to <code>release</code>, and the image must not be
+     * disposed by the caller.
+     * 
+     * @param descriptor the descriptor of the image, or null
+     * @return the image, or null if it can't be created
+     */
+    public synchronized Image acquire(ImageDescriptor descriptor) {
+        Entry entry = createImage(descriptor);
+        if (entry == null) {
+            return null;
+        }
+        entry.references++;
+        return entry.image;
+    }
+
+    /**
+     * Releases an image returned by <code>acquire</code>. The image is
+     * disposed if it is no longer referenced.
+     * 
+     * @param descriptor the descriptor the image was acquired with, or null
+     */
+    public synchronized void release(ImageDescriptor descriptor) {
+        if (descriptor == null) {
+            return;
+        }
+        Entry entry = entries.get(descriptor);
+        if (entry == null || entry.references == 0) {
+            return;
+        }
+        entry.references--;
+        if (entry.references == 0 && entry.image != null) {
+            entry.image.dispose();
+            entry.image = null;
+        }
+    }
+
+    /**
+     * Decodes the images of the descriptors that are not decoded yet.
+     * Creates no images, so this can be called outside the UI thread.
+     * 
+     * @param descriptors the descriptors of the images
+     * @param monitor the progress monitor, polled for cancellation
+     */
+    public void preload(Collection<ImageDescriptor> descriptors, IProgressMonitor monitor) {
+        for (ImageDescriptor descriptor : descriptors) {
+            if (monitor.isCanceled()) {
+                return;
+            }
+            synchronized (this) {
+                if (disposed) {
+                    return;
+                }
+                Entry entry = entries.get(descriptor);
+                if (entry != null && (entry.data != null || entry.image != null)) {
+                    continue;
+                }
+            }
+            // decoding reads the file from the plugin, so don't hold the lock
+            ImageData data = descriptor.getImageData();
+            if (data == null) {
+                continue;
+            }
+            synchronized (this) {
+                Entry entry = entries.get(descriptor);
+                if (entry == null) {
+                    entry = new Entry();
+                    entries.put(descriptor, entry);
+                }
+                if (entry.data == null) {
+                    entry.data = data;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of images currently allocated
+     */
+    public synchronized int getImageCount() {
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.image != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Disposes all the images. The registry creates no more images after
+     * this.
+     */
+    public synchronized void dispose() {
+        for (Entry entry : entries.values()) {
+            if (entry.image != null) {
+                entry.image.dispose();
+            }
+        }
+        entries.clear();
+        disposed = true;
+    }
+
+    /**
+     * Creates the image of the descriptor if it doesn't exist.
+     * 
+     * @param descriptor the descriptor of the image, or null
+     * @return the entry of the image, or null if it can't be created
+     */
+    private Entry createImage(ImageDescriptor descriptor) {
+        if (descriptor == null || disposed) {
+            return null;
+        }
+        Entry entry = entries.get(descriptor);
+        if (entry == null) {
+            entry = new Entry();
+            entries.put(descriptor, entry);
+        }
+        if (entry.image == null) {
+            if (entry.data == null) {
+                entry.data = descriptor.getImageData();
+                if (entry.data == null) {
+                    return null;
+                }
+            }
+            Display display = Display.getCurrent();
+            entry.image = new Image(display != null ? display : Display.getDefault(), entry.data);
+        }
+        return entry;
+    }
+}
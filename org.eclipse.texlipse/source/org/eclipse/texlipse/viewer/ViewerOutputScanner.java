@@ -159,7 +159,7 @@ public class ViewerOutputScanner implements Runnable {
                 file = file.substring(3);
             }
             
-            String outDir = TexlipseProperties.getProjectProperty(project, TexlipseProperties.OUTPUT_DIR_PROPERTY);
+            String outDir = TexlipseProperties.getProjectConfiguration(project).outputDir;
             if (outDir != null && outDir.length() > 0) {
                 
                 if (outDir.endsWith("/") || outDir.endsWith("\\")) {
@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the allocation profiler and compares the
+ * results with a baseline of an earlier run.
+ *
+ * <pre>
+ * java -jar benchmarks.jar [--save-baseline file] [--baseline file]
+ *     [--max-regression percent] [JMH options] [benchmark regexp]...
+ * </pre>
+ *
+ * <code>--save-baseline</code> writes the scores and the allocated bytes
+ * per operation of the run. <code>--baseline</code> compares the run with
+ * such a file; if a benchmark got slower, or allocates more, by more than
+ * <code>--max-regression</code> percent (default 10), the exit status is 1.
+ * Benchmarks missing from the baseline are reported but don't fail. The
+ * other arguments go to JMH, see <code>-h</code>.
+ */
+public class BenchmarkMain {
+
+    private static final double DEFAULT_MAX_REGRESSION = 10.0;
+
+    // the allocation result of the GC profiler, prefixed by a dot in older JMH versions
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    // allocation differences below this many bytes per operation are noise
+    private static final double ALLOCATION_SLACK = 64.0;
+
+    private static final String SCORE = ".score";
+    private static final String UNIT = ".unit";
+    private static final String MODE = ".mode";
+    private static final String ALLOC = ".alloc";
+
+    /**
+     * @return the name of the benchmark with its parameters
+     */
+    private static String name(RunResult result) {
+        BenchmarkParams params = result.getParams();
+        StringBuilder sb = new StringBuilder(params.getBenchmark());
+        Collection<String> keys = params.getParamsKeys();
+        if (!keys.isEmpty()) {
+            sb.append('(');
+            boolean first = true;
+            for (String key : keys) {
+                if (!first) {
+                    sb.append(',');
+                }
+                sb.append(key).append('=').append(params.getParam(key));
+                first = false;
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the bytes allocated per operation, or -1 if not measured
+     */
+    private static double allocation(RunResult result) {
+        for (Map.Entry<String, Result> e : result.getSecondaryResults().entrySet()) {
+            if (e.getKey().endsWith(ALLOCATION)) {
+                return e.getValue().getScore();
+            }
+        }
+        return -1;
+    }
+
+    private static Properties toBaseline(Collection<RunResult> results) {
+        Properties baseline = new Properties();
+        for (RunResult result : results) {
+            String name = name(result);
+            Result primary = result.getPrimaryResult();
+            baseline.setProperty(name + SCORE, Double.toString(primary.getScore()));
+            baseline.setProperty(name + UNIT, primary.getScoreUnit());
+            baseline.setProperty(name + MODE, result.getParams().getMode().shortLabel());
+            double alloc = allocation(result);
+            if (alloc >= 0) {
+                baseline.setProperty(name + ALLOC, Double.toString(alloc));
+            }
+        }
+        return baseline;
+    }
+
+    /**
+     * Compares the results with the baseline.
+     *
+     * @param results the results of this run
+     * @param baseline the results of the earlier run
+     * @param maxRegression the allowed regression in percent
+     * @param out receives the comparison
+     * @return true, if no benchmark regressed more than allowed
+     */
+    static boolean compare(Collection<RunResult> results, Properties baseline,
+            double maxRegression, PrintStream out) {
+        boolean passed = true;
+        out.println();
+        out.println(String.format(Locale.ENGLISH, "%-70s %12s %12s %8s %10s",
+                "Benchmark", "Baseline", "Score", "Change", "Alloc"));
+        for (RunResult result : results) {
+            String name = name(result);
+            Result primary = result.getPrimaryResult();
+            String base = baseline.getProperty(name + SCORE);
+            if (base == null) {
+                out.println(String.format(Locale.ENGLISH, "%-70s %12s %12.3f %8s", name, "-",
+                        primary.getScore(), "new"));
+                continue;
+            }
+            if (!primary.getScoreUnit().equals(baseline.getProperty(name + UNIT))
+                    || !result.getParams().getMode().shortLabel().equals(baseline.getProperty(name + MODE))) {
+                out.println(String.format(Locale.ENGLISH, "%-70s %12s %12.3f %8s", name, "-",
+                        primary.getScore(), "unit"));
+                continue;
+            }
+
+            // the change in percent, positive if the benchmark got worse
+            double baseScore = Double.parseDouble(base);
+            double change = (primary.getScore() - baseScore) / baseScore * 100;
+            if (result.getParams().getMode() == Mode.Throughput) {
+                change = -change;
+            }
+            boolean regressed = change > maxRegression;
+
+            String allocChange = "";
+            String baseAlloc = baseline.getProperty(name + ALLOC);
+            double alloc = allocation(result);
+            if (baseAlloc != null && alloc >= 0) {
+                double before = Double.parseDouble(baseAlloc);
+                if (alloc - before > ALLOCATION_SLACK && alloc > before * (1 + maxRegression / 100)) {
+                    regressed = true;
+                    allocChange = String.format(Locale.ENGLISH, "+%.0f B/op", alloc - before);
+                } else {
+                    allocChange = "ok";
+                }
+            }
+
+            out.println(String.format(Locale.ENGLISH, "%-70s %12.3f %12.3f %+7.1f%% %10s%s",
+                    name, baseScore, primary.getScore(), change, allocChange,
+                    regressed ? "  REGRESSION" : ""));
+            passed &= !regressed;
+        }
+        return passed;
+    }
+
+    private static void usage(PrintStream err) {
+        err.println("Usage: BenchmarkMain [--save-baseline file] [--baseline file]");
+        err.println("           [--max-regression percent] [JMH options] [benchmark regexp]...");
+    }
+
+    /**
+     * The main method.
+     * @param args command line arguments
+     */
+    public static void main(String[] args) throws IOException, RunnerException {
+        Path saveBaseline = null;
+        Path baselineFile = null;
+        double maxRegression = DEFAULT_MAX_REGRESSION;
+        List<String> jmhArgs = new ArrayList<String>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            boolean option = arg.equals("--save-baseline") || arg.equals("--baseline")
+                    || arg.equals("--max-regression");
+            if (option && i + 1 == args.length) {
+                usage(System.err);
+                System.exit(2);
+            }
+            if (arg.equals("--save-baseline")) {
+                saveBaseline = Paths.get(args[++i]);
+            } else if (arg.equals("--baseline")) {
+                baselineFile = Paths.get(args[++i]);
+            } else if (arg.equals("--max-regression")) {
+                try {
+                    maxRegression = Double.parseDouble(args[++i]);
+                } catch (NumberFormatException e) {
+                    maxRegression = -1;
+                }
+                if (maxRegression < 0) {
+                    usage(System.err);
+                    System.exit(2);
+                }
+            } else {
+                jmhArgs.add(arg);
+            }
+        }
+
+        CommandLineOptions jmhOptions;
+        try {
+            jmhOptions = new CommandLineOptions(jmhArgs.toArray(new String[jmhArgs.size()]));
+        } catch (CommandLineOptionException e) {
+            System.err.println(e.getMessage());
+            usage(System.err);
+            System.exit(2);
+            return;
+        }
+        if (jmhOptions.shouldHelp() || jmhOptions.shouldList() || jmhOptions.shouldListProfilers()
+                || jmhOptions.shouldListResultFormats()) {
+            if (jmhOptions.shouldHelp()) {
+                usage(System.out);
+                System.out.println();
+            }
+            // the listings of JMH itself
+            org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+            return;
+        }
+
+        Properties baseline = null;
+        if (baselineFile != null) {
+            baseline = new Properties();
+            InputStream in = Files.newInputStream(baselineFile);
+            try {
+                baseline.load(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        OptionsBuilder options = new OptionsBuilder();
+        options.parent(jmhOptions);
+        options.addProfiler(GCProfiler.class);
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        if (saveBaseline != null) {
+            OutputStream out = Files.newOutputStream(saveBaseline);
+            try {
+                toBaseline(results).store(out, "TeXlipse benchmark baseline");
+            } finally {
+                out.close();
+            }
+        }
+        if (baseline != null && !compare(results, baseline, maxRegression, System.out)) {
+            System.out.println();
+            System.out.println("Benchmarks regressed by more than " + maxRegression + "%");
+            System.exit(1);
+        }
+    }
+}
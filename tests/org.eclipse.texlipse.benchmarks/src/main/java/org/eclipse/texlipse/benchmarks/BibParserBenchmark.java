@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.texlipse.bibparser.BibLexer;
+import org.eclipse.texlipse.bibparser.BibParser;
+import org.eclipse.texlipse.bibparser.EntryRetriever;
+import org.eclipse.texlipse.bibparser.node.Start;
+import org.eclipse.texlipse.bibparser.parser.Parser;
+import org.eclipse.texlipse.model.ReferenceEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses the bibliography of 10000 entries with the one pass parser of
+ * the editor and with the SableCC parser it replaced, which builds the
+ * whole tree first.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BibParserBenchmark {
+
+    private String bibliography;
+    private List<String> parts;
+
+    @Setup
+    public void setup() throws IOException {
+        bibliography = Corpus.read(CorpusGenerator.BIBLIOGRAPHY);
+        // four files of a quarter of the entries, split at entry starts
+        parts = new ArrayList<String>();
+        int start = 0;
+        for (int i = 1; i < 4; i++) {
+            int end = bibliography.indexOf("\n@", bibliography.length() * i / 4) + 1;
+            parts.add(bibliography.substring(start, end));
+            start = end;
+        }
+        parts.add(bibliography.substring(start));
+    }
+
+    @Benchmark
+    public List<ReferenceEntry> streamParser() throws IOException {
+        return new BibParser(new StringReader(bibliography)).getEntries();
+    }
+
+    @Benchmark
+    public int streamParserParallel() throws IOException {
+        List<BibParser> parsers = new ArrayList<BibParser>();
+        for (String part : parts) {
+            parsers.add(new BibParser(new StringReader(part)));
+        }
+        BibParser.parseAll(parsers);
+        int entries = 0;
+        for (BibParser parser : parsers) {
+            entries += parser.getEntries().size();
+        }
+        return entries;
+    }
+
+    @Benchmark
+    public List<ReferenceEntry> sableccParser() throws Exception {
+        Parser parser = new Parser(new BibLexer(new PushbackReader(new StringReader(bibliography), 1024)));
+        Start ast = parser.parse();
+        EntryRetriever retriever = new EntryRetriever();
+        ast.apply(retriever);
+        retriever.finishParse();
+        return retriever.getEntries();
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.texlipse.builder.core.AuxFileReader;
+import org.eclipse.texlipse.builder.core.LatexLogParser;
+import org.eclipse.texlipse.builder.core.ProblemSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads what a LaTeX run leaves for the builder: the output of the run,
+ * whose problems become markers, and the .aux files, whose citations
+ * decide whether BibTeX runs and whose labels the editor completes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BuilderBenchmark {
+
+    private String log;
+    private Path dir;
+
+    @Setup
+    public void setup() throws IOException {
+        log = Corpus.read(CorpusGenerator.LOG);
+        dir = Files.createTempDirectory("texlipse-aux");
+        Corpus.copy(dir, CorpusGenerator.AUX);
+        for (int c = 1; c <= CorpusGenerator.CHAPTERS; c++) {
+            Corpus.copy(dir, "chap" + c + ".aux");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Corpus.delete(dir);
+    }
+
+    @Benchmark
+    public boolean parseLog(final Blackhole blackhole) {
+        LatexLogParser parser = new LatexLogParser(dir, dir, new ProblemSink() {
+            public void problem(Path file, int line, String message, int severity, boolean layout) {
+                blackhole.consume(message);
+            }
+        });
+        return parser.parse(log);
+    }
+
+    @Benchmark
+    public List<String> readAuxFiles(Blackhole blackhole) {
+        AuxFileReader reader = new AuxFileReader(dir.resolve(CorpusGenerator.AUX));
+        blackhole.consume(reader.getLabels());
+        return reader.getCitations();
+    }
+}
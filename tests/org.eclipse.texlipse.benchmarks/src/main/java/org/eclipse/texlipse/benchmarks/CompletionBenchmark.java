@@ -0,0 +1,125 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.texlipse.bibparser.BibParser;
+import org.eclipse.texlipse.model.BibTermIndex;
+import org.eclipse.texlipse.model.PrefixIndex;
+import org.eclipse.texlipse.model.ReferenceEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The lookups of content assist: the labels starting with a typed prefix
+ * among 100000 labels, and the bibliography entries whose fields match
+ * the typed words of a \cite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionBenchmark {
+
+    private static final int LABELS = 100000;
+
+    /**
+     * The length of the typed prefix.
+     */
+    @Param({ "1", "4", "8" })
+    public int prefixLength;
+
+    private PrefixIndex<ReferenceEntry> labelIndex;
+    private BibTermIndex bibIndex;
+    private String[] prefixes;
+    private List<List<String>> queries;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(42);
+        List<ReferenceEntry> labels = new ArrayList<ReferenceEntry>(LABELS);
+        String[] kinds = { "sec:", "fig:", "tab:", "eq:", "chap:", "lst:" };
+        for (int i = 0; i < LABELS; i++) {
+            labels.add(new ReferenceEntry(kinds[random.nextInt(kinds.length)]
+                    + Integer.toString(random.nextInt(Integer.MAX_VALUE), 36), ""));
+        }
+        labelIndex = new PrefixIndex<ReferenceEntry>(labels, false);
+
+        prefixes = new String[64];
+        for (int i = 0; i < prefixes.length; i++) {
+            String key = labels.get(random.nextInt(LABELS)).key;
+            prefixes[i] = key.substring(0, Math.min(prefixLength, key.length()));
+        }
+
+        List<ReferenceEntry> entries = new BibParser(new StringReader(
+                Corpus.read(CorpusGenerator.BIBLIOGRAPHY))).getEntries();
+        bibIndex = new BibTermIndex(entries);
+        queries = new ArrayList<List<String>>();
+        for (int i = 0; i < 64; i++) {
+            ReferenceEntry entry = entries.get(random.nextInt(entries.size()));
+            // the typed start of the last name of the first author
+            String author = entry.author != null ? entry.author : entry.key;
+            String query = author.substring(0, Math.min(prefixLength, author.length()));
+            List<String> words = new ArrayList<String>();
+            BibTermIndex.tokenize(query, words);
+            queries.add(words);
+        }
+    }
+
+    @Benchmark
+    public List<ReferenceEntry> labelCompletions() {
+        next = (next + 1) & (prefixes.length - 1);
+        return labelIndex.getCompletions(prefixes[next]);
+    }
+
+    @Benchmark
+    public List<ReferenceEntry> labelCompletionsLinearScan() {
+        // the scan of the whole list the index replaced
+        next = (next + 1) & (prefixes.length - 1);
+        String prefix = prefixes[next];
+        List<ReferenceEntry> result = new ArrayList<ReferenceEntry>();
+        for (ReferenceEntry entry : labelIndex.getEntries()) {
+            if (entry.key.startsWith(prefix)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<BibTermIndex.Hit> citeSearch() {
+        next = (next + 1) & (queries.size() - 1);
+        List<BibTermIndex.Hit> hits = new ArrayList<BibTermIndex.Hit>();
+        bibIndex.search(queries.get(next), 50, hits);
+        return hits;
+    }
+}
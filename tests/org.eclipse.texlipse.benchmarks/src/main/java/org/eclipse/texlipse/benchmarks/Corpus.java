@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reads the files of the corpus, which are resources of the benchmark jar.
+ *
+ * @see CorpusGenerator
+ */
+final class Corpus {
+
+    private static final String PREFIX = "/corpus/";
+
+    private Corpus() {
+    }
+
+    /**
+     * @param name the file name
+     * @return the contents of the file
+     * @throws IOException if the file isn't in the jar
+     */
+    static String read(String name) throws IOException {
+        InputStream in = open(name);
+        try {
+            Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+            StringBuilder sb = new StringBuilder();
+            char[] buffer = new char[8192];
+            int len;
+            while ((len = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, len);
+            }
+            return sb.toString();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Copies files of the corpus to a directory, for the code that reads
+     * files and not strings.
+     *
+     * @param dir the directory
+     * @param names the file names
+     * @throws IOException if a file can't be copied
+     */
+    static void copy(Path dir, String... names) throws IOException {
+        for (String name : names) {
+            InputStream in = open(name);
+            try {
+                Files.copy(in, dir.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                in.close();
+            }
+        }
+    }
+
+    /**
+     * Deletes a directory made for the copies of the corpus.
+     *
+     * @param dir the directory
+     * @throws IOException if a file can't be deleted
+     */
+    static void delete(Path dir) throws IOException {
+        String[] names = dir.toFile().list();
+        if (names != null) {
+            for (String name : names) {
+                Files.delete(dir.resolve(name));
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private static InputStream open(String name) throws IOException {
+        InputStream in = Corpus.class.getResourceAsStream(PREFIX + name);
+        if (in == null) {
+            throw new IOException("Not in the corpus: " + name);
+        }
+        return in;
+    }
+}
@@ -0,0 +1,492 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes the synthetic corpus of the benchmarks: a thesis, its
+ * bibliography of 10000 entries, the log and the .aux files of a build
+ * of it and a spelling dictionary of its words. The random numbers have
+ * a fixed seed, so the corpus is the same on each run.
+ *
+ * <pre>
+ * java -cp benchmarks.jar org.eclipse.texlipse.benchmarks.CorpusGenerator src/main/resources/corpus
+ * </pre>
+ *
+ * The corpus is checked in; it only needs to be written again when the
+ * generator changes. The baselines of the old corpus are void then.
+ */
+public class CorpusGenerator {
+
+    public static final String THESIS = "thesis.tex";
+    public static final String BIBLIOGRAPHY = "references.bib";
+    public static final String LOG = "thesis.log";
+    public static final String AUX = "thesis.aux";
+    public static final String DICTIONARY = "bench";
+
+    static final int CHAPTERS = 12;
+    static final int BIB_ENTRIES = 10000;
+
+    private static final String[] SYLLABLES = {
+        "ba", "be", "bi", "co", "da", "de", "di", "fa", "fe", "ga", "gi", "ha",
+        "in", "ka", "ke", "la", "le", "li", "lo", "ma", "me", "mi", "mo", "na",
+        "ne", "ni", "no", "pa", "pe", "po", "ra", "re", "ri", "ro", "sa", "se",
+        "si", "so", "ta", "te", "ti", "to", "tra", "tu", "va", "ve", "vi", "za"
+    };
+    private static final String[] SUFFIXES = { "", "", "", "s", "ed", "ing" };
+    private static final String[] BIB_TYPES = {
+        "article", "article", "inproceedings", "book", "incollection", "phdthesis", "techreport"
+    };
+    private static final String[] MONTHS = {
+        "jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"
+    };
+
+    private final Random random = new Random(20170901L);
+    private final List<String> stems = new ArrayList<String>();
+    private final List<String> authors = new ArrayList<String>();
+    private final List<String> keys = new ArrayList<String>();
+    private final List<String> labels = new ArrayList<String>();
+    private final List<String> chapterTitles = new ArrayList<String>();
+
+    private CorpusGenerator() {
+        while (stems.size() < 6000) {
+            String stem = word(2 + random.nextInt(3));
+            if (!stems.contains(stem)) {
+                stems.add(stem);
+            }
+        }
+        for (int i = 0; i < 800; i++) {
+            authors.add(capitalize(word(2 + random.nextInt(2))) + ", "
+                    + capitalize(word(1 + random.nextInt(2))));
+        }
+        for (int i = 0; i < BIB_ENTRIES; i++) {
+            String author = authors.get(random.nextInt(authors.size()));
+            keys.add(author.substring(0, author.indexOf(',')).toLowerCase()
+                    + (1950 + random.nextInt(75)) + word(1) + i);
+        }
+    }
+
+    private String word(int syllables) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    /**
+     * @return a word of the text; about one in fifty is misspelled
+     */
+    private String textWord() {
+        if (random.nextInt(50) == 0) {
+            return word(5);
+        }
+        return stems.get(random.nextInt(stems.size())) + SUFFIXES[random.nextInt(SUFFIXES.length)];
+    }
+
+    private String sentence(int words) {
+        StringBuilder sb = new StringBuilder(capitalize(textWord()));
+        for (int i = 1; i < words; i++) {
+            sb.append(' ').append(textWord());
+        }
+        return sb.append('.').toString();
+    }
+
+    private String title() {
+        return sentence(2 + random.nextInt(6)).replace(".", "");
+    }
+
+    private String cite() {
+        return keys.get(random.nextInt(keys.size()));
+    }
+
+    /**
+     * A paragraph with citations, references and inline math.
+     */
+    private void paragraph(StringBuilder sb) {
+        int sentences = 3 + random.nextInt(6);
+        for (int i = 0; i < sentences; i++) {
+            sb.append(sentence(6 + random.nextInt(14)));
+            switch (random.nextInt(8)) {
+            case 0:
+                sb.append(" \\cite{").append(cite()).append('}');
+                break;
+            case 1:
+                sb.append(" \\cite{").append(cite()).append(',').append(cite()).append('}');
+                break;
+            case 2:
+                if (!labels.isEmpty()) {
+                    sb.append(" See \\ref{").append(labels.get(random.nextInt(labels.size()))).append("}.");
+                }
+                break;
+            case 3:
+                sb.append(" With $x_{").append(random.nextInt(10)).append("} = \\alpha + \\beta^{")
+                        .append(random.nextInt(5)).append("}$ we get \\emph{").append(textWord()).append("}.");
+                break;
+            case 4:
+                sb.append("\\index{").append(textWord()).append('}');
+                break;
+            default:
+                break;
+            }
+            sb.append(i % 3 == 2 ? "\n" : " ");
+        }
+        sb.append("\n\n");
+    }
+
+    private String label(String prefix, int chapter, int n) {
+        String label = prefix + ":" + chapter + "." + n;
+        labels.add(label);
+        return label;
+    }
+
+    private void equation(StringBuilder sb, int chapter, int n) {
+        sb.append("\\begin{equation}\n\\label{").append(label("eq", chapter, n)).append("}\n");
+        sb.append("  f(x) = \\sum_{i=0}^{n} \\frac{a_i x^i}{i!} + \\int_0^x g(t)\\,dt\n");
+        sb.append("\\end{equation}\n\n");
+    }
+
+    private void align(StringBuilder sb, int rows) {
+        sb.append("\\begin{align}\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append("  y_{").append(i).append("} &= \\lambda_{").append(i).append("} x_{")
+                    .append(i).append("} + \\mu \\left( \\frac{\\partial u}{\\partial t} \\right)");
+            sb.append(i + 1 < rows ? " \\\\\n" : "\n");
+        }
+        sb.append("\\end{align}\n\n");
+    }
+
+    private void figure(StringBuilder sb, int chapter, int n) {
+        sb.append("\\begin{figure}[htb]\n  \\centering\n");
+        sb.append("  \\includegraphics[width=0.8\\textwidth]{figures/fig").append(chapter).append('-').append(n).append("}\n");
+        sb.append("  \\caption{").append(title()).append("}\n");
+        sb.append("  \\label{").append(label("fig", chapter, n)).append("}\n");
+        sb.append("\\end{figure}\n\n");
+    }
+
+    private void table(StringBuilder sb, int chapter, int n) {
+        sb.append("\\begin{table}[htb]\n  \\centering\n  \\begin{tabular}{lrr}\n    \\hline\n");
+        for (int i = 0; i < 6; i++) {
+            sb.append("    ").append(textWord()).append(" & ").append(random.nextInt(1000))
+                    .append(" & ").append(random.nextInt(1000)).append(" \\\\\n");
+        }
+        sb.append("    \\hline\n  \\end{tabular}\n");
+        sb.append("  \\caption{").append(title()).append("}\n");
+        sb.append("  \\label{").append(label("tab", chapter, n)).append("}\n");
+        sb.append("\\end{table}\n\n");
+    }
+
+    private void itemize(StringBuilder sb) {
+        sb.append("\\begin{itemize}\n");
+        int items = 3 + random.nextInt(4);
+        for (int i = 0; i < items; i++) {
+            sb.append("  \\item ").append(sentence(5 + random.nextInt(10))).append('\n');
+        }
+        sb.append("\\end{itemize}\n\n");
+    }
+
+    private void verbatim(StringBuilder sb) {
+        sb.append("\\begin{verbatim}\n");
+        for (int i = 0; i < 5; i++) {
+            sb.append("for (int i = 0; i < n; i++) { sum += a[i] * b[i]; } % not a comment\n");
+        }
+        sb.append("\\end{verbatim}\n\n");
+    }
+
+    private String thesis() {
+        StringBuilder sb = new StringBuilder(1 << 21);
+        sb.append("\\documentclass[12pt,a4paper]{book}\n");
+        sb.append("\\usepackage[utf8]{inputenc}\n\\usepackage{amsmath,amssymb}\n");
+        sb.append("\\usepackage{graphicx}\n\\usepackage{makeidx}\n\\usepackage{hyperref}\n");
+        sb.append("\\makeindex\n\n");
+        sb.append("\\title{").append(title()).append("}\n\\author{").append(authors.get(0)).append("}\n\n");
+        sb.append("\\begin{document}\n\\maketitle\n\\tableofcontents\n\n");
+
+        for (int c = 1; c <= CHAPTERS; c++) {
+            String chapterTitle = title();
+            chapterTitles.add(chapterTitle);
+            sb.append("% ").append(sentence(8)).append('\n');
+            sb.append("\\chapter{").append(chapterTitle).append("}\n\\label{")
+                    .append(label("chap", c, 0)).append("}\n\n");
+            int n = 0;
+            for (int s = 1; s <= 6; s++) {
+                sb.append("\\section{").append(title()).append("}\n\\label{")
+                        .append(label("sec", c, s)).append("}\n\n");
+                for (int ss = 1; ss <= 4; ss++) {
+                    sb.append("\\subsection{").append(title()).append("}\n\n");
+                    for (int p = 0; p < 4; p++) {
+                        paragraph(sb);
+                        switch (random.nextInt(10)) {
+                        case 0:
+                            equation(sb, c, ++n);
+                            break;
+                        case 1:
+                            align(sb, 4 + random.nextInt(8));
+                            break;
+                        case 2:
+                            figure(sb, c, ++n);
+                            break;
+                        case 3:
+                            table(sb, c, ++n);
+                            break;
+                        case 4:
+                            itemize(sb);
+                            break;
+                        case 5:
+                            if (random.nextInt(4) == 0) {
+                                verbatim(sb);
+                            }
+                            break;
+                        default:
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        // a long math environment, where editing used to rescan up to the start
+        sb.append("\\chapter{Derivations}\n\n");
+        align(sb, 400);
+
+        sb.append("\\bibliographystyle{plain}\n\\bibliography{references}\n\\printindex\n");
+        sb.append("\\end{document}\n");
+        return sb.toString();
+    }
+
+    private String bibliography() {
+        StringBuilder sb = new StringBuilder(1 << 22);
+        sb.append("@string{jcs = \"Journal of Computational Synthetics\"}\n");
+        sb.append("@string{proc = \"Proceedings of the Conference on Generated Text\"}\n\n");
+        for (int i = 0; i < BIB_ENTRIES; i++) {
+            String type = BIB_TYPES[random.nextInt(BIB_TYPES.length)];
+            sb.append('@').append(type).append('{').append(keys.get(i)).append(",\n");
+            sb.append("  author = {");
+            int count = 1 + random.nextInt(4);
+            for (int a = 0; a < count; a++) {
+                if (a > 0) {
+                    sb.append(" and ");
+                }
+                sb.append(authors.get(random.nextInt(authors.size())));
+            }
+            sb.append("},\n");
+            sb.append("  title = {{").append(title()).append("}},\n");
+            if (type.equals("article")) {
+                sb.append("  journal = jcs,\n  volume = ").append(1 + random.nextInt(60))
+                        .append(",\n  pages = {").append(random.nextInt(500)).append("--")
+                        .append(500 + random.nextInt(500)).append("},\n");
+            } else if (type.equals("inproceedings") || type.equals("incollection")) {
+                sb.append("  booktitle = proc # \" ").append(1990 + random.nextInt(35)).append("\",\n");
+            } else if (type.equals("book")) {
+                sb.append("  publisher = {").append(capitalize(textWord())).append(" Press},\n");
+            } else {
+                sb.append("  school = {University of ").append(capitalize(textWord())).append("},\n");
+            }
+            sb.append("  year = ").append(keys.get(i).replaceAll("[^0-9]", "").substring(0, 4)).append(",\n");
+            sb.append("  month = ").append(MONTHS[random.nextInt(MONTHS.length)]).append(",\n");
+            if (random.nextInt(3) == 0) {
+                sb.append("  note = \"").append(sentence(6)).append("\",\n");
+            }
+            sb.append("  keywords = {").append(textWord()).append(", ").append(textWord()).append("}\n");
+            sb.append("}\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The output of a pdflatex run on the thesis, with the problems LaTeX
+     * reports in a long document.
+     */
+    private String log() {
+        StringBuilder sb = new StringBuilder(1 << 20);
+        sb.append("This is pdfTeX, Version 3.141592653-2.6-1.40.25 (TeX Live 2023) (preloaded format=pdflatex)\n");
+        sb.append(" restricted \\write18 enabled.\nentering extended mode\n(./thesis.tex\n");
+        sb.append("LaTeX2e <2022-11-01> patch level 1\n");
+        sb.append("(/usr/share/texlive/texmf-dist/tex/latex/base/book.cls\n");
+        sb.append("Document Class: book 2022/07/02 v1.4n Standard LaTeX document class\n");
+        sb.append("(/usr/share/texlive/texmf-dist/tex/latex/base/bk12.clo))\n");
+        String[] packages = { "inputenc", "amsmath", "amssymb", "graphicx", "makeidx", "hyperref" };
+        for (String p : packages) {
+            sb.append("(/usr/share/texlive/texmf-dist/tex/latex/").append(p).append('/').append(p).append(".sty\n");
+            sb.append("Package: ").append(p).append(" 2022/01/01 v1.0\n)\n");
+        }
+        sb.append("Writing index file thesis.idx\n(./thesis.aux (./chap1.aux)\n");
+        for (int c = 2; c <= CHAPTERS; c++) {
+            sb.append("(./chap").append(c).append(".aux)\n");
+        }
+        sb.append(")\n");
+
+        int line = 20;
+        int page = 1;
+        for (int c = 1; c <= CHAPTERS; c++) {
+            sb.append("Chapter ").append(c).append(".\n");
+            for (int i = 0; i < 1000; i++) {
+                line += 1 + random.nextInt(40);
+                switch (random.nextInt(9)) {
+                case 0:
+                    sb.append("\nOverfull \\hbox (").append(random.nextInt(40)).append('.')
+                            .append(random.nextInt(100)).append("pt too wide) in paragraph at lines ")
+                            .append(line).append("--").append(line + 3).append('\n');
+                    sb.append("[]\\OT1/cmr/m/n/12 ").append(sentence(8)).append("\n []\n\n");
+                    break;
+                case 1:
+                    sb.append("\nUnderfull \\hbox (badness ").append(1000 + random.nextInt(9000))
+                            .append(") in paragraph at lines ").append(line).append("--")
+                            .append(line + 2).append("\n[]\\OT1/cmr/m/n/12 ").append(textWord())
+                            .append("\n []\n\n");
+                    break;
+                case 2:
+                    sb.append("\nLaTeX Warning: Citation `").append(cite()).append("' on page ")
+                            .append(page).append(" undefined on input line ").append(line).append(".\n\n");
+                    break;
+                case 3:
+                    sb.append("\nLaTeX Warning: Reference `").append(labels.get(random.nextInt(labels.size())))
+                            .append("' on page ").append(page).append(" undefined on input line ")
+                            .append(line).append(".\n\n");
+                    break;
+                case 4:
+                    sb.append("<figures/fig").append(c).append('-').append(i).append(".pdf, id=")
+                            .append(i).append(", 433.62pt x 325.215pt>\n");
+                    sb.append("File: figures/fig").append(c).append('-').append(i)
+                            .append(".pdf Graphic file (type pdf)\n<use figures/fig").append(c)
+                            .append('-').append(i).append(".pdf>\n");
+                    break;
+                case 5:
+                    sb.append("Package hyperref Warning: Token not allowed in a PDF string (Unicode):\n");
+                    sb.append("(hyperref)                removing `math shift' on input line ")
+                            .append(line).append(".\n\n");
+                    break;
+                default:
+                    sb.append('[').append(page++).append("] ");
+                    if (page % 8 == 0) {
+                        sb.append('\n');
+                    }
+                    break;
+                }
+            }
+        }
+        sb.append("\n! Undefined control sequence.\nl.").append(line).append(" \\undefinedmacro\n\n");
+        sb.append("No pages of output.\n");
+        sb.append("\nLaTeX Warning: There were undefined references.\n\n");
+        sb.append("LaTeX Warning: Label(s) may have changed. Rerun to get cross-references right.\n\n");
+        sb.append(" )\nOutput written on thesis.pdf (").append(page).append(" pages, 2417712 bytes).\n");
+        sb.append("Transcript written on thesis.log.\n");
+        return sb.toString();
+    }
+
+    private String aux(int chapter) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\\relax\n");
+        for (String label : labels) {
+            if (label.indexOf(":" + chapter + ".") > 0) {
+                sb.append("\\newlabel{").append(label).append("}{{").append(chapter).append('.')
+                        .append(random.nextInt(40)).append("}{").append(random.nextInt(400))
+                        .append("}{").append(title()).append("}{section*.").append(random.nextInt(99))
+                        .append("}{}}\n");
+            }
+        }
+        for (int i = 0; i < 800; i++) {
+            sb.append("\\citation{").append(cite()).append("}\n");
+        }
+        sb.append("\\@writefile{toc}{\\contentsline {chapter}{\\numberline {").append(chapter)
+                .append("}").append(chapterTitles.get(chapter - 1)).append("}{")
+                .append(random.nextInt(400)).append("}{chapter.").append(chapter).append("}}%\n");
+        return sb.toString();
+    }
+
+    private String rootAux() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\\relax\n\\providecommand\\hyper@newdestlabel[2]{}\n");
+        for (int c = 1; c <= CHAPTERS; c++) {
+            sb.append("\\@input{chap").append(c).append(".aux}\n");
+        }
+        sb.append("\\bibstyle{plain}\n\\bibdata{references}\n");
+        sb.append("\\gdef \\@abspage@last{").append(300 + random.nextInt(100)).append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * The affixes of the generated words and the stems.
+     */
+    private String affixes() {
+        return "SET UTF-8\nTRY aeionrlstmdbpfgkvz\n\n"
+                + "SFX S Y 1\nSFX S 0 s .\n\n"
+                + "SFX D Y 1\nSFX D 0 ed .\n\n"
+                + "SFX G Y 1\nSFX G 0 ing .\n";
+    }
+
+    private String dictionary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(stems.size()).append('\n');
+        for (String stem : stems) {
+            sb.append(stem).append("/SDG\n");
+        }
+        return sb.toString();
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        try {
+            out.write(text);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes the corpus.
+     *
+     * @param dir the directory to write to
+     * @throws IOException if a file can't be written
+     */
+    public static void generate(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        CorpusGenerator generator = new CorpusGenerator();
+        // the order of the calls matters: each uses the random numbers after the previous
+        write(dir.resolve(THESIS), generator.thesis());
+        write(dir.resolve(BIBLIOGRAPHY), generator.bibliography());
+        write(dir.resolve(LOG), generator.log());
+        write(dir.resolve(AUX), generator.rootAux());
+        for (int c = 1; c <= CHAPTERS; c++) {
+            write(dir.resolve("chap" + c + ".aux"), generator.aux(c));
+        }
+        write(dir.resolve(DICTIONARY + ".aff"), generator.affixes());
+        write(dir.resolve(DICTIONARY + ".dic"), generator.dictionary());
+    }
+
+    /**
+     * The main method.
+     * @param args the directory to write to
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: CorpusGenerator directory");
+            System.exit(2);
+        }
+        generate(Paths.get(args[0]));
+    }
+}
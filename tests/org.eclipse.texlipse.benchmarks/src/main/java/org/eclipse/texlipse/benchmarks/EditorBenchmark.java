@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.texlipse.editor.partitioner.FastLaTeXPartitioner;
+import org.eclipse.texlipse.texparser.DocumentCharSequence;
+import org.eclipse.texlipse.texparser.LatexParserUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The work of the editor on each keystroke in the thesis: repairing the
+ * partitions after an edit inside a long math environment, and matching
+ * an environment, reading the document through a view or through a copy
+ * of its text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EditorBenchmark {
+
+    private Document partitioned;
+    private int mathOffset;
+
+    private Document document;
+    private int figureOffset;
+
+    @Setup
+    public void setup() throws IOException {
+        String thesis = Corpus.read(CorpusGenerator.THESIS);
+
+        partitioned = new Document(thesis);
+        FastLaTeXPartitioner partitioner = new FastLaTeXPartitioner();
+        partitioner.connect(partitioned);
+        partitioned.setDocumentPartitioner(partitioner);
+        // the middle of the long align environment at the end
+        int begin = thesis.lastIndexOf("\\begin{align}");
+        int end = thesis.indexOf("\\end{align}", begin);
+        mathOffset = thesis.indexOf("&=", (begin + end) / 2);
+
+        document = new Document(thesis);
+        figureOffset = thesis.indexOf("\\begin{figure}", thesis.length() / 2);
+    }
+
+    @Benchmark
+    public void typeInMath() throws BadLocationException {
+        partitioned.replace(mathOffset, 0, "x");
+        partitioned.replace(mathOffset, 1, "");
+    }
+
+    @Benchmark
+    public IRegion matchEnvironment() {
+        return LatexParserUtils.findMatchingEndEnvironment(new DocumentCharSequence(document),
+                "figure", figureOffset);
+    }
+
+    @Benchmark
+    public IRegion matchEnvironmentCopy() {
+        // what the editor did before reading through the view
+        return LatexParserUtils.findMatchingEndEnvironment(document.get(), "figure", figureOffset);
+    }
+}
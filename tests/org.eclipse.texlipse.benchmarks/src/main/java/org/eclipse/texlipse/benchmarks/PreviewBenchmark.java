@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.texlipse.preview.PreviewCache;
+import org.eclipse.texlipse.preview.SnippetRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hovers every formula of the thesis, scrolling through it a screen at a
+ * time, with the preview cache and a renderer that only writes empty
+ * images. A miss renders the formulas of the screen in one run, as the
+ * hover does, so the other formulas of the screen are hits.
+ * <p>
+ * The cache is emptied before each iteration. The hit rate and the runs
+ * of the renderer are printed at the end.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreviewBenchmark {
+
+    private static final String PREAMBLE = "\\documentclass{book}\n\\usepackage{amsmath}\n\\begin{document}";
+
+    // the formulas visible on one screen of the editor
+    private static final int SCREEN = 8;
+
+    private static final Pattern FORMULA = Pattern.compile(
+            "\\$[^$]+\\$|\\\\begin\\{(equation|align)\\}.*?\\\\end\\{\\1\\}", Pattern.DOTALL);
+
+    /**
+     * Writes an empty image for each snippet.
+     */
+    private static class StubRenderer implements SnippetRenderer {
+        public List<Path> render(String preamble, List<String> snippets, Path dir) throws IOException {
+            List<Path> images = new ArrayList<Path>(snippets.size());
+            for (int i = 0; i < snippets.size(); i++) {
+                images.add(Files.createFile(dir.resolve("snippet" + (i + 1) + ".png")));
+            }
+            return images;
+        }
+    }
+
+    private List<String> formulas;
+    private Path dir;
+    private PreviewCache cache;
+    private List<PreviewCache> caches = new ArrayList<PreviewCache>();
+
+    @Setup
+    public void setup() throws IOException {
+        formulas = new ArrayList<String>();
+        Matcher m = FORMULA.matcher(Corpus.read(CorpusGenerator.THESIS));
+        while (m.find()) {
+            formulas.add(m.group());
+        }
+        dir = Files.createTempDirectory("texlipse-preview");
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyCache() throws IOException {
+        Path cacheDir = Files.createTempDirectory(dir, "cache");
+        cache = new PreviewCache(cacheDir, new StubRenderer());
+        caches.add(cache);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        long lookups = 0;
+        long hits = 0;
+        long runs = 0;
+        double millis = 0;
+        for (PreviewCache c : caches) {
+            lookups += c.getLookups();
+            hits += Math.round(c.getHitRate() * c.getLookups());
+            runs += c.getRenderRuns();
+            millis += c.getAverageRenderMillis() * c.getRenderRuns();
+        }
+        System.out.println();
+        System.out.println(String.format(Locale.ENGLISH,
+                "%d formulas, %d lookups, hit rate %.1f%%, %d renderer runs, %.3f ms per run",
+                formulas.size(), lookups, lookups == 0 ? 0.0 : 100.0 * hits / lookups, runs,
+                runs == 0 ? 0.0 : millis / runs));
+        Corpus.delete(dir);
+    }
+
+    @Benchmark
+    public int hoverFormulas() throws IOException {
+        int shown = 0;
+        for (int i = 0; i < formulas.size(); i++) {
+            String formula = formulas.get(i);
+            if (cache.get(PREAMBLE, formula) == null) {
+                int screen = i - i % SCREEN;
+                cache.render(PREAMBLE, formulas.subList(screen, Math.min(screen + SCREEN, formulas.size())));
+                if (cache.get(PREAMBLE, formula) != null) {
+                    shown++;
+                }
+            } else {
+                shown++;
+            }
+        }
+        return shown;
+    }
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.QualifiedName;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Reads the LaTeX settings of a project, as the builders and the editor
+ * listeners do, before and after the settings were cached in a
+ * ProjectConfiguration.
+ * <p>
+ * <code>propertyLookups</code> asks the resource for each persistent
+ * property, like <code>TexlipseProperties.getProjectProperty</code>.
+ * <code>configurationLookup</code> finds the snapshot of the project in a
+ * concurrent map and reads its fields, like
+ * <code>TexlipseProperties.getProjectConfiguration</code>. The property
+ * store of the workspace isn't available outside of Eclipse, and
+ * <code>TexlipseProperties</code> needs the workbench classes, so the
+ * project is a proxy over a synchronized map. The real store does more
+ * work per lookup, so the first score is a lower bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectConfigurationBenchmark {
+
+    private static final String PACKAGE_NAME = "org.eclipse.texlipse";
+
+    // the properties of ProjectConfiguration
+    private static final String[] PROPERTIES = {
+        "mainTexFile", "outputFile", "srcDir", "outputDir", "tempDir", "bibrefDir",
+        "bibFiles", "builderNum", "outputFormat", "langSpell", "makeIndSty",
+        "markTmpDer", "markDer", "partialBuild",
+    };
+
+    private IResource project;
+    private final ConcurrentMap<IResource, String[]> configurations =
+        new ConcurrentHashMap<IResource, String[]>();
+
+    @Setup
+    public void setup() throws Exception {
+        final Map<QualifiedName, String> store = new HashMap<QualifiedName, String>();
+        project = (IResource) Proxy.newProxyInstance(IResource.class.getClassLoader(),
+                new Class<?>[] { IResource.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("getPersistentProperty")) {
+                            synchronized (store) {
+                                return store.get(args[0]);
+                            }
+                        } else if (name.equals("setPersistentProperty")) {
+                            synchronized (store) {
+                                store.put((QualifiedName) args[0], (String) args[1]);
+                            }
+                            return null;
+                        } else if (name.equals("hashCode")) {
+                            return Integer.valueOf(System.identityHashCode(proxy));
+                        } else if (name.equals("equals")) {
+                            return Boolean.valueOf(proxy == args[0]);
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+        String[] values = new String[PROPERTIES.length];
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            values[i] = PROPERTIES[i] + "-value";
+            project.setPersistentProperty(new QualifiedName(PACKAGE_NAME, PROPERTIES[i]), values[i]);
+        }
+        configurations.put(project, values);
+    }
+
+    @Benchmark
+    public void propertyLookups(Blackhole blackhole) throws Exception {
+        for (String property : PROPERTIES) {
+            blackhole.consume(project.getPersistentProperty(new QualifiedName(PACKAGE_NAME, property)));
+        }
+    }
+
+    @Benchmark
+    public void configurationLookup(Blackhole blackhole) {
+        String[] config = configurations.get(project);
+        for (String value : config) {
+            blackhole.consume(value);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.texlipse.spelling.HunspellDictionary;
+import org.eclipse.texlipse.spelling.HunspellEngine;
+import org.eclipse.texlipse.spelling.SpellingEngine.Misspelling;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Checks the spelling of the thesis with the in-process Hunspell engine
+ * and the generated dictionary of its words, and with an aspell process
+ * through the pipe the aspell engine uses, as a baseline. The secondary
+ * result <code>words</code> is the number of words checked per second.
+ * <p>
+ * aspell is given the words the Hunspell engine accepts as a personal
+ * dictionary, so both report the same misspellings. The aspell engine of
+ * the plugin waits another 5 ms after each line, which is not measured
+ * here. If aspell isn't on the path, the setup of
+ * <code>checkThesisAspell</code> fails and only Hunspell is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpellingBenchmark {
+
+    private static final Pattern WORD = Pattern.compile("(?<![\\\\\\p{L}])\\p{L}+");
+
+    /**
+     * Counts the words checked in an iteration.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Words {
+        public long words;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            words = 0;
+        }
+    }
+
+    /**
+     * An aspell process in the ispell compatible mode, as started by the
+     * spell checker of the plugin.
+     */
+    @State(Scope.Benchmark)
+    public static class Aspell {
+        private Process process;
+        private PrintWriter output;
+        private BufferedReader input;
+
+        @Setup
+        public void start(SpellingBenchmark benchmark) throws IOException {
+            Path personal = benchmark.dir.resolve("personal.pws");
+            List<String> words = new ArrayList<String>();
+            words.add("personal_ws-1.1 en " + benchmark.correct.size() + " utf-8");
+            words.addAll(benchmark.correct);
+            Files.write(personal, words, StandardCharsets.UTF_8);
+            try {
+                process = new ProcessBuilder("aspell", "-a", "-t", "--lang=en", "--encoding=utf-8",
+                        "--personal=" + personal.toAbsolutePath()).start();
+            } catch (IOException e) {
+                throw new IOException("aspell is not on the path, there is no aspell baseline", e);
+            }
+            output = new PrintWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            input = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            if (input.readLine() == null) {
+                BufferedReader error = new BufferedReader(new InputStreamReader(process.getErrorStream()));
+                String message = error.readLine();
+                stop();
+                throw new IOException("aspell failed: " + message);
+            }
+            // terse mode, as in the plugin
+            output.println("!");
+        }
+
+        /**
+         * @return the number of misspelled words of the line
+         */
+        int checkLine(String line) throws IOException {
+            output.println("^" + line);
+            output.flush();
+            int errors = 0;
+            String result = input.readLine();
+            while (result != null && result.length() > 0) {
+                errors++;
+                result = input.readLine();
+            }
+            return errors;
+        }
+
+        @TearDown
+        public void stop() {
+            if (process != null) {
+                process.destroy();
+                process = null;
+            }
+        }
+    }
+
+    private Path dir;
+    private String[] lines;
+    private int[] wordCounts;
+    private HunspellEngine engine;
+    private Set<String> correct;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("texlipse-dict");
+        Corpus.copy(dir, CorpusGenerator.DICTIONARY + ".aff", CorpusGenerator.DICTIONARY + ".dic");
+        HunspellDictionary dictionary = HunspellDictionary.getDictionary(dir.toFile(),
+                CorpusGenerator.DICTIONARY);
+        engine = new HunspellEngine(dictionary, new File(dir.toFile(), "user.dic"), true, true, true);
+        lines = Corpus.read(CorpusGenerator.THESIS).split("\n");
+
+        wordCounts = new int[lines.length];
+        correct = new TreeSet<String>();
+        Set<String> misspelled = new HashSet<String>();
+        for (int i = 0; i < lines.length; i++) {
+            for (Misspelling m : engine.checkLine(lines[i])) {
+                misspelled.add(m.getWord());
+            }
+            Matcher m = WORD.matcher(lines[i]);
+            while (m.find()) {
+                wordCounts[i]++;
+                correct.add(m.group());
+            }
+        }
+        correct.removeAll(misspelled);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Corpus.delete(dir);
+    }
+
+    @Benchmark
+    public int checkThesis(Words words) {
+        int errors = 0;
+        for (int i = 0; i < lines.length; i++) {
+            errors += engine.checkLine(lines[i]).size();
+            words.words += wordCounts[i];
+        }
+        return errors;
+    }
+
+    @Benchmark
+    public int checkThesisAspell(Aspell aspell, Words words) throws IOException {
+        int errors = 0;
+        for (int i = 0; i < lines.length; i++) {
+            errors += aspell.checkLine(lines[i]);
+            words.words += wordCounts[i];
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.benchmarks;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.texlipse.model.OutlineNode;
+import org.eclipse.texlipse.texparser.LatexLexer;
+import org.eclipse.texlipse.texparser.TexParser;
+import org.eclipse.texlipse.texparser.node.EOF;
+import org.eclipse.texlipse.texparser.node.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lexes and parses the thesis. The parse builds the outline tree, which
+ * the outline and the code folder of the editor show, so this is also
+ * the work of a reconcile after each pause in typing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TexParserBenchmark {
+
+    private String thesis;
+    private Document document;
+
+    @Setup
+    public void setup() throws IOException {
+        thesis = Corpus.read(CorpusGenerator.THESIS);
+        document = new Document(thesis);
+    }
+
+    @Benchmark
+    public int lexer() throws Exception {
+        LatexLexer lexer = new LatexLexer(new PushbackReader(new StringReader(thesis), 4096));
+        int tokens = 0;
+        for (Token t = lexer.next(); !(t instanceof EOF); t = lexer.next()) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public List<OutlineNode> parseOutline() throws IOException {
+        TexParser parser = new TexParser(document);
+        parser.parseDocument(thesis, true);
+        return parser.getOutlineTree();
+    }
+}
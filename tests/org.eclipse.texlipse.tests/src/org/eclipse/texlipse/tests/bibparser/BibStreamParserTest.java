@@ -0,0 +1,265 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.tests.bibparser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.texlipse.bibparser.AbbrevRetriever;
+import org.eclipse.texlipse.bibparser.BibLexer;
+import org.eclipse.texlipse.bibparser.BibParser;
+import org.eclipse.texlipse.bibparser.EntryRetriever;
+import org.eclipse.texlipse.bibparser.lexer.LexerException;
+import org.eclipse.texlipse.bibparser.node.Start;
+import org.eclipse.texlipse.bibparser.parser.Parser;
+import org.eclipse.texlipse.bibparser.parser.ParserException;
+import org.eclipse.texlipse.model.ParseErrorMessage;
+import org.eclipse.texlipse.model.ReferenceEntry;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the entries of <code>BibParser</code>, which uses the one-pass
+ * <code>BibStreamParser</code>, with those of the SableCC parser and its
+ * visitors.
+ * <p>
+ * The SableCC parser rejects a file with any syntax error, while the
+ * stream parser only drops the malformed entry and resumes at the next
+ * line starting with @. So the fixture is split at those lines, each part
+ * the SableCC parser rejects on its own is blanked out, keeping the line
+ * numbers, and the SableCC results of the rest are what the stream parser
+ * must produce for the whole fixture.
+ */
+public class BibStreamParserTest {
+
+    private static final String FIXTURE = "references.bib";
+
+    // the malformed entries of the fixture
+    private static final int MALFORMED = 5;
+
+    private String text;
+    private List<int[]> malformed;
+    private String wellFormed;
+
+    @Before
+    public void setUp() throws IOException {
+        text = read(FIXTURE);
+        malformed = new ArrayList<int[]>();
+        StringBuilder sb = new StringBuilder(text);
+        List<Integer> starts = entryStarts(text);
+        for (int i = 0; i < starts.size(); i++) {
+            int start = starts.get(i);
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : text.length();
+            if (!parsesWithSableCC(text.substring(start, end))) {
+                malformed.add(new int[] { lineOf(text, start), lineOf(text, end - 1) });
+                for (int j = start; j < end; j++) {
+                    if (sb.charAt(j) != '\n' && sb.charAt(j) != '\r') {
+                        sb.setCharAt(j, ' ');
+                    }
+                }
+            }
+        }
+        wellFormed = sb.toString();
+    }
+
+    @Test
+    public void fixtureHasMalformedEntries() {
+        assertEquals(MALFORMED, malformed.size());
+    }
+
+    @Test
+    public void sameEntriesAsSableCC() throws IOException {
+        BibParser parser = new BibParser(new StringReader(text));
+        List<ReferenceEntry> entries = parser.getEntries();
+
+        Start ast = parseWithSableCC(wellFormed);
+        EntryRetriever er = new EntryRetriever();
+        ast.apply(er);
+        er.finishParse();
+        AbbrevRetriever ar = new AbbrevRetriever();
+        ast.apply(ar);
+
+        assertTrue(er.getEntries().size() > 5);
+        assertEquals(describeEntries(er.getEntries()), describeEntries(entries));
+        assertEquals(describeEntries(ar.getAbbrevs()), describeEntries(parser.getAbbrevs()));
+        assertEquals(describeMessages(er.getWarnings()), describeMessages(parser.getWarnings()));
+    }
+
+    @Test
+    public void todoCommentsAreTasks() throws IOException {
+        // unlike the SableCC lexer, whose comment token swallows a TODO
+        // line unless an @ follows it directly
+        BibParser parser = new BibParser(new StringReader(text));
+        parser.getEntries();
+        List<ParseErrorMessage> tasks = parser.getTasks();
+        assertEquals(1, tasks.size());
+        assertEquals("check the page numbers of knuth84", tasks.get(0).getMsg());
+        assertEquals(lineOf(text, text.indexOf("% TODO")), tasks.get(0).getLine());
+    }
+
+    @Test
+    public void todoOnTheLastLineIsATask() throws IOException {
+        BibParser parser = new BibParser(new StringReader("@misc{a, year = 2001}\n% TODO last line"));
+        parser.getEntries();
+        List<ParseErrorMessage> tasks = parser.getTasks();
+        assertEquals(1, tasks.size());
+        assertEquals("last line", tasks.get(0).getMsg());
+        assertEquals(2, tasks.get(0).getLine());
+    }
+
+    @Test
+    public void malformedEntryDoesNotDefineItsKey() throws IOException {
+        BibParser parser = new BibParser(new StringReader(
+                "@misc{a, year = 2001\n"
+                + "@misc{a, year = 2002}\n"));
+        assertEquals(1, parser.getEntries().size());
+        assertEquals(1, parser.getErrors().size());
+        for (ParseErrorMessage m : parser.getWarnings()) {
+            assertTrue(m.getMsg(), m.getMsg().indexOf("not unique") < 0);
+        }
+    }
+
+    @Test
+    public void malformedDuplicateKeepsTheFirstDefinition() throws IOException {
+        BibParser parser = new BibParser(new StringReader(
+                "@misc{a, year = 2001}\n"
+                + "@misc{a, year = 2002\n"
+                + "@misc{a, year = 2003}\n"));
+        assertEquals(2, parser.getEntries().size());
+        List<String> unique = new ArrayList<String>();
+        for (ParseErrorMessage m : parser.getWarnings()) {
+            if (m.getMsg().indexOf("not unique") >= 0) {
+                unique.add(m.getLine() + ": " + m.getMsg());
+            }
+        }
+        assertEquals(2, unique.size());
+        assertEquals("3: BibTex key a is not unique: also defined in line 1", unique.get(1));
+    }
+
+    @Test
+    public void malformedEntriesAreReported() throws IOException {
+        BibParser parser = new BibParser(new StringReader(text));
+        parser.getEntries();
+        List<ParseErrorMessage> errors = parser.getErrors();
+        assertEquals(describeMessages(errors).toString(), MALFORMED, errors.size());
+        for (int i = 0; i < MALFORMED; i++) {
+            int line = errors.get(i).getLine();
+            int[] lines = malformed.get(i);
+            assertTrue("error on line " + line + " outside the entry on lines "
+                    + lines[0] + "-" + lines[1], line >= lines[0] && line <= lines[1]);
+        }
+    }
+
+    @Test
+    public void recoveryKeepsTheOtherEntries() throws IOException {
+        BibParser whole = new BibParser(new StringReader(text));
+        BibParser blanked = new BibParser(new StringReader(wellFormed));
+        assertEquals(describeEntries(blanked.getEntries()), describeEntries(whole.getEntries()));
+        assertTrue(blanked.getErrors().isEmpty());
+    }
+
+    private static String read(String name) throws IOException {
+        InputStream in = BibStreamParserTest.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing fixture " + name);
+        }
+        Reader r = new InputStreamReader(in, StandardCharsets.UTF_8);
+        try {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[4096];
+            int n;
+            while ((n = r.read(buf)) > 0) {
+                sb.append(buf, 0, n);
+            }
+            return sb.toString();
+        } finally {
+            r.close();
+        }
+    }
+
+    /**
+     * @return The offsets of the lines starting with @, and 0
+     */
+    private static List<Integer> entryStarts(String text) {
+        List<Integer> starts = new ArrayList<Integer>();
+        starts.add(0);
+        for (int i = 1; i < text.length(); i++) {
+            if (text.charAt(i) == '@' && text.charAt(i - 1) == '\n') {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private static int lineOf(String text, int offset) {
+        int line = 1;
+        for (int i = 0; i < offset; i++) {
+            if (text.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    private static Start parseWithSableCC(String text) throws IOException {
+        try {
+            return new Parser(new BibLexer(new PushbackReader(new StringReader(text), 1024))).parse();
+        } catch (ParserException e) {
+            throw new AssertionError("SableCC rejected the well-formed entries: " + e.getMessage());
+        } catch (LexerException e) {
+            throw new AssertionError("SableCC rejected the well-formed entries: " + e.getMessage());
+        }
+    }
+
+    private static boolean parsesWithSableCC(String text) throws IOException {
+        try {
+            new Parser(new BibLexer(new PushbackReader(new StringReader(text), 1024))).parse();
+            return true;
+        } catch (ParserException e) {
+            return false;
+        } catch (LexerException e) {
+            return false;
+        }
+    }
+
+    private static List<String> describeEntries(List<?> entries) {
+        List<String> list = new ArrayList<String>();
+        for (Object o : entries) {
+            ReferenceEntry e = (ReferenceEntry) o;
+            list.add(e.key + " " + e.startLine + "-" + e.endLine + " author=" + e.author
+                    + " journal=" + e.journal + " year=" + e.year + " info=" + e.getInfo());
+        }
+        return list;
+    }
+
+    private static List<String> describeMessages(List<?> messages) {
+        List<String> list = new ArrayList<String>();
+        for (Object o : messages) {
+            ParseErrorMessage m = (ParseErrorMessage) o;
+            list.add(m.getLine() + ":" + m.getPos() + ":" + m.getLength() + " "
+                    + m.getSeverity() + " " + m.getMsg());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.tests.editor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentPartitioner;
+import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.texlipse.editor.partitioner.FastLaTeXPartitioner;
+import org.junit.Test;
+
+/**
+ * Compares the partitions a <code>FastLaTeXPartitioner</code> keeps up to
+ * date while a document is edited with those of a new partitioner over
+ * the edited text.
+ * <p>
+ * The documents have long verbatim, listing, math and comment partitions,
+ * so the incremental partitioner repairs them from its checkpoints. The
+ * edits insert and delete the delimiters of those partitions at random.
+ */
+public class FastLaTeXPartitionerTest {
+
+    private static final int DOCUMENTS = 300;
+    private static final int EDITS = 40;
+
+    private static final String[] FRAGMENTS = {
+        "Some text with {braces} and [options] and a \\command{argument}.\n",
+        "Inline $x^2 + y^2$ and \\(a + b\\) math.\n",
+        "% a comment line\n",
+        "\\verb|$not math$| and \\lstinline!x = {1}!\n",
+        "\\section{Title}\\label{sec:a}\n",
+        "\n",
+    };
+
+    // the environments that become one partition, each filled with many lines
+    private static final String[] LONG_BLOCKS = {
+        "verbatim", "lstlisting", "equation", "align*", "comment", "tikzpicture", "$$",
+    };
+
+    private static final String[] INSERTIONS = {
+        "$", "$$", "\\", "{", "}", "[", "]", "%", "\n", "x", " ", "\\(", "\\)",
+        "\\begin{verbatim}", "\\end{verbatim}", "\\begin{equation}", "\\end{equation}",
+        "\\end{lstlisting}", "\\begin{comment}\n", "\\end{align*}", "\\verb|", "\\[", "\\]",
+    };
+
+    @Test
+    public void incrementalMatchesFullPartitioning() throws BadLocationException {
+        for (int seed = 0; seed < DOCUMENTS; seed++) {
+            Random random = new Random(seed);
+            IDocument document = new Document(generate(random));
+            IDocumentPartitioner partitioner = connect(document);
+            for (int i = 0; i < EDITS; i++) {
+                edit(document, random);
+                String context = "document " + seed + ", edit " + i;
+                assertEquals(context, describe(fullPartitioning(document.get())),
+                        describe(partitioner.computePartitioning(0, document.getLength())));
+            }
+        }
+    }
+
+    private static IDocumentPartitioner connect(IDocument document) {
+        IDocumentPartitioner partitioner = new FastLaTeXPartitioner();
+        partitioner.connect(document);
+        document.setDocumentPartitioner(partitioner);
+        return partitioner;
+    }
+
+    private static ITypedRegion[] fullPartitioning(String text) {
+        IDocument document = new Document(text);
+        return connect(document).computePartitioning(0, document.getLength());
+    }
+
+    private static String generate(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int parts = 5 + random.nextInt(10);
+        for (int i = 0; i < parts; i++) {
+            if (random.nextInt(3) == 0) {
+                String block = LONG_BLOCKS[random.nextInt(LONG_BLOCKS.length)];
+                boolean dollars = block.equals("$$");
+                sb.append(dollars ? "$$\n" : "\\begin{" + block + "}\n");
+                // long enough to hold several checkpoints
+                int lines = 20 + random.nextInt(150);
+                for (int j = 0; j < lines; j++) {
+                    sb.append(dollars ? "a_" + j + " + " : "line " + j + " {x} & y \\\\").append('\n');
+                }
+                sb.append(dollars ? "$$\n" : "\\end{" + block + "}\n");
+            } else {
+                sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void edit(IDocument document, Random random) throws BadLocationException {
+        int length = document.getLength();
+        int offset = length == 0 ? 0 : random.nextInt(length + 1);
+        switch (random.nextInt(4)) {
+        case 0:
+            // delete a few characters
+            int deleted = Math.min(length - offset, 1 + random.nextInt(8));
+            document.replace(offset, deleted, "");
+            break;
+        case 1:
+            // type a line of text
+            document.replace(offset, 0, "typed text {here}\n");
+            break;
+        default:
+            document.replace(offset, 0, INSERTIONS[random.nextInt(INSERTIONS.length)]);
+            break;
+        }
+    }
+
+    private static List<String> describe(ITypedRegion[] regions) {
+        List<String> list = new ArrayList<String>(regions.length);
+        for (ITypedRegion region : regions) {
+            list.add(region.getOffset() + "+" + region.getLength() + " " + region.getType());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.tests.preview;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.texlipse.preview.PreviewCache;
+import org.eclipse.texlipse.preview.SnippetRenderer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the hit rate and the render latency of the preview cache with a
+ * renderer that writes a small file for each snippet instead of running
+ * latex.
+ */
+public class PreviewCacheTest {
+
+    private static final String PREAMBLE = "\\documentclass{article}\n\\begin{document}";
+    // the time the stub renderer takes for a run
+    private static final long DELAY_MILLIS = 20;
+    // the formulas on one screen of the editor
+    private static final int SCREEN = 8;
+
+    /**
+     * Writes a file for each snippet, except for the snippets with an
+     * undefined command, and counts the runs.
+     */
+    private static class StubRenderer implements SnippetRenderer {
+
+        private int runs;
+        private final List<String> rendered = new ArrayList<String>();
+
+        public List<Path> render(String preamble, List<String> snippets, Path dir) throws IOException {
+            runs++;
+            try {
+                Thread.sleep(DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            List<Path> images = new ArrayList<Path>(snippets.size());
+            for (int i = 0; i < snippets.size(); i++) {
+                if (snippets.get(i).contains("\\undefined")) {
+                    images.add(null);
+                } else {
+                    rendered.add(snippets.get(i));
+                    images.add(Files.write(dir.resolve("snippet" + (i + 1) + ".png"),
+                            snippets.get(i).getBytes("UTF-8")));
+                }
+            }
+            return images;
+        }
+    }
+
+    private Path dir;
+    private StubRenderer renderer;
+    private PreviewCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("preview");
+        renderer = new StubRenderer();
+        cache = new PreviewCache(dir.resolve("cache"), renderer);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        delete(dir);
+    }
+
+    @Test
+    public void scrollingRendersEachFormulaOnce() throws IOException {
+        List<String> formulas = new ArrayList<String>();
+        for (int i = 0; i < 40; i++) {
+            formulas.add("$x_{" + i + "}^2$");
+        }
+        // scrolls half a screen at a time and hovers every formula,
+        // rendering the screen when a formula is missing like the hover
+        int screens = 0;
+        for (int top = 0; top + SCREEN <= formulas.size(); top += SCREEN / 2) {
+            List<String> screen = formulas.subList(top, top + SCREEN);
+            for (String formula : screen) {
+                if (cache.get(PREAMBLE, formula) == null) {
+                    cache.render(PREAMBLE, screen);
+                    assertNotNull(formula, cache.get(PREAMBLE, formula));
+                }
+            }
+            screens++;
+        }
+
+        // one miss per screen, and the first screen renders all its formulas
+        assertEquals(screens * (SCREEN + 1), cache.getLookups());
+        assertEquals((double) SCREEN / (SCREEN + 1), cache.getHitRate(), 1e-9);
+        assertEquals(screens, cache.getRenderRuns());
+        assertEquals(formulas.size(), cache.getRenderedSnippets());
+        assertEquals(formulas, renderer.rendered);
+    }
+
+    @Test
+    public void renderLatency() throws IOException {
+        int runs = 10;
+        for (int i = 0; i < runs; i++) {
+            assertEquals(2, cache.render(PREAMBLE, Arrays.asList("$a_" + i + "$", "$b_" + i + "$")));
+        }
+        assertEquals(runs, cache.getRenderRuns());
+        // the cache adds little to the run of the renderer
+        double average = cache.getAverageRenderMillis();
+        assertTrue("average " + average + " ms", average >= DELAY_MILLIS);
+        assertTrue("average " + average + " ms", average < DELAY_MILLIS + 500);
+
+        // the lookups are done in the UI thread
+        int lookups = 10000;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            assertNotNull(cache.get(PREAMBLE, "$a_" + (i % runs) + "$"));
+        }
+        double lookupMillis = (System.nanoTime() - start) / 1e6 / lookups;
+        assertTrue("lookup " + lookupMillis + " ms", lookupMillis < 1);
+    }
+
+    @Test
+    public void failedSnippetsAreNotRenderedAgain() throws IOException {
+        String bad = "$\\undefined x$";
+        assertEquals(1, cache.render(PREAMBLE, Arrays.asList(bad, "$x$")));
+        assertTrue(cache.hasFailed(PREAMBLE, bad));
+        assertFalse(cache.hasFailed(PREAMBLE, "$x$"));
+        assertNull(cache.get(PREAMBLE, bad));
+
+        assertEquals(0, cache.render(PREAMBLE, Arrays.asList(bad, "$x$")));
+        assertEquals(1, renderer.runs);
+
+        // a new preamble may define the command
+        String preamble = "\\documentclass{article}\n\\newcommand{\\undefined}{}\n\\begin{document}";
+        assertFalse(cache.hasFailed(preamble, bad));
+        cache.render(preamble, Arrays.asList(bad));
+        assertEquals(2, renderer.runs);
+    }
+
+    @Test
+    public void imagesDependOnThePreamble() throws IOException {
+        cache.render(PREAMBLE, Arrays.asList("$x$"));
+        assertNotNull(cache.get(PREAMBLE, "$x$"));
+        assertNull(cache.get("\\documentclass{book}\n\\begin{document}", "$x$"));
+
+        // a new cache over the same directory finds the images
+        PreviewCache restarted = new PreviewCache(dir.resolve("cache"), renderer);
+        assertNotNull(restarted.get(PREAMBLE, "$x$"));
+        assertEquals(0, restarted.render(PREAMBLE, Arrays.asList("$x$")));
+        assertEquals(1, renderer.runs);
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            DirectoryStream<Path> files = Files.newDirectoryStream(path);
+            try {
+                for (Path file : files) {
+                    delete(file);
+                }
+            } finally {
+                files.close();
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.tests.spelling;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.texlipse.spelling.HunspellDictionary;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the affix rules of <code>HunspellDictionary</code> against two
+ * small dictionaries: <code>affixes</code> with cross products, affix
+ * conditions, NEEDAFFIX and ONLYINCOMPOUND, and <code>aliases</code> whose
+ * flags are given by AF aliases.
+ */
+public class HunspellDictionaryTest {
+
+    private static final String[] FIXTURES = {
+        "affixes.aff", "affixes.dic", "aliases.aff", "aliases.dic" };
+
+    private Path dir;
+    private HunspellDictionary affixes;
+    private HunspellDictionary aliases;
+
+    @Before
+    public void setUp() throws IOException {
+        // the dictionaries are read from files, not from the bundle
+        dir = Files.createTempDirectory("hunspell");
+        for (String name : FIXTURES) {
+            InputStream in = HunspellDictionaryTest.class.getResourceAsStream(name);
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            try {
+                Files.copy(in, dir.resolve(name));
+            } finally {
+                in.close();
+            }
+        }
+        affixes = HunspellDictionary.getDictionary(dir.toFile(), "affixes");
+        aliases = HunspellDictionary.getDictionary(dir.toFile(), "aliases");
+        assertNotNull(affixes);
+        assertNotNull(aliases);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        delete(dir);
+    }
+
+    @Test
+    public void crossProductOfPrefixAndSuffix() {
+        assertCorrect(affixes, "lock", "unlock", "locked", "unlocked");
+        assertWrong(affixes, "unlocks", "relock");
+    }
+
+    @Test
+    public void prefixWithoutCrossProduct() {
+        assertCorrect(affixes, "read", "reread", "reads");
+        assertWrong(affixes, "rereads", "unread");
+    }
+
+    @Test
+    public void suffixConditions() {
+        assertCorrect(affixes, "try", "tried", "tries");
+        assertWrong(affixes, "tryed", "trys", "tryied");
+    }
+
+    @Test
+    public void needAffix() {
+        assertWrong(affixes, "kind");
+        assertCorrect(affixes, "unkind", "kinds", "unkinds");
+    }
+
+    @Test
+    public void onlyInCompound() {
+        assertCorrect(affixes, "work", "shop", "workshop", "shopwork", "workberg", "bergshop");
+        assertWrong(affixes, "berg", "bergs");
+    }
+
+    @Test
+    public void capitalizedWords() {
+        assertCorrect(affixes, "Unlocked", "UNLOCKED", "Workshop");
+        assertWrong(affixes, "Berg", "Kind");
+    }
+
+    @Test
+    public void flagAliases() {
+        // lock/1 is AUD, door/2 is S and pack/3 is US
+        assertCorrect(aliases, "lock", "unlock", "locked", "unlocked", "lockable", "unlockable");
+        assertWrong(aliases, "locks", "unlocks");
+        assertCorrect(aliases, "door", "doors");
+        assertWrong(aliases, "undoor", "doored", "doorable");
+        assertCorrect(aliases, "pack", "packs", "unpack", "unpacks");
+        assertWrong(aliases, "packed", "packable");
+    }
+
+    @Test
+    public void aliasInContinuationClass() {
+        // the suffix able/2 can be followed by the suffix S
+        assertCorrect(aliases, "lockables", "unlockables");
+        assertWrong(aliases, "lockeds");
+    }
+
+    private static void assertCorrect(HunspellDictionary dictionary, String... words) {
+        for (String word : words) {
+            assertTrue(word, dictionary.check(word));
+        }
+    }
+
+    private static void assertWrong(HunspellDictionary dictionary, String... words) {
+        for (String word : words) {
+            assertFalse(word, dictionary.check(word));
+        }
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (Files.isDirectory(path)) {
+            DirectoryStream<Path> files = Files.newDirectoryStream(path);
+            try {
+                for (Path file : files) {
+                    delete(file);
+                }
+            } finally {
+                files.close();
+            }
+        }
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2017, 2025 TeXlipse and others.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * https://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *
+ * Contributors:
+ *     The TeXlipse team - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.texlipse.tests.ui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.swt.SWTError;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.texlipse.TexlipsePlugin;
+import org.eclipse.texlipse.model.TexCommandContainer;
+import org.eclipse.texlipse.model.TexCommandEntry;
+import org.eclipse.texlipse.ui.SharedImageRegistry;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the command images are shared, so that rebuilding the
+ * command containers doesn't allocate more image handles, and that an
+ * acquired image is disposed with its last release.
+ * <p>
+ * The images need a display and the registry of the started plugin, so
+ * the tests are skipped when they run without the UI.
+ */
+public class SharedImageRegistryTest {
+
+    private static final int REBUILDS = 200;
+
+    private SharedImageRegistry images;
+
+    @Before
+    public void setUp() {
+        try {
+            Display.getDefault();
+        } catch (SWTError e) {
+            Assume.assumeNoException(e);
+        }
+        TexlipsePlugin plugin = TexlipsePlugin.getDefault();
+        Assume.assumeNotNull(plugin);
+        images = TexlipsePlugin.getSharedImages();
+        Assume.assumeNotNull(images);
+    }
+
+    @Test
+    public void rebuildingTheCommandsAllocatesNoImages() {
+        int built = showImages(rebuild());
+        assertTrue("no command has an image", built > 0);
+        int count = images.getImageCount();
+
+        for (int i = 0; i < REBUILDS; i++) {
+            assertEquals(built, showImages(rebuild()));
+        }
+        assertEquals(count, images.getImageCount());
+    }
+
+    @Test
+    public void releasedImagesAreDisposed() {
+        ImageDescriptor descriptor = ImageDescriptor.createFromImageData(
+                new ImageData(16, 16, 24, new PaletteData(0xff0000, 0xff00, 0xff)));
+        int count = images.getImageCount();
+
+        Image image = images.acquire(descriptor);
+        assertNotNull(image);
+        assertSame(image, images.acquire(descriptor));
+        assertEquals(count + 1, images.getImageCount());
+        images.release(descriptor);
+        assertFalse(image.isDisposed());
+        images.release(descriptor);
+        assertTrue(image.isDisposed());
+        assertEquals(count, images.getImageCount());
+    }
+
+    /**
+     * Builds a container the way a reparse of the document does, with new
+     * user commands using the images of the built-in ones.
+     */
+    private static TexCommandContainer rebuild() {
+        List<TexCommandEntry> userCommands = new ArrayList<TexCommandEntry>();
+        for (TexCommandEntry c : TexCommandContainer.stdArrows) {
+            TexCommandEntry copy = new TexCommandEntry(c);
+            copy.key = "my" + c.key;
+            userCommands.add(copy);
+        }
+        TexCommandContainer container = new TexCommandContainer();
+        container.addRefSource("document.tex", userCommands);
+        container.organize();
+        return container;
+    }
+
+    /**
+     * Gets the images of all the commands, as the completion does.
+     * 
+     * @return the number of commands with an image
+     */
+    private static int showImages(TexCommandContainer container) {
+        int withImage = 0;
+        for (int context = 1; context <= TexCommandEntry.NUMBER_OF_CONTEXTS; context++) {
+            for (TexCommandEntry c : container.getSortedCommands(context)) {
+                if (c.getImage() != null) {
+                    withImage++;
+                }
+            }
+        }
+        return withImage;
+    }
+}